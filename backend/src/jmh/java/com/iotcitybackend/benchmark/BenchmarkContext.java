@@ -0,0 +1,93 @@
+package com.iotcitybackend.benchmark;
+
+import com.iotcitybackend.IotCityBackendApplication;
+import com.iotcitybackend.service.SensorDataRollupService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Sobe a aplicação (sem servidor web) sobre um H2 em memória e popula dados sintéticos
+ * determinísticos (semente fixa), para que os resultados dos benchmarks sejam comparáveis entre execuções.
+ */
+final class BenchmarkContext {
+
+    static final String[] SENSOR_TYPES = {"TEMPERATURA", "UMIDADE", "QUALIDADE_AR", "RUÍDO", "LUZ", "MOVIMENTO"};
+    static final LocalDateTime SEED_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final long SEED = 42L;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName, Map<String, Object> extraProperties) {
+        Map<String, Object> properties = new HashMap<>();
+        // Sem o cache de resultados do H2: consultas repetidas sobre dados inalterados não seriam executadas
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + databaseName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0");
+        properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.sql.init.mode", "never");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("spring.main.banner-mode", "off");
+        // Leituras de 2024: a retenção removeria parte da base durante as medições
+        properties.put("sensor.retention.enabled", "false");
+        properties.putAll(extraProperties);
+        // Como argumentos de linha de comando, para prevalecer sobre o application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(IotCityBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    /**
+     * Insere devices dispositivos e readings leituras (uma a cada 10s a partir de SEED_START) via JDBC batch
+     * e calcula os rollups correspondentes
+     */
+    static void seed(ConfigurableApplicationContext context, int devices, int readings) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.valueOf(SEED_START);
+        List<Object[]> deviceRows = new ArrayList<>(devices);
+        for (int i = 1; i <= devices; i++) {
+            deviceRows.add(new Object[]{i, "Sensor_Natal_" + i, "QUALIDADE_AR", "Natal/RN " + i, true, now, 80, 90, now, now});
+        }
+        jdbc.batchUpdate("INSERT INTO devices (id, name, type, location, active, last_seen, battery_level, signal_strength, "
+                + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", deviceRows);
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        String sql = "INSERT INTO sensor_data (id, device_id, sensor_type, sensor_value, unit, timestamp, latitude, longitude, "
+                + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> batch = new ArrayList<>(1000);
+        for (int i = 1; i <= readings; i++) {
+            batch.add(new Object[]{i, 1 + (i % devices), SENSOR_TYPES[i % SENSOR_TYPES.length],
+                    Math.round(random.nextDouble(0, 100) * 100) / 100.0, "CELSIUS",
+                    Timestamp.valueOf(SEED_START.plusSeconds(i * 10L)),
+                    random.nextDouble(-5.90, -5.70), random.nextDouble(-35.30, -35.15), now});
+            if (batch.size() == 1000) {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+        }
+        // Índices compostos do schema.sql/data.sql (o schema dos benchmarks é gerado pelo Hibernate)
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_sensor_data_device_timestamp ON sensor_data(device_id, timestamp)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_sensor_data_type_timestamp ON sensor_data(sensor_type, timestamp)");
+        LocalDateTime last = SEED_START.plusSeconds(readings * 10L);
+        context.getBean(SensorDataRollupService.class).backfill(SEED_START.toLocalDate(), last.toLocalDate());
+    }
+}
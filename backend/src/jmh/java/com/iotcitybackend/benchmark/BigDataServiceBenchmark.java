@@ -0,0 +1,61 @@
+package com.iotcitybackend.benchmark;
+
+import com.iotcitybackend.service.BigDataService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análises do BigDataService com Spark em local[*] sobre a aplicação real (JPA + H2) com 50 mil leituras.
+ * Cada invocação é uma análise completa (leitura do banco + jobs Spark), por isso o modo SingleShotTime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BigDataServiceBenchmark {
+
+    private static final int DEVICES = 50;
+    private static final int READINGS = 50_000;
+
+    private ConfigurableApplicationContext context;
+    private BigDataService bigDataService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("bigdata-bench", Map.of(
+                "spark.enabled", "true",
+                "spark.master", "local[*]"));
+        BenchmarkContext.seed(context, DEVICES, READINGS);
+        bigDataService = context.getBean(BigDataService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeSensorData() {
+        return bigDataService.analyzeSensorDataWithSpark();
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeTemporalPatterns() {
+        return bigDataService.analyzeTemporalPatterns();
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeGeographicDistribution() {
+        return bigDataService.analyzeGeographicDistribution(null);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzePerformanceMetrics() {
+        return bigDataService.analyzePerformanceMetrics();
+    }
+}
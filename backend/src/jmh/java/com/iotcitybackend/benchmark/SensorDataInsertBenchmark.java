@@ -0,0 +1,129 @@
+package com.iotcitybackend.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de inserts em sensor_data no H2 embarcado, reproduzindo os padrões JDBC que o
+ * Hibernate gera para cada estratégia de ID:
+ * - IDENTITY: um INSERT por linha com getGeneratedKeys (o batching é desabilitado)
+ * - SEQUENCE pooled-lo (allocationSize=50): um nextval a cada 50 IDs e INSERTs em JDBC batch
+ *
+ * No H2 em memória o round trip é barato; contra o PostgreSQL pela rede a diferença é maior.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorDataInsertBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 1000;
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_COLUMNS =
+            "(device_id, sensor_type, sensor_value, unit, timestamp, latitude, longitude, created_at)";
+
+    private Connection connection;
+    private Timestamp now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:insert-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS sensor_data_identity (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "device_id BIGINT NOT NULL, sensor_type VARCHAR(50) NOT NULL, sensor_value DOUBLE PRECISION NOT NULL, "
+                    + "unit VARCHAR(20), timestamp TIMESTAMP NOT NULL, latitude DOUBLE PRECISION, longitude DOUBLE PRECISION, created_at TIMESTAMP)");
+            st.execute("CREATE SEQUENCE IF NOT EXISTS sensor_data_id_seq START WITH 1 INCREMENT BY " + ALLOCATION_SIZE);
+            st.execute("CREATE TABLE IF NOT EXISTS sensor_data_sequence (id BIGINT PRIMARY KEY, "
+                    + "device_id BIGINT NOT NULL, sensor_type VARCHAR(50) NOT NULL, sensor_value DOUBLE PRECISION NOT NULL, "
+                    + "unit VARCHAR(20), timestamp TIMESTAMP NOT NULL, latitude DOUBLE PRECISION, longitude DOUBLE PRECISION, created_at TIMESTAMP)");
+        }
+        connection.commit();
+        now = Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("TRUNCATE TABLE sensor_data_identity");
+            st.execute("TRUNCATE TABLE sensor_data_sequence");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long identityPerRowInsert() throws SQLException {
+        long lastId = 0;
+        String sql = "INSERT INTO sensor_data_identity " + INSERT_COLUMNS + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                bindRow(ps, 1, i);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long sequencePooledBatchInsert() throws SQLException {
+        long nextId = 0;
+        long hi = 0;
+        String sql = "INSERT INTO sensor_data_sequence (id, " + INSERT_COLUMNS.substring(1) + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement seq = connection.prepareStatement("SELECT NEXT VALUE FOR sensor_data_id_seq");
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+                if (nextId >= hi) {
+                    try (ResultSet rs = seq.executeQuery()) {
+                        rs.next();
+                        nextId = rs.getLong(1);
+                        hi = nextId + ALLOCATION_SIZE;
+                    }
+                }
+                ps.setLong(1, nextId++);
+                bindRow(ps, 2, i);
+                ps.addBatch();
+                if ((i + 1) % ALLOCATION_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+        return nextId;
+    }
+
+    private void bindRow(PreparedStatement ps, int offset, int i) throws SQLException {
+        ps.setLong(offset, 1 + (i % 50));
+        ps.setString(offset + 1, "TEMPERATURA");
+        ps.setDouble(offset + 2, 20.0 + (i % 100) / 10.0);
+        ps.setString(offset + 3, "CELSIUS");
+        ps.setTimestamp(offset + 4, now);
+        ps.setDouble(offset + 5, -5.79);
+        ps.setDouble(offset + 6, -35.20);
+        ps.setTimestamp(offset + 7, now);
+    }
+}
@@ -0,0 +1,239 @@
+package com.iotcitybackend.benchmark;
+
+import com.iotcitybackend.dto.DeviceDTO;
+import com.iotcitybackend.dto.SensorDataDTO;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de montar uma página de GET /api/sensor-data (1000 leituras) sobre um H2 com 200 mil leituras
+ * de 50 dispositivos, reproduzindo os padrões JDBC/objetos de cada abordagem:
+ * - entityGraph: device EAGER, JOIN com devices por linha, entidades SensorData + Device e um DeviceDTO por leitura
+ * - projection: apenas as colunas da leitura (SensorDataRow) e um DeviceDTO por dispositivo distinto
+ *
+ * Para comparar alocação use o profiler de GC: -Djmh.args="SensorDataListingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorDataListingBenchmark {
+
+    private static final int DEVICES = 50;
+    private static final int READINGS = 200_000;
+    private static final int PAGE_SIZE = 1000;
+
+    private static final String ENTITY_GRAPH_SQL =
+            "SELECT sd.id, sd.sensor_type, sd.sensor_value, sd.unit, sd.timestamp, sd.latitude, sd.longitude, sd.created_at, "
+            + "d.id AS d_id, d.name, d.type, d.location, d.active, d.last_seen, d.battery_level, d.signal_strength, "
+            + "d.created_at AS d_created_at, d.updated_at "
+            + "FROM sensor_data sd JOIN devices d ON d.id = sd.device_id "
+            + "WHERE sd.sensor_type = ? ORDER BY sd.timestamp DESC, sd.id DESC LIMIT " + PAGE_SIZE;
+
+    private static final String PROJECTION_SQL =
+            "SELECT sd.id, sd.device_id, sd.sensor_type, sd.sensor_value, sd.unit, sd.timestamp, sd.latitude, sd.longitude "
+            + "FROM sensor_data sd "
+            + "WHERE sd.sensor_type = ? ORDER BY sd.timestamp DESC, sd.id DESC LIMIT " + PAGE_SIZE;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:listing-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE devices (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, type VARCHAR(50) NOT NULL, "
+                    + "location VARCHAR(200) NOT NULL, active BOOLEAN, last_seen TIMESTAMP, battery_level INT, "
+                    + "signal_strength INT, created_at TIMESTAMP, updated_at TIMESTAMP)");
+            st.execute("CREATE TABLE sensor_data (id BIGINT PRIMARY KEY, device_id BIGINT NOT NULL, sensor_type VARCHAR(50) NOT NULL, "
+                    + "sensor_value DOUBLE PRECISION NOT NULL, unit VARCHAR(20), timestamp TIMESTAMP NOT NULL, "
+                    + "latitude DOUBLE PRECISION, longitude DOUBLE PRECISION, created_at TIMESTAMP)");
+            st.execute("CREATE INDEX idx_sensor_data_type_timestamp ON sensor_data(sensor_type, timestamp)");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO devices VALUES (?, ?, ?, ?, TRUE, ?, 80, 90, ?, ?)")) {
+            for (int i = 1; i <= DEVICES; i++) {
+                ps.setLong(1, i);
+                ps.setString(2, "Sensor_Natal_" + i);
+                ps.setString(3, "QUALIDADE_AR");
+                ps.setString(4, "Avenida Hermes da Fonseca " + i + ", Natal/RN");
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+                ps.setTimestamp(7, now);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        String[] types = {"TEMPERATURA", "UMIDADE", "QUALIDADE_AR", "RUÍDO"};
+        LocalDateTime base = LocalDateTime.now().minusDays(30);
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO sensor_data VALUES (?, ?, ?, ?, 'CELSIUS', ?, -5.79, -35.20, ?)")) {
+            for (int i = 1; i <= READINGS; i++) {
+                ps.setLong(1, i);
+                ps.setLong(2, 1 + (i % DEVICES));
+                ps.setString(3, types[i % types.length]);
+                ps.setDouble(4, 20.0 + (i % 100) / 10.0);
+                ps.setTimestamp(5, Timestamp.valueOf(base.plusSeconds(i * 10L)));
+                ps.setTimestamp(6, now);
+                ps.addBatch();
+                if (i % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public List<SensorDataDTO> entityGraph() throws SQLException {
+        List<SensorDataDTO> dtos = new ArrayList<>(PAGE_SIZE);
+        try (PreparedStatement ps = connection.prepareStatement(ENTITY_GRAPH_SQL)) {
+            ps.setString(1, "TEMPERATURA");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Device device = Device.builder()
+                            .id(rs.getLong("d_id"))
+                            .name(rs.getString("name"))
+                            .type(rs.getString("type"))
+                            .location(rs.getString("location"))
+                            .active(rs.getBoolean("active"))
+                            .lastSeen(toLocalDateTime(rs.getTimestamp("last_seen")))
+                            .batteryLevel(rs.getInt("battery_level"))
+                            .signalStrength(rs.getInt("signal_strength"))
+                            .createdAt(toLocalDateTime(rs.getTimestamp("d_created_at")))
+                            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                            .build();
+                    SensorData data = SensorData.builder()
+                            .id(rs.getLong("id"))
+                            .device(device)
+                            .sensorType(rs.getString("sensor_type"))
+                            .value(rs.getDouble("sensor_value"))
+                            .unit(rs.getString("unit"))
+                            .timestamp(toLocalDateTime(rs.getTimestamp("timestamp")))
+                            .latitude(rs.getDouble("latitude"))
+                            .longitude(rs.getDouble("longitude"))
+                            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                            .build();
+                    dtos.add(SensorDataDTO.builder()
+                            .id(data.getId())
+                            .device(toDeviceDTO(data.getDevice()))
+                            .sensorType(data.getSensorType())
+                            .value(String.format("%.2f", data.getValue()))
+                            .unit(data.getUnit())
+                            .timestamp(data.getTimestamp())
+                            .latitude(data.getLatitude())
+                            .longitude(data.getLongitude())
+                            .build());
+                }
+            }
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<SensorDataDTO> projection() throws SQLException {
+        List<SensorDataRow> rows = new ArrayList<>(PAGE_SIZE);
+        try (PreparedStatement ps = connection.prepareStatement(PROJECTION_SQL)) {
+            ps.setString(1, "TEMPERATURA");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new SensorDataRow(
+                            rs.getLong("id"),
+                            rs.getLong("device_id"),
+                            rs.getString("sensor_type"),
+                            rs.getDouble("sensor_value"),
+                            rs.getString("unit"),
+                            toLocalDateTime(rs.getTimestamp("timestamp")),
+                            rs.getDouble("latitude"),
+                            rs.getDouble("longitude")));
+                }
+            }
+        }
+
+        // Na aplicação os dispositivos vêm do DeviceRegistryCache; aqui são consultados a cada página
+        Set<Long> deviceIds = new LinkedHashSet<>();
+        rows.forEach(row -> deviceIds.add(row.deviceId()));
+        Map<Long, DeviceDTO> devices = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(deviceIds.size(), "?"));
+        try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM devices WHERE id IN (" + placeholders + ")")) {
+            int index = 1;
+            for (Long id : deviceIds) {
+                ps.setLong(index++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    devices.put(rs.getLong("id"), DeviceDTO.builder()
+                            .id(rs.getLong("id"))
+                            .name(rs.getString("name"))
+                            .type(rs.getString("type"))
+                            .location(rs.getString("location"))
+                            .active(rs.getBoolean("active"))
+                            .lastSeen(toLocalDateTime(rs.getTimestamp("last_seen")))
+                            .batteryLevel(rs.getInt("battery_level"))
+                            .signalStrength(rs.getInt("signal_strength"))
+                            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                            .build());
+                }
+            }
+        }
+
+        List<SensorDataDTO> dtos = new ArrayList<>(rows.size());
+        for (SensorDataRow row : rows) {
+            dtos.add(SensorDataDTO.builder()
+                    .id(row.id())
+                    .device(devices.get(row.deviceId()))
+                    .sensorType(row.sensorType())
+                    .value(String.format("%.2f", row.value()))
+                    .unit(row.unit())
+                    .timestamp(row.timestamp())
+                    .latitude(row.latitude())
+                    .longitude(row.longitude())
+                    .build());
+        }
+        return dtos;
+    }
+
+    private static DeviceDTO toDeviceDTO(Device device) {
+        return DeviceDTO.builder()
+                .id(device.getId())
+                .name(device.getName())
+                .type(device.getType())
+                .location(device.getLocation())
+                .active(device.isActive())
+                .lastSeen(device.getLastSeen())
+                .batteryLevel(device.getBatteryLevel())
+                .signalStrength(device.getSignalStrength())
+                .createdAt(device.getCreatedAt())
+                .updatedAt(device.getUpdatedAt())
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
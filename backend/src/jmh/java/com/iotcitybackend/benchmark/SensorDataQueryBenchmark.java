@@ -0,0 +1,96 @@
+package com.iotcitybackend.benchmark;
+
+import com.iotcitybackend.repository.SensorDataRepository;
+import com.iotcitybackend.repository.SensorDataRow;
+import com.iotcitybackend.service.SensorDataPage;
+import com.iotcitybackend.service.SensorDataRollupService;
+import com.iotcitybackend.service.SensorDataService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de GET /api/sensor-data sobre a aplicação real (JPA + H2) com 100 mil leituras de 50 dispositivos:
+ * - findRowsWithFilters: leituras (projeção) de um dispositivo em um período de 1 dia (~35 leituras)
+ * - findRowsWithFiltersByType: leituras (projeção) de um tipo em um período de 1 dia (~1440 leituras)
+ * - findSensorDataPage: primeira página (projeção) de um tipo, com o tamanho padrão
+ * - averageRaw / averageRollup: média de um tipo em ~10 dias com bordas fora do minuto, varrendo as leituras
+ *   vs combinando os rollups 1d/1h/1m (a consulta crua fica só aqui, como referência)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorDataQueryBenchmark {
+
+    private static final int DEVICES = 50;
+    private static final int READINGS = 100_000;
+    // Acima do número de leituras do período: o limite não corta o resultado
+    private static final int PERIOD_LIMIT = 5_000;
+
+    private ConfigurableApplicationContext context;
+    private SensorDataRepository repository;
+    private SensorDataService service;
+    private SensorDataRollupService rollupService;
+    private EntityManager entityManager;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private LocalDateTime averageStart;
+    private LocalDateTime averageEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("query-bench", Map.of());
+        BenchmarkContext.seed(context, DEVICES, READINGS);
+        repository = context.getBean(SensorDataRepository.class);
+        service = context.getBean(SensorDataService.class);
+        start = BenchmarkContext.SEED_START.plusDays(5);
+        end = start.plusDays(1);
+        rollupService = context.getBean(SensorDataRollupService.class);
+        entityManager = context.getBean(EntityManager.class);
+        averageStart = BenchmarkContext.SEED_START.plusHours(7).plusMinutes(13).plusSeconds(25);
+        averageEnd = averageStart.plusDays(10).plusHours(5).plusMinutes(3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<SensorDataRow> findRowsWithFilters() {
+        return repository.findRowsWithFilters(null, 7L, start, end, null, PERIOD_LIMIT);
+    }
+
+    @Benchmark
+    public List<SensorDataRow> findRowsWithFiltersByType() {
+        return repository.findRowsWithFilters("TEMPERATURA", null, start, end, null, PERIOD_LIMIT);
+    }
+
+    @Benchmark
+    public SensorDataPage findSensorDataPage() {
+        return service.findSensorDataPage("TEMPERATURA", null, null, null, null, null);
+    }
+
+    @Benchmark
+    public Double averageRaw() {
+        return entityManager.createQuery("SELECT AVG(s.value) FROM SensorData s WHERE s.sensorType = :sensorType " +
+                        "AND s.timestamp BETWEEN :startDate AND :endDate", Double.class)
+                .setParameter("sensorType", "TEMPERATURA")
+                .setParameter("startDate", averageStart)
+                .setParameter("endDate", averageEnd)
+                .getSingleResult();
+    }
+
+    @Benchmark
+    public Double averageRollup() {
+        return rollupService.aggregate("TEMPERATURA", null, averageStart, averageEnd).mean();
+    }
+}
@@ -0,0 +1,106 @@
+package com.iotcitybackend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iotcitybackend.dto.FixedPointFormat;
+import com.iotcitybackend.dto.SensorDataDTO;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão + serialização JSON de 100 mil leituras para a resposta de GET /api/sensor-data:
+ * - stringFormat: valor formatado com String.format("%.2f") (implementação anterior)
+ * - fixedPoint: valor formatado com FixedPointFormat
+ * - raw: valor numérico sem formatação (modo raw)
+ *
+ * A saída JSON é descartada, para medir apenas CPU e alocação (use -prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorValueFormatBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private List<SensorDataRow> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.of(2024, 3, 15, 10, 30);
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new SensorDataRow((long) i, 1L + i % 50, "TEMPERATURA", random.nextDouble(-10, 45),
+                    "CELSIUS", base.plusSeconds(i), -5.7793, -35.2009));
+        }
+    }
+
+    @Benchmark
+    public long stringFormat() throws IOException {
+        List<SensorDataDTO> dtos = new ArrayList<>(ROWS);
+        for (SensorDataRow row : rows) {
+            dtos.add(baseDTO(row).value(String.format("%.2f", row.value())).build());
+        }
+        return serialize(dtos);
+    }
+
+    @Benchmark
+    public long fixedPoint() throws IOException {
+        List<SensorDataDTO> dtos = new ArrayList<>(ROWS);
+        for (SensorDataRow row : rows) {
+            dtos.add(baseDTO(row).value(FixedPointFormat.twoDecimals(row.value())).build());
+        }
+        return serialize(dtos);
+    }
+
+    @Benchmark
+    public long raw() throws IOException {
+        List<SensorDataDTO> dtos = new ArrayList<>(ROWS);
+        for (SensorDataRow row : rows) {
+            dtos.add(baseDTO(row).rawValue(row.value()).build());
+        }
+        return serialize(dtos);
+    }
+
+    private static SensorDataDTO.SensorDataDTOBuilder baseDTO(SensorDataRow row) {
+        return SensorDataDTO.builder()
+                .id(row.id())
+                .sensorType(row.sensorType())
+                .unit(row.unit())
+                .timestamp(row.timestamp())
+                .latitude(row.latitude())
+                .longitude(row.longitude());
+    }
+
+    private long serialize(List<SensorDataDTO> dtos) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        objectMapper.writeValue(out, dtos);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
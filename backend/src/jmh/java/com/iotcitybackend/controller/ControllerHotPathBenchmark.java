@@ -0,0 +1,102 @@
+package com.iotcitybackend.controller;
+
+import com.iotcitybackend.dto.DeviceDTO;
+import com.iotcitybackend.dto.ErrorResponse;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos quentes dos controllers, sem HTTP nem banco:
+ * - validação de POST /api/sensor-data (leitura válida e leitura com tipo inválido)
+ * - SensorDataController.toDTO / toDeviceDTO e DeviceController.convertToDTO para 1000 itens
+ *
+ * Fica no pacote controller para acessar os métodos package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerHotPathBenchmark {
+
+    private static final int ITEMS = 1000;
+    private static final String PATH = "/api/sensor-data";
+
+    private SensorDataController sensorDataController;
+    private DeviceController deviceController;
+    private List<SensorDataRow> rows;
+    private List<Device> devices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // As dependências não são usadas pelos métodos medidos
+        sensorDataController = new SensorDataController(null, null, null, null, null);
+        deviceController = new DeviceController(null);
+
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.of(2024, 3, 15, 10, 30);
+        rows = new ArrayList<>(ITEMS);
+        devices = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            rows.add(new SensorDataRow((long) i, 1L + i % 50, "TEMPERATURA", random.nextDouble(-10, 45),
+                    "CELSIUS", base.plusSeconds(i), -5.7793, -35.2009));
+            devices.add(Device.builder()
+                    .id((long) i)
+                    .name("Semaforo_Petropolis_" + i)
+                    .type("SEMÁFORO")
+                    .location("Avenida Hermes da Fonseca, Petrópolis, Natal/RN")
+                    .active(true)
+                    .lastSeen(base)
+                    .batteryLevel(85)
+                    .signalStrength(92)
+                    .createdAt(base)
+                    .updatedAt(base)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public ErrorResponse validateValidReading() {
+        return sensorDataController.validateReading(7L, "TEMPERATURA", 25.5, "CELSIUS", -5.7793, -35.2009, PATH);
+    }
+
+    @Benchmark
+    public ErrorResponse validateInvalidSensorType() {
+        return sensorDataController.validateReading(7L, "PRESSAO", 25.5, "CELSIUS", -5.7793, -35.2009, PATH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void sensorDataToDTO(Blackhole blackhole) {
+        DeviceDTO device = sensorDataController.toDeviceDTO(devices.get(0));
+        for (SensorDataRow row : rows) {
+            blackhole.consume(sensorDataController.toDTO(row, device, false));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void sensorDataToDTORaw(Blackhole blackhole) {
+        DeviceDTO device = sensorDataController.toDeviceDTO(devices.get(0));
+        for (SensorDataRow row : rows) {
+            blackhole.consume(sensorDataController.toDTO(row, device, true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void deviceConvertToDTO(Blackhole blackhole) {
+        for (Device device : devices) {
+            blackhole.consume(deviceController.convertToDTO(device));
+        }
+    }
+}
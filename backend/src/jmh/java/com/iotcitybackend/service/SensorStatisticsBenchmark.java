@@ -0,0 +1,81 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.infrastructure.bigdata.SensorKryoRegistrator;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.openjdk.jmh.annotations.*;
+import scala.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estatísticas de analyzeSensorDataWithSpark sobre 1 milhão de leituras sintéticas em local[*], sem banco:
+ * - fiveActions: forma anterior, mean/max/min/count e reduceByKey como cinco ações sobre o RDD sem cache
+ * - singlePass: BigDataService.summarizeSensorData (StatCounter por tipo via aggregateByKey)
+ *
+ * Fica no pacote service para acessar o método package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SensorStatisticsBenchmark {
+
+    private static final int READINGS = 1_000_000;
+    private static final String[] SENSOR_TYPES = {"TEMPERATURA", "UMIDADE", "QUALIDADE_AR", "RUÍDO", "LUZ", "MOVIMENTO"};
+
+    private JavaSparkContext sparkContext;
+    private JavaRDD<SensorDataRow> readings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sparkContext = new JavaSparkContext(new SparkConf()
+                .setAppName("sensor-statistics-bench")
+                .setMaster("local[*]")
+                .set("spark.serializer", "org.apache.spark.serializer.KryoSerializer")
+                .set("spark.kryo.registrator", SensorKryoRegistrator.class.getName()));
+
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<SensorDataRow> rows = new ArrayList<>(READINGS);
+        for (int i = 1; i <= READINGS; i++) {
+            rows.add(new SensorDataRow((long) i, 1L + i % 50, SENSOR_TYPES[i % SENSOR_TYPES.length],
+                    random.nextDouble(0, 100), "CELSIUS", start.plusSeconds(i * 10L),
+                    random.nextDouble(-5.90, -5.70), random.nextDouble(-35.30, -35.15)));
+        }
+        readings = sparkContext.parallelize(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sparkContext.close();
+    }
+
+    @Benchmark
+    public Object[] fiveActions() {
+        double avgValue = readings.mapToDouble(SensorDataRow::value).mean();
+        double maxValue = readings.mapToDouble(SensorDataRow::value).max();
+        double minValue = readings.mapToDouble(SensorDataRow::value).min();
+        long totalRecords = readings.count();
+        Map<String, Long> sensorTypeCount = readings
+                .mapToPair(data -> new Tuple2<>(data.sensorType(), 1L))
+                .reduceByKey((Function2<Long, Long, Long>) (a, b) -> a + b)
+                .collectAsMap();
+        return new Object[]{avgValue, maxValue, minValue, totalRecords, sensorTypeCount};
+    }
+
+    @Benchmark
+    public Map<String, Object> singlePass() {
+        return BigDataService.summarizeSensorData(readings);
+    }
+}
@@ -16,6 +16,7 @@ public class CorsGlobalConfig {
                         .allowedOriginPatterns("*")
                         .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor", "Retry-After")
                         .allowCredentials(false);
             }
         };
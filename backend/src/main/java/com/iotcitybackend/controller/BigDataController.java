@@ -1,5 +1,6 @@
 package com.iotcitybackend.controller;
 
+import com.iotcitybackend.model.SensorWindowType;
 import com.iotcitybackend.service.BigDataService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,7 +23,7 @@ public class BigDataController {
 
     @GetMapping("/analyze")
     @Operation(summary = "Análise de dados IoT usando Spark", 
-               description = "Processa dados de sensores usando Apache Spark para análise estatística")
+               description = "Processa dados de sensores usando Apache Spark para análise estatística; com spark.streaming.enabled lê os rollups diários pré-calculados")
     public ResponseEntity<Map<String, Object>> analyzeSensorData() {
         Map<String, Object> analysis = bigDataService.analyzeSensorDataWithSpark();
         return ResponseEntity.ok(analysis);
@@ -30,7 +31,7 @@ public class BigDataController {
 
     @GetMapping("/temporal-patterns")
     @Operation(summary = "Análise de padrões temporais", 
-               description = "Analisa padrões temporais nos dados usando Spark DataFrame")
+               description = "Analisa padrões temporais (média, contagem e desvio padrão por tipo e dia) agregados no banco")
     public ResponseEntity<Map<String, Object>> analyzeTemporalPatterns() {
         Map<String, Object> patterns = bigDataService.analyzeTemporalPatterns();
         return ResponseEntity.ok(patterns);
@@ -38,17 +39,29 @@ public class BigDataController {
 
     @GetMapping("/geographic")
     @Operation(summary = "Análise de distribuição geográfica", 
-               description = "Analisa a distribuição geográfica dos sensores")
-    public ResponseEntity<Map<String, Object>> analyzeGeographicDistribution() {
-        Map<String, Object> distribution = bigDataService.analyzeGeographicDistribution();
+               description = "Agrega as leituras em uma grade geohash (contagem, média, mínimo e máximo por célula e tipo de sensor); precision de 1 a 12 define o zoom")
+    public ResponseEntity<Map<String, Object>> analyzeGeographicDistribution(@RequestParam(required = false) Integer precision) {
+        Map<String, Object> distribution = bigDataService.analyzeGeographicDistribution(precision);
         return ResponseEntity.ok(distribution);
     }
 
     @GetMapping("/performance")
     @Operation(summary = "Métricas de performance", 
-               description = "Analisa performance e throughput do processamento de Big Data")
+               description = "Analisa performance e throughput do processamento de Big Data; com spark.streaming.enabled traz o último lote do job de streaming")
     public ResponseEntity<Map<String, Object>> analyzePerformanceMetrics() {
         Map<String, Object> metrics = bigDataService.analyzePerformanceMetrics();
         return ResponseEntity.ok(metrics);
     }
-} 
\ No newline at end of file
+
+    @GetMapping("/windows")
+    @Operation(summary = "Janelas do streaming",
+               description = "Agregados por janela (TUMBLING ou SLIDING) calculados continuamente pelo job de streaming do Spark, por tipo de sensor, com início nos últimos minutes minutos; deviceId restringe a um dispositivo")
+    public ResponseEntity<Map<String, Object>> getStreamingWindows(
+            @RequestParam(defaultValue = "TUMBLING") SensorWindowType windowType,
+            @RequestParam(required = false) String sensorType,
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(defaultValue = "60") int minutes) {
+        Map<String, Object> windows = bigDataService.getStreamingWindows(windowType, sensorType, deviceId, minutes);
+        return ResponseEntity.ok(windows);
+    }
+}
@@ -366,12 +366,7 @@ public class DeviceController {
         @ApiResponse(responseCode = "200", description = "Estatísticas retornadas com sucesso")
     })
     public ResponseEntity<DeviceStatsDTO> getDeviceStats() {
-        DeviceStatsDTO stats = new DeviceStatsDTO(
-            deviceService.getTotalDevices(),
-            deviceService.getActiveDevicesCount(),
-            deviceService.getOfflineDevicesCount()
-        );
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(deviceService.getDeviceStats());
     }
     
     @GetMapping("/config/offline-timeout")
@@ -395,7 +390,7 @@ public class DeviceController {
         return ResponseEntity.ok(config);
     }
 
-    private DeviceDTO convertToDTO(Device device) {
+    DeviceDTO convertToDTO(Device device) {
         DeviceDTO dto = new DeviceDTO();
         dto.setId(device.getId());
         dto.setName(device.getName());
@@ -1,8 +1,11 @@
 package com.iotcitybackend.controller;
 
 import com.iotcitybackend.exception.ErrorCodes;
+import com.iotcitybackend.exception.LiveFeedFullException;
 import com.iotcitybackend.dto.ErrorResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -88,4 +91,20 @@ public class GlobalExceptionHandler {
         
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
-} 
\ No newline at end of file
+
+    // O cliente do feed pede text/event-stream: o tipo JSON é definido explicitamente para o corpo do erro
+    @ExceptionHandler(LiveFeedFullException.class)
+    public ResponseEntity<ErrorResponse> handleLiveFeedFullException(LiveFeedFullException ex, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setErrorCode(ErrorCodes.LIVE_FEED_FULL);
+        errorResponse.setMessage("Feed em tempo real indisponível");
+        errorResponse.setDetails(ex.getMessage());
+        errorResponse.setTimestamp(LocalDateTime.now());
+        errorResponse.setPath(request.getDescription(false));
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(errorResponse);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.iotcitybackend.controller;
+
+import com.iotcitybackend.dto.ErrorResponse;
+import com.iotcitybackend.dto.LiveFeedDeltaDTO;
+import com.iotcitybackend.service.LiveFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/live")
+@CrossOrigin(origins = "*")
+@Tag(name = "Tempo real", description = "Feed de alterações de dispositivos, leituras e estatísticas (Server-Sent Events)")
+public class LiveFeedController {
+
+    private final LiveFeedService liveFeedService;
+
+    public LiveFeedController(LiveFeedService liveFeedService) {
+        this.liveFeedService = liveFeedService;
+    }
+
+    @GetMapping("/stream")
+    @Operation(
+        summary = "Assinar o feed em tempo real",
+        description = """
+            Abre um stream SSE com eventos `delta` (dispositivos alterados/excluídos, transições online/offline,
+            leituras novas e contadores de /api/devices/stats quando mudam). Alterações do mesmo dispositivo
+            (ou dispositivo e tipo de sensor) feitas entre dois envios são agregadas e apenas a mais recente é enviada.
+            Um evento `resync` indica que o cliente ficou para trás e deve recarregar o estado completo.
+            Os contadores não são filtrados.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Stream aberto",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = LiveFeedDeltaDTO.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Limite de clientes conectados atingido",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))
+        )
+    })
+    public ResponseEntity<SseEmitter> stream(
+            @Parameter(description = "Tipo de dispositivo", example = "SEMÁFORO") @RequestParam(required = false) String type,
+            @Parameter(description = "Trecho da localização (sem diferenciar maiúsculas)", example = "Petrópolis") @RequestParam(required = false) String location) {
+        SseEmitter emitter = liveFeedService.subscribe(type, location);
+        // Sem buffer em proxies (nginx) para os eventos chegarem imediatamente
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+}
@@ -1,13 +1,28 @@
 package com.iotcitybackend.controller;
 
 import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorDataPage;
+import com.iotcitybackend.service.SensorDataRetentionService;
+import com.iotcitybackend.service.SensorReadingValidator;
+import com.iotcitybackend.service.SensorDataWriteBehindService;
 import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
 import com.iotcitybackend.service.DeviceService;
 import com.iotcitybackend.model.Device;
 import com.iotcitybackend.exception.ErrorCodes;
 import com.iotcitybackend.dto.ErrorResponse;
 import com.iotcitybackend.dto.DeviceDTO;
+import com.iotcitybackend.dto.FixedPointFormat;
 import com.iotcitybackend.dto.SensorDataDTO;
+import com.iotcitybackend.dto.SensorReadingDTO;
+import com.iotcitybackend.dto.BatchIngestResultDTO;
+import com.iotcitybackend.dto.BatchItemResultDTO;
+import com.iotcitybackend.dto.RetentionPlanDTO;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,15 +30,36 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -32,28 +68,56 @@ import java.util.stream.Collectors;
 @Tag(name = "Sensor Data", description = "APIs para gerenciamento de dados de sensores")
 public class SensorDataController {
     
-    private static final Set<String> VALID_SENSOR_TYPES = Set.of(
-        "TEMPERATURA", "UMIDADE", "QUALIDADE_AR", "RUÍDO", "LUZ", "MOVIMENTO"
-    );
-    
-    private static final Set<String> VALID_UNITS = Set.of(
-        "CELSIUS", "FAHRENHEIT", "PERCENTAGE", "PPM", "DB", "LUX", "BOOLEAN"
-    );
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String RAW_VALUES_PARAMETER = "values";
+    // Mesmo padrão de SensorDataDTO.timestamp
+    private static final DateTimeFormatter EXPORT_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
     
     private final SensorDataService sensorDataService;
+    private final SensorDataWriteBehindService writeBehindService;
     private final DeviceService deviceService;
+    private final SensorDataRetentionService retentionService;
+    private final ObjectMapper objectMapper;
+    
+    // Quantidade máxima de leituras aceitas em um único lote
+    @Value("${sensor.ingest.batch.max-items:5000}")
+    private int maxBatchItems;
+
+    // Quantidade máxima de dias recalculados por chamada de /rollups/backfill
+    @Value("${sensor.rollup.backfill-max-days:31}")
+    private int maxBackfillDays;
     
-    public SensorDataController(SensorDataService sensorDataService, DeviceService deviceService) {
+    public SensorDataController(SensorDataService sensorDataService, SensorDataWriteBehindService writeBehindService,
+                                DeviceService deviceService, SensorDataRetentionService retentionService,
+                                ObjectMapper objectMapper) {
         this.sensorDataService = sensorDataService;
+        this.writeBehindService = writeBehindService;
         this.deviceService = deviceService;
+        this.retentionService = retentionService;
+        this.objectMapper = objectMapper;
     }
     
     /**
-     * Converte SensorData para SensorDataDTO formatando o valor com 2 casas decimais
+     * Converte a leitura para SensorDataDTO formatando o valor com 2 casas decimais (ou numérico no modo raw).
+     * Os conversores e a validação são package-private para os benchmarks JMH (src/jmh/java)
      */
-    private SensorDataDTO toDTO(SensorData sensorData) {
-        Device device = sensorData.getDevice();
-        DeviceDTO deviceDTO = device != null ? DeviceDTO.builder()
+    SensorDataDTO toDTO(SensorDataRow row, DeviceDTO device, boolean rawValues) {
+        return SensorDataDTO.builder()
+                .id(row.id())
+                .device(device)
+                .sensorType(row.sensorType())
+                .value(rawValues ? null : FixedPointFormat.twoDecimals(row.value()))
+                .rawValue(rawValues ? row.value() : null)
+                .unit(row.unit())
+                .timestamp(row.timestamp())
+                .latitude(row.latitude())
+                .longitude(row.longitude())
+                .build();
+    }
+
+    DeviceDTO toDeviceDTO(Device device) {
+        return DeviceDTO.builder()
                 .id(device.getId())
                 .name(device.getName())
                 .type(device.getType())
@@ -64,19 +128,50 @@ public class SensorDataController {
                 .signalStrength(device.getSignalStrength())
                 .createdAt(device.getCreatedAt())
                 .updatedAt(device.getUpdatedAt())
-                .build() : null;
-        
-        return SensorDataDTO.builder()
-                .id(sensorData.getId())
-                .device(deviceDTO)
-                .sensorType(sensorData.getSensorType())
-                .value(String.format("%.2f", sensorData.getValue()))
-                .unit(sensorData.getUnit())
-                .timestamp(sensorData.getTimestamp())
-                .latitude(sensorData.getLatitude())
-                .longitude(sensorData.getLongitude())
                 .build();
     }
+
+    /**
+     * Converte as linhas em DTOs resolvendo cada dispositivo uma única vez (pelo registro em memória);
+     * leituras do mesmo dispositivo compartilham a mesma instância de DeviceDTO
+     */
+    private List<SensorDataDTO> toDTOs(List<SensorDataRow> rows, boolean rawValues) {
+        Set<Long> deviceIds = new HashSet<>();
+        for (SensorDataRow row : rows) {
+            deviceIds.add(row.deviceId());
+        }
+        Map<Long, DeviceDTO> devices = new HashMap<>();
+        deviceService.getDevicesByIds(deviceIds).forEach((id, device) -> devices.put(id, toDeviceDTO(device)));
+
+        List<SensorDataDTO> dtos = new ArrayList<>(rows.size());
+        for (SensorDataRow row : rows) {
+            dtos.add(toDTO(row, devices.get(row.deviceId()), rawValues));
+        }
+        return dtos;
+    }
+    
+    /**
+     * Modo raw pedido via parâmetro de mídia no Accept, ex: "application/json;values=raw"
+     */
+    private static boolean acceptsRawValues(String accept) {
+        if (accept == null || !accept.contains(RAW_VALUES_PARAMETER)) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(mediaType -> "raw".equalsIgnoreCase(mediaType.getParameter(RAW_VALUES_PARAMETER)));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Valida os campos de uma leitura. Retorna o erro encontrado ou null se a leitura for válida
+     */
+    ErrorResponse validateReading(Long deviceId, String sensorType, Double value, String unit,
+                                          Double latitude, Double longitude, String path) {
+        return SensorReadingValidator.validate(deviceId, sensorType, value, unit, latitude, longitude, path);
+    }
     
     @PostMapping
     @Operation(
@@ -92,6 +187,10 @@ public class SensorDataController {
                 schema = @Schema(implementation = SensorData.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "202",
+            description = "Dados enfileirados para gravação (modo write-behind)"
+        ),
         @ApiResponse(
             responseCode = "400",
             description = "Dados inválidos",
@@ -99,6 +198,14 @@ public class SensorDataController {
                 mediaType = "application/json",
                 schema = @Schema(implementation = ErrorResponse.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Buffer de ingestão cheio (ver Retry-After)",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ErrorResponse.class)
+            )
         )
     })
     public ResponseEntity<?> receiveSensorData(
@@ -109,99 +216,254 @@ public class SensorDataController {
             @Parameter(description = "Latitude da localização") @RequestParam(required = false) Double latitude,
             @Parameter(description = "Longitude da localização") @RequestParam(required = false) Double longitude) {
         
-        // Validações
-        if (deviceId == null || deviceId <= 0) {
-            ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_DEVICE_ID_REQUIRED,
-                "ID do dispositivo é obrigatório",
-                "O campo 'deviceId' deve ser um número positivo",
-                "/api/sensor-data"
-            );
-            return ResponseEntity.badRequest().body(error);
+        ErrorResponse validationError = validateReading(deviceId, sensorType, value, unit, latitude, longitude, "/api/sensor-data");
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(validationError);
         }
         
-        if (sensorType == null || sensorType.trim().isEmpty()) {
+        // Buscar o dispositivo no registro em memória (sem SELECT quando já está em cache)
+        Optional<Device> deviceOpt = deviceService.getRegisteredDevice(deviceId);
+        if (deviceOpt.isEmpty()) {
             ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_TYPE_REQUIRED,
-                "Tipo do sensor é obrigatório",
-                "O campo 'sensorType' não pode estar vazio",
+                ErrorCodes.SENSOR_DEVICE_NOT_FOUND,
+                "Dispositivo não encontrado",
+                "O dispositivo com ID " + deviceId + " não foi encontrado no sistema",
                 "/api/sensor-data"
             );
             return ResponseEntity.badRequest().body(error);
         }
         
-        if (!VALID_SENSOR_TYPES.contains(sensorType)) {
-            ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_INVALID_TYPE,
-                "Tipo de sensor inválido",
-                "O tipo '" + sensorType + "' não é válido. Tipos válidos: " + String.join(", ", VALID_SENSOR_TYPES),
-                "/api/sensor-data"
-            );
-            return ResponseEntity.badRequest().body(error);
+        SensorData sensorData = new SensorData();
+        sensorData.setSensorType(sensorType.trim());
+        sensorData.setValue(value);
+        sensorData.setUnit(unit);
+        sensorData.setLatitude(latitude);
+        sensorData.setLongitude(longitude);
+        
+        // Modo write-behind: a gravação ocorre de forma assíncrona nos writers
+        if (writeBehindService.isEnabled()) {
+            sensorData.setDevice(deviceOpt.get());
+            if (!writeBehindService.enqueue(sensorData)) {
+                return overloaded("/api/sensor-data");
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(sensorData);
         }
         
-        if (value == null) {
+        // A leitura é associada por referência (proxy), sem carregar a entidade Device
+        sensorData.setDevice(deviceService.getDeviceReference(deviceId));
+        SensorData savedData = sensorDataService.saveSensorData(sensorData);
+        // A resposta usa o snapshot do registro para não inicializar o proxy na serialização
+        savedData.setDevice(deviceOpt.get());
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedData);
+    }
+    
+    /**
+     * Resposta para buffer de ingestão cheio: 503 com Retry-After, sem bloquear a requisição
+     */
+    private ResponseEntity<ErrorResponse> overloaded(String path) {
+        ErrorResponse error = ErrorResponse.of(
+            ErrorCodes.SENSOR_INGEST_OVERLOADED,
+            "Ingestão sobrecarregada",
+            "O buffer de ingestão está cheio. Tente novamente em " + writeBehindService.getRetryAfterSeconds() + "s",
+            path
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(writeBehindService.getRetryAfterSeconds()))
+                .body(error);
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+        summary = "Receber lote de dados de sensor (JSON)",
+        description = "Recebe um array de leituras e grava as válidas em uma única transação. Retorna o resultado de cada item."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Lote gravado (todos os itens aceitos)",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchIngestResultDTO.class))
+        ),
+        @ApiResponse(
+            responseCode = "207",
+            description = "Lote gravado em parte: os itens rejeitados trazem o erro em results",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchIngestResultDTO.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Lote vazio ou nenhum item válido",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchIngestResultDTO.class))
+        ),
+        @ApiResponse(
+            responseCode = "202",
+            description = "Lote enfileirado para gravação (modo write-behind)",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchIngestResultDTO.class))
+        ),
+        @ApiResponse(
+            responseCode = "413",
+            description = "Lote excede o tamanho máximo",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Buffer de ingestão cheio (ver Retry-After)",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))
+        )
+    })
+    public ResponseEntity<?> receiveSensorDataBatch(@RequestBody List<SensorReadingDTO> readings) {
+        return ingestBatch(readings);
+    }
+    
+    @PostMapping(value = "/batch", consumes = NDJSON_MEDIA_TYPE)
+    @Operation(
+        summary = "Receber lote de dados de sensor (NDJSON)",
+        description = "Recebe uma leitura JSON por linha. Linhas malformadas são rejeitadas individualmente."
+    )
+    public ResponseEntity<?> receiveSensorDataBatchNdjson(@RequestBody String body) {
+        List<SensorReadingDTO> readings = new ArrayList<>();
+        for (String line : body.split("\\r?\\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                readings.add(objectMapper.readValue(line, SensorReadingDTO.class));
+            } catch (JsonProcessingException e) {
+                readings.add(null);
+            }
+        }
+        return ingestBatch(readings);
+    }
+    
+    private ResponseEntity<?> ingestBatch(List<SensorReadingDTO> readings) {
+        String path = "/api/sensor-data/batch";
+        if (readings == null || readings.isEmpty()) {
             ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_VALUE_REQUIRED,
-                "Valor do sensor é obrigatório",
-                "O campo 'value' não pode estar vazio",
-                "/api/sensor-data"
+                ErrorCodes.SENSOR_BATCH_EMPTY,
+                "Lote vazio",
+                "O lote deve conter ao menos uma leitura",
+                path
             );
             return ResponseEntity.badRequest().body(error);
         }
         
-        if (unit != null && !VALID_UNITS.contains(unit)) {
+        if (readings.size() > maxBatchItems) {
             ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_INVALID_UNIT,
-                "Unidade de medida inválida",
-                "A unidade '" + unit + "' não é válida. Unidades válidas: " + String.join(", ", VALID_UNITS),
-                "/api/sensor-data"
+                ErrorCodes.SENSOR_BATCH_TOO_LARGE,
+                "Lote muito grande",
+                "O lote possui " + readings.size() + " leituras. Máximo permitido: " + maxBatchItems,
+                path
             );
-            return ResponseEntity.badRequest().body(error);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
         }
         
-        if (latitude != null && (latitude < -90 || latitude > 90)) {
-            ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_INVALID_COORDINATES,
-                "Latitude inválida",
-                "A latitude deve estar entre -90 e 90",
-                "/api/sensor-data"
-            );
-            return ResponseEntity.badRequest().body(error);
+        // Dispositivos do lote resolvidos pelo registro em memória (ausentes em uma única consulta)
+        Set<Long> deviceIds = new HashSet<>();
+        for (SensorReadingDTO reading : readings) {
+            if (reading != null && reading.getDeviceId() != null) {
+                deviceIds.add(reading.getDeviceId());
+            }
         }
+        Map<Long, Device> devices = deviceService.getDevicesByIds(deviceIds);
         
-        if (longitude != null && (longitude < -180 || longitude > 180)) {
-            ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_INVALID_COORDINATES,
-                "Longitude inválida",
-                "A longitude deve estar entre -180 e 180",
-                "/api/sensor-data"
-            );
-            return ResponseEntity.badRequest().body(error);
+        BatchItemResultDTO[] results = new BatchItemResultDTO[readings.size()];
+        List<SensorData> accepted = new ArrayList<>(readings.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            SensorReadingDTO reading = readings.get(i);
+            if (reading == null) {
+                results[i] = BatchItemResultDTO.rejected(i, ErrorResponse.of(
+                    ErrorCodes.SENSOR_BATCH_MALFORMED,
+                    "Item malformado",
+                    "O item não pôde ser interpretado como uma leitura",
+                    path
+                ));
+                continue;
+            }
+            
+            ErrorResponse error = validateReading(reading.getDeviceId(), reading.getSensorType(), reading.getValue(),
+                    reading.getUnit(), reading.getLatitude(), reading.getLongitude(), path);
+            if (error == null && !devices.containsKey(reading.getDeviceId())) {
+                error = ErrorResponse.of(
+                    ErrorCodes.SENSOR_DEVICE_NOT_FOUND,
+                    "Dispositivo não encontrado",
+                    "O dispositivo com ID " + reading.getDeviceId() + " não foi encontrado no sistema",
+                    path
+                );
+            }
+            if (error != null) {
+                results[i] = BatchItemResultDTO.rejected(i, error);
+                continue;
+            }
+            
+            SensorData sensorData = new SensorData();
+            sensorData.setDevice(writeBehindService.isEnabled()
+                    ? devices.get(reading.getDeviceId())
+                    : deviceService.getDeviceReference(reading.getDeviceId()));
+            sensorData.setSensorType(reading.getSensorType().trim());
+            sensorData.setValue(reading.getValue());
+            sensorData.setUnit(reading.getUnit());
+            sensorData.setTimestamp(reading.getTimestamp());
+            sensorData.setLatitude(reading.getLatitude());
+            sensorData.setLongitude(reading.getLongitude());
+            accepted.add(sensorData);
+            acceptedIndexes.add(i);
         }
         
-        // Buscar o dispositivo
-        Optional<Device> deviceOpt = deviceService.getDeviceById(deviceId);
-        if (deviceOpt.isEmpty()) {
-            ErrorResponse error = ErrorResponse.of(
-                ErrorCodes.SENSOR_DEVICE_NOT_FOUND,
-                "Dispositivo não encontrado",
-                "O dispositivo com ID " + deviceId + " não foi encontrado no sistema",
-                "/api/sensor-data"
-            );
-            return ResponseEntity.badRequest().body(error);
+        if (writeBehindService.isEnabled()) {
+            return enqueueBatch(readings.size(), accepted, acceptedIndexes, results, path);
         }
         
-        SensorData sensorData = new SensorData();
-        sensorData.setDevice(deviceOpt.get());
-        sensorData.setSensorType(sensorType.trim());
-        sensorData.setValue(value);
-        sensorData.setUnit(unit);
-        sensorData.setLatitude(latitude);
-        sensorData.setLongitude(longitude);
+        sensorDataService.saveSensorDataBatch(accepted);
+        for (int j = 0; j < accepted.size(); j++) {
+            int index = acceptedIndexes.get(j);
+            results[index] = BatchItemResultDTO.accepted(index, accepted.get(j).getId());
+        }
         
-        SensorData savedData = sensorDataService.saveSensorData(sensorData);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedData);
+        BatchIngestResultDTO response = BatchIngestResultDTO.builder()
+                .received(readings.size())
+                .accepted(accepted.size())
+                .rejected(readings.size() - accepted.size())
+                .results(Arrays.asList(results))
+                .build();
+        // 201 com todos os itens gravados, 207 com parte rejeitada (detalhe em results), 400 sem nenhum gravado
+        HttpStatus status = accepted.isEmpty() ? HttpStatus.BAD_REQUEST
+                : accepted.size() < readings.size() ? HttpStatus.MULTI_STATUS : HttpStatus.CREATED;
+        return ResponseEntity.status(status).body(response);
+    }
+    
+    private ResponseEntity<?> enqueueBatch(int received, List<SensorData> accepted, List<Integer> acceptedIndexes,
+                                           BatchItemResultDTO[] results, String path) {
+        int enqueued = 0;
+        for (int j = 0; j < accepted.size(); j++) {
+            int index = acceptedIndexes.get(j);
+            if (writeBehindService.enqueue(accepted.get(j))) {
+                results[index] = BatchItemResultDTO.accepted(index, null);
+                enqueued++;
+            } else {
+                results[index] = BatchItemResultDTO.rejected(index, ErrorResponse.of(
+                    ErrorCodes.SENSOR_INGEST_OVERLOADED,
+                    "Ingestão sobrecarregada",
+                    "O buffer de ingestão está cheio",
+                    path
+                ));
+            }
+        }
+        
+        if (enqueued == 0 && !accepted.isEmpty()) {
+            return overloaded(path);
+        }
+        
+        BatchIngestResultDTO response = BatchIngestResultDTO.builder()
+                .received(received)
+                .accepted(enqueued)
+                .rejected(received - enqueued)
+                .results(Arrays.asList(results))
+                .build();
+        HttpStatus status = enqueued == 0 ? HttpStatus.BAD_REQUEST : HttpStatus.ACCEPTED;
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+        if (enqueued < accepted.size()) {
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(writeBehindService.getRetryAfterSeconds()));
+        }
+        return builder.body(response);
     }
     
     @GetMapping("/{id}")
@@ -220,21 +482,158 @@ public class SensorDataController {
     @GetMapping
     @Operation(
         summary = "Busca avançada de dados de sensor", 
-        description = "Busca dados de sensor com filtros opcionais por tipo, dispositivo e período. Valores formatados com 2 casas decimais."
+        description = "Busca dados de sensor com filtros opcionais por tipo, dispositivo e período, do mais recente para o mais antigo. "
+                + "Valores formatados com 2 casas decimais. A resposta é paginada por cursor: quando há mais resultados, "
+                + "o cabeçalho " + NEXT_CURSOR_HEADER + " traz o cursor da próxima página. "
+                + "No modo raw (raw=true ou Accept: application/json;values=raw) o valor vem numérico, sem formatação, em rawValue."
     )
     public ResponseEntity<List<SensorDataDTO>> findSensorData(
             @Parameter(description = "Tipo do sensor (ex: TEMPERATURA)") @RequestParam(required = false) String sensorType,
             @Parameter(description = "ID do dispositivo") @RequestParam(required = false) Long deviceId,
             @Parameter(description = "Data de início do período (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @Parameter(description = "Data de fim do período (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+            @Parameter(description = "Data de fim do período (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @Parameter(description = "Quantidade máxima de itens na página (limitada pelo servidor)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Cursor opaco retornado no cabeçalho " + NEXT_CURSOR_HEADER + " da página anterior") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Retorna os valores numéricos sem formatação") @RequestParam(defaultValue = "false") boolean raw,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
-        List<SensorData> data = sensorDataService.findSensorData(sensorType, deviceId, start, end);
-        List<SensorDataDTO> dtos = data.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        SensorDataCursor after = cursor != null && !cursor.isBlank() ? SensorDataCursor.decode(cursor) : null;
+        SensorDataPage page = sensorDataService.findSensorDataPage(sensorType, deviceId, start, end, after, limit);
+        List<SensorDataDTO> dtos = toDTOs(page.items(), raw || acceptsRawValues(accept));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().encode());
+        }
+        return response.body(dtos);
     }
     
+    @GetMapping("/export")
+    @Operation(
+        summary = "Exporta dados de sensor",
+        description = "Exporta as leituras filtradas em NDJSON (padrão) ou CSV, escritas incrementalmente à medida que são lidas "
+                + "do banco. Aceita os mesmos filtros da busca avançada; o uso de memória não depende do tamanho do resultado."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Exportação iniciada"),
+        @ApiResponse(responseCode = "400", description = "Formato inválido",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportSensorData(
+            @Parameter(description = "Tipo do sensor (ex: TEMPERATURA)") @RequestParam(required = false) String sensorType,
+            @Parameter(description = "ID do dispositivo") @RequestParam(required = false) Long deviceId,
+            @Parameter(description = "Data de início do período (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(description = "Data de fim do período (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @Parameter(description = "Formato da exportação: ndjson ou csv") @RequestParam(defaultValue = "ndjson") String format) {
+
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            // Tratado pelo GlobalExceptionHandler como 400
+            throw new IllegalArgumentException("Formato de exportação inválido. Formatos válidos: ndjson, csv");
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                if (csv) {
+                    writeCsv(sensorType, deviceId, start, end, outputStream);
+                } else {
+                    writeNdjson(sensorType, deviceId, start, end, outputStream);
+                }
+            } catch (UncheckedIOException e) {
+                // Cliente desconectado no meio da exportação
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sensor-data." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    private void writeNdjson(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                             OutputStream outputStream) throws IOException {
+        Function<Long, String> deviceNames = deviceNameResolver();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            sensorDataService.exportSensorData(sensorType, deviceId, start, end, row -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", row.id());
+                    generator.writeNumberField("deviceId", row.deviceId());
+                    generator.writeStringField("deviceName", deviceNames.apply(row.deviceId()));
+                    generator.writeStringField("sensorType", row.sensorType());
+                    generator.writeNumberField("value", row.value());
+                    generator.writeStringField("unit", row.unit());
+                    generator.writeStringField("timestamp", EXPORT_TIMESTAMP_FORMAT.format(row.timestamp()));
+                    writeNullableNumber(generator, "latitude", row.latitude());
+                    writeNullableNumber(generator, "longitude", row.longitude());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Nome do dispositivo por ID, resolvido uma vez por exportação (a memória cresce com o número de dispositivos, não de linhas)
+     */
+    private Function<Long, String> deviceNameResolver() {
+        Map<Long, String> names = new HashMap<>();
+        return id -> names.computeIfAbsent(id, key -> deviceService.getRegisteredDevice(key).map(Device::getName).orElse(null));
+    }
+
+    private static void writeNullableNumber(JsonGenerator generator, String field, Double value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        } else {
+            generator.writeNullField(field);
+        }
+    }
+
+    private void writeCsv(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                          OutputStream outputStream) throws IOException {
+        Function<Long, String> deviceNames = deviceNameResolver();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("id,deviceId,deviceName,sensorType,value,unit,timestamp,latitude,longitude\n");
+        sensorDataService.exportSensorData(sensorType, deviceId, start, end, row -> {
+            try {
+                writer.write(String.valueOf(row.id()));
+                writer.write(',');
+                writer.write(String.valueOf(row.deviceId()));
+                writer.write(',');
+                writer.write(csvField(deviceNames.apply(row.deviceId())));
+                writer.write(',');
+                writer.write(csvField(row.sensorType()));
+                writer.write(',');
+                writer.write(String.valueOf(row.value()));
+                writer.write(',');
+                writer.write(csvField(row.unit()));
+                writer.write(',');
+                writer.write(EXPORT_TIMESTAMP_FORMAT.format(row.timestamp()));
+                writer.write(',');
+                writer.write(row.latitude() != null ? String.valueOf(row.latitude()) : "");
+                writer.write(',');
+                writer.write(row.longitude() != null ? String.valueOf(row.longitude()) : "");
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     @GetMapping("/types")
     @Operation(summary = "Listar tipos de sensor únicos", description = "Retorna todos os tipos de sensor distintos disponíveis nos dados")
     public ResponseEntity<List<String>> getSensorTypes() {
@@ -248,24 +647,20 @@ public class SensorDataController {
         description = "Retorna uma lista de dispositivos que possuem dados para o tipo de sensor especificado."
     )
     public ResponseEntity<List<DeviceDTO>> getDevicesBySensorType(@PathVariable String sensorType) {
-        List<SensorData> data = sensorDataService.findSensorData(sensorType, null, null, null);
-        List<DeviceDTO> devices = data.stream()
-            .map(d -> {
-                Device device = d.getDevice();
-                return DeviceDTO.builder()
-                        .id(device.getId())
-                        .name(device.getName())
-                        .type(device.getType())
-                        .location(device.getLocation())
-                        .build();
-            })
-            .distinct()
+        List<Long> deviceIds = sensorDataService.getDeviceIdsBySensorType(sensorType);
+        List<DeviceDTO> devices = deviceService.getDevicesByIds(deviceIds).values().stream()
+            .map(device -> DeviceDTO.builder()
+                    .id(device.getId())
+                    .name(device.getName())
+                    .type(device.getType())
+                    .location(device.getLocation())
+                    .build())
             .collect(Collectors.toList());
         return ResponseEntity.ok(devices);
     }
     
     @GetMapping("/latest/device/{deviceId}")
-    @Operation(summary = "Dados mais recentes do dispositivo", description = "Retorna os dados mais recentes de um dispositivo específico")
+    @Operation(summary = "Dados mais recentes do dispositivo", description = "Retorna a leitura mais recente de um dispositivo específico, servida da memória")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Dados encontrados"),
         @ApiResponse(responseCode = "404", description = "Dispositivo não encontrado ou sem dados")
@@ -295,4 +690,35 @@ public class SensorDataController {
         }
         return ResponseEntity.notFound().build();
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/rollups/backfill")
+    @Operation(summary = "Recalcular rollups", description = "Recalcula os rollups de 1m/1h/1d dos dias informados a partir das leituras, um dia por transação. Use para dias já fechados; períodos maiores que sensor.rollup.backfill-max-days devem ser divididos em várias chamadas")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rollups recalculados"),
+        @ApiResponse(responseCode = "400", description = "Período inválido")
+    })
+    public ResponseEntity<Map<String, Object>> backfillRollups(
+            @Parameter(description = "Primeiro dia") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Último dia (inclusivo)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate deve ser igual ou posterior a startDate");
+        }
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days > maxBackfillDays) {
+            throw new IllegalArgumentException("O período possui " + days + " dias. Máximo permitido por chamada: " + maxBackfillDays);
+        }
+        int buckets = sensorDataService.backfillRollups(startDate, endDate);
+        return ResponseEntity.ok(Map.of(
+                "startDate", startDate.toString(),
+                "endDate", endDate.toString(),
+                "bucketsWritten", buckets
+        ));
+    }
+
+    @GetMapping("/retention/dry-run")
+    @Operation(summary = "Simular retenção", description = "Mostra, por tipo de sensor, o corte da retenção, os dias a consolidar nos rollups, as leituras expiradas e as partições que seriam removidas, sem alterar dados")
+    @ApiResponse(responseCode = "200", description = "Plano da próxima execução")
+    public ResponseEntity<RetentionPlanDTO> retentionDryRun() {
+        return ResponseEntity.ok(retentionService.dryRun());
+    }
+}
@@ -0,0 +1,28 @@
+package com.iotcitybackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Resumo da ingestão de um lote de leituras")
+public class BatchIngestResultDTO {
+    @Schema(description = "Quantidade de itens recebidos", example = "100")
+    private int received;
+
+    @Schema(description = "Quantidade de itens gravados", example = "98")
+    private int accepted;
+
+    @Schema(description = "Quantidade de itens rejeitados", example = "2")
+    private int rejected;
+
+    @Schema(description = "Resultado individual de cada item, na ordem do lote")
+    private List<BatchItemResultDTO> results;
+}
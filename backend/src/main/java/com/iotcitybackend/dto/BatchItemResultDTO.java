@@ -0,0 +1,46 @@
+package com.iotcitybackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Resultado do processamento de um item do lote")
+public class BatchItemResultDTO {
+    @Schema(description = "Posição do item no lote (a partir de 0)", example = "0")
+    private int index;
+
+    @Schema(description = "Situação do item", example = "ACCEPTED", allowableValues = {"ACCEPTED", "REJECTED"})
+    private String status;
+
+    @Schema(description = "ID do registro gravado quando aceito", example = "1")
+    private Long id;
+
+    @Schema(description = "Código do erro quando rejeitado", example = "SENSOR_006")
+    private String errorCode;
+
+    @Schema(description = "Mensagem de erro quando rejeitado", example = "Tipo de sensor inválido")
+    private String message;
+
+    public static BatchItemResultDTO accepted(int index, Long id) {
+        return BatchItemResultDTO.builder()
+                .index(index)
+                .id(id)
+                .status("ACCEPTED")
+                .build();
+    }
+
+    public static BatchItemResultDTO rejected(int index, ErrorResponse error) {
+        return BatchItemResultDTO.builder()
+                .index(index)
+                .status("REJECTED")
+                .errorCode(error.getErrorCode())
+                .message(error.getMessage() + ": " + error.getDetails())
+                .build();
+    }
+}
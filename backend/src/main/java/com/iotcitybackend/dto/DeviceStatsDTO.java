@@ -9,6 +9,7 @@ public class DeviceStatsDTO {
     private long totalDevices;
     private long activeDevices;
     private long offlineDevices;
+    private long lowBatteryDevices;
     
     public DeviceStatsDTO() {}
 
@@ -18,4 +19,9 @@ public class DeviceStatsDTO {
         this.offlineDevices = offlineDevices;
     }
 
+    public DeviceStatsDTO(long totalDevices, long activeDevices, long offlineDevices, long lowBatteryDevices) {
+        this(totalDevices, activeDevices, offlineDevices);
+        this.lowBatteryDevices = lowBatteryDevices;
+    }
+
 } 
\ No newline at end of file
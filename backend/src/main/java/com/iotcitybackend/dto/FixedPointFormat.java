@@ -0,0 +1,51 @@
+package com.iotcitybackend.dto;
+
+import java.util.Locale;
+
+/**
+ * Formatação de valores de sensor com 2 casas decimais, equivalente a String.format("%.2f")
+ * (arredondamento HALF_UP sobre a menor representação decimal do double), sem passar pelo
+ * java.util.Formatter. Sempre usa '.' como separador decimal, independente do locale da JVM.
+ */
+public final class FixedPointFormat {
+
+    // Abaixo de 1e-3 e a partir de 1e7 o Double.toString usa notação científica
+    private static final double MIN_PLAIN = 1e-3;
+    private static final double MAX_PLAIN = 1e7;
+
+    private FixedPointFormat() {
+    }
+
+    public static String twoDecimals(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+        double abs = Math.abs(value);
+        if (abs < MIN_PLAIN) {
+            return negative ? "-0.00" : "0.00";
+        }
+        if (abs >= MAX_PLAIN) {
+            return String.format(Locale.ROOT, "%.2f", value);
+        }
+
+        // Menor representação decimal, ex: "25.505"; arredonda pelos dígitos, como o Formatter
+        String digits = Double.toString(abs);
+        int dot = digits.indexOf('.');
+        long scaled = Long.parseLong(digits, 0, dot, 10) * 100;
+        int fractionLength = digits.length() - dot - 1;
+        if (fractionLength >= 1) scaled += (digits.charAt(dot + 1) - '0') * 10;
+        if (fractionLength >= 2) scaled += digits.charAt(dot + 2) - '0';
+        if (fractionLength >= 3 && digits.charAt(dot + 3) >= '5') scaled++;
+
+        long integerPart = scaled / 100;
+        int fraction = (int) (scaled % 100);
+        StringBuilder sb = new StringBuilder(12);
+        if (negative) sb.append('-');
+        return sb.append(integerPart)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10))
+                .toString();
+    }
+}
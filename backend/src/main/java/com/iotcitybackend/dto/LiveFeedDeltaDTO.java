@@ -0,0 +1,49 @@
+package com.iotcitybackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@Schema(description = "Alterações acumuladas desde o último envio do feed em tempo real (evento `delta`)")
+public class LiveFeedDeltaDTO {
+    @Schema(description = "Dispositivos criados ou alterados (estado mais recente de cada um)")
+    private List<DeviceDTO> devices;
+
+    @Schema(description = "IDs dos dispositivos excluídos", example = "[7]")
+    private List<Long> removedDevices;
+
+    @Schema(description = "Transições online/offline (a mais recente de cada dispositivo)")
+    private List<Connectivity> connectivity;
+
+    @Schema(description = "Leituras novas (a mais recente de cada dispositivo e tipo de sensor)")
+    private List<SensorReadingDTO> readings;
+
+    @Schema(description = "Contadores de /api/devices/stats, quando mudaram")
+    private DeviceStatsDTO stats;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Transição de conectividade de um dispositivo")
+    public static class Connectivity {
+        @Schema(description = "ID do dispositivo", example = "1")
+        private Long deviceId;
+
+        @Schema(description = "true se voltou a ser visto, false se o timeout expirou", example = "false")
+        private boolean online;
+
+        @Schema(description = "Última vez que o dispositivo foi visto", example = "2024-03-19T10:30:00")
+        private LocalDateTime lastSeen;
+    }
+}
@@ -0,0 +1,31 @@
+package com.iotcitybackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "O que a próxima execução da retenção faria, sem alterar dados")
+public class RetentionPlanDTO {
+    @Schema(description = "Momento do cálculo", example = "2024-03-15T10:30:00")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime generatedAt;
+
+    @Schema(description = "Indica se o job de retenção está habilitado", example = "true")
+    private boolean enabled;
+
+    @Schema(description = "Situação por tipo de sensor")
+    private List<SensorRetentionPlanDTO> sensorTypes;
+
+    @Schema(description = "Partições de sensor_data que seriam removidas inteiras", example = "[\"sensor_data_p20240301\"]")
+    private List<String> partitionsToDrop;
+}
@@ -0,0 +1,36 @@
+package com.iotcitybackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import io.swagger.v3.oas.annotations.media.Schema;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Alerta de limite publicado em kafka.topic.alerts quando uma leitura ultrapassa o limite do tipo")
+public class SensorAlertDTO {
+    @Schema(description = "ID do dispositivo", example = "1")
+    private Long deviceId;
+
+    @Schema(description = "Tipo do sensor", example = "TEMPERATURA")
+    private String sensorType;
+
+    @Schema(description = "Valor medido", example = "41.2")
+    private Double value;
+
+    @Schema(description = "Limite configurado para o tipo", example = "40.0")
+    private Double threshold;
+
+    @Schema(description = "Unidade de medida", example = "CELSIUS")
+    private String unit;
+
+    @Schema(description = "Data e hora da medição", example = "2024-03-15T10:30:00")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime timestamp;
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import io.swagger.v3.oas.annotations.media.Schema;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.LocalDateTime;
 
@@ -24,10 +25,15 @@ public class SensorDataDTO {
     @Schema(description = "Tipo do sensor", example = "TEMPERATURA")
     private String sensorType;
     
-    @Schema(description = "Valor medido pelo sensor (formatado com 2 casas decimais)", example = "25.50")
+    @Schema(description = "Valor medido pelo sensor (formatado com 2 casas decimais; ausente no modo raw)", example = "25.50")
     @JsonFormat(shape = JsonFormat.Shape.STRING)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String value;
     
+    @Schema(description = "Valor numérico sem formatação (apenas no modo raw)", example = "25.5")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double rawValue;
+    
     @Schema(description = "Unidade de medida", example = "CELSIUS")
     private String unit;
     
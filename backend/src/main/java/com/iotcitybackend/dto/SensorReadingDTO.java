@@ -0,0 +1,37 @@
+package com.iotcitybackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Leitura de sensor recebida em lote (JSON ou NDJSON)")
+public class SensorReadingDTO {
+    @Schema(description = "ID do dispositivo", example = "1", required = true)
+    private Long deviceId;
+
+    @Schema(description = "Tipo do sensor", example = "TEMPERATURA", required = true)
+    private String sensorType;
+
+    @Schema(description = "Valor medido pelo sensor", example = "25.5", required = true)
+    private Double value;
+
+    @Schema(description = "Unidade de medida", example = "CELSIUS")
+    private String unit;
+
+    @Schema(description = "Data e hora da medição (padrão: momento do recebimento)", example = "2024-03-15T10:30:00")
+    private LocalDateTime timestamp;
+
+    @Schema(description = "Latitude da localização", example = "-5.7793")
+    private Double latitude;
+
+    @Schema(description = "Longitude da localização", example = "-35.2009")
+    private Double longitude;
+}
@@ -0,0 +1,37 @@
+package com.iotcitybackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Situação da retenção de um tipo de sensor")
+public class SensorRetentionPlanDTO {
+    @Schema(description = "Tipo do sensor", example = "MOVIMENTO")
+    private String sensorType;
+
+    @Schema(description = "Dias de leituras brutas mantidos (0 = sem retenção)", example = "7")
+    private int retentionDays;
+
+    @Schema(description = "Leituras anteriores a este instante expiram", example = "2024-03-08T00:00:00")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime cutoff;
+
+    @Schema(description = "Leituras anteriores a este instante já estão consolidadas nos rollups", example = "2024-03-05T00:00:00")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime downsampledUntil;
+
+    @Schema(description = "Dias a consolidar nos rollups antes da remoção", example = "3")
+    private long daysToDownsample;
+
+    @Schema(description = "Leituras brutas expiradas (removidas em blocos ou junto com as partições)", example = "120000")
+    private long expiredReadings;
+}
@@ -31,12 +31,19 @@ public final class ErrorCodes {
     public static final String SENSOR_DEVICE_NOT_FOUND = "SENSOR_011";
     public static final String SENSOR_NO_DATA_FOR_PERIOD = "SENSOR_012";
     public static final String SENSOR_INVALID_PERIOD = "SENSOR_013";
+    public static final String SENSOR_BATCH_EMPTY = "SENSOR_014";
+    public static final String SENSOR_BATCH_TOO_LARGE = "SENSOR_015";
+    public static final String SENSOR_BATCH_MALFORMED = "SENSOR_016";
+    public static final String SENSOR_INGEST_OVERLOADED = "SENSOR_017";
     
     // Códigos de erro para Big Data (BIGDATA_XXX)
     public static final String BIGDATA_SPARK_NOT_ENABLED = "BIGDATA_001";
     public static final String BIGDATA_PROCESSING_ERROR = "BIGDATA_002";
     public static final String BIGDATA_NO_DATA_AVAILABLE = "BIGDATA_003";
     
+    // Códigos de erro para o feed em tempo real (LIVE_XXX)
+    public static final String LIVE_FEED_FULL = "LIVE_001";
+    
     // Códigos de erro gerais (GENERAL_XXX)
     public static final String GENERAL_VALIDATION_ERROR = "GENERAL_001";
     public static final String GENERAL_INTERNAL_ERROR = "GENERAL_002";
@@ -0,0 +1,11 @@
+package com.iotcitybackend.exception;
+
+/**
+ * Limite de clientes conectados ao feed em tempo real atingido
+ */
+public class LiveFeedFullException extends RuntimeException {
+
+    public LiveFeedFullException(int maxClients) {
+        super("Limite de " + maxClients + " clientes conectados atingido. Tente novamente mais tarde");
+    }
+}
@@ -0,0 +1,89 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.iotcitybackend.repository.SensorDataRow;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.rdd.JdbcRDD;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Leitura de sensor_data pelo Spark em partições por faixa de id (JdbcRDD).
+ * Cada partição é lida diretamente do banco pelo executor; o driver consulta apenas MIN/MAX(id)
+ * e nunca carrega a tabela inteira.
+ */
+@Component
+@ConditionalOnProperty(name = "spark.enabled", havingValue = "true", matchIfMissing = false)
+public class SensorDataJdbcSource {
+
+    // Os dois '?' recebem os limites (inclusivos) de id de cada partição
+    private static final String PARTITION_SQL =
+            "SELECT id, device_id, sensor_type, sensor_value, unit, timestamp, latitude, longitude " +
+            "FROM sensor_data WHERE id >= ? AND id <= ?";
+
+    private final JavaSparkContext sparkContext;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcConnectionFactory connectionFactory;
+
+    @Value("${spark.jdbc.rows-per-partition:200000}")
+    private long rowsPerPartition;
+
+    @Value("${spark.jdbc.max-partitions:64}")
+    private int maxPartitions;
+
+    public SensorDataJdbcSource(JavaSparkContext sparkContext, JdbcTemplate jdbcTemplate,
+                                @Value("${spring.datasource.url}") String url,
+                                @Value("${spring.datasource.username:}") String username,
+                                @Value("${spring.datasource.password:}") String password) {
+        this.sparkContext = sparkContext;
+        this.jdbcTemplate = jdbcTemplate;
+        this.connectionFactory = new JdbcConnectionFactory(url, username, password);
+    }
+
+    /**
+     * Todas as leituras como RDD particionado por id
+     */
+    public JavaRDD<SensorDataRow> readings() {
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM sensor_data");
+        Number minId = (Number) bounds.get("min_id");
+        Number maxId = (Number) bounds.get("max_id");
+        if (minId == null || maxId == null) {
+            return sparkContext.emptyRDD();
+        }
+        long lower = minId.longValue();
+        long upper = maxId.longValue();
+        int partitions = (int) Math.max(1, Math.min(maxPartitions, (upper - lower + 1) / rowsPerPartition + 1));
+        return JdbcRDD.create(sparkContext, connectionFactory, PARTITION_SQL, lower, upper, partitions,
+                SensorDataJdbcSource::mapRow);
+    }
+
+    private static SensorDataRow mapRow(ResultSet rs) throws SQLException {
+        return new SensorDataRow(
+                rs.getLong("id"),
+                rs.getLong("device_id"),
+                rs.getString("sensor_type"),
+                rs.getDouble("sensor_value"),
+                rs.getString("unit"),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class));
+    }
+
+    /**
+     * Serializável: é enviada aos executores, que abrem a própria conexão
+     */
+    private record JdbcConnectionFactory(String url, String username, String password) implements JdbcRDD.ConnectionFactory {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(url, username, password);
+        }
+    }
+}
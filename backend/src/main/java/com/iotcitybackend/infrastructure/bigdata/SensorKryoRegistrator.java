@@ -0,0 +1,24 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.apache.spark.serializer.KryoRegistrator;
+
+/**
+ * Registro das classes da aplicação no Kryo do Spark.
+ * O Kryo 4 embutido no Spark não sabe instanciar records (campos finais sem construtor padrão),
+ * então os records trafegam pela serialização Java
+ */
+public class SensorKryoRegistrator implements KryoRegistrator {
+
+    @Override
+    public void registerClasses(Kryo kryo) {
+        kryo.register(SensorDataRow.class, new JavaSerializer());
+        kryo.register(SensorDataAggregate.class, new JavaSerializer());
+        kryo.register(SensorStreamWindows.Reading.class, new JavaSerializer());
+        kryo.register(SensorStreamWindows.WindowKey.class, new JavaSerializer());
+        kryo.register(SensorStreamWindows.BatchSummary.class, new JavaSerializer());
+    }
+}
@@ -0,0 +1,164 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iotcitybackend.dto.SensorReadingDTO;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.SensorReadingsSavedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fonte de arquivos do SensorStreamingJob: as leituras gravadas por qualquer canal de ingestão são acumuladas
+ * e escritas a cada flush em um arquivo NDJSON (mesmo formato de POST /api/sensor-data/batch) em
+ * spark.streaming.input-dir. O arquivo é escrito com nome oculto e renomeado ao final, então o Spark
+ * nunca lê um arquivo pela metade. O Spark só lê arquivos novos, então os antigos são apagados
+ * depois de spark.streaming.spool.file-retention-ms
+ */
+@Component
+@ConditionalOnExpression("${spark.enabled:false} and ${spark.streaming.enabled:false} and '${spark.streaming.source:file}' == 'file'")
+public class SensorReadingSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorReadingSpool.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int maxPending;
+    private final long fileRetentionMs;
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong fileSequence = new AtomicLong();
+
+    // Linhas de um flush que falhou, gravadas no próximo
+    private List<String> unwritten = List.of();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+
+    public SensorReadingSpool(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${spark.streaming.input-dir}") String directory,
+                              @Value("${spark.streaming.spool.max-pending:100000}") int maxPending,
+                              @Value("${spark.streaming.spool.file-retention-ms:600000}") long fileRetentionMs) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.maxPending = maxPending;
+        this.fileRetentionMs = fileRetentionMs;
+        Gauge.builder("iot.streaming.spool.pending", pendingCount, AtomicInteger::get)
+                .description("Leituras aguardando escrita na fonte de arquivos do streaming")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("iot.streaming.spool.written")
+                .description("Leituras escritas na fonte de arquivos do streaming")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("iot.streaming.spool.dropped")
+                .description("Leituras descartadas com a fila da fonte de arquivos cheia")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enfileira as leituras após o commit da gravação; a escrita em disco fica para o flush
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingsSaved(SensorReadingsSavedEvent event) {
+        for (SensorData reading : event.readings()) {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                pendingCount.decrementAndGet();
+                droppedCounter.increment();
+                continue;
+            }
+            pending.add(toJson(reading));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spark.streaming.spool.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<String> lines = new ArrayList<>(unwritten);
+        String line;
+        while ((line = pending.poll()) != null) {
+            lines.add(line);
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        String name = "readings-" + System.currentTimeMillis() + "-" + fileSequence.incrementAndGet() + ".json";
+        // Arquivos iniciados por '.' são ignorados pela fonte de arquivos do Spark
+        Path temp = directory.resolve("." + name + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String json : lines) {
+                    writer.write(json);
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            unwritten = lines;
+            log.warn("Falha ao escrever {} leituras em {}: {}", lines.size(), directory, e.getMessage());
+            return;
+        }
+        pendingCount.addAndGet(-lines.size());
+        unwritten = List.of();
+        writtenCounter.increment(lines.size());
+    }
+
+    @Scheduled(fixedDelayString = "${spark.streaming.spool.cleanup-interval-ms:60000}")
+    public void removeOldFiles() {
+        long cutoff = System.currentTimeMillis() - fileRetentionMs;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "readings-*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao remover arquivos antigos de {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private String toJson(SensorData reading) {
+        SensorReadingDTO dto = SensorReadingDTO.builder()
+                // getId() não inicializa o proxy do dispositivo
+                .deviceId(reading.getDevice() != null ? reading.getDevice().getId() : null)
+                .sensorType(reading.getSensorType())
+                .value(reading.getValue())
+                .unit(reading.getUnit())
+                .timestamp(reading.getTimestamp())
+                .latitude(reading.getLatitude())
+                .longitude(reading.getLongitude())
+                .build();
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
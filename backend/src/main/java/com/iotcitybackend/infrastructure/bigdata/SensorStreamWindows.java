@@ -0,0 +1,136 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iotcitybackend.model.SensorWindowType;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Funções do SensorStreamingJob executadas nos executores: conversão das linhas JSON em leituras e
+ * janelas (TUMBLING e SLIDING) de cada leitura. Os instantes são milissegundos do horário local
+ * (LocalDateTime lido como UTC), então as janelas ficam alinhadas ao relógio de sensor_data
+ */
+final class SensorStreamWindows {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SensorStreamWindows() {
+    }
+
+    /**
+     * Leitura no formato de POST /api/sensor-data/batch, ou null se a linha não for uma leitura válida.
+     * Sem timestamp vale defaultTimestamp
+     */
+    static Reading parse(String line, long defaultTimestamp) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(line);
+        } catch (IOException e) {
+            return null;
+        }
+        if (node == null || !node.isObject()) {
+            return null;
+        }
+        JsonNode deviceId = node.get("deviceId");
+        JsonNode sensorType = node.get("sensorType");
+        JsonNode value = node.get("value");
+        if (deviceId == null || !deviceId.canConvertToLong() || sensorType == null || !sensorType.isTextual()
+                || sensorType.asText().isBlank() || value == null || !value.isNumber()) {
+            return null;
+        }
+        long timestamp = defaultTimestamp;
+        JsonNode time = node.get("timestamp");
+        if (time != null && !time.isNull()) {
+            try {
+                timestamp = toMillis(LocalDateTime.parse(time.asText()));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return new Reading(deviceId.asLong(), sensorType.asText().trim(), value.asDouble(), timestamp);
+    }
+
+    /**
+     * Janelas que contêm a leitura: uma TUMBLING e window/slide SLIDING
+     */
+    static List<WindowKey> windowsOf(Reading reading, WindowSpec spec) {
+        List<WindowKey> windows = new ArrayList<>(1 + (int) (spec.slidingMs() / spec.slideMs()));
+        windows.add(new WindowKey(SensorWindowType.TUMBLING, Math.floorDiv(reading.timestamp(), spec.tumblingMs()) * spec.tumblingMs(),
+                reading.deviceId(), reading.sensorType()));
+        long lastStart = Math.floorDiv(reading.timestamp(), spec.slideMs()) * spec.slideMs();
+        for (long start = lastStart; start > reading.timestamp() - spec.slidingMs(); start -= spec.slideMs()) {
+            windows.add(new WindowKey(SensorWindowType.SLIDING, start, reading.deviceId(), reading.sensorType()));
+        }
+        return windows;
+    }
+
+    static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Instante real (ex.: timestamp do Kafka ou do lote) no horário local do fuso, como LocalDateTime.now()
+     */
+    static long localMillis(long epochMillis, String zone) {
+        return toMillis(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.of(zone)));
+    }
+
+    record Reading(long deviceId, String sensorType, double value, long timestamp) implements Serializable {
+    }
+
+    record WindowKey(SensorWindowType windowType, long windowStart, long deviceId, String sensorType) implements Serializable {
+    }
+
+    /**
+     * Contagens de um lote, calculadas em uma passada (RDD.aggregate): leituras dentro da marca d'água,
+     * leituras atrasadas descartadas e maior timestamp entre as aceitas (Long.MIN_VALUE se nenhuma)
+     */
+    record BatchSummary(long readings, long late, long maxEventTime) implements Serializable {
+
+        static final BatchSummary EMPTY = new BatchSummary(0, 0, Long.MIN_VALUE);
+
+        BatchSummary add(Reading reading, long watermark) {
+            if (reading.timestamp() < watermark) {
+                return new BatchSummary(readings, late + 1, maxEventTime);
+            }
+            return new BatchSummary(readings + 1, late, Math.max(maxEventTime, reading.timestamp()));
+        }
+
+        BatchSummary merge(BatchSummary other) {
+            return new BatchSummary(readings + other.readings, late + other.late, Math.max(maxEventTime, other.maxEventTime));
+        }
+    }
+
+    /**
+     * Tamanhos das janelas em milissegundos; slidingMs deve ser múltiplo de slideMs
+     */
+    record WindowSpec(long tumblingMs, long slidingMs, long slideMs) implements Serializable {
+
+        WindowSpec {
+            if (tumblingMs <= 0 || slidingMs <= 0 || slideMs <= 0) {
+                throw new IllegalStateException("Janelas do streaming devem ter duração positiva");
+            }
+            if (slidingMs % slideMs != 0) {
+                throw new IllegalStateException("spark.streaming.sliding-window-ms (" + slidingMs +
+                        ") deve ser múltiplo de spark.streaming.sliding-slide-ms (" + slideMs + ")");
+            }
+        }
+
+        long durationOf(SensorWindowType windowType) {
+            return windowType == SensorWindowType.TUMBLING ? tumblingMs : slidingMs;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.BatchSummary;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.Reading;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.WindowKey;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.WindowSpec;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorStreamCheckpointRepository;
+import com.iotcitybackend.repository.SensorStreamCheckpointRepository.PartitionOffset;
+import com.iotcitybackend.repository.SensorWindowAggregateRepository;
+import com.iotcitybackend.repository.SensorWindowAggregateRepository.WindowAggregate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.streaming.Durations;
+import org.apache.spark.streaming.api.java.JavaInputDStream;
+import org.apache.spark.streaming.api.java.JavaStreamingContext;
+import org.apache.spark.streaming.kafka010.CanCommitOffsets;
+import org.apache.spark.streaming.kafka010.ConsumerStrategies;
+import org.apache.spark.streaming.kafka010.HasOffsetRanges;
+import org.apache.spark.streaming.kafka010.KafkaUtils;
+import org.apache.spark.streaming.kafka010.LocationStrategies;
+import org.apache.spark.streaming.kafka010.OffsetRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Job de streaming que mantém em sensor_window_aggregate os agregados por janela de tempo (TUMBLING e SLIDING)
+ * de cada dispositivo e tipo de sensor, de onde a API lê os resultados prontos.
+ * As leituras vêm de spark.streaming.source: file (arquivos NDJSON escritos pelo SensorReadingSpool),
+ * socket (uma leitura JSON por linha) ou kafka (kafka.topic.sensor-data).
+ * A janela usa o timestamp da leitura. A marca d'água é o maior timestamp já aplicado menos
+ * spark.streaming.watermark-ms: leituras anteriores a ela são descartadas, então janelas encerradas antes
+ * da marca não mudam mais. Cada lote soma no banco só os deltas das janelas que recebeu, na mesma transação
+ * que grava o maior timestamp e, no Kafka, os offsets aplicados (sensor_stream_checkpoint e sensor_stream_offset):
+ * um lote reprocessado após uma falha ou reinício é ignorado, e a marca d'água sobrevive ao reinício.
+ * Usa a API de DStreams sobre RDDs porque o Spark SQL (base do Structured Streaming) não inicializa
+ * ao lado do Hibernate 6 (ANTLR 4.9 x 4.13)
+ */
+// DStreams são deprecated no Spark 3.5; usados de propósito, ver o motivo acima
+@SuppressWarnings("deprecation")
+@Component
+@ConditionalOnProperty(name = {"spark.enabled", "spark.streaming.enabled"}, havingValue = "true", matchIfMissing = false)
+public class SensorStreamingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorStreamingJob.class);
+
+    private final JavaStreamingContext streamingContext;
+    private final SensorWindowAggregateRepository windowRepository;
+    private final SensorStreamCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WindowSpec windowSpec;
+    private final long batchIntervalMs;
+
+    @Value("${spark.streaming.source:file}")
+    private String source;
+
+    @Value("${spark.streaming.input-dir}")
+    private String inputDir;
+
+    @Value("${spark.streaming.socket.host:localhost}")
+    private String socketHost;
+
+    @Value("${spark.streaming.socket.port:9999}")
+    private int socketPort;
+
+    @Value("${kafka.bootstrap-servers:localhost:9092}")
+    private String kafkaBootstrapServers;
+
+    @Value("${kafka.topic.sensor-data:iot-sensor-data}")
+    private String kafkaTopic;
+
+    @Value("${spark.streaming.kafka.group-id:iot-city-spark-streaming}")
+    private String kafkaGroupId;
+
+    @Value("${spark.streaming.watermark-ms:120000}")
+    private long watermarkMs;
+
+    @Value("${spark.streaming.sink-retention-hours:24}")
+    private long sinkRetentionHours;
+
+    // Incrementados só depois do commit de cada lote
+    private final Counter readingsCounter;
+    private final Counter lateCounter;
+    private final Counter batchCounter;
+
+    // Chave do progresso em sensor_stream_checkpoint: instâncias com a mesma fonte compartilham a marca d'água
+    private String streamId;
+
+    // Maior timestamp (ms locais) já aplicado, cópia do checkpoint após cada commit
+    private volatile long maxEventTime = Long.MIN_VALUE;
+    private volatile BatchStatus lastBatch;
+
+    public SensorStreamingJob(JavaSparkContext sparkContext, SensorWindowAggregateRepository windowRepository,
+                              SensorStreamCheckpointRepository checkpointRepository,
+                              TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                              @Value("${spark.streaming.batch-interval-ms:5000}") long batchIntervalMs,
+                              @Value("${spark.streaming.tumbling-window-ms:300000}") long tumblingWindowMs,
+                              @Value("${spark.streaming.sliding-window-ms:900000}") long slidingWindowMs,
+                              @Value("${spark.streaming.sliding-slide-ms:60000}") long slidingSlideMs) {
+        this.windowRepository = windowRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.windowSpec = new WindowSpec(tumblingWindowMs, slidingWindowMs, slidingSlideMs);
+        this.batchIntervalMs = batchIntervalMs;
+        this.streamingContext = new JavaStreamingContext(sparkContext, Durations.milliseconds(batchIntervalMs));
+        this.readingsCounter = Counter.builder("iot.streaming.readings")
+                .description("Leituras agregadas pelo job de streaming")
+                .register(meterRegistry);
+        this.lateCounter = Counter.builder("iot.streaming.late")
+                .description("Leituras descartadas por chegarem depois da marca d'água")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("iot.streaming.batches")
+                .description("Lotes do job de streaming gravados")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        String zone = ZoneId.systemDefault().getId();
+        streamId = switch (source) {
+            case "file" -> "file:" + inputDir;
+            case "socket" -> "socket:" + socketHost + ":" + socketPort;
+            case "kafka" -> "kafka:" + kafkaGroupId + ":" + kafkaTopic;
+            default -> throw new IllegalStateException(
+                    "spark.streaming.source inválida: '" + source + "' (esperado file, socket ou kafka)");
+        };
+        checkpointRepository.createIfAbsent(streamId, LocalDateTime.now());
+        LocalDateTime storedMaxEventTime = checkpointRepository.findMaxEventTime(streamId);
+        if (storedMaxEventTime != null) {
+            maxEventTime = SensorStreamWindows.toMillis(storedMaxEventTime);
+        }
+        OffsetRange[] noOffsets = new OffsetRange[0];
+        switch (source) {
+            case "file" -> {
+                // textFileStream ignora arquivos iniciados por '.', usados pelo spool durante a escrita,
+                // e só lê arquivos criados depois do início: nada é relido após um reinício
+                Files.createDirectories(Paths.get(inputDir));
+                streamingContext.textFileStream(inputDir).foreachRDD((lines, time) -> {
+                    long defaultTimestamp = SensorStreamWindows.localMillis(time.milliseconds(), zone);
+                    process(noOffsets, applied -> lines.map(line -> SensorStreamWindows.parse(line, defaultTimestamp)));
+                });
+            }
+            case "socket" -> streamingContext.socketTextStream(socketHost, socketPort).foreachRDD((lines, time) -> {
+                long defaultTimestamp = SensorStreamWindows.localMillis(time.milliseconds(), zone);
+                process(noOffsets, applied -> lines.map(line -> SensorStreamWindows.parse(line, defaultTimestamp)));
+            });
+            default -> {
+                // Retoma dos offsets gravados com os deltas; os confirmados no Kafka podem estar atrasados
+                Map<TopicPartition, Long> startOffsets = new HashMap<>();
+                for (PartitionOffset offset : checkpointRepository.findOffsets(streamId)) {
+                    startOffsets.put(new TopicPartition(offset.topic(), offset.partition()), offset.nextOffset());
+                }
+                JavaInputDStream<ConsumerRecord<String, String>> stream = KafkaUtils.createDirectStream(
+                        streamingContext, LocationStrategies.PreferConsistent(),
+                        ConsumerStrategies.<String, String>Subscribe(List.of(kafkaTopic), kafkaParams(), startOffsets));
+                stream.foreachRDD(records -> {
+                    OffsetRange[] offsets = ((HasOffsetRanges) records.rdd()).offsetRanges();
+                    // Registros já aplicados (lote repetido após falha ou rebalanceamento) ficam de fora.
+                    // Leitura sem timestamp: momento em que chegou ao Kafka, como na ingestão
+                    process(offsets, applied -> records
+                            .filter(record -> record.offset() >= applied.getOrDefault(
+                                    new TopicPartition(record.topic(), record.partition()), Long.MIN_VALUE))
+                            .map(record -> SensorStreamWindows.parse(record.value(),
+                                    SensorStreamWindows.localMillis(record.timestamp(), zone))));
+                    // Só informativo (lag do grupo): a fonte de verdade é sensor_stream_offset
+                    ((CanCommitOffsets) stream.inputDStream()).commitAsync(offsets);
+                });
+            }
+        }
+        streamingContext.start();
+        log.info("Streaming de janelas iniciado (fonte {}, lote {} ms, janelas {} ms e {}/{} ms, marca d'água {} ms)",
+                source, batchIntervalMs, windowSpec.tumblingMs(), windowSpec.slidingMs(), windowSpec.slideMs(), watermarkMs);
+    }
+
+    private Map<String, Object> kafkaParams() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
+        // Grupo próprio: o SensorDataKafkaConsumer continua recebendo todas as mensagens no dele
+        params.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaGroupId);
+        params.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        params.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        params.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        params.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return params;
+    }
+
+    /**
+     * Executado no driver a cada lote, em uma transação que trava o checkpoint do stream: lê a marca d'água e os
+     * offsets aplicados, soma as leituras por janela nos executores (combinando por partição antes do shuffle)
+     * e grava os deltas junto com o novo maior timestamp e os offsets do lote. readingsAfter recebe os
+     * próximos offsets já aplicados por partição e devolve as leituras do lote a partir deles.
+     * Variáveis locais nas closures: o bean não é serializável
+     */
+    private void process(OffsetRange[] offsets, Function<Map<TopicPartition, Long>, JavaRDD<Reading>> readingsAfter) {
+        long started = System.currentTimeMillis();
+        WindowSpec spec = windowSpec;
+        BatchResult result = transactionTemplate.execute(status -> {
+            LocalDateTime storedMaxEventTime = checkpointRepository.lockMaxEventTime(streamId);
+            long watermark = storedMaxEventTime == null ? Long.MIN_VALUE
+                    : SensorStreamWindows.toMillis(storedMaxEventTime) - watermarkMs;
+            HashMap<TopicPartition, Long> applied = new HashMap<>();
+            if (offsets.length > 0) {
+                for (PartitionOffset offset : checkpointRepository.findOffsets(streamId)) {
+                    applied.put(new TopicPartition(offset.topic(), offset.partition()), offset.nextOffset());
+                }
+            }
+
+            JavaRDD<Reading> readings = readingsAfter.apply(applied).filter(Objects::nonNull).cache();
+            try {
+                BatchSummary summary = readings.aggregate(BatchSummary.EMPTY,
+                        (batch, reading) -> batch.add(reading, watermark), BatchSummary::merge);
+                List<WindowAggregate> windows = List.of();
+                LocalDateTime now = LocalDateTime.now();
+                if (summary.readings() > 0) {
+                    windows = windowDeltas(readings.filter(reading -> reading.timestamp() >= watermark), spec);
+                    windowRepository.upsert(windows, now);
+                    if (storedMaxEventTime == null || summary.maxEventTime() > SensorStreamWindows.toMillis(storedMaxEventTime)) {
+                        checkpointRepository.saveMaxEventTime(streamId,
+                                SensorStreamWindows.toLocalDateTime(summary.maxEventTime()), now);
+                    }
+                }
+                List<PartitionOffset> nextOffsets = new ArrayList<>(offsets.length);
+                for (OffsetRange range : offsets) {
+                    long appliedOffset = applied.getOrDefault(range.topicPartition(), Long.MIN_VALUE);
+                    if (range.untilOffset() > appliedOffset) {
+                        nextOffsets.add(new PartitionOffset(range.topic(), range.partition(), range.untilOffset()));
+                    }
+                }
+                checkpointRepository.saveOffsets(streamId, nextOffsets);
+                return new BatchResult(summary, windows.size());
+            } finally {
+                readings.unpersist(false);
+            }
+        });
+
+        BatchSummary summary = result.summary();
+        lateCounter.increment(summary.late());
+        if (summary.readings() == 0) {
+            return;
+        }
+        readingsCounter.increment(summary.readings());
+        maxEventTime = Math.max(maxEventTime, summary.maxEventTime());
+        lastBatch = new BatchStatus(LocalDateTime.now(), summary.readings(), result.windows(),
+                System.currentTimeMillis() - started);
+        batchCounter.increment();
+    }
+
+    /**
+     * Deltas das janelas do lote, ordenados pela chave para que transações concorrentes travem as linhas na
+     * mesma ordem
+     */
+    private static List<WindowAggregate> windowDeltas(JavaRDD<Reading> readings, WindowSpec spec) {
+        Map<WindowKey, SensorDataAggregate> deltas = readings
+                .flatMapToPair(reading -> SensorStreamWindows.windowsOf(reading, spec).stream()
+                        .map(key -> new Tuple2<>(key, SensorDataAggregate.of(reading.value())))
+                        .iterator())
+                .reduceByKey(SensorDataAggregate::merge)
+                .collectAsMap();
+        List<WindowAggregate> windows = new ArrayList<>(deltas.size());
+        for (Map.Entry<WindowKey, SensorDataAggregate> entry : deltas.entrySet()) {
+            WindowKey key = entry.getKey();
+            windows.add(new WindowAggregate(key.windowType(), key.deviceId(),
+                    key.sensorType(), SensorStreamWindows.toLocalDateTime(key.windowStart()),
+                    SensorStreamWindows.toLocalDateTime(key.windowStart() + spec.durationOf(key.windowType())), entry.getValue()));
+        }
+        windows.sort(Comparator.comparing(WindowAggregate::windowType)
+                .thenComparing(WindowAggregate::windowStart)
+                .thenComparing(WindowAggregate::deviceId)
+                .thenComparing(WindowAggregate::sensorType));
+        return windows;
+    }
+
+    /**
+     * Remove da tabela as janelas encerradas há mais de spark.streaming.sink-retention-hours
+     */
+    @Scheduled(fixedDelayString = "${spark.streaming.sink-cleanup-interval-ms:600000}")
+    public void removeExpiredWindows() {
+        int removed = windowRepository.deleteEndedBefore(LocalDateTime.now().minusHours(sinkRetentionHours));
+        if (removed > 0) {
+            log.debug("{} janelas expiradas removidas de sensor_window_aggregate", removed);
+        }
+    }
+
+    /**
+     * Marca d'água atual: janelas encerradas até ela estão completas. Null antes do primeiro lote
+     */
+    public LocalDateTime getWatermark() {
+        long eventTime = maxEventTime;
+        return eventTime == Long.MIN_VALUE ? null : SensorStreamWindows.toLocalDateTime(eventTime - watermarkMs);
+    }
+
+    /**
+     * Configuração, marca d'água e último lote gravado
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("source", source);
+        status.put("streamId", streamId);
+        status.put("state", streamingContext.getState().name());
+        status.put("batchIntervalMs", batchIntervalMs);
+        status.put("tumblingWindowMs", windowSpec.tumblingMs());
+        status.put("slidingWindowMs", windowSpec.slidingMs());
+        status.put("slidingSlideMs", windowSpec.slideMs());
+        status.put("watermarkDelayMs", watermarkMs);
+        status.put("watermark", getWatermark());
+        status.put("totalReadings", (long) readingsCounter.count());
+        status.put("lateReadings", (long) lateCounter.count());
+        BatchStatus batch = lastBatch;
+        if (batch != null) {
+            status.put("lastBatch", batch);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Termina o lote em andamento; o SparkContext é compartilhado com o BigDataService
+        streamingContext.stop(false, true);
+    }
+
+    private record BatchResult(BatchSummary summary, int windows) {
+    }
+
+    public record BatchStatus(LocalDateTime completedAt, long readings, int windows, long durationMs) {
+    }
+}
@@ -24,8 +24,11 @@ public class SparkConfig {
                 .setAppName(appName)
                 .setMaster(master)
                 .set("spark.serializer", "org.apache.spark.serializer.KryoSerializer")
+                .set("spark.kryo.registrator", SensorKryoRegistrator.class.getName())
                 .set("spark.sql.adaptive.enabled", "true")
-                .set("spark.sql.adaptive.coalescePartitions.enabled", "true");
+                .set("spark.sql.adaptive.coalescePartitions.enabled", "true")
+                // SensorStreamingJob: o tamanho dos lotes do Kafka acompanha a vazão de processamento
+                .set("spark.streaming.backpressure.enabled", "true");
     }
 
     @Bean
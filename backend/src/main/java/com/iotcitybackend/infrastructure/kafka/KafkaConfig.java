@@ -0,0 +1,151 @@
+package com.iotcitybackend.infrastructure.kafka;
+
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka do profile bigdata: consumidor em lote de kafka.topic.sensor-data e produtor de kafka.topic.alerts.
+ * Mensagens cuja gravação continua falhando depois das novas tentativas vão para kafka.topic.sensor-data-dlt.
+ * A vazão escala com partições do tópico x instâncias no mesmo grupo (até kafka.consumer.concurrency consumidores por instância)
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.enabled", havingValue = "true", matchIfMissing = false)
+public class KafkaConfig {
+
+    @Value("${kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${kafka.topic.sensor-data:iot-sensor-data}")
+    private String sensorDataTopic;
+
+    @Value("${kafka.topic.alerts:iot-alerts}")
+    private String alertsTopic;
+
+    @Value("${kafka.topic.sensor-data-dlt:iot-sensor-data.DLT}")
+    private String sensorDataDeadLetterTopic;
+
+    @Value("${kafka.topic.partitions:6}")
+    private int partitions;
+
+    @Value("${kafka.topic.replication-factor:1}")
+    private short replicationFactor;
+
+    @Value("${kafka.consumer.group-id:iot-city-backend}")
+    private String groupId;
+
+    @Value("${kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.retry.initial-interval-ms:1000}")
+    private long retryInitialIntervalMs;
+
+    @Value("${kafka.consumer.retry.max-interval-ms:30000}")
+    private long retryMaxIntervalMs;
+
+    @Value("${kafka.consumer.retry.max-elapsed-ms:120000}")
+    private long retryMaxElapsedMs;
+
+    @Value("${kafka.producer.max-block-ms:5000}")
+    private long producerMaxBlockMs;
+
+    @Bean
+    public KafkaAdmin kafkaAdmin() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        return new KafkaAdmin(config);
+    }
+
+    @Bean
+    public NewTopic sensorDataTopic() {
+        return TopicBuilder.name(sensorDataTopic).partitions(partitions).replicas(replicationFactor).build();
+    }
+
+    @Bean
+    public NewTopic alertsTopic() {
+        return TopicBuilder.name(alertsTopic).partitions(partitions).replicas(replicationFactor).build();
+    }
+
+    @Bean
+    public NewTopic sensorDataDeadLetterTopic() {
+        return TopicBuilder.name(sensorDataDeadLetterTopic).partitions(partitions).replicas(replicationFactor).build();
+    }
+
+    @Bean
+    public ConsumerFactory<String, String> sensorDataConsumerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        // Offsets confirmados pelo container somente após o lote ser gravado
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return new DefaultKafkaConsumerFactory<>(config);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> sensorDataListenerContainerFactory(
+            ConsumerFactory<String, String> sensorDataConsumerFactory, KafkaTemplate<String, String> alertKafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(sensorDataConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // Falha na gravação: o listener aponta o registro que falhou (BatchListenerFailedException), os anteriores
+        // são confirmados e o lote é relido a partir dele. Esgotadas as tentativas, o registro vai para o
+        // tópico de dead letter (partição escolhida pelo Kafka a partir da chave) e o consumo segue
+        ExponentialBackOff backOff = new ExponentialBackOff(retryInitialIntervalMs, 2.0);
+        backOff.setMaxInterval(retryMaxIntervalMs);
+        backOff.setMaxElapsedTime(retryMaxElapsedMs);
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(alertKafkaTemplate,
+                (record, exception) -> new TopicPartition(sensorDataDeadLetterTopic, -1));
+        factory.setCommonErrorHandler(new DefaultErrorHandler(recoverer, backOff));
+        return factory;
+    }
+
+    @Bean
+    public ProducerFactory<String, String> alertProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        // O envio acontece na thread que gravou as leituras: não bloqueia por muito tempo com o broker fora
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, producerMaxBlockMs);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> alertKafkaTemplate(ProducerFactory<String, String> alertProducerFactory) {
+        return new KafkaTemplate<>(alertProducerFactory);
+    }
+}
@@ -0,0 +1,142 @@
+package com.iotcitybackend.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iotcitybackend.dto.SensorAlertDTO;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.SensorReadingsSavedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publica em kafka.topic.alerts as leituras gravadas (por qualquer canal de ingestão) acima do limite do seu tipo.
+ * O alerta é enviado quando o par (dispositivo, tipo) cruza o limite; leituras seguintes acima dele não repetem
+ * o alerta até o valor voltar ao normal
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.enabled", havingValue = "true", matchIfMissing = false)
+public class SensorAlertProducer {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorAlertProducer.class);
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String alertsTopic;
+    private final Map<String, Double> thresholds;
+
+    // Pares "deviceId:tipo" atualmente acima do limite
+    private final Set<String> activeAlerts = ConcurrentHashMap.newKeySet();
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public SensorAlertProducer(KafkaTemplate<String, String> alertKafkaTemplate, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${kafka.topic.alerts:iot-alerts}") String alertsTopic,
+                               @Value("${kafka.alerts.thresholds:}") String thresholds) {
+        this.kafkaTemplate = alertKafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.alertsTopic = alertsTopic;
+        this.thresholds = parseThresholds(thresholds);
+        this.sentCounter = Counter.builder("iot.kafka.alerts.sent")
+                .description("Alertas de limite publicados")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("iot.kafka.alerts.failed")
+                .description("Alertas de limite que não puderam ser publicados")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lê "TIPO:limite,TIPO:limite", ex.: TEMPERATURA:40,RUÍDO:85
+     */
+    static Map<String, Double> parseThresholds(String thresholds) {
+        Map<String, Double> parsed = new TreeMap<>();
+        if (thresholds == null || thresholds.isBlank()) {
+            return parsed;
+        }
+        for (String entry : thresholds.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalStateException("Limite de alerta inválido: '" + entry.trim() + "' (esperado TIPO:limite)");
+            }
+            try {
+                parsed.put(parts[0].trim().toUpperCase(), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Limite de alerta inválido: '" + entry.trim() + "' (limite deve ser numérico)");
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Avalia as leituras após o commit da gravação; o envio ao Kafka é assíncrono
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingsSaved(SensorReadingsSavedEvent event) {
+        if (thresholds.isEmpty()) {
+            return;
+        }
+        for (SensorData reading : event.readings()) {
+            Double threshold = thresholds.get(reading.getSensorType());
+            if (threshold == null || reading.getValue() == null || reading.getDevice() == null) {
+                continue;
+            }
+            // getId() não inicializa o proxy do dispositivo
+            Long deviceId = reading.getDevice().getId();
+            String key = deviceId + ":" + reading.getSensorType();
+            if (reading.getValue() <= threshold) {
+                activeAlerts.remove(key);
+            } else if (activeAlerts.add(key)) {
+                publish(SensorAlertDTO.builder()
+                        .deviceId(deviceId)
+                        .sensorType(reading.getSensorType())
+                        .value(reading.getValue())
+                        .threshold(threshold)
+                        .unit(reading.getUnit())
+                        .timestamp(reading.getTimestamp())
+                        .build());
+            }
+        }
+    }
+
+    private void publish(SensorAlertDTO alert) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            // Chave = deviceId: alertas do mesmo dispositivo ficam ordenados na mesma partição
+            kafkaTemplate.send(alertsTopic, String.valueOf(alert.getDeviceId()), payload)
+                    .whenComplete((result, e) -> {
+                        if (e == null) {
+                            sentCounter.increment();
+                        } else {
+                            alertFailed(alert, e);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            alertFailed(alert, e);
+        }
+    }
+
+    private void alertFailed(SensorAlertDTO alert, Throwable e) {
+        failedCounter.increment();
+        // Permite um novo alerta na próxima leitura acima do limite
+        activeAlerts.remove(alert.getDeviceId() + ":" + alert.getSensorType());
+        log.warn("Falha ao publicar alerta de {} do dispositivo {}: {}", alert.getSensorType(), alert.getDeviceId(), e.getMessage());
+    }
+}
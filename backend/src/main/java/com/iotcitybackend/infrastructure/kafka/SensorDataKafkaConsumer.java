@@ -0,0 +1,186 @@
+package com.iotcitybackend.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iotcitybackend.dto.ErrorResponse;
+import com.iotcitybackend.dto.SensorReadingDTO;
+import com.iotcitybackend.exception.ErrorCodes;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorReadingValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consome kafka.topic.sensor-data em lotes (uma leitura JSON por mensagem, chave = deviceId) e grava cada lote
+ * com SensorDataService.saveSensorDataBatch, com a mesma validação de POST /api/sensor-data/batch.
+ * O container confirma os offsets só depois que o listener retorna. Se a gravação do lote falhar, as leituras são
+ * gravadas uma a uma até a primeira que falha: os offsets anteriores a ela são confirmados e só ela é repetida
+ * (com limite de tentativas; depois vai para o tópico de dead letter, ver KafkaConfig)
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.enabled", havingValue = "true", matchIfMissing = false)
+public class SensorDataKafkaConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDataKafkaConsumer.class);
+
+    private static final String PATH = "kafka";
+
+    private final SensorDataService sensorDataService;
+    private final DeviceService deviceService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter consumedCounter;
+    private final Counter persistedCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    public SensorDataKafkaConsumer(SensorDataService sensorDataService, DeviceService deviceService,
+                                   ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.sensorDataService = sensorDataService;
+        this.deviceService = deviceService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.consumedCounter = Counter.builder("iot.kafka.consumed")
+                .description("Mensagens lidas de kafka.topic.sensor-data")
+                .register(meterRegistry);
+        this.persistedCounter = Counter.builder("iot.kafka.persisted")
+                .description("Leituras do Kafka gravadas")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("iot.kafka.batch.size")
+                .description("Tamanho dos lotes do Kafka gravados")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(
+        id = "sensor-data-consumer",
+        groupId = "${kafka.consumer.group-id:iot-city-backend}",
+        topics = "${kafka.topic.sensor-data:iot-sensor-data}",
+        containerFactory = "sensorDataListenerContainerFactory"
+    )
+    public void consume(List<ConsumerRecord<String, String>> records) {
+        consumedCounter.increment(records.size());
+
+        List<SensorReadingDTO> readings = new ArrayList<>(records.size());
+        // Posição no lote de cada leitura interpretada, para apontar o registro que falhou ao container
+        List<Integer> readingIndexes = new ArrayList<>(records.size());
+        Set<Long> deviceIds = new HashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            try {
+                SensorReadingDTO reading = objectMapper.readValue(record.value(), SensorReadingDTO.class);
+                readings.add(reading);
+                readingIndexes.add(i);
+                if (reading.getDeviceId() != null) {
+                    deviceIds.add(reading.getDeviceId());
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                reject(record, ErrorResponse.of(
+                    ErrorCodes.SENSOR_BATCH_MALFORMED,
+                    "Item malformado",
+                    "A mensagem não pôde ser interpretada como uma leitura",
+                    PATH
+                ));
+            }
+        }
+        // Dispositivos do lote resolvidos pelo registro em memória (ausentes em uma única consulta)
+        Map<Long, Device> devices = deviceService.getDevicesByIds(deviceIds);
+
+        List<SensorData> accepted = new ArrayList<>(readings.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            SensorReadingDTO reading = readings.get(i);
+            ErrorResponse error = SensorReadingValidator.validate(reading.getDeviceId(), reading.getSensorType(),
+                    reading.getValue(), reading.getUnit(), reading.getLatitude(), reading.getLongitude(), PATH);
+            if (error == null && !devices.containsKey(reading.getDeviceId())) {
+                error = ErrorResponse.of(
+                    ErrorCodes.SENSOR_DEVICE_NOT_FOUND,
+                    "Dispositivo não encontrado",
+                    "O dispositivo com ID " + reading.getDeviceId() + " não foi encontrado no sistema",
+                    PATH
+                );
+            }
+            if (error != null) {
+                reject(null, error);
+                continue;
+            }
+
+            SensorData sensorData = new SensorData();
+            sensorData.setDevice(devices.get(reading.getDeviceId()));
+            sensorData.setSensorType(reading.getSensorType().trim());
+            sensorData.setValue(reading.getValue());
+            sensorData.setUnit(reading.getUnit());
+            sensorData.setTimestamp(reading.getTimestamp());
+            sensorData.setLatitude(reading.getLatitude());
+            sensorData.setLongitude(reading.getLongitude());
+            accepted.add(sensorData);
+            acceptedIndexes.add(readingIndexes.get(i));
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            sensorDataService.saveSensorDataBatch(accepted);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar lote de {} leituras do Kafka; gravando uma a uma: {}", accepted.size(), e.getMessage());
+            // A transação desfeita deixou ids nas entidades; sem limpar, até as leituras válidas falhariam sozinhas
+            SensorDataService.resetForRetry(accepted);
+            saveIndividually(records, accepted, acceptedIndexes);
+            return;
+        }
+        persistedCounter.increment(accepted.size());
+        batchSizeSummary.record(accepted.size());
+    }
+
+    /**
+     * Grava cada leitura em sua própria transação. Na primeira falha lança BatchListenerFailedException com a
+     * posição do registro: o container confirma os anteriores (já gravados) e relê o lote a partir dele
+     */
+    private void saveIndividually(List<ConsumerRecord<String, String>> records, List<SensorData> accepted,
+                                  List<Integer> acceptedIndexes) {
+        for (int i = 0; i < accepted.size(); i++) {
+            try {
+                sensorDataService.saveSensorDataBatch(List.of(accepted.get(i)));
+            } catch (RuntimeException e) {
+                ConsumerRecord<String, String> record = records.get(acceptedIndexes.get(i));
+                throw new BatchListenerFailedException("Falha ao gravar a leitura de " + record.topic() + "-" +
+                        record.partition() + "@" + record.offset(), e, acceptedIndexes.get(i));
+            }
+            persistedCounter.increment();
+        }
+        batchSizeSummary.record(accepted.size());
+    }
+
+    /**
+     * Mensagens inválidas nunca serão aceitas: são contadas e puladas (o offset avança com o lote)
+     */
+    private void reject(ConsumerRecord<String, String> record, ErrorResponse error) {
+        Counter.builder("iot.kafka.rejected")
+                .description("Mensagens do Kafka rejeitadas pela validação")
+                .tag("code", error.getErrorCode())
+                .register(meterRegistry)
+                .increment();
+        if (record != null) {
+            log.debug("Mensagem rejeitada em {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), error.getDetails());
+        } else {
+            log.debug("Leitura do Kafka rejeitada: {}", error.getDetails());
+        }
+    }
+}
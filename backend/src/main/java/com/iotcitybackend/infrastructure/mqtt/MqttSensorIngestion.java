@@ -0,0 +1,423 @@
+package com.iotcitybackend.infrastructure.mqtt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iotcitybackend.dto.ErrorResponse;
+import com.iotcitybackend.dto.SensorReadingDTO;
+import com.iotcitybackend.exception.ErrorCodes;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorReadingValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingestão das leituras publicadas pelos dispositivos de campo em city/{deviceId}/sensors/{sensorType}.
+ * As mensagens passam pela mesma validação de POST /api/sensor-data e são gravadas em lotes por
+ * SensorDataService.saveSensorDataBatch. Com QoS 1 o PUBACK só é enviado depois do commit do lote:
+ * se a gravação falhar, o cliente reconecta (sessão persistente) e o broker reenvia o que não foi confirmado.
+ */
+@Component
+@ConditionalOnProperty(name = "mqtt.enabled", havingValue = "true", matchIfMissing = false)
+public class MqttSensorIngestion implements MqttCallbackExtended {
+
+    private static final Logger log = LoggerFactory.getLogger(MqttSensorIngestion.class);
+
+    private static final String PATH = "mqtt";
+    private static final long CONNECT_TIMEOUT_MS = 30_000;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private final SensorDataService sensorDataService;
+    private final DeviceService deviceService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final MqttAsyncClient client;
+    private final MqttConnectOptions connectOptions;
+    private final String subscription;
+    private final int qos;
+    private final int maxBatchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<Pending> buffer;
+
+    // Incrementada a cada conexão: ids de mensagem de conexões anteriores não podem ser confirmados
+    private final AtomicInteger connection = new AtomicInteger();
+
+    private final Counter receivedCounter;
+    private final Counter persistedCounter;
+    private final Counter discardedCounter;
+    private final Counter failedBatchCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public MqttSensorIngestion(SensorDataService sensorDataService, DeviceService deviceService,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${mqtt.broker-url:tcp://localhost:1883}") String brokerUrl,
+                               @Value("${mqtt.client-id:iot-city-backend}") String clientId,
+                               @Value("${mqtt.topic:city/+/sensors/+}") String topic,
+                               @Value("${mqtt.shared-group:}") String sharedGroup,
+                               @Value("${mqtt.qos:1}") int qos,
+                               @Value("${mqtt.username:}") String username,
+                               @Value("${mqtt.password:}") String password,
+                               @Value("${mqtt.max-batch-size:500}") int maxBatchSize,
+                               @Value("${mqtt.flush-interval-ms:200}") long flushIntervalMs,
+                               @Value("${mqtt.buffer-capacity:5000}") int bufferCapacity) throws MqttException {
+        this.sensorDataService = sensorDataService;
+        this.deviceService = deviceService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        // Assinatura compartilhada: o broker distribui as mensagens entre as instâncias do mesmo grupo
+        this.subscription = sharedGroup.isBlank() ? topic : "$share/" + sharedGroup.trim() + "/" + topic;
+        this.qos = qos;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+
+        this.client = new MqttAsyncClient(brokerUrl, clientId, new MemoryPersistence());
+        this.client.setManualAcks(true);
+        this.client.setCallback(this);
+        this.connectOptions = new MqttConnectOptions();
+        // Sessão persistente: mensagens QoS 1 sem PUBACK são reenviadas na reconexão
+        this.connectOptions.setCleanSession(false);
+        this.connectOptions.setAutomaticReconnect(true);
+        if (!username.isBlank()) {
+            this.connectOptions.setUserName(username);
+            this.connectOptions.setPassword(password.toCharArray());
+        }
+
+        Gauge.builder("iot.mqtt.buffer", buffer, BlockingQueue::size)
+                .description("Mensagens MQTT aguardando gravação")
+                .register(meterRegistry);
+        this.receivedCounter = Counter.builder("iot.mqtt.received")
+                .description("Mensagens MQTT recebidas")
+                .register(meterRegistry);
+        this.persistedCounter = Counter.builder("iot.mqtt.persisted")
+                .description("Leituras MQTT gravadas e confirmadas")
+                .register(meterRegistry);
+        this.discardedCounter = Counter.builder("iot.mqtt.discarded")
+                .description("Mensagens de conexões anteriores descartadas (reenviadas pelo broker)")
+                .register(meterRegistry);
+        this.failedBatchCounter = Counter.builder("iot.mqtt.failed.batches")
+                .description("Lotes MQTT cuja gravação falhou")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("iot.mqtt.batch.size")
+                .description("Tamanho dos lotes MQTT gravados")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "mqtt-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isConnected() {
+        return client.isConnected();
+    }
+
+    @Override
+    public void connectComplete(boolean reconnect, String serverURI) {
+        connection.incrementAndGet();
+        try {
+            // Sem aguardar o token: chamadas bloqueantes na thread de callback do Paho travam o cliente
+            client.subscribe(subscription, qos);
+            log.info("Ingestão MQTT conectada a {} (reconexão={}), assinatura {}", serverURI, reconnect, subscription);
+        } catch (MqttException e) {
+            log.error("Falha ao assinar {}: {}", subscription, e.getMessage());
+        }
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        log.warn("Conexão MQTT perdida: {}", cause != null ? cause.getMessage() : "desconhecido");
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // Este cliente apenas assina
+    }
+
+    /**
+     * Decodifica e valida a mensagem na thread de callback do Paho. Com o buffer cheio a chamada bloqueia,
+     * o cliente para de ler o socket e a contrapressão chega ao broker
+     */
+    @Override
+    public void messageArrived(String topic, MqttMessage message) throws Exception {
+        receivedCounter.increment();
+        int generation = connection.get();
+        SensorData sensorData;
+        try {
+            sensorData = decode(topic, message.getPayload());
+        } catch (InvalidReadingException e) {
+            // Leitura que nunca será aceita: confirmada para o broker não reenviar
+            Counter.builder("iot.mqtt.rejected")
+                    .description("Mensagens MQTT rejeitadas pela validação")
+                    .tag("code", e.error.getErrorCode())
+                    .register(meterRegistry)
+                    .increment();
+            log.debug("Mensagem MQTT rejeitada em {}: {}", topic, e.error.getDetails());
+            acknowledge(message.getId(), message.getQos(), generation);
+            return;
+        }
+        buffer.put(new Pending(sensorData, message.getId(), message.getQos(), generation));
+    }
+
+    /**
+     * Converte a mensagem em leitura. O tópico identifica dispositivo e tipo do sensor; o payload é um objeto
+     * JSON (value, unit, timestamp, latitude, longitude) ou apenas o valor numérico
+     */
+    SensorData decode(String topic, byte[] payload) throws InvalidReadingException {
+        String[] levels = topic.split("/");
+        if (levels.length != 4 || !"sensors".equals(levels[2])) {
+            throw malformed("Tópico fora do padrão city/{deviceId}/sensors/{sensorType}: " + topic);
+        }
+        Long deviceId;
+        try {
+            deviceId = Long.valueOf(levels[1]);
+        } catch (NumberFormatException e) {
+            throw malformed("ID do dispositivo inválido no tópico: " + levels[1]);
+        }
+
+        SensorReadingDTO reading;
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            if (node != null && node.isNumber()) {
+                reading = SensorReadingDTO.builder().value(node.doubleValue()).build();
+            } else if (node != null && node.isObject()) {
+                reading = objectMapper.treeToValue(node, SensorReadingDTO.class);
+            } else {
+                throw malformed("O payload deve ser um objeto JSON ou um número");
+            }
+        } catch (IOException e) {
+            throw malformed("O payload não pôde ser interpretado como uma leitura");
+        }
+        reading.setDeviceId(deviceId);
+        reading.setSensorType(levels[3]);
+
+        ErrorResponse error = SensorReadingValidator.validate(reading.getDeviceId(), reading.getSensorType(),
+                reading.getValue(), reading.getUnit(), reading.getLatitude(), reading.getLongitude(), PATH);
+        if (error != null) {
+            throw new InvalidReadingException(error);
+        }
+        Optional<Device> device = deviceService.getRegisteredDevice(deviceId);
+        if (device.isEmpty()) {
+            throw new InvalidReadingException(ErrorResponse.of(
+                ErrorCodes.SENSOR_DEVICE_NOT_FOUND,
+                "Dispositivo não encontrado",
+                "O dispositivo com ID " + deviceId + " não foi encontrado no sistema",
+                PATH
+            ));
+        }
+
+        SensorData sensorData = new SensorData();
+        sensorData.setDevice(device.get());
+        sensorData.setSensorType(reading.getSensorType().trim());
+        sensorData.setValue(reading.getValue());
+        sensorData.setUnit(reading.getUnit());
+        sensorData.setTimestamp(reading.getTimestamp());
+        sensorData.setLatitude(reading.getLatitude());
+        sensorData.setLongitude(reading.getLongitude());
+        return sensorData;
+    }
+
+    private static InvalidReadingException malformed(String details) {
+        return new InvalidReadingException(ErrorResponse.of(
+            ErrorCodes.SENSOR_BATCH_MALFORMED,
+            "Mensagem malformada",
+            details,
+            PATH
+        ));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        long retryDelayMs = 1_000;
+        // Após a primeira conexão, quedas de rede são tratadas pela reconexão automática do Paho
+        boolean connected = false;
+        while (running) {
+            try {
+                if (!connected) {
+                    if (!connect()) {
+                        Thread.sleep(retryDelayMs);
+                        retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+                        continue;
+                    }
+                    connected = true;
+                    retryDelayMs = 1_000;
+                }
+                collectBatch(batch);
+                if (!batch.isEmpty() && !flush(batch)) {
+                    reconnect();
+                    connected = false;
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // O que ficou no buffer não foi confirmado e será reenviado pelo broker
+        disconnect();
+    }
+
+    private boolean connect() {
+        try {
+            client.connect(connectOptions).waitForCompletion(CONNECT_TIMEOUT_MS);
+            return true;
+        } catch (MqttException e) {
+            log.warn("Falha ao conectar ao broker MQTT {}: {}", client.getServerURI(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Aguarda a primeira mensagem e completa o lote até maxBatchSize ou até o fim do intervalo de flush
+     */
+    private void collectBatch(List<Pending> batch) throws InterruptedException {
+        Pending first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < maxBatchSize) {
+            buffer.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+            Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Grava o lote e confirma as mensagens após o commit. Retorna false se a gravação falhou
+     */
+    private boolean flush(List<Pending> batch) {
+        int current = connection.get();
+        // Mensagens de conexões anteriores já estão sendo reenviadas: gravá-las duplicaria as leituras
+        int stale = batch.size();
+        batch.removeIf(pending -> pending.generation != current);
+        stale -= batch.size();
+        if (stale > 0) {
+            discardedCounter.increment(stale);
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        List<SensorData> readings = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            readings.add(pending.sensorData);
+        }
+        try {
+            sensorDataService.saveSensorDataBatch(readings);
+        } catch (Exception e) {
+            failedBatchCounter.increment();
+            log.error("Falha ao gravar lote MQTT de {} leituras; aguardando reenvio do broker: {}",
+                    batch.size(), e.getMessage());
+            return false;
+        }
+        persistedCounter.increment(batch.size());
+        batchSizeSummary.record(batch.size());
+        for (Pending pending : batch) {
+            acknowledge(pending.messageId, pending.qos, pending.generation);
+        }
+        return true;
+    }
+
+    private void acknowledge(int messageId, int messageQos, int generation) {
+        if (messageQos == 0 || generation != connection.get()) {
+            return;
+        }
+        try {
+            client.messageArrivedComplete(messageId, messageQos);
+        } catch (MqttException e) {
+            log.warn("Falha ao confirmar a mensagem MQTT {}: {}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * Reconecta para o broker reenviar as mensagens sem PUBACK; as que estão no buffer passam a ser descartadas
+     */
+    private void reconnect() throws InterruptedException {
+        disconnect();
+        buffer.clear();
+        Thread.sleep(flushIntervalMs);
+    }
+
+    private void disconnect() {
+        if (!client.isConnected()) {
+            return;
+        }
+        try {
+            client.disconnect().waitForCompletion(CONNECT_TIMEOUT_MS);
+        } catch (MqttException e) {
+            log.warn("Falha ao desconectar do broker MQTT: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            // O lote em andamento é gravado e confirmado; a espera de reconexão é interrompida
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            }
+        }
+        try {
+            client.close(true);
+        } catch (MqttException e) {
+            log.warn("Falha ao fechar o cliente MQTT: {}", e.getMessage());
+        }
+    }
+
+    private record Pending(SensorData sensorData, int messageId, int qos, int generation) {
+    }
+
+    static class InvalidReadingException extends Exception {
+        private final ErrorResponse error;
+
+        InvalidReadingException(ErrorResponse error) {
+            super(error.getDetails());
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Leitura sequencial de bits de uma região de um ByteBuffer (leituras absolutas: a posição do buffer
+ * não é alterada, então várias leituras concorrentes podem compartilhar o mesmo mapeamento)
+ */
+final class BitInput {
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int byteIndex;
+    private long current;
+    private int available;
+
+    BitInput(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.byteIndex = offset;
+        this.limit = offset + length;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+
+    /**
+     * Lê n bits (1 <= n <= 64) como valor sem sinal
+     */
+    long readBits(int n) {
+        long result = 0;
+        int remaining = n;
+        while (remaining > 0) {
+            if (available == 0) {
+                refill();
+            }
+            int take = Math.min(remaining, available);
+            long bits = (current >>> (available - take)) & (take == 64 ? -1L : (1L << take) - 1);
+            result = take == 64 ? bits : (result << take) | bits;
+            available -= take;
+            remaining -= take;
+        }
+        return result;
+    }
+
+    private void refill() {
+        if (limit - byteIndex >= 8) {
+            current = buffer.getLong(byteIndex);
+            byteIndex += 8;
+            available = 64;
+        } else if (byteIndex < limit) {
+            current = buffer.get(byteIndex++) & 0xFFL;
+            available = 8;
+        } else {
+            throw new IllegalStateException("Fim do bloco comprimido");
+        }
+    }
+}
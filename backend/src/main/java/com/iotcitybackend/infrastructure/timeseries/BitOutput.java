@@ -0,0 +1,59 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Escrita sequencial de bits (do mais significativo para o menos significativo de cada long)
+ */
+final class BitOutput {
+
+    private long[] words = new long[2];
+    private long bitCount;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Escreve os n bits menos significativos de value (1 <= n <= 64)
+     */
+    void writeBits(long value, int n) {
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        int word = (int) (bitCount >>> 6);
+        int used = (int) (bitCount & 63);
+        ensureCapacity(word + 2);
+        int free = 64 - used;
+        if (n <= free) {
+            words[word] |= value << (free - n);
+        } else {
+            int overflow = n - free;
+            words[word] |= value >>> overflow;
+            words[word + 1] |= value << (64 - overflow);
+        }
+        bitCount += n;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Bytes big-endian com os bits escritos (o último byte completado com zeros)
+     */
+    byte[] toByteArray() {
+        int length = (int) ((bitCount + 7) >>> 3);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return bytes;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > words.length) {
+            words = Arrays.copyOf(words, Math.max(required, words.length * 2));
+        }
+    }
+}
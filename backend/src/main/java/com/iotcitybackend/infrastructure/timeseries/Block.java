@@ -0,0 +1,103 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.repository.SensorDataAggregate;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloco colunar imutável de uma série: colunas comprimidas em sequência (timestamp, id, valor, latitude, longitude)
+ * e estatísticas do bloco. Agregações sobre blocos inteiramente dentro do período usam só as estatísticas;
+ * os demais decodificam apenas as colunas necessárias
+ */
+final class Block {
+
+    static final int TIMESTAMP = 0;
+    static final int ID = 1;
+    static final int VALUE = 2;
+    static final int LATITUDE = 3;
+    static final int LONGITUDE = 4;
+
+    private final ByteBuffer buffer;
+    private final int[] columnOffsets;
+    private final int[] columnLengths;
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final SensorDataAggregate aggregate;
+    private final String unit;
+    private final Segment segment;
+
+    Block(ByteBuffer buffer, int offset, int[] columnLengths, int count, long minTimestamp, long maxTimestamp,
+          SensorDataAggregate aggregate, String unit, Segment segment) {
+        this.buffer = buffer;
+        this.columnLengths = columnLengths;
+        this.columnOffsets = new int[columnLengths.length];
+        int position = offset;
+        for (int i = 0; i < columnLengths.length; i++) {
+            columnOffsets[i] = position;
+            position += columnLengths[i];
+        }
+        this.count = count;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.aggregate = aggregate;
+        this.unit = unit;
+        this.segment = segment;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    SensorDataAggregate aggregate() {
+        return aggregate;
+    }
+
+    String unit() {
+        return unit;
+    }
+
+    Segment segment() {
+        return segment;
+    }
+
+    int sizeInBytes() {
+        int size = 0;
+        for (int length : columnLengths) {
+            size += length;
+        }
+        return size;
+    }
+
+    boolean overlaps(long from, long to) {
+        return minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    boolean within(long from, long to) {
+        return minTimestamp >= from && maxTimestamp <= to;
+    }
+
+    long[] decodeLongs(int column) {
+        long[] values = new long[count];
+        GorillaCodec.decodeDeltaOfDelta(input(column), values, count);
+        return values;
+    }
+
+    double[] decodeDoubles(int column) {
+        double[] values = new double[count];
+        GorillaCodec.decodeXor(input(column), values, count);
+        return values;
+    }
+
+    private BitInput input(int column) {
+        return new BitInput(buffer, columnOffsets[column], columnLengths[column]);
+    }
+}
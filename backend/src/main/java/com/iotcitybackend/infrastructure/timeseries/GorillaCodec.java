@@ -0,0 +1,168 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+/**
+ * Compressão das colunas de um bloco no estilo do Gorilla (Facebook, VLDB 2015).
+ * Inteiros crescentes (timestamps em microssegundos, IDs) usam delta-of-delta com prefixos de tamanho variável:
+ * leituras em intervalo regular custam 1 bit. Valores double usam XOR com o valor anterior: repetições custam 1 bit
+ * e variações pequenas só os bits significativos do XOR. Séries fora de ordem continuam válidas (deltas com sinal).
+ * Os encoders são incrementais: o bloco aberto de cada série já fica comprimido em memória
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    static final class DeltaOfDeltaEncoder {
+
+        private final BitOutput out = new BitOutput();
+        private long previous;
+        private long previousDelta;
+        private int count;
+
+        void add(long value) {
+            if (count++ == 0) {
+                out.writeBits(value, 64);
+                previous = value;
+                return;
+            }
+            long delta = value - previous;
+            long deltaOfDelta = delta - previousDelta;
+            previous = value;
+            previousDelta = delta;
+            if (deltaOfDelta == 0) {
+                out.writeBit(false);
+            } else if (fits(deltaOfDelta, 7)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(deltaOfDelta, 7);
+            } else if (fits(deltaOfDelta, 12)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(deltaOfDelta, 12);
+            } else if (fits(deltaOfDelta, 20)) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(deltaOfDelta, 20);
+            } else if (fits(deltaOfDelta, 32)) {
+                out.writeBits(0b11110, 5);
+                out.writeBits(deltaOfDelta, 32);
+            } else {
+                out.writeBits(0b11111, 5);
+                out.writeBits(deltaOfDelta, 64);
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    static final class XorEncoder {
+
+        private final BitOutput out = new BitOutput();
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+        private int count;
+
+        void add(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (count++ == 0) {
+                out.writeBits(bits, 64);
+                previous = bits;
+                return;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            // 5 bits para os zeros à esquerda: limitado a 31
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Os bits significativos cabem na janela do XOR anterior
+                out.writeBit(false);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                // 6 bits para o tamanho: 64 é gravado como 0
+                out.writeBits(significant == 64 ? 0 : significant, 6);
+                out.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    static void decodeDeltaOfDelta(BitInput in, long[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        values[0] = in.readBits(64);
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(7), 7);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(12), 12);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(20), 20);
+            } else if (!in.readBit()) {
+                deltaOfDelta = signExtend(in.readBits(32), 32);
+            } else {
+                deltaOfDelta = in.readBits(64);
+            }
+            previousDelta += deltaOfDelta;
+            values[i] = values[i - 1] + previousDelta;
+        }
+    }
+
+    static void decodeXor(BitInput in, double[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        long previous = in.readBits(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int previousLeading = 0;
+        int previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.readBit()) {
+                long xor;
+                if (!in.readBit()) {
+                    xor = in.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    int leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6);
+                    if (significant == 0) {
+                        significant = 64;
+                    }
+                    int trailing = 64 - leading - significant;
+                    xor = in.readBits(significant) << trailing;
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return (value << shift) >> shift;
+    }
+}
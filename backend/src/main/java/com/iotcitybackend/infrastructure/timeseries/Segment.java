@@ -0,0 +1,76 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo de tamanho fixo mapeado em memória onde os blocos selados são gravados em sequência (append-only).
+ * Os dados ficam fora do heap; o sistema operacional decide o que mantém na page cache.
+ * O arquivo é removido quando o último bloco vivo é descartado
+ */
+final class Segment {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int writePosition;
+    // Blocos vivos mais a referência de segmento atual, liberada em seal()
+    private int references = 1;
+    private boolean sealed;
+
+    Segment(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois de fechar o canal
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    boolean hasRoom(int length) {
+        return !sealed && capacity - writePosition >= length;
+    }
+
+    /**
+     * Grava os bytes no fim do segmento e retorna o offset
+     */
+    int append(byte[] bytes) {
+        int offset = writePosition;
+        buffer.put(offset, bytes);
+        writePosition += bytes.length;
+        references++;
+        return offset;
+    }
+
+    /**
+     * Não recebe mais blocos (um novo segmento passou a ser o atual); retorna true se já não há blocos vivos
+     */
+    boolean seal() {
+        sealed = true;
+        return --references == 0;
+    }
+
+    /**
+     * Descarta um bloco; retorna true se o segmento ficou sem blocos vivos e pode ser removido
+     */
+    boolean release() {
+        return --references == 0;
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Arquivo em diretório temporário: será sobrescrito na próxima inicialização
+        }
+    }
+}
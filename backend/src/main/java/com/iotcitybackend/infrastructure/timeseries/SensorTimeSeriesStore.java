@@ -0,0 +1,253 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+import com.iotcitybackend.service.IngestInstanceRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cópia colunar em memória mapeada das leituras recentes (janela quente), usada nas buscas por período
+ * e na média por tipo quando o início do período está dentro da janela. O PostgreSQL continua sendo o
+ * registro oficial: a cópia é reconstruída a partir dele na inicialização e recebe as leituras após o commit.
+ * Só enxerga as gravações desta instância, então só responde consultas enquanto ela é a única em execução
+ * (IngestInstanceRegistry): com outra instância gravando, o store é desativado até o próximo reinício.
+ * Desabilitada por padrão (sensor.tsdb.enabled)
+ */
+@Component
+public class SensorTimeSeriesStore implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorTimeSeriesStore.class);
+
+    private static final String LOAD_SQL =
+            "SELECT id, device_id, sensor_type, sensor_value, unit, timestamp, latitude, longitude " +
+            "FROM sensor_data WHERE timestamp >= ? ORDER BY device_id, sensor_type, timestamp, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final IngestInstanceRegistry instances;
+
+    @Getter
+    @Value("${sensor.tsdb.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.tsdb.directory:${java.io.tmpdir}/iot-city-tsdb}")
+    private String directory;
+
+    @Value("${sensor.tsdb.hot-window-hours:24}")
+    private int hotWindowHours;
+
+    @Value("${sensor.tsdb.block-points:1024}")
+    private int blockPoints;
+
+    @Value("${sensor.tsdb.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${sensor.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private TimeSeriesEngine engine;
+    // Leituras a partir deste instante estão todas no store; antes dele as consultas vão ao PostgreSQL
+    private volatile LocalDateTime boundary;
+    private volatile boolean ready;
+    // Leituras confirmadas durante a carga inicial; mescladas (sem as já carregadas) quando ela termina
+    private List<SensorData> pending;
+
+    public SensorTimeSeriesStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry, IngestInstanceRegistry instances) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.instances = instances;
+    }
+
+    /**
+     * Carrega a janela quente antes de o servidor começar a aceitar requisições e ingestões
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Heartbeats de uma execução anterior desta instância (encerrada sem se remover) expiram em três intervalos
+            if (!instances.awaitSoleInstance(instances.getHeartbeatIntervalMs() * 4)) {
+                log.warn("Store de séries temporais desativado: {} instâncias em execução; ele só enxergaria as " +
+                        "leituras gravadas por esta", instances.getLiveInstances());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        engine = new TimeSeriesEngine(Path.of(directory), blockPoints, segmentSizeMb * 1024 * 1024);
+        boundary = LocalDateTime.now().minusHours(hotWindowHours);
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        long startedAt = System.currentTimeMillis();
+        // Dentro de uma transação (autocommit desligado) o driver do PostgreSQL respeita o fetch size
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(boundary));
+            return ps;
+        }, rs -> {
+            engine.append(rs.getLong("device_id"), rs.getString("sensor_type"), rs.getLong("id"),
+                    rs.getTimestamp("timestamp").toLocalDateTime(), rs.getDouble("sensor_value"), rs.getString("unit"),
+                    rs.getObject("latitude", Double.class), rs.getObject("longitude", Double.class));
+        }));
+        mergePending();
+
+        Gauge.builder("iot.tsdb.series", engine, TimeSeriesEngine::seriesCount)
+                .description("Séries (dispositivo, tipo) no store de séries temporais")
+                .register(meterRegistry);
+        Gauge.builder("iot.tsdb.points", engine, TimeSeriesEngine::pointCount)
+                .description("Leituras na janela quente do store de séries temporais")
+                .register(meterRegistry);
+        Gauge.builder("iot.tsdb.stored.bytes", engine, TimeSeriesEngine::storedBytes)
+                .description("Bytes comprimidos dos blocos selados nos segmentos mapeados")
+                .register(meterRegistry);
+        log.info("Store de séries temporais carregado: {} leituras desde {} em {}ms ({} bytes comprimidos em {})",
+                engine.pointCount(), boundary, System.currentTimeMillis() - startedAt, engine.storedBytes(), directory);
+    }
+
+    /**
+     * Acrescenta as leituras após o commit da transação que as gravou (imediatamente fora de transação).
+     * Leituras anteriores à janela quente são ignoradas
+     */
+    public void record(List<SensorData> readings) {
+        if (!ready && !loading()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(readings);
+                }
+            });
+        } else {
+            append(readings);
+        }
+    }
+
+    /**
+     * true se todas as leituras a partir de start estão no store
+     */
+    public boolean covers(LocalDateTime start) {
+        if (!ready || start == null || start.isBefore(boundary)) {
+            return false;
+        }
+        if (instances.getLiveInstances() > 1) {
+            // As leituras gravadas pela outra instância nunca chegam aqui: sem volta até recarregar no reinício
+            ready = false;
+            log.warn("Store de séries temporais desativado: {} instâncias em execução; consultas voltam ao banco",
+                    instances.getLiveInstances());
+            return false;
+        }
+        return true;
+    }
+
+    public List<SensorDataRow> findRows(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                        SensorDataCursor after, int limit) {
+        return engine.findRows(sensorType, deviceId, start, end, after, limit);
+    }
+
+    public SensorDataAggregate aggregate(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
+        return engine.aggregate(sensorType, deviceId, start, end);
+    }
+
+    public void removeDevice(Long deviceId) {
+        if (ready) {
+            engine.removeDevice(deviceId);
+        }
+    }
+
+    /**
+     * Avança a janela quente e descarta os blocos (e segmentos) que ficaram inteiramente fora dela
+     */
+    @Scheduled(fixedDelayString = "${sensor.tsdb.eviction-interval-ms:300000}",
+            initialDelayString = "${sensor.tsdb.eviction-interval-ms:300000}")
+    public void evict() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(hotWindowHours);
+        boundary = cutoff;
+        engine.evictBefore(cutoff);
+    }
+
+    private synchronized boolean loading() {
+        return pending != null;
+    }
+
+    /**
+     * Acrescenta as leituras confirmadas durante a carga e libera o store. As confirmadas antes de a consulta
+     * começar podem já ter vindo dela: essas são puladas
+     */
+    private synchronized void mergePending() {
+        LocalDateTime from = boundary;
+        int merged = 0;
+        for (SensorData data : pending) {
+            if (data.getTimestamp().isBefore(from)
+                    || engine.contains(data.getDevice().getId(), data.getSensorType(), data.getId(), data.getTimestamp())) {
+                continue;
+            }
+            engine.append(data.getDevice().getId(), data.getSensorType(), data.getId(), data.getTimestamp(),
+                    data.getValue(), data.getUnit(), data.getLatitude(), data.getLongitude());
+            merged++;
+        }
+        if (merged > 0) {
+            log.info("Store de séries temporais: {} leituras confirmadas durante a carga acrescentadas", merged);
+        }
+        // Sob o lock: um append concorrente vê ready antes de deixar de encontrar o buffer
+        ready = true;
+        pending = null;
+    }
+
+    private void append(List<SensorData> readings) {
+        if (!ready) {
+            synchronized (this) {
+                if (pending != null) {
+                    pending.addAll(readings);
+                    return;
+                }
+            }
+            if (!ready) {
+                return;
+            }
+        }
+        LocalDateTime from = boundary;
+        for (SensorData data : readings) {
+            if (data.getTimestamp().isBefore(from)) {
+                continue;
+            }
+            engine.append(data.getDevice().getId(), data.getSensorType(), data.getId(), data.getTimestamp(),
+                    data.getValue(), data.getUnit(), data.getLatitude(), data.getLongitude());
+        }
+    }
+}
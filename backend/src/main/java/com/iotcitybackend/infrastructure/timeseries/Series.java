@@ -0,0 +1,173 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.repository.SensorDataAggregate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Série (dispositivo, tipo de sensor): blocos selados nos segmentos mapeados e um bloco aberto,
+ * comprimido incrementalmente, que é selado ao atingir o tamanho configurado ou quando a unidade muda
+ */
+final class Series {
+
+    // Latitude/longitude ausentes: NaN com o padrão de bits canônico
+    private static final double MISSING = Double.NaN;
+
+    private final long deviceId;
+    private final String sensorType;
+    private final List<Block> blocks = new ArrayList<>();
+    private Head head = new Head(null);
+    private boolean retired;
+
+    Series(long deviceId, String sensorType) {
+        this.deviceId = deviceId;
+        this.sensorType = sensorType;
+    }
+
+    long deviceId() {
+        return deviceId;
+    }
+
+    String sensorType() {
+        return sensorType;
+    }
+
+    /**
+     * Acrescenta a leitura; sela o bloco aberto pelo sealer quando necessário.
+     * Retorna false se a série foi descartada (o chamador deve usar uma nova)
+     */
+    synchronized boolean append(long timestamp, long id, double value, String unit, Double latitude, Double longitude,
+                                int blockPoints, BlockSealer sealer) {
+        if (retired) {
+            return false;
+        }
+        if (head.count > 0 && (head.count >= blockPoints || !Objects.equals(head.unit, unit))) {
+            seal(sealer);
+        }
+        if (head.count == 0) {
+            head = new Head(unit);
+        }
+        head.add(timestamp, id, value, latitude != null ? latitude : MISSING, longitude != null ? longitude : MISSING);
+        return true;
+    }
+
+    /**
+     * Blocos selados e uma cópia do bloco aberto, para leitura fora do lock
+     */
+    synchronized List<Block> snapshot() {
+        List<Block> snapshot = new ArrayList<>(blocks.size() + 1);
+        snapshot.addAll(blocks);
+        if (head.count > 0) {
+            snapshot.add(head.toBlock());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Descarta os blocos selados com todas as leituras anteriores ao corte e, se for o caso, o bloco aberto.
+     * Retorna os blocos descartados (o aberto sem segmento) para liberar os segmentos e ajustar as contagens
+     */
+    synchronized List<Block> evictBefore(long cutoff) {
+        List<Block> evicted = new ArrayList<>();
+        blocks.removeIf(block -> {
+            if (block.maxTimestamp() < cutoff) {
+                evicted.add(block);
+                return true;
+            }
+            return false;
+        });
+        if (head.count > 0 && head.maxTimestamp < cutoff) {
+            evicted.add(head.toBlock());
+            head = new Head(null);
+        }
+        return evicted;
+    }
+
+    /**
+     * Marca a série como descartada e devolve todos os blocos, como evictBefore
+     */
+    synchronized List<Block> retire() {
+        retired = true;
+        List<Block> released = new ArrayList<>(blocks);
+        if (head.count > 0) {
+            released.add(head.toBlock());
+        }
+        blocks.clear();
+        head = new Head(null);
+        return released;
+    }
+
+    private void seal(BlockSealer sealer) {
+        byte[][] columns = head.columns();
+        blocks.add(sealer.seal(columns, head.count, head.minTimestamp, head.maxTimestamp, head.aggregate(), head.unit));
+        head = new Head(null);
+    }
+
+    interface BlockSealer {
+        Block seal(byte[][] columns, int count, long minTimestamp, long maxTimestamp,
+                   SensorDataAggregate aggregate, String unit);
+    }
+
+    private static final class Head {
+
+        private final GorillaCodec.DeltaOfDeltaEncoder timestamps = new GorillaCodec.DeltaOfDeltaEncoder();
+        private final GorillaCodec.DeltaOfDeltaEncoder ids = new GorillaCodec.DeltaOfDeltaEncoder();
+        private final GorillaCodec.XorEncoder values = new GorillaCodec.XorEncoder();
+        private final GorillaCodec.XorEncoder latitudes = new GorillaCodec.XorEncoder();
+        private final GorillaCodec.XorEncoder longitudes = new GorillaCodec.XorEncoder();
+        private final String unit;
+        private int count;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sumSquares;
+
+        Head(String unit) {
+            this.unit = unit;
+        }
+
+        void add(long timestamp, long id, double value, double latitude, double longitude) {
+            timestamps.add(timestamp);
+            ids.add(id);
+            values.add(value);
+            latitudes.add(latitude);
+            longitudes.add(longitude);
+            count++;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sumSquares += value * value;
+        }
+
+        SensorDataAggregate aggregate() {
+            return new SensorDataAggregate(count, sum, min, max, sumSquares);
+        }
+
+        byte[][] columns() {
+            return new byte[][]{timestamps.toByteArray(), ids.toByteArray(), values.toByteArray(),
+                    latitudes.toByteArray(), longitudes.toByteArray()};
+        }
+
+        Block toBlock() {
+            byte[][] columns = columns();
+            int[] lengths = new int[columns.length];
+            int total = 0;
+            for (int i = 0; i < columns.length; i++) {
+                lengths[i] = columns[i].length;
+                total += lengths[i];
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(total);
+            for (byte[] column : columns) {
+                buffer.put(column);
+            }
+            return new Block(buffer, 0, lengths, count, minTimestamp, maxTimestamp, aggregate(), unit, null);
+        }
+    }
+}
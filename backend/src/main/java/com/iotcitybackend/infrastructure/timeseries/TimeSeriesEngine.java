@@ -0,0 +1,343 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Armazenamento colunar de séries temporais (dispositivo, tipo de sensor) em blocos comprimidos
+ * (delta-of-delta nos timestamps e IDs, XOR nos valores e coordenadas) gravados em segmentos mapeados em memória.
+ * Timestamps com precisão de microssegundos, como no PostgreSQL. Não é durável: o diretório é recriado na abertura
+ */
+public final class TimeSeriesEngine {
+
+    private static final Comparator<SensorDataRow> NEWEST_FIRST = Comparator
+            .comparing(SensorDataRow::timestamp).thenComparing(SensorDataRow::id).reversed();
+
+    private final Path directory;
+    private final int blockPoints;
+    private final int segmentBytes;
+
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final Map<String, Set<Series>> seriesByType = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Series>> seriesByDevice = new ConcurrentHashMap<>();
+    private final AtomicLong points = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    private final Object segmentLock = new Object();
+    private Segment currentSegment;
+    private int segmentSequence;
+
+    public TimeSeriesEngine(Path directory, int blockPoints, int segmentBytes) {
+        this.directory = directory;
+        this.blockPoints = blockPoints;
+        this.segmentBytes = segmentBytes;
+        try {
+            if (Files.exists(directory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : files.toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível preparar o diretório " + directory, e);
+        }
+    }
+
+    public void append(long deviceId, String sensorType, long id, LocalDateTime timestamp, double value, String unit,
+                       Double latitude, Double longitude) {
+        long micros = toMicros(timestamp);
+        SeriesKey key = new SeriesKey(deviceId, sensorType);
+        Series target = seriesFor(key);
+        while (!target.append(micros, id, value, unit, latitude, longitude, blockPoints, this::seal)) {
+            // Série descartada por removeDevice entre a busca e o append
+            series.remove(key, target);
+            target = seriesFor(key);
+        }
+        points.incrementAndGet();
+    }
+
+    /**
+     * Leituras com start <= timestamp <= end (limites opcionais), em ordem (timestamp, id) decrescente,
+     * a partir da posição after (exclusiva). limit <= 0 retorna todas
+     */
+    public List<SensorDataRow> findRows(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                        SensorDataCursor after, int limit) {
+        long from = start != null ? toMicros(start) : Long.MIN_VALUE;
+        long to = end != null ? toMicros(end) : Long.MAX_VALUE;
+        long afterTimestamp = after != null ? toMicros(after.timestamp()) : Long.MAX_VALUE;
+        long afterId = after != null ? after.id() : Long.MAX_VALUE;
+        if (after != null) {
+            to = Math.min(to, afterTimestamp);
+        }
+
+        List<SeriesBlock> candidates = new ArrayList<>();
+        for (Series s : matchingSeries(sensorType, deviceId)) {
+            for (Block block : s.snapshot()) {
+                if (block.overlaps(from, to)) {
+                    candidates.add(new SeriesBlock(s, block));
+                }
+            }
+        }
+        // Blocos mais recentes primeiro: com o limite atingido, blocos que terminam antes da menor leitura retida são pulados
+        candidates.sort(Comparator.comparingLong((SeriesBlock candidate) -> candidate.block().maxTimestamp()).reversed());
+
+        PriorityQueue<SensorDataRow> top = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        List<SensorDataRow> all = new ArrayList<>();
+        for (SeriesBlock candidate : candidates) {
+            Block block = candidate.block();
+            if (limit > 0 && top.size() == limit && block.maxTimestamp() < toMicros(top.peek().timestamp())) {
+                break;
+            }
+            long[] timestamps = block.decodeLongs(Block.TIMESTAMP);
+            long[] ids = block.decodeLongs(Block.ID);
+            double[] values = null;
+            double[] latitudes = null;
+            double[] longitudes = null;
+            for (int i = 0; i < block.count(); i++) {
+                long timestamp = timestamps[i];
+                if (timestamp < from || timestamp > to) {
+                    continue;
+                }
+                if (after != null && timestamp == afterTimestamp && ids[i] >= afterId) {
+                    continue;
+                }
+                if (values == null) {
+                    values = block.decodeDoubles(Block.VALUE);
+                    latitudes = block.decodeDoubles(Block.LATITUDE);
+                    longitudes = block.decodeDoubles(Block.LONGITUDE);
+                }
+                SensorDataRow row = new SensorDataRow(ids[i], candidate.series().deviceId(), candidate.series().sensorType(),
+                        values[i], block.unit(), fromMicros(timestamp), orNull(latitudes[i]), orNull(longitudes[i]));
+                if (limit <= 0) {
+                    all.add(row);
+                } else if (top.size() < limit) {
+                    top.add(row);
+                } else if (NEWEST_FIRST.compare(row, top.peek()) < 0) {
+                    top.poll();
+                    top.add(row);
+                }
+            }
+        }
+        List<SensorDataRow> rows = limit <= 0 ? all : new ArrayList<>(top);
+        rows.sort(NEWEST_FIRST);
+        return rows;
+    }
+
+    /**
+     * Estatísticas das leituras com start <= timestamp <= end. Blocos inteiros no período usam as estatísticas
+     * gravadas no bloco; os das bordas decodificam só timestamps e valores
+     */
+    public SensorDataAggregate aggregate(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
+        long from = toMicros(start);
+        long to = toMicros(end);
+        SensorDataAggregate result = SensorDataAggregate.EMPTY;
+        for (Series s : matchingSeries(sensorType, deviceId)) {
+            for (Block block : s.snapshot()) {
+                if (!block.overlaps(from, to)) {
+                    continue;
+                }
+                if (block.within(from, to)) {
+                    result = result.merge(block.aggregate());
+                    continue;
+                }
+                long[] timestamps = block.decodeLongs(Block.TIMESTAMP);
+                double[] values = block.decodeDoubles(Block.VALUE);
+                long count = 0;
+                double sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sumSquares = 0;
+                for (int i = 0; i < block.count(); i++) {
+                    if (timestamps[i] >= from && timestamps[i] <= to) {
+                        double value = values[i];
+                        count++;
+                        sum += value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                        sumSquares += value * value;
+                    }
+                }
+                if (count > 0) {
+                    result = result.merge(new SensorDataAggregate(count, sum, min, max, sumSquares));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Descarta os blocos com todas as leituras anteriores ao corte e remove os segmentos que ficaram vazios
+     */
+    public void evictBefore(LocalDateTime cutoff) {
+        long cutoffMicros = toMicros(cutoff);
+        for (Series s : series.values()) {
+            release(s.evictBefore(cutoffMicros));
+        }
+    }
+
+    /**
+     * true se a série (dispositivo, tipo) já tem a leitura id com esse timestamp
+     */
+    public boolean contains(long deviceId, String sensorType, long id, LocalDateTime timestamp) {
+        Series target = series.get(new SeriesKey(deviceId, sensorType));
+        if (target == null) {
+            return false;
+        }
+        long micros = toMicros(timestamp);
+        for (Block block : target.snapshot()) {
+            if (!block.overlaps(micros, micros)) {
+                continue;
+            }
+            long[] timestamps = block.decodeLongs(Block.TIMESTAMP);
+            long[] ids = block.decodeLongs(Block.ID);
+            for (int i = 0; i < block.count(); i++) {
+                if (timestamps[i] == micros && ids[i] == id) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void removeDevice(long deviceId) {
+        Set<Series> removed = seriesByDevice.remove(deviceId);
+        if (removed == null) {
+            return;
+        }
+        for (Series s : removed) {
+            series.remove(new SeriesKey(deviceId, s.sensorType()), s);
+            Set<Series> sameType = seriesByType.get(s.sensorType());
+            if (sameType != null) {
+                sameType.remove(s);
+            }
+            release(s.retire());
+        }
+    }
+
+    public int seriesCount() {
+        return series.size();
+    }
+
+    public long pointCount() {
+        return points.get();
+    }
+
+    /**
+     * Bytes comprimidos dos blocos selados nos segmentos (sem os blocos abertos)
+     */
+    public long storedBytes() {
+        return storedBytes.get();
+    }
+
+    public static long toMicros(LocalDateTime timestamp) {
+        // Arredondado ao microssegundo, como o PostgreSQL grava TIMESTAMP
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (timestamp.getNano() + 500) / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private Series seriesFor(SeriesKey key) {
+        return series.computeIfAbsent(key, k -> {
+            Series created = new Series(k.deviceId(), k.sensorType());
+            seriesByType.computeIfAbsent(k.sensorType(), type -> ConcurrentHashMap.newKeySet()).add(created);
+            seriesByDevice.computeIfAbsent(k.deviceId(), id -> ConcurrentHashMap.newKeySet()).add(created);
+            return created;
+        });
+    }
+
+    private Collection<Series> matchingSeries(String sensorType, Long deviceId) {
+        boolean byType = sensorType != null && !sensorType.isEmpty();
+        if (deviceId != null) {
+            Series single = byType ? series.get(new SeriesKey(deviceId, sensorType)) : null;
+            if (byType) {
+                return single != null ? List.of(single) : List.of();
+            }
+            return seriesByDevice.getOrDefault(deviceId, Set.of());
+        }
+        return byType ? seriesByType.getOrDefault(sensorType, Set.of()) : series.values();
+    }
+
+    private Block seal(byte[][] columns, int count, long minTimestamp, long maxTimestamp,
+                       SensorDataAggregate aggregate, String unit) {
+        int[] lengths = new int[columns.length];
+        int total = 0;
+        for (int i = 0; i < columns.length; i++) {
+            lengths[i] = columns[i].length;
+            total += lengths[i];
+        }
+        byte[] bytes = new byte[total];
+        int position = 0;
+        for (byte[] column : columns) {
+            System.arraycopy(column, 0, bytes, position, column.length);
+            position += column.length;
+        }
+        synchronized (segmentLock) {
+            if (currentSegment == null || !currentSegment.hasRoom(total)) {
+                if (currentSegment != null && currentSegment.seal()) {
+                    currentSegment.delete();
+                }
+                currentSegment = newSegment(Math.max(segmentBytes, total));
+            }
+            int offset = currentSegment.append(bytes);
+            storedBytes.addAndGet(total);
+            return new Block(currentSegment.buffer(), offset, lengths, count, minTimestamp, maxTimestamp,
+                    aggregate, unit, currentSegment);
+        }
+    }
+
+    private Segment newSegment(int capacity) {
+        try {
+            return new Segment(directory.resolve(String.format("segment-%06d.dat", ++segmentSequence)), capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar segmento em " + directory, e);
+        }
+    }
+
+    private void release(List<Block> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        synchronized (segmentLock) {
+            for (Block block : blocks) {
+                points.addAndGet(-block.count());
+                Segment segment = block.segment();
+                if (segment != null) {
+                    storedBytes.addAndGet(-block.sizeInBytes());
+                    if (segment.release()) {
+                        segment.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private record SeriesKey(long deviceId, String sensorType) {
+    }
+
+    private record SeriesBlock(Series series, Block block) {
+    }
+}
@@ -19,8 +19,10 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 public class Device {
+    // Sequence com otimizador pooled-lo: IDENTITY desabilita o JDBC batching do Hibernate
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_id_seq")
+    @SequenceGenerator(name = "devices_id_seq", sequenceName = "devices_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -0,0 +1,43 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Catálogo dos pares (dispositivo, tipo de sensor) que já receberam leituras.
+ * Mantido na ingestão (SensorTypeCatalog) e gravado via JDBC; o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "device_sensor_type", indexes = {
+        @Index(name = "idx_device_sensor_type_type", columnList = "sensor_type, device_id")
+})
+@IdClass(DeviceSensorType.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceSensorType {
+
+    @Id
+    @Column(name = "device_id")
+    private Long deviceId;
+
+    @Id
+    @Column(name = "sensor_type", length = 50)
+    private String sensorType;
+
+    @Column(name = "first_seen", nullable = false)
+    private LocalDateTime firstSeen;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long deviceId;
+        private String sensorType;
+    }
+}
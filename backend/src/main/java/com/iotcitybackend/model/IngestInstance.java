@@ -0,0 +1,30 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Instância do backend em execução (que pode gravar leituras), com o último heartbeat.
+ * Gravado via JDBC (IngestInstanceRegistry); o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "ingest_instance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestInstance {
+
+    @Id
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
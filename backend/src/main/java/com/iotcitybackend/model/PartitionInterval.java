@@ -0,0 +1,25 @@
+package com.iotcitybackend.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Largura das partições de sensor_data (particionamento por faixa de timestamp).
+ * Partições semanais começam na segunda-feira
+ */
+public enum PartitionInterval {
+    DAILY,
+    WEEKLY;
+
+    /**
+     * Início da partição que contém o dia
+     */
+    public LocalDate floor(LocalDate date) {
+        return this == WEEKLY ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date;
+    }
+
+    public LocalDate next(LocalDate partitionStart) {
+        return this == WEEKLY ? partitionStart.plusWeeks(1) : partitionStart.plusDays(1);
+    }
+}
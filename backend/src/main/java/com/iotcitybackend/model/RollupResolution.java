@@ -0,0 +1,57 @@
+package com.iotcitybackend.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Granularidades das agregações pré-calculadas de sensor_data (tabela sensor_data_rollup),
+ * da mais fina para a mais grossa
+ */
+public enum RollupResolution {
+    MINUTE("1m", ChronoUnit.MINUTES, "minute"),
+    HOUR("1h", ChronoUnit.HOURS, "hour"),
+    DAY("1d", ChronoUnit.DAYS, "day");
+
+    private final String code;
+    private final ChronoUnit unit;
+    private final String truncField;
+
+    RollupResolution(String code, ChronoUnit unit, String truncField) {
+        this.code = code;
+        this.unit = unit;
+        this.truncField = truncField;
+    }
+
+    /**
+     * Valor gravado na coluna resolution
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Campo do DATE_TRUNC correspondente (PostgreSQL e H2)
+     */
+    public String getTruncField() {
+        return truncField;
+    }
+
+    /**
+     * Início do bucket que contém o instante
+     */
+    public LocalDateTime floor(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    /**
+     * Primeiro início de bucket igual ou posterior ao instante
+     */
+    public LocalDateTime ceil(LocalDateTime timestamp) {
+        LocalDateTime floor = floor(timestamp);
+        return floor.equals(timestamp) ? floor : floor.plus(1, unit);
+    }
+
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+}
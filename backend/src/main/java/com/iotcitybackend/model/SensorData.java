@@ -21,12 +21,15 @@ import java.time.LocalDateTime;
 @Setter
 @Schema(description = "Representa dados coletados por um sensor IoT")
 public class SensorData {
+    // Sequence com otimizador pooled-lo: IDENTITY desabilita o JDBC batching do Hibernate
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensor_data_id_seq")
+    @SequenceGenerator(name = "sensor_data_id_seq", sequenceName = "sensor_data_id_seq", allocationSize = 50)
     @Schema(description = "ID único do registro de dados do sensor", example = "1")
     private Long id;
     
-    @ManyToOne
+    // LAZY: listagens usam projeções e só precisam do device_id; quem precisa do dispositivo usa JOIN FETCH
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "device_id", nullable = false)
     @Schema(description = "Dispositivo que coletou os dados")
     private Device device;
@@ -0,0 +1,31 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progresso da retenção por tipo de sensor: as leituras com timestamp < downsampledUntil já estão
+ * consolidadas nos rollups e podem ser removidas; os buckets anteriores a esse instante não são mais recalculados.
+ * Gravado via JDBC (SensorDataRetentionRepository); o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "sensor_data_retention")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorDataRetention {
+
+    @Id
+    @Column(name = "sensor_type", length = 50)
+    private String sensorType;
+
+    @Column(name = "downsampled_until", nullable = false)
+    private LocalDateTime downsampledUntil;
+}
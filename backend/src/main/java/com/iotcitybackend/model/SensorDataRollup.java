@@ -0,0 +1,66 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Agregado de leituras por (resolução, dispositivo, tipo de sensor, bucket).
+ * Mantido incrementalmente na ingestão (SensorDataRollupService) e gravado via JDBC;
+ * o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "sensor_data_rollup", indexes = {
+        @Index(name = "idx_sensor_data_rollup_type_bucket", columnList = "resolution, sensor_type, bucket_start")
+})
+@IdClass(SensorDataRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorDataRollup {
+
+    @Id
+    @Column(length = 2)
+    private String resolution;
+
+    @Id
+    @Column(name = "device_id")
+    private Long deviceId;
+
+    @Id
+    @Column(name = "sensor_type", length = 50)
+    private String sensorType;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "reading_count", nullable = false)
+    private long readingCount;
+
+    @Column(name = "value_sum", nullable = false)
+    private double valueSum;
+
+    @Column(name = "value_min", nullable = false)
+    private double valueMin;
+
+    @Column(name = "value_max", nullable = false)
+    private double valueMax;
+
+    @Column(name = "value_sum_squares", nullable = false)
+    private double valueSumSquares;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String resolution;
+        private Long deviceId;
+        private String sensorType;
+        private LocalDateTime bucketStart;
+    }
+}
@@ -0,0 +1,34 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progresso de um stream do SensorStreamingJob: maior timestamp de leitura já aplicado (base da marca d'água).
+ * A linha é travada durante a gravação de cada lote, então os lotes de um stream são aplicados um de cada vez.
+ * Gravado via JDBC (SensorStreamCheckpointRepository); o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "sensor_stream_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorStreamCheckpoint {
+
+    @Id
+    @Column(name = "stream_id")
+    private String streamId;
+
+    @Column(name = "max_event_time")
+    private LocalDateTime maxEventTime;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Próximo offset do Kafka ainda não aplicado em sensor_window_aggregate, por stream e partição.
+ * Gravado na mesma transação que os deltas do lote: um lote reprocessado após uma falha é ignorado.
+ * Gravado via JDBC (SensorStreamCheckpointRepository); o mapeamento existe para o schema gerado pelo Hibernate
+ */
+@Entity
+@Table(name = "sensor_stream_offset")
+@IdClass(SensorStreamOffset.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorStreamOffset {
+
+    @Id
+    @Column(name = "stream_id")
+    private String streamId;
+
+    @Id
+    @Column(name = "topic")
+    private String topic;
+
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+
+    @Column(name = "next_offset", nullable = false)
+    private long nextOffset;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String streamId;
+        private String topic;
+        private Integer partitionId;
+    }
+}
@@ -0,0 +1,73 @@
+package com.iotcitybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Agregado de uma janela de tempo por (tipo de janela, dispositivo, tipo de sensor), calculado continuamente
+ * pelo SensorStreamingJob e gravado via JDBC; o mapeamento existe para o schema gerado pelo Hibernate.
+ * Sem chave estrangeira para devices: fontes como socket e Kafka podem trazer dispositivos não cadastrados
+ */
+@Entity
+@Table(name = "sensor_window_aggregate", indexes = {
+        @Index(name = "idx_sensor_window_aggregate_type_start", columnList = "window_type, window_start")
+})
+@IdClass(SensorWindowAggregate.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorWindowAggregate {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "window_type", length = 8)
+    private SensorWindowType windowType;
+
+    @Id
+    @Column(name = "device_id")
+    private Long deviceId;
+
+    @Id
+    @Column(name = "sensor_type", length = 50)
+    private String sensorType;
+
+    @Id
+    @Column(name = "window_start")
+    private LocalDateTime windowStart;
+
+    @Column(name = "window_end", nullable = false)
+    private LocalDateTime windowEnd;
+
+    @Column(name = "reading_count", nullable = false)
+    private long readingCount;
+
+    @Column(name = "value_sum", nullable = false)
+    private double valueSum;
+
+    @Column(name = "value_min", nullable = false)
+    private double valueMin;
+
+    @Column(name = "value_max", nullable = false)
+    private double valueMax;
+
+    @Column(name = "value_sum_squares", nullable = false)
+    private double valueSumSquares;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private SensorWindowType windowType;
+        private Long deviceId;
+        private String sensorType;
+        private LocalDateTime windowStart;
+    }
+}
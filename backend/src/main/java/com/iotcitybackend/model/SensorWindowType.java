@@ -0,0 +1,10 @@
+package com.iotcitybackend.model;
+
+/**
+ * Tipos de janela calculados pelo job de streaming (tabela sensor_window_aggregate):
+ * janelas fixas sem sobreposição e janelas deslizantes que avançam a cada slide
+ */
+public enum SensorWindowType {
+    TUMBLING,
+    SLIDING
+}
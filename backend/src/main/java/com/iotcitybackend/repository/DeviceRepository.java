@@ -2,9 +2,11 @@ package com.iotcitybackend.repository;
 
 import com.iotcitybackend.model.Device;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,5 +30,27 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     @Query("SELECT d FROM Device d WHERE d.batteryLevel < 20")
     List<Device> findDevicesWithLowBattery();
 
+    // Contagens usadas na reconciliação do DeviceStatsCounters
+    long countByActiveTrue();
+
+    @Query("SELECT COUNT(d) FROM Device d WHERE d.lastSeen < :threshold")
+    long countNotSeenSince(@Param("threshold") LocalDateTime threshold);
+
+    @Query("SELECT COUNT(d) FROM Device d WHERE d.batteryLevel < 20")
+    long countWithLowBattery();
+
+    // Edições do usuário gravam só as próprias colunas: save faria merge da linha inteira e sobrescreveria
+    // last_seen/battery_level/signal_strength gravados entre a leitura e a escrita pelo DeviceLivenessTracker
+    @Modifying
+    @Transactional
+    @Query("UPDATE Device d SET d.name = :name, d.location = :location, d.updatedAt = :updatedAt WHERE d.id = :id")
+    int updateNameAndLocation(@Param("id") Long id, @Param("name") String name, @Param("location") String location,
+                              @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Device d SET d.active = :active, d.updatedAt = :updatedAt WHERE d.id = :id")
+    int updateActive(@Param("id") Long id, @Param("active") boolean active, @Param("updatedAt") LocalDateTime updatedAt);
+
 }
 
@@ -0,0 +1,86 @@
+package com.iotcitybackend.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acesso JDBC ao catálogo device_sensor_type: pares (dispositivo, tipo de sensor) com leituras
+ */
+@Repository
+public class DeviceSensorTypeRepository {
+
+    // PostgreSQL: ON CONFLICT é atômico mesmo com writers concorrentes registrando o mesmo par
+    private static final String INSERT_POSTGRES_SQL =
+            "INSERT INTO device_sensor_type (device_id, sensor_type, first_seen) VALUES (?, ?, ?) " +
+            "ON CONFLICT (device_id, sensor_type) DO NOTHING";
+
+    // H2 (testes e benchmarks)
+    private static final String INSERT_MERGE_SQL =
+            "MERGE INTO device_sensor_type t USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), CAST(? AS TIMESTAMP))) " +
+            "AS d(device_id, sensor_type, first_seen) ON t.device_id = d.device_id AND t.sensor_type = d.sensor_type " +
+            "WHEN NOT MATCHED THEN INSERT (device_id, sensor_type, first_seen) VALUES (d.device_id, d.sensor_type, d.first_seen)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertSql;
+
+    public DeviceSensorTypeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.insertSql = "PostgreSQL".equals(product) ? INSERT_POSTGRES_SQL : INSERT_MERGE_SQL;
+    }
+
+    /**
+     * Registra os pares ainda não catalogados; os já existentes são ignorados
+     */
+    public void insertMissing(List<DeviceSensorTypePair> pairs) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(pairs.size());
+        for (DeviceSensorTypePair pair : pairs) {
+            args.add(new Object[]{pair.deviceId(), pair.sensorType(), Timestamp.valueOf(pair.firstSeen())});
+        }
+        jdbcTemplate.batchUpdate(insertSql, args);
+    }
+
+    public List<DeviceSensorTypePair> findAll() {
+        return jdbcTemplate.query("SELECT device_id, sensor_type, first_seen FROM device_sensor_type",
+                (rs, rowNum) -> new DeviceSensorTypePair(rs.getLong("device_id"), rs.getString("sensor_type"),
+                        rs.getTimestamp("first_seen").toLocalDateTime()));
+    }
+
+    /**
+     * Cataloga os pares presentes em sensor_data (varredura completa, uma única vez com o catálogo vazio).
+     * Retorna o número de pares gravados
+     */
+    public int rebuildFromReadings() {
+        return jdbcTemplate.update("INSERT INTO device_sensor_type (device_id, sensor_type, first_seen) " +
+                "SELECT device_id, sensor_type, MIN(timestamp) FROM sensor_data GROUP BY device_id, sensor_type");
+    }
+
+    /**
+     * Remove os pares do tipo que não têm mais leituras em sensor_data. Retorna o número de pares removidos
+     */
+    public int deleteWithoutReadings(String sensorType) {
+        return jdbcTemplate.update("DELETE FROM device_sensor_type t WHERE t.sensor_type = ? AND NOT EXISTS " +
+                "(SELECT 1 FROM sensor_data s WHERE s.device_id = t.device_id AND s.sensor_type = t.sensor_type)", sensorType);
+    }
+
+    public void deleteByDeviceId(Long deviceId) {
+        jdbcTemplate.update("DELETE FROM device_sensor_type WHERE device_id = ?", deviceId);
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM device_sensor_type LIMIT 1").isEmpty();
+    }
+
+    public record DeviceSensorTypePair(Long deviceId, String sensorType, LocalDateTime firstSeen) {
+    }
+}
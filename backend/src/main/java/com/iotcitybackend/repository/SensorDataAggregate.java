@@ -0,0 +1,57 @@
+package com.iotcitybackend.repository;
+
+import java.io.Serializable;
+
+/**
+ * Estatísticas combináveis de um conjunto de leituras (contagem, soma, mínimo, máximo e soma dos quadrados).
+ * Dois agregados de conjuntos disjuntos se combinam sem reler as leituras (também entre partições do Spark)
+ */
+public record SensorDataAggregate(long count, double sum, double min, double max, double sumSquares) implements Serializable {
+
+    public static final SensorDataAggregate EMPTY =
+            new SensorDataAggregate(0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0);
+
+    public static SensorDataAggregate of(double value) {
+        return new SensorDataAggregate(1, value, value, value, value * value);
+    }
+
+    public SensorDataAggregate merge(SensorDataAggregate other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        return new SensorDataAggregate(count + other.count, sum + other.sum,
+                Math.min(min, other.min), Math.max(max, other.max), sumSquares + other.sumSquares);
+    }
+
+    /**
+     * Média, ou null sem leituras (como AVG no SQL)
+     */
+    public Double mean() {
+        return count == 0 ? null : sum / count;
+    }
+
+    /**
+     * Desvio padrão populacional, ou null sem leituras (como STDDEV_POP no SQL)
+     */
+    public Double populationStddev() {
+        if (count == 0) {
+            return null;
+        }
+        double variance = (sumSquares - sum * sum / count) / count;
+        return Math.sqrt(Math.max(0.0, variance));
+    }
+
+    /**
+     * Desvio padrão amostral, ou null com menos de duas leituras (como STDDEV_SAMP no SQL)
+     */
+    public Double sampleStddev() {
+        if (count < 2) {
+            return null;
+        }
+        double variance = (sumSquares - sum * sum / count) / (count - 1);
+        return Math.sqrt(Math.max(0.0, variance));
+    }
+}
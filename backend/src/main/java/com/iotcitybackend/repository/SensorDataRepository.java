@@ -3,30 +3,22 @@ package com.iotcitybackend.repository;
 import com.iotcitybackend.model.SensorData;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SensorDataRepository extends JpaRepository<SensorData, Long>, SensorDataRepositoryCustom {
-    
-    @Query("SELECT DISTINCT s.sensorType FROM SensorData s ORDER BY s.sensorType")
-    List<String> findDistinctSensorTypes();
-    
-    @Modifying
-    @Query("UPDATE Device d SET d.lastSeen = :lastSeen WHERE d.id = :deviceId")
-    void updateDeviceLastSeen(@Param("deviceId") Long deviceId, @Param("lastSeen") LocalDateTime lastSeen);
-    
-    @Query("SELECT AVG(s.value) FROM SensorData s WHERE s.sensorType = :sensorType AND s.timestamp BETWEEN :startDate AND :endDate")
-    Double findAverageValueBySensorTypeAndPeriod(
-            @Param("sensorType") String sensorType, 
-            @Param("startDate") LocalDateTime startDate, 
-            @Param("endDate") LocalDateTime endDate
-    );
-    
-    @Query("SELECT s FROM SensorData s WHERE s.device.id = :deviceId ORDER BY s.timestamp DESC")
-    List<SensorData> findLatestByDeviceId(@Param("deviceId") Long deviceId);
+
+    /**
+     * Leitura mais recente do dispositivo: range scan de uma linha em (device_id, timestamp)
+     */
+    @Query("SELECT new com.iotcitybackend.repository.SensorDataRow(s.id, s.device.id, s.sensorType, s.value, s.unit, " +
+            "s.timestamp, s.latitude, s.longitude) FROM SensorData s WHERE s.device.id = :deviceId " +
+            "ORDER BY s.timestamp DESC, s.id DESC LIMIT 1")
+    Optional<SensorDataRow> findLatestRowByDeviceId(@Param("deviceId") Long deviceId);
+
+    @Query("SELECT s FROM SensorData s JOIN FETCH s.device WHERE s.id = :id")
+    Optional<SensorData> findWithDeviceById(@Param("id") Long id);
 } 
\ No newline at end of file
@@ -3,7 +3,34 @@ package com.iotcitybackend.repository;
 import com.iotcitybackend.model.SensorData;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SensorDataRepositoryCustom {
-    List<SensorData> findWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end);
-} 
\ No newline at end of file
+    /**
+     * Busca keyset ordenada por (timestamp, id) decrescente, a partir da posição after (exclusiva).
+     * Projeta apenas as colunas da leitura, sem carregar entidades nem o dispositivo
+     */
+    List<SensorDataRow> findRowsWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                            SensorDataCursor after, int limit);
+
+    /**
+     * Leituras filtradas (mesmos filtros e ordem de findRowsWithFilters) lidas por cursor JDBC com fetch size.
+     * Deve ser consumido dentro de uma transação e fechado pelo chamador
+     */
+    Stream<SensorDataRow> streamWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Insere as leituras em JDBC batches do Hibernate, preenchendo os IDs gerados. As leituras terminam
+     * desanexadas do contexto de persistência; as demais entidades gerenciadas pelo chamador não são afetadas
+     */
+    int insertBatch(List<SensorData> readings);
+
+    /**
+     * Grava o estado de liveness de vários dispositivos em um único UPDATE em batch,
+     * sem retroceder last_seen e mantendo bateria/sinal quando não informados
+     */
+    void updateDevicesLiveness(List<DeviceLivenessUpdate> updates);
+
+    record DeviceLivenessUpdate(Long deviceId, LocalDateTime lastSeen, Integer batteryLevel, Integer signalStrength) {
+    }
+}
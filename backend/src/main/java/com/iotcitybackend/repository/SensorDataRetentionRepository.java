@@ -0,0 +1,69 @@
+package com.iotcitybackend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Acesso JDBC às marcas de retenção (sensor_data_retention) e à remoção em blocos das leituras consolidadas
+ */
+@Repository
+public class SensorDataRetentionRepository {
+
+    // Subconsulta limitada: cada DELETE trava e gera WAL para no máximo chunkSize linhas.
+    // O filtro repetido em timestamp mantém a poda de partições no DELETE externo
+    private static final String DELETE_CHUNK_SQL =
+            "DELETE FROM sensor_data WHERE sensor_type = ? AND timestamp < ? AND id IN (" +
+            "SELECT id FROM sensor_data WHERE sensor_type = ? AND timestamp < ? ORDER BY timestamp LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SensorDataRetentionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Map<String, LocalDateTime> findWatermarks() {
+        Map<String, LocalDateTime> watermarks = new HashMap<>();
+        jdbcTemplate.query("SELECT sensor_type, downsampled_until FROM sensor_data_retention", rs -> {
+            watermarks.put(rs.getString("sensor_type"), rs.getTimestamp("downsampled_until").toLocalDateTime());
+        });
+        return watermarks;
+    }
+
+    public void saveWatermark(String sensorType, LocalDateTime downsampledUntil) {
+        Timestamp until = Timestamp.valueOf(downsampledUntil);
+        int updated = jdbcTemplate.update("UPDATE sensor_data_retention SET downsampled_until = ? WHERE sensor_type = ?",
+                until, sensorType);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO sensor_data_retention (sensor_type, downsampled_until) VALUES (?, ?)",
+                    sensorType, until);
+        }
+    }
+
+    /**
+     * Timestamp da leitura mais antiga do tipo (null se não houver leituras)
+     */
+    public LocalDateTime findOldestReading(String sensorType) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM sensor_data WHERE sensor_type = ?",
+                Timestamp.class, sensorType);
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    public long countReadingsBefore(String sensorType, LocalDateTime before) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data WHERE sensor_type = ? AND timestamp < ?",
+                Long.class, sensorType, Timestamp.valueOf(before));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Remove até chunkSize leituras do tipo com timestamp < before, as mais antigas primeiro. Retorna quantas removeu
+     */
+    public int deleteReadingsBefore(String sensorType, LocalDateTime before, int chunkSize) {
+        Timestamp beforeTs = Timestamp.valueOf(before);
+        return jdbcTemplate.update(DELETE_CHUNK_SQL, sensorType, beforeTs, sensorType, beforeTs, chunkSize);
+    }
+}
@@ -0,0 +1,214 @@
+package com.iotcitybackend.repository;
+
+import com.iotcitybackend.model.RollupResolution;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acesso JDBC à tabela sensor_data_rollup: upsert incremental dos deltas da ingestão,
+ * reconstrução a partir de sensor_data e consultas agregadas
+ */
+@Repository
+public class SensorDataRollupRepository {
+
+    private static final String COLUMNS =
+            "resolution, device_id, sensor_type, bucket_start, reading_count, value_sum, value_min, value_max, value_sum_squares";
+
+    // PostgreSQL: ON CONFLICT é atômico mesmo com writers concorrentes no mesmo bucket
+    private static final String UPSERT_POSTGRES_SQL =
+            "INSERT INTO sensor_data_rollup (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (resolution, device_id, sensor_type, bucket_start) DO UPDATE SET " +
+            "reading_count = sensor_data_rollup.reading_count + EXCLUDED.reading_count, " +
+            "value_sum = sensor_data_rollup.value_sum + EXCLUDED.value_sum, " +
+            "value_min = LEAST(sensor_data_rollup.value_min, EXCLUDED.value_min), " +
+            "value_max = GREATEST(sensor_data_rollup.value_max, EXCLUDED.value_max), " +
+            "value_sum_squares = sensor_data_rollup.value_sum_squares + EXCLUDED.value_sum_squares";
+
+    // H2 (testes e benchmarks) não suporta ON CONFLICT DO UPDATE
+    private static final String UPSERT_MERGE_SQL =
+            "MERGE INTO sensor_data_rollup r USING (VALUES (CAST(? AS VARCHAR(2)), CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), " +
+            "CAST(? AS TIMESTAMP), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION))) AS d(" + COLUMNS + ") " +
+            "ON r.resolution = d.resolution AND r.device_id = d.device_id AND r.sensor_type = d.sensor_type " +
+            "AND r.bucket_start = d.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET reading_count = r.reading_count + d.reading_count, " +
+            "value_sum = r.value_sum + d.value_sum, value_min = LEAST(r.value_min, d.value_min), " +
+            "value_max = GREATEST(r.value_max, d.value_max), value_sum_squares = r.value_sum_squares + d.value_sum_squares " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (d.resolution, d.device_id, d.sensor_type, " +
+            "d.bucket_start, d.reading_count, d.value_sum, d.value_min, d.value_max, d.value_sum_squares)";
+
+    private static final String AGGREGATE_COLUMNS =
+            "COUNT(*) AS reading_count, SUM(sensor_value) AS value_sum, MIN(sensor_value) AS value_min, " +
+            "MAX(sensor_value) AS value_max, SUM(sensor_value * sensor_value) AS value_sum_squares";
+
+    private static final String ROLLUP_AGGREGATE_COLUMNS =
+            "SUM(reading_count) AS reading_count, SUM(value_sum) AS value_sum, MIN(value_min) AS value_min, " +
+            "MAX(value_max) AS value_max, SUM(value_sum_squares) AS value_sum_squares";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    public SensorDataRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.upsertSql = "PostgreSQL".equals(product) ? UPSERT_POSTGRES_SQL : UPSERT_MERGE_SQL;
+    }
+
+    /**
+     * Soma os deltas aos buckets existentes (ou cria os buckets). Os deltas devem vir ordenados pela chave,
+     * para que transações concorrentes travem as linhas na mesma ordem
+     */
+    public void upsert(List<RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (RollupDelta delta : deltas) {
+            SensorDataAggregate aggregate = delta.aggregate();
+            args.add(new Object[]{delta.resolution().getCode(), delta.deviceId(), delta.sensorType(),
+                    Timestamp.valueOf(delta.bucketStart()), aggregate.count(), aggregate.sum(), aggregate.min(),
+                    aggregate.max(), aggregate.sumSquares()});
+        }
+        jdbcTemplate.batchUpdate(upsertSql, args);
+    }
+
+    /**
+     * Recalcula a partir de sensor_data os buckets da resolução com início em [from, to), de um tipo de sensor
+     * ou de todos (sensorType null). from e to devem estar alinhados à resolução. Buckets anteriores à marca
+     * de retenção do tipo (sensor_data_retention) ficam intactos: as leituras deles já podem ter sido removidas.
+     * Retorna o número de buckets gravados
+     */
+    public int rebuild(RollupResolution resolution, LocalDateTime from, LocalDateTime to, String sensorType) {
+        Timestamp fromTs = Timestamp.valueOf(from);
+        Timestamp toTs = Timestamp.valueOf(to);
+        List<Object> deleteArgs = new ArrayList<>(List.of(resolution.getCode(), fromTs, toTs));
+        StringBuilder delete = new StringBuilder("DELETE FROM sensor_data_rollup WHERE resolution = ? " +
+                "AND bucket_start >= ? AND bucket_start < ? AND NOT EXISTS (SELECT 1 FROM sensor_data_retention w " +
+                "WHERE w.sensor_type = sensor_data_rollup.sensor_type AND w.downsampled_until > sensor_data_rollup.bucket_start)");
+        appendFilters(delete, deleteArgs, sensorType, null);
+        jdbcTemplate.update(delete.toString(), deleteArgs.toArray());
+
+        // A marca de retenção é alinhada ao dia: timestamp < marca equivale a bucket_start < marca
+        String bucket = "DATE_TRUNC('" + resolution.getTruncField() + "', timestamp)";
+        List<Object> insertArgs = new ArrayList<>(List.of(resolution.getCode(), fromTs, toTs));
+        StringBuilder insert = new StringBuilder("INSERT INTO sensor_data_rollup (" + COLUMNS + ") " +
+                "SELECT ?, device_id, sensor_type, " + bucket + ", " + AGGREGATE_COLUMNS + " " +
+                "FROM sensor_data WHERE timestamp >= ? AND timestamp < ? AND NOT EXISTS (SELECT 1 FROM " +
+                "sensor_data_retention w WHERE w.sensor_type = sensor_data.sensor_type AND w.downsampled_until > sensor_data.timestamp)");
+        appendFilters(insert, insertArgs, sensorType, null);
+        insert.append(" GROUP BY device_id, sensor_type, ").append(bucket);
+        return jdbcTemplate.update(insert.toString(), insertArgs.toArray());
+    }
+
+    /**
+     * Soma dos buckets de todas as faixas (cada uma com início em [from, to) na sua resolução), em uma única consulta
+     */
+    public SensorDataAggregate aggregate(List<BucketRange> ranges, String sensorType, Long deviceId) {
+        if (ranges.isEmpty()) {
+            return SensorDataAggregate.EMPTY;
+        }
+        List<Object> args = new ArrayList<>();
+        List<String> selects = new ArrayList<>(ranges.size());
+        for (BucketRange range : ranges) {
+            StringBuilder select = new StringBuilder("SELECT reading_count, value_sum, value_min, value_max, value_sum_squares " +
+                    "FROM sensor_data_rollup WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ?");
+            args.add(range.resolution().getCode());
+            args.add(Timestamp.valueOf(range.from()));
+            args.add(Timestamp.valueOf(range.to()));
+            appendFilters(select, args, sensorType, deviceId);
+            selects.add(select.toString());
+        }
+        String sql = "SELECT " + ROLLUP_AGGREGATE_COLUMNS + " FROM (" + String.join(" UNION ALL ", selects) + ") buckets";
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> toAggregate(rs), args.toArray());
+    }
+
+    /**
+     * Agregado direto de sensor_data para as bordas do período que os buckets não cobrem:
+     * [start, rollupStart) e [rollupEnd, end], ambas pequenas (menos de um minuto cada).
+     * UNION ALL em vez de OR para que cada faixa use o índice (sensor_type, timestamp)
+     */
+    public SensorDataAggregate aggregateRaw(String sensorType, Long deviceId, LocalDateTime start,
+                                            LocalDateTime rollupStart, LocalDateTime rollupEnd, LocalDateTime end) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder head = new StringBuilder("SELECT sensor_value FROM sensor_data WHERE timestamp >= ? AND timestamp < ?");
+        args.add(Timestamp.valueOf(start));
+        args.add(Timestamp.valueOf(rollupStart));
+        appendFilters(head, args, sensorType, deviceId);
+        StringBuilder tail = new StringBuilder("SELECT sensor_value FROM sensor_data WHERE timestamp >= ? AND timestamp <= ?");
+        args.add(Timestamp.valueOf(rollupEnd));
+        args.add(Timestamp.valueOf(end));
+        appendFilters(tail, args, sensorType, deviceId);
+        String sql = "SELECT " + AGGREGATE_COLUMNS + " FROM (" + head + " UNION ALL " + tail + ") edges";
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> toAggregate(rs), args.toArray());
+    }
+
+    /**
+     * Agregados diários por tipo de sensor (todos os dispositivos), a partir dos buckets de 1 dia
+     */
+    public List<DailySensorStats> findDailyStatsBySensorType() {
+        return jdbcTemplate.query("SELECT sensor_type, bucket_start, " + ROLLUP_AGGREGATE_COLUMNS +
+                        " FROM sensor_data_rollup WHERE resolution = ? GROUP BY sensor_type, bucket_start " +
+                        "ORDER BY sensor_type, bucket_start",
+                (rs, rowNum) -> new DailySensorStats(rs.getString("sensor_type"),
+                        rs.getTimestamp("bucket_start").toLocalDateTime().toLocalDate(), toAggregate(rs)),
+                RollupResolution.DAY.getCode());
+    }
+
+    /**
+     * Tipos de sensor com leituras em [from, to) segundo os buckets de 1 dia (from e to alinhados ao dia)
+     */
+    public List<String> findSensorTypes(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT sensor_type FROM sensor_data_rollup " +
+                        "WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ?", String.class,
+                RollupResolution.DAY.getCode(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public List<String> findSensorTypes() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT sensor_type FROM sensor_data_rollup WHERE resolution = ?",
+                String.class, RollupResolution.DAY.getCode());
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM sensor_data_rollup LIMIT 1").isEmpty();
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> args, String sensorType, Long deviceId) {
+        if (sensorType != null) {
+            sql.append(" AND sensor_type = ?");
+            args.add(sensorType);
+        }
+        if (deviceId != null) {
+            sql.append(" AND device_id = ?");
+            args.add(deviceId);
+        }
+    }
+
+    private static SensorDataAggregate toAggregate(ResultSet rs) throws SQLException {
+        long count = rs.getLong("reading_count");
+        if (count == 0) {
+            return SensorDataAggregate.EMPTY;
+        }
+        return new SensorDataAggregate(count, rs.getDouble("value_sum"), rs.getDouble("value_min"),
+                rs.getDouble("value_max"), rs.getDouble("value_sum_squares"));
+    }
+
+    public record RollupDelta(RollupResolution resolution, Long deviceId, String sensorType, LocalDateTime bucketStart,
+                              SensorDataAggregate aggregate) {
+    }
+
+    public record BucketRange(RollupResolution resolution, LocalDateTime from, LocalDateTime to) {
+    }
+
+    public record DailySensorStats(String sensorType, LocalDate date, SensorDataAggregate aggregate) {
+    }
+}
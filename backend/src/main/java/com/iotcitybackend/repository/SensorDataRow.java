@@ -0,0 +1,13 @@
+package com.iotcitybackend.repository;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Leitura de sensor achatada, lida diretamente das colunas (sem entidade nem contexto de persistência).
+ * Traz apenas o ID do dispositivo: os dados do dispositivo são resolvidos uma vez por ID pelo chamador.
+ * Serializável para ser distribuída pelo Spark
+ */
+public record SensorDataRow(Long id, Long deviceId, String sensorType, Double value, String unit,
+                            LocalDateTime timestamp, Double latitude, Double longitude) implements Serializable {
+}
@@ -0,0 +1,84 @@
+package com.iotcitybackend.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Acesso JDBC ao progresso dos streams do SensorStreamingJob (sensor_stream_checkpoint e sensor_stream_offset)
+ */
+@Repository
+public class SensorStreamCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SensorStreamCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Cria o checkpoint do stream, se ainda não existir, para que lockMaxEventTime sempre encontre a linha
+     */
+    public void createIfAbsent(String streamId, LocalDateTime updatedAt) {
+        try {
+            jdbcTemplate.update("INSERT INTO sensor_stream_checkpoint (stream_id, max_event_time, updated_at) " +
+                    "SELECT ?, NULL, ? WHERE NOT EXISTS (SELECT 1 FROM sensor_stream_checkpoint WHERE stream_id = ?)",
+                    streamId, Timestamp.valueOf(updatedAt), streamId);
+        } catch (DuplicateKeyException e) {
+            // Outra instância criou a linha ao mesmo tempo
+        }
+    }
+
+    public LocalDateTime findMaxEventTime(String streamId) {
+        List<Timestamp> rows = jdbcTemplate.queryForList(
+                "SELECT max_event_time FROM sensor_stream_checkpoint WHERE stream_id = ?", Timestamp.class, streamId);
+        return rows.isEmpty() || rows.get(0) == null ? null : rows.get(0).toLocalDateTime();
+    }
+
+    /**
+     * Trava o checkpoint do stream até o fim da transação e devolve o maior timestamp aplicado (null se nenhum).
+     * Deve ser chamado dentro de uma transação
+     */
+    public LocalDateTime lockMaxEventTime(String streamId) {
+        List<Timestamp> rows = jdbcTemplate.queryForList(
+                "SELECT max_event_time FROM sensor_stream_checkpoint WHERE stream_id = ? FOR UPDATE", Timestamp.class, streamId);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Checkpoint do stream '" + streamId + "' não encontrado");
+        }
+        return rows.get(0) == null ? null : rows.get(0).toLocalDateTime();
+    }
+
+    public void saveMaxEventTime(String streamId, LocalDateTime maxEventTime, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE sensor_stream_checkpoint SET max_event_time = ?, updated_at = ? WHERE stream_id = ?",
+                Timestamp.valueOf(maxEventTime), Timestamp.valueOf(updatedAt), streamId);
+    }
+
+    public List<PartitionOffset> findOffsets(String streamId) {
+        return jdbcTemplate.query("SELECT topic, partition_id, next_offset FROM sensor_stream_offset WHERE stream_id = ?",
+                (rs, rowNum) -> new PartitionOffset(rs.getString("topic"), rs.getInt("partition_id"), rs.getLong("next_offset")),
+                streamId);
+    }
+
+    /**
+     * Grava os próximos offsets das partições. Chamado com o checkpoint do stream travado, então o
+     * UPDATE seguido de INSERT não concorre com outra instância
+     */
+    public void saveOffsets(String streamId, List<PartitionOffset> offsets) {
+        for (PartitionOffset offset : offsets) {
+            int updated = jdbcTemplate.update("UPDATE sensor_stream_offset SET next_offset = ? " +
+                    "WHERE stream_id = ? AND topic = ? AND partition_id = ?",
+                    offset.nextOffset(), streamId, offset.topic(), offset.partition());
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO sensor_stream_offset (stream_id, topic, partition_id, next_offset) " +
+                        "VALUES (?, ?, ?, ?)", streamId, offset.topic(), offset.partition(), offset.nextOffset());
+            }
+        }
+    }
+
+    public record PartitionOffset(String topic, int partition, long nextOffset) {
+    }
+}
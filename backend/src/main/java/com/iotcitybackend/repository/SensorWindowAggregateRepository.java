@@ -0,0 +1,124 @@
+package com.iotcitybackend.repository;
+
+import com.iotcitybackend.model.SensorWindowType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acesso JDBC à tabela sensor_window_aggregate: upsert dos deltas de cada lote do SensorStreamingJob
+ * e consultas das janelas
+ */
+@Repository
+public class SensorWindowAggregateRepository {
+
+    private static final String COLUMNS =
+            "window_type, device_id, sensor_type, window_start, window_end, reading_count, value_sum, value_min, " +
+            "value_max, value_sum_squares, updated_at";
+
+    // PostgreSQL: ON CONFLICT é atômico mesmo com várias instâncias gravando a mesma janela
+    private static final String UPSERT_POSTGRES_SQL =
+            "INSERT INTO sensor_window_aggregate (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (window_type, device_id, sensor_type, window_start) DO UPDATE SET " +
+            "reading_count = sensor_window_aggregate.reading_count + EXCLUDED.reading_count, " +
+            "value_sum = sensor_window_aggregate.value_sum + EXCLUDED.value_sum, " +
+            "value_min = LEAST(sensor_window_aggregate.value_min, EXCLUDED.value_min), " +
+            "value_max = GREATEST(sensor_window_aggregate.value_max, EXCLUDED.value_max), " +
+            "value_sum_squares = sensor_window_aggregate.value_sum_squares + EXCLUDED.value_sum_squares, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // H2 (testes e benchmarks) não suporta ON CONFLICT DO UPDATE
+    private static final String UPSERT_MERGE_SQL =
+            "MERGE INTO sensor_window_aggregate w USING (VALUES (CAST(? AS VARCHAR(8)), CAST(? AS BIGINT), " +
+            "CAST(? AS VARCHAR(50)), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), CAST(? AS BIGINT), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP))) AS d(" + COLUMNS + ") " +
+            "ON w.window_type = d.window_type AND w.device_id = d.device_id AND w.sensor_type = d.sensor_type " +
+            "AND w.window_start = d.window_start " +
+            "WHEN MATCHED THEN UPDATE SET reading_count = w.reading_count + d.reading_count, " +
+            "value_sum = w.value_sum + d.value_sum, value_min = LEAST(w.value_min, d.value_min), " +
+            "value_max = GREATEST(w.value_max, d.value_max), value_sum_squares = w.value_sum_squares + d.value_sum_squares, " +
+            "updated_at = d.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (d.window_type, d.device_id, d.sensor_type, " +
+            "d.window_start, d.window_end, d.reading_count, d.value_sum, d.value_min, d.value_max, " +
+            "d.value_sum_squares, d.updated_at)";
+
+    private static final String AGGREGATE_COLUMNS =
+            "SUM(reading_count) AS reading_count, SUM(value_sum) AS value_sum, MIN(value_min) AS value_min, " +
+            "MAX(value_max) AS value_max, SUM(value_sum_squares) AS value_sum_squares";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    public SensorWindowAggregateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.upsertSql = "PostgreSQL".equals(product) ? UPSERT_POSTGRES_SQL : UPSERT_MERGE_SQL;
+    }
+
+    /**
+     * Soma os deltas às janelas existentes (ou cria as janelas). Os deltas devem vir ordenados pela chave,
+     * para que transações concorrentes travem as linhas na mesma ordem
+     */
+    public void upsert(List<WindowAggregate> windows, LocalDateTime updatedAt) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        Timestamp updated = Timestamp.valueOf(updatedAt);
+        List<Object[]> args = new ArrayList<>(windows.size());
+        for (WindowAggregate window : windows) {
+            SensorDataAggregate aggregate = window.aggregate();
+            args.add(new Object[]{window.windowType().name(), window.deviceId(), window.sensorType(),
+                    Timestamp.valueOf(window.windowStart()), Timestamp.valueOf(window.windowEnd()), aggregate.count(),
+                    aggregate.sum(), aggregate.min(), aggregate.max(), aggregate.sumSquares(), updated});
+        }
+        jdbcTemplate.batchUpdate(upsertSql, args);
+    }
+
+    /**
+     * Janelas do tipo com início a partir de since, por tipo de sensor (somando os dispositivos, ou só os de
+     * deviceId), em ordem de início. sensorType e deviceId nulos não filtram
+     */
+    public List<WindowStats> findWindows(SensorWindowType windowType, LocalDateTime since, String sensorType, Long deviceId) {
+        List<Object> args = new ArrayList<>(List.of(windowType.name(), Timestamp.valueOf(since)));
+        StringBuilder sql = new StringBuilder("SELECT window_start, window_end, sensor_type, " + AGGREGATE_COLUMNS +
+                " FROM sensor_window_aggregate WHERE window_type = ? AND window_start >= ?");
+        if (sensorType != null) {
+            sql.append(" AND sensor_type = ?");
+            args.add(sensorType);
+        }
+        if (deviceId != null) {
+            sql.append(" AND device_id = ?");
+            args.add(deviceId);
+        }
+        sql.append(" GROUP BY window_start, window_end, sensor_type ORDER BY window_start, sensor_type");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new WindowStats(
+                rs.getTimestamp("window_start").toLocalDateTime(),
+                rs.getTimestamp("window_end").toLocalDateTime(),
+                rs.getString("sensor_type"),
+                new SensorDataAggregate(rs.getLong("reading_count"), rs.getDouble("value_sum"),
+                        rs.getDouble("value_min"), rs.getDouble("value_max"), rs.getDouble("value_sum_squares"))),
+                args.toArray());
+    }
+
+    /**
+     * Remove as janelas encerradas antes de cutoff. Retorna o número de linhas removidas
+     */
+    public int deleteEndedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM sensor_window_aggregate WHERE window_end < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public record WindowAggregate(SensorWindowType windowType, Long deviceId, String sensorType,
+                                  LocalDateTime windowStart, LocalDateTime windowEnd, SensorDataAggregate aggregate) {
+    }
+
+    public record WindowStats(LocalDateTime windowStart, LocalDateTime windowEnd, String sensorType,
+                              SensorDataAggregate aggregate) {
+    }
+}
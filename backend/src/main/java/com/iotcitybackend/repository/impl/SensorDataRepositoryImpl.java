@@ -1,28 +1,143 @@
 package com.iotcitybackend.repository.impl;
 
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
 import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataCursor;
 import com.iotcitybackend.repository.SensorDataRepositoryCustom;
+import com.iotcitybackend.repository.SensorDataRow;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class SensorDataRepositoryImpl implements SensorDataRepositoryCustom {
 
+    private static final String UPDATE_LIVENESS_SQL =
+            "UPDATE devices SET " +
+            "last_seen = CASE WHEN last_seen IS NULL OR last_seen < ? THEN ? ELSE last_seen END, " +
+            "battery_level = COALESCE(?, battery_level), " +
+            "signal_strength = COALESCE(?, signal_strength) " +
+            "WHERE id = ?";
+
+    private static final String STREAM_SQL =
+            "SELECT sd.id, sd.device_id, sd.sensor_type, sd.sensor_value, sd.unit, " +
+            "sd.timestamp, sd.latitude, sd.longitude " +
+            "FROM sensor_data sd";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    @Value("${sensor.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Autowired
+    private SensorTimeSeriesStore timeSeriesStore;
+
     @Override
-    public List<SensorData> findWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
+    public List<SensorDataRow> findRowsWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                                   SensorDataCursor after, int limit) {
+        if (timeSeriesStore.covers(start)) {
+            return timeSeriesStore.findRows(sensorType, deviceId, start, end, after, limit);
+        }
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<SensorData> query = cb.createQuery(SensorData.class);
+        CriteriaQuery<SensorDataRow> query = cb.createQuery(SensorDataRow.class);
         Root<SensorData> sensorData = query.from(SensorData.class);
+        // device.id é a própria FK em sensor_data: nenhum JOIN com devices
+        query.select(cb.construct(SensorDataRow.class,
+                sensorData.get("id"),
+                sensorData.get("device").get("id"),
+                sensorData.get("sensorType"),
+                sensorData.get("value"),
+                sensorData.get("unit"),
+                sensorData.get("timestamp"),
+                sensorData.get("latitude"),
+                sensorData.get("longitude")));
+
+        List<Predicate> predicates = buildFilterPredicates(cb, sensorData, sensorType, deviceId, start, end);
+        if (after != null) {
+            // (timestamp, id) < (cursor.timestamp, cursor.id); o limite superior redundante em timestamp
+            // permite ao planner usar os índices (device_id|sensor_type, timestamp) como range scan
+            Path<LocalDateTime> timestamp = sensorData.get("timestamp");
+            Path<Long> id = sensorData.get("id");
+            predicates.add(cb.lessThanOrEqualTo(timestamp, after.timestamp()));
+            predicates.add(cb.or(
+                    cb.lessThan(timestamp, after.timestamp()),
+                    cb.and(cb.equal(timestamp, after.timestamp()), cb.lessThan(id, after.id()))));
+        }
 
+        query.where(cb.and(predicates.toArray(new Predicate[0])));
+        query.orderBy(cb.desc(sensorData.get("timestamp")), cb.desc(sensorData.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<SensorDataRow> streamWithFilters(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
+        StringBuilder sql = new StringBuilder(STREAM_SQL).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (sensorType != null && !sensorType.isEmpty()) {
+            sql.append(" AND sd.sensor_type = ?");
+            params.add(sensorType);
+        }
+        if (deviceId != null) {
+            sql.append(" AND sd.device_id = ?");
+            params.add(deviceId);
+        }
+        if (start != null) {
+            sql.append(" AND sd.timestamp >= ?");
+            params.add(Timestamp.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND sd.timestamp <= ?");
+            params.add(Timestamp.valueOf(end));
+        }
+        sql.append(" ORDER BY sd.timestamp DESC, sd.id DESC");
+
+        // Sem fetch size o driver do PostgreSQL carrega o resultado inteiro na memória;
+        // com ele (e autocommit desligado pela transação) as linhas chegam em blocos por cursor
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportFetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (rs, rowNum) -> new SensorDataRow(
+                rs.getLong("id"),
+                rs.getLong("device_id"),
+                rs.getString("sensor_type"),
+                rs.getDouble("sensor_value"),
+                rs.getString("unit"),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class)));
+    }
+
+    private List<Predicate> buildFilterPredicates(CriteriaBuilder cb, Root<SensorData> sensorData, String sensorType,
+                                                  Long deviceId, LocalDateTime start, LocalDateTime end) {
         List<Predicate> predicates = new ArrayList<>();
 
         if (sensorType != null && !sensorType.isEmpty()) {
@@ -31,16 +146,51 @@ public class SensorDataRepositoryImpl implements SensorDataRepositoryCustom {
         if (deviceId != null) {
             predicates.add(cb.equal(sensorData.get("device").get("id"), deviceId));
         }
+        // Comparações diretas na coluna de particionamento (sem funções sobre timestamp):
+        // o PostgreSQL descarta as partições fora de [start, end], inclusive com parâmetros em planos genéricos
         if (start != null) {
             predicates.add(cb.greaterThanOrEqualTo(sensorData.get("timestamp"), start));
         }
         if (end != null) {
             predicates.add(cb.lessThanOrEqualTo(sensorData.get("timestamp"), end));
         }
+        return predicates;
+    }
 
-        query.where(cb.and(predicates.toArray(new Predicate[0])));
-        query.orderBy(cb.desc(sensorData.get("timestamp")));
+    @Override
+    public int insertBatch(List<SensorData> readings) {
+        // Com IDs por sequence (pooled-lo) o Hibernate agrupa os INSERTs em JDBC batches
+        // de hibernate.jdbc.batch_size; flush/detach por bloco mantém o contexto de persistência pequeno.
+        // Só as leituras do lote são desanexadas: as demais entidades do contexto do chamador continuam gerenciadas
+        int flushed = 0;
+        for (int i = 0; i < readings.size(); i++) {
+            entityManager.persist(readings.get(i));
+            if ((i + 1) % jdbcBatchSize == 0) {
+                flushed = flushAndDetach(readings, flushed, i + 1);
+            }
+        }
+        flushAndDetach(readings, flushed, readings.size());
+        return readings.size();
+    }
 
-        return entityManager.createQuery(query).getResultList();
+    private int flushAndDetach(List<SensorData> readings, int from, int to) {
+        entityManager.flush();
+        for (SensorData data : readings.subList(from, to)) {
+            entityManager.detach(data);
+        }
+        return to;
+    }
+
+    @Override
+    public void updateDevicesLiveness(List<DeviceLivenessUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(updates.size());
+        for (DeviceLivenessUpdate update : updates) {
+            Timestamp lastSeen = Timestamp.valueOf(update.lastSeen());
+            args.add(new Object[]{lastSeen, lastSeen, update.batteryLevel(), update.signalStrength(), update.deviceId()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_LIVENESS_SQL, args);
     }
-} 
\ No newline at end of file
+}
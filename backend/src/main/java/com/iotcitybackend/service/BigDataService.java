@@ -1,20 +1,30 @@
 package com.iotcitybackend.service;
 
-import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.infrastructure.bigdata.SensorDataJdbcSource;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamingJob;
+import com.iotcitybackend.model.SensorWindowType;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataRollupRepository.DailySensorStats;
+import com.iotcitybackend.repository.SensorDataRow;
+import com.iotcitybackend.repository.SensorWindowAggregateRepository;
+import com.iotcitybackend.repository.SensorWindowAggregateRepository.WindowStats;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.Function2;
-import org.apache.spark.sql.Dataset;
-import org.apache.spark.sql.Row;
-import org.apache.spark.sql.SparkSession;
+import org.apache.spark.util.StatCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import scala.Tuple2;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @ConditionalOnProperty(name = "spark.enabled", havingValue = "true", matchIfMissing = false)
@@ -23,182 +33,325 @@ public class BigDataService {
     @Autowired(required = false)
     private JavaSparkContext sparkContext;
 
-    @Autowired(required = false)
-    private SparkSession sparkSession;
+    @Autowired
+    private SensorDataJdbcSource sensorDataSource;
 
     @Autowired
     private SensorDataService sensorDataService;
 
+    // Presente com spark.streaming.enabled=true: as análises passam a ler apenas tabelas pré-calculadas
+    @Autowired(required = false)
+    private SensorStreamingJob streamingJob;
+
+    @Autowired
+    private SensorWindowAggregateRepository windowRepository;
+
     @Value("${spark.enabled:false}")
     private boolean sparkEnabled;
 
+    @Value("${bigdata.geo.default-precision:6}")
+    private int defaultGeoPrecision;
+
     public Map<String, Object> analyzeSensorDataWithSpark() {
         if (!sparkEnabled || sparkContext == null) {
-            return Map.of(
-                    "error", "Spark is not available",
-                    "message", "Use docker-compose -f docker-compose-bigdata.yml up --build to enable Big Data features"
-            );
+            return sparkUnavailable();
+        }
+        if (streamingJob != null) {
+            return summarizeDailyStats(sensorDataService.getDailyStatsBySensorType());
         }
 
-        // Buscar dados do banco usando 
-        List<SensorData> sensorDataList = sensorDataService.findSensorData(null, null, null, null);
-        
-        // Converter para RDD
-        JavaRDD<SensorData> sensorDataRDD = sparkContext.parallelize(sensorDataList);
-
-        double avgValue = sensorDataRDD
-                .mapToDouble(data -> data.getValue())
-                .mean();
-        
-        double maxValue = sensorDataRDD
-                .mapToDouble(data -> data.getValue())
-                .max();
-        
-        double minValue = sensorDataRDD
-                .mapToDouble(data -> data.getValue())
-                .min();
-        
-        long totalRecords = sensorDataRDD.count();
-        
-        // Análise por tipo de sensor
-        Map<String, Long> sensorTypeCount = sensorDataRDD
-                .mapToPair(data -> new Tuple2<>(data.getSensorType(), 1L))
-                .reduceByKey((Function2<Long, Long, Long>) (a, b) -> a + b)
+        return summarizeSensorData(sensorDataSource.readings());
+    }
+
+    /**
+     * Estatísticas gerais e por tipo de sensor em uma única passada sobre as leituras:
+     * um StatCounter por tipo (aggregateByKey, combinado por partição antes do shuffle),
+     * mesclados no driver para o total. O resultado só tem um item por tipo de sensor
+     */
+    static Map<String, Object> summarizeSensorData(JavaRDD<SensorDataRow> readings) {
+        Map<String, StatCounter> statsByType = readings
+                .mapToPair(data -> new Tuple2<>(data.sensorType(), data.value()))
+                .aggregateByKey(new StatCounter(),
+                        (Function2<StatCounter, Double, StatCounter>) StatCounter::merge,
+                        (Function2<StatCounter, StatCounter, StatCounter>) StatCounter::merge)
                 .collectAsMap();
-        
+
+        StatCounter overall = new StatCounter();
+        Map<String, Long> sensorTypeCount = new TreeMap<>();
+        Map<String, Map<String, Object>> sensorTypeStats = new TreeMap<>();
+        statsByType.forEach((sensorType, stats) -> {
+            overall.merge(stats);
+            sensorTypeCount.put(sensorType, stats.count());
+            sensorTypeStats.put(sensorType, toStatsMap(stats));
+        });
+
+        if (overall.count() == 0) {
+            return emptyAnalysis();
+        }
         return Map.of(
-                "averageValue", avgValue,
-                "maxValue", maxValue,
-                "minValue", minValue,
-                "totalRecords", totalRecords,
-                "sensorTypeDistribution", sensorTypeCount
+                "averageValue", overall.mean(),
+                "maxValue", overall.max(),
+                "minValue", overall.min(),
+                "totalRecords", overall.count(),
+                "sensorTypeDistribution", sensorTypeCount,
+                "sensorTypeStats", sensorTypeStats
+        );
+    }
+
+    /**
+     * Mesmo resultado de summarizeSensorData a partir dos rollups diários (tipos x dias), sem ler as leituras
+     */
+    static Map<String, Object> summarizeDailyStats(List<DailySensorStats> dailyStats) {
+        Map<String, SensorDataAggregate> statsByType = new TreeMap<>();
+        for (DailySensorStats stats : dailyStats) {
+            statsByType.merge(stats.sensorType(), stats.aggregate(), SensorDataAggregate::merge);
+        }
+
+        SensorDataAggregate overall = SensorDataAggregate.EMPTY;
+        Map<String, Long> sensorTypeCount = new TreeMap<>();
+        Map<String, Map<String, Object>> sensorTypeStats = new TreeMap<>();
+        for (Map.Entry<String, SensorDataAggregate> entry : statsByType.entrySet()) {
+            SensorDataAggregate stats = entry.getValue();
+            overall = overall.merge(stats);
+            sensorTypeCount.put(entry.getKey(), stats.count());
+            sensorTypeStats.put(entry.getKey(), toStatsMap(stats));
+        }
+
+        if (overall.count() == 0) {
+            return emptyAnalysis();
+        }
+        return Map.of(
+                "averageValue", overall.mean(),
+                "maxValue", overall.max(),
+                "minValue", overall.min(),
+                "totalRecords", overall.count(),
+                "sensorTypeDistribution", sensorTypeCount,
+                "sensorTypeStats", sensorTypeStats
         );
     }
 
     /**
-     * Análise temporal usando Spark DataFrame
+     * Análise temporal (média, contagem e desvio padrão por tipo de sensor e dia), a partir dos rollups diários
      */
     public Map<String, Object> analyzeTemporalPatterns() {
-        if (!sparkEnabled || sparkSession == null) {
-            return Map.of(
-                    "error", "Spark is not available",
-                    "message", "Use docker-compose -f docker-compose-bigdata.yml up --build to enable Big Data features"
-            );
+        if (!sparkEnabled) {
+            return sparkUnavailable();
         }
 
-        List<SensorData> sensorDataList = sensorDataService.findSensorData(null, null, null, null);
-        
-        // Converter para DataFrame
-        Dataset<Row> df = sparkSession.createDataFrame(sensorDataList, SensorData.class);
-        
-        // Análise temporal usando DataFrame API
-        Dataset<Row> temporalAnalysis = df
-                .select(
-                    df.col("sensorType"),
-                    df.col("value"),
-                    df.col("timestamp")
-                )
-                .groupBy(
-                    df.col("sensorType"),
-                    org.apache.spark.sql.functions.date_format(df.col("timestamp"), "yyyy-MM-dd").as("date")
-                )
-                .agg(
-                    org.apache.spark.sql.functions.avg("value").as("avg_value"),
-                    org.apache.spark.sql.functions.count("*").as("readings_count"),
-                    org.apache.spark.sql.functions.stddev("value").as("value_stddev")
-                )
-                .orderBy("sensorType", "date");
-        
-        // Coletar resultados
-        List<Row> results = temporalAnalysis.collectAsList();
-        
-        // Converter para formato de resposta
-        Map<String, Object> response = Map.of(
+        // Só os buckets diários (tipos x dias) são lidos, independente do volume de leituras
+        List<Map<String, Object>> results = sensorDataService.getDailyStatsBySensorType().stream()
+                .map(stats -> {
+                    Map<String, Object> pattern = new LinkedHashMap<>();
+                    pattern.put("sensorType", stats.sensorType());
+                    pattern.put("date", stats.date().toString());
+                    pattern.put("avg_value", stats.aggregate().mean());
+                    pattern.put("readings_count", stats.aggregate().count());
+                    pattern.put("value_stddev", stats.aggregate().sampleStddev());
+                    return pattern;
+                })
+                .collect(Collectors.toList());
+
+        return Map.of(
                 "temporalPatterns", results,
                 "totalPatterns", results.size(),
                 "analysisType", "Temporal patterns by sensor type and date"
         );
-        
-        return response;
     }
 
     /**
-     * Análise de distribuição geográfica dos sensores
+     * Distribuição geográfica em grade geohash: contagem, média, mínimo e máximo por célula e tipo de sensor.
+     * A precisão (1 a 12) é o nível de zoom; nula usa bigdata.geo.default-precision.
+     * Leituras sem coordenadas ficam de fora
      */
-    public Map<String, Object> analyzeGeographicDistribution() {
+    public Map<String, Object> analyzeGeographicDistribution(Integer precision) {
         if (!sparkEnabled || sparkContext == null) {
-            return Map.of(
-                    "error", "Spark is not available",
-                    "message", "Use docker-compose -f docker-compose-bigdata.yml up --build to enable Big Data features"
-            );
+            return sparkUnavailable();
         }
+        int cellPrecision = precision != null ? precision : defaultGeoPrecision;
+        Geohash.checkPrecision(cellPrecision);
+
+        List<Map<String, Object>> cells = aggregateGeohashCells(sensorDataSource.readings(), cellPrecision);
+        long totalCells = cells.stream().map(cell -> cell.get("geohash")).distinct().count();
 
-        List<SensorData> sensorDataList = sensorDataService.findSensorData(null, null, null, null);
-        JavaRDD<SensorData> sensorDataRDD = sparkContext.parallelize(sensorDataList);
-        
-        // Análise por região geográfica
-        Map<String, Double> avgByLocation = sensorDataRDD
-                .mapToPair(data -> {
-                    String region = getRegionFromCoordinates(data.getLatitude(), data.getLongitude());
-                    return new Tuple2<>(region, data.getValue());
-                })
-                .groupByKey()
-                .mapValues(values -> {
-                    double sum = 0;
-                    int count = 0;
-                    for (Double value : values) {
-                        sum += value;
-                        count++;
-                    }
-                    return sum / count;
-                })
-                .collectAsMap();
-        
         return Map.of(
-                "geographicDistribution", avgByLocation,
-                "totalLocations", avgByLocation.size()
+                "precision", cellPrecision,
+                "cells", cells,
+                "totalCells", totalCells
         );
     }
 
+    /**
+     * Um StatCounter por (célula, tipo) combinado por partição antes do shuffle:
+     * o volume trocado entre partições é proporcional ao número de células, não ao de leituras
+     */
+    static List<Map<String, Object>> aggregateGeohashCells(JavaRDD<SensorDataRow> readings, int precision) {
+        Map<Tuple2<String, String>, StatCounter> statsByCell = readings
+                .filter(data -> data.latitude() != null && data.longitude() != null)
+                .mapToPair(data -> new Tuple2<>(
+                        new Tuple2<>(Geohash.encode(data.latitude(), data.longitude(), precision), data.sensorType()),
+                        data.value()))
+                .aggregateByKey(new StatCounter(),
+                        (Function2<StatCounter, Double, StatCounter>) StatCounter::merge,
+                        (Function2<StatCounter, StatCounter, StatCounter>) StatCounter::merge)
+                .collectAsMap();
+
+        return statsByCell.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparing((Tuple2<String, String> key) -> key._1())
+                        .thenComparing(Tuple2::_2)))
+                .map(entry -> {
+                    String geohash = entry.getKey()._1();
+                    double[] bounds = Geohash.bounds(geohash);
+                    StatCounter stats = entry.getValue();
+                    Map<String, Object> cell = new LinkedHashMap<>();
+                    cell.put("geohash", geohash);
+                    cell.put("sensorType", entry.getKey()._2());
+                    cell.put("latitude", (bounds[0] + bounds[2]) / 2);
+                    cell.put("longitude", (bounds[1] + bounds[3]) / 2);
+                    cell.put("bounds", List.of(bounds[0], bounds[1], bounds[2], bounds[3]));
+                    cell.put("count", stats.count());
+                    cell.put("avg", stats.mean());
+                    cell.put("min", stats.min());
+                    cell.put("max", stats.max());
+                    return cell;
+                })
+                .collect(Collectors.toList());
+    }
+
     /**
      * Análise de performance e throughput
      */
     public Map<String, Object> analyzePerformanceMetrics() {
         if (!sparkEnabled || sparkContext == null) {
-            return Map.of(
-                    "error", "Spark is not available",
-                    "message", "Use docker-compose -f docker-compose-bigdata.yml up --build to enable Big Data features"
-            );
+            return sparkUnavailable();
+        }
+
+        if (streamingJob != null) {
+            return streamingPerformanceMetrics();
         }
 
-        List<SensorData> sensorDataList = sensorDataService.findSensorData(null, null, null, null);
-        JavaRDD<SensorData> sensorDataRDD = sparkContext.parallelize(sensorDataList);
-        
         long startTime = System.currentTimeMillis();
 
-        long totalRecords = sensorDataRDD.count();
-        double avgValue = sensorDataRDD.mapToDouble(data -> data.getValue()).mean();
-        
+        // Uma única passada: contagem e média juntas
+        StatCounter stats = sensorDataSource.readings()
+                .mapToDouble(SensorDataRow::value)
+                .stats();
+        long totalRecords = stats.count();
+        double avgValue = totalRecords > 0 ? stats.mean() : 0.0;
+
         long endTime = System.currentTimeMillis();
         long processingTime = endTime - startTime;
-        
+
         return Map.of(
                 "totalRecords", totalRecords,
                 "averageValue", avgValue,
                 "processingTimeMs", processingTime,
-                "throughput", (double) totalRecords / (processingTime / 1000.0) // records per second
+                "throughput", processingTime > 0 ? (double) totalRecords / (processingTime / 1000.0) : 0.0 // records per second
         );
     }
 
-    private String getRegionFromCoordinates(Double latitude, Double longitude) {
-        // Implementação simplificada de classificação por região
-        if (latitude == null || longitude == null) {
-            return "Unknown";
+    /**
+     * Totais dos rollups diários e vazão do último lote do job de streaming
+     */
+    private Map<String, Object> streamingPerformanceMetrics() {
+        SensorDataAggregate total = SensorDataAggregate.EMPTY;
+        for (DailySensorStats stats : sensorDataService.getDailyStatsBySensorType()) {
+            total = total.merge(stats.aggregate());
         }
-        if (latitude > 0) {
-            return longitude > 0 ? "Northeast" : "Northwest";
-        } else {
-            return longitude > 0 ? "Southeast" : "Southwest";
+        Map<String, Object> status = streamingJob.status();
+        SensorStreamingJob.BatchStatus lastBatch = (SensorStreamingJob.BatchStatus) status.get("lastBatch");
+        long processingTime = lastBatch != null ? lastBatch.durationMs() : 0L;
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("totalRecords", total.count());
+        metrics.put("averageValue", total.count() > 0 ? total.mean() : 0.0);
+        metrics.put("processingTimeMs", processingTime);
+        metrics.put("throughput", processingTime > 0 ? lastBatch.readings() / (processingTime / 1000.0) : 0.0); // records per second
+        metrics.put("streaming", status);
+        return metrics;
+    }
+
+    /**
+     * Janelas calculadas pelo job de streaming com início nos últimos minutes minutos, por tipo de sensor
+     * (somando os dispositivos, ou só de deviceId). complete indica que a janela terminou antes da marca d'água
+     * e não recebe mais leituras
+     */
+    public Map<String, Object> getStreamingWindows(SensorWindowType windowType, String sensorType, Long deviceId,
+                                                   int minutes) {
+        if (!sparkEnabled || streamingJob == null) {
+            return streamingUnavailable();
+        }
+        if (minutes < 1) {
+            throw new IllegalArgumentException("minutes deve ser maior que zero");
         }
+        LocalDateTime watermark = streamingJob.getWatermark();
+        List<WindowStats> windows = windowRepository.findWindows(windowType, LocalDateTime.now().minusMinutes(minutes),
+                sensorType, deviceId);
+
+        List<Map<String, Object>> results = windows.stream()
+                .map(window -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    values.put("windowStart", window.windowStart());
+                    values.put("windowEnd", window.windowEnd());
+                    values.put("sensorType", window.sensorType());
+                    values.putAll(toStatsMap(window.aggregate()));
+                    values.put("complete", watermark != null && !window.windowEnd().isAfter(watermark));
+                    return values;
+                })
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("windowType", windowType);
+        response.put("watermark", watermark);
+        response.put("windows", results);
+        response.put("totalWindows", results.size());
+        return response;
+    }
+
+    private static Map<String, Object> streamingUnavailable() {
+        return Map.of(
+                "error", "Spark streaming is not available",
+                "message", "Set spark.streaming.enabled=true (enabled in the bigdata profile) to compute streaming windows"
+        );
+    }
+
+    private static Map<String, Object> sparkUnavailable() {
+        return Map.of(
+                "error", "Spark is not available",
+                "message", "Use docker-compose -f docker-compose-bigdata.yml up --build to enable Big Data features"
+        );
+    }
+
+    // Sem leituras: média/máximo/mínimo não são definidos
+    private static Map<String, Object> emptyAnalysis() {
+        return Map.of(
+                "averageValue", 0.0,
+                "maxValue", 0.0,
+                "minValue", 0.0,
+                "totalRecords", 0L,
+                "sensorTypeDistribution", Map.of(),
+                "sensorTypeStats", Map.of()
+        );
+    }
+
+    // Desvio padrão populacional (StatCounter.stdev), definido também para uma única leitura
+    private static Map<String, Object> toStatsMap(StatCounter stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", stats.count());
+        values.put("mean", stats.mean());
+        values.put("min", stats.min());
+        values.put("max", stats.max());
+        values.put("stddev", stats.stdev());
+        return values;
+    }
+
+    private static Map<String, Object> toStatsMap(SensorDataAggregate stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", stats.count());
+        values.put("mean", stats.mean());
+        values.put("min", stats.min());
+        values.put("max", stats.max());
+        values.put("stddev", stats.populationStddev());
+        return values;
     }
-} 
\ No newline at end of file
+}
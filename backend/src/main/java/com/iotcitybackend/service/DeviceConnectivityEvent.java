@@ -0,0 +1,10 @@
+package com.iotcitybackend.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transição de conectividade de um dispositivo, publicada pelo DeviceOfflineDetector
+ * (offline quando o timeout expira, online quando volta a ser visto)
+ */
+public record DeviceConnectivityEvent(Long deviceId, boolean online, LocalDateTime lastSeen) {
+}
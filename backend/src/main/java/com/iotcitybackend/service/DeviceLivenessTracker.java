@@ -0,0 +1,151 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.SensorDataRepository;
+import com.iotcitybackend.repository.SensorDataRepositoryCustom.DeviceLivenessUpdate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de liveness dos dispositivos (last_seen, bateria e sinal) mantido em memória.
+ * Heartbeats e leituras atualizam o estado sem lock; apenas o valor mais recente de cada
+ * dispositivo é gravado no banco, periodicamente, em um único UPDATE em batch.
+ */
+@Component
+public class DeviceLivenessTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceLivenessTracker.class);
+
+    private static final int UNSET = -1;
+
+    private final SensorDataRepository sensorDataRepository;
+    private final DeviceStatsCounters statsCounters;
+    private final DeviceOfflineDetector offlineDetector;
+    private final Map<Long, LivenessState> states = new ConcurrentHashMap<>();
+
+    public DeviceLivenessTracker(SensorDataRepository sensorDataRepository, DeviceStatsCounters statsCounters,
+                                 DeviceOfflineDetector offlineDetector) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.statsCounters = statsCounters;
+        this.offlineDetector = offlineDetector;
+    }
+
+    public void recordSeen(Long deviceId, LocalDateTime seenAt) {
+        LivenessState state = states.computeIfAbsent(deviceId, id -> new LivenessState());
+        state.lastSeenMillis.accumulateAndGet(toMillis(seenAt), Math::max);
+        state.dirty.set(true);
+        offlineDetector.onSeen(deviceId, seenAt);
+    }
+
+    public void recordHeartbeat(Long deviceId, LocalDateTime seenAt, Integer batteryLevel, Integer signalStrength) {
+        LivenessState state = states.computeIfAbsent(deviceId, id -> new LivenessState());
+        state.lastSeenMillis.accumulateAndGet(toMillis(seenAt), Math::max);
+        if (batteryLevel != null) state.batteryLevel = batteryLevel;
+        if (signalStrength != null) state.signalStrength = signalStrength;
+        state.dirty.set(true);
+        offlineDetector.onSeen(deviceId, seenAt);
+        if (batteryLevel != null) statsCounters.onBatteryLevel(deviceId, batteryLevel);
+    }
+
+    /**
+     * Último momento em que o dispositivo foi visto segundo o estado em memória (ou null se desconhecido)
+     */
+    public LocalDateTime getLastSeen(Long deviceId) {
+        LivenessState state = states.get(deviceId);
+        if (state == null || state.lastSeenMillis.get() == Long.MIN_VALUE) {
+            return null;
+        }
+        return new Timestamp(state.lastSeenMillis.get()).toLocalDateTime();
+    }
+
+    /**
+     * Sobrepõe ao dispositivo (cópia desanexada) os valores em memória mais recentes que os dele
+     */
+    public Device applyTo(Device device) {
+        LivenessState state = states.get(device.getId());
+        if (state == null) {
+            return device;
+        }
+        LocalDateTime lastSeen = getLastSeen(device.getId());
+        if (lastSeen != null && (device.getLastSeen() == null || lastSeen.isAfter(device.getLastSeen()))) {
+            device.setLastSeen(lastSeen);
+        }
+        if (state.batteryLevel != UNSET) device.setBatteryLevel(state.batteryLevel);
+        if (state.signalStrength != UNSET) device.setSignalStrength(state.signalStrength);
+        return device;
+    }
+
+    /**
+     * Dispositivos cuja bateria mais recente em memória está abaixo do limite (inclusive ainda não gravada)
+     */
+    public Set<Long> getDeviceIdsWithBatteryBelow(int threshold) {
+        Set<Long> deviceIds = new HashSet<>();
+        states.forEach((deviceId, state) -> {
+            int batteryLevel = state.batteryLevel;
+            if (batteryLevel != UNSET && batteryLevel < threshold) {
+                deviceIds.add(deviceId);
+            }
+        });
+        return deviceIds;
+    }
+
+    public void forget(Long deviceId) {
+        states.remove(deviceId);
+    }
+
+    @Scheduled(fixedDelayString = "${device.liveness.flush-interval-ms:5000}")
+    public void flush() {
+        List<DeviceLivenessUpdate> updates = new ArrayList<>();
+        List<LivenessState> flushed = new ArrayList<>();
+        states.forEach((deviceId, state) -> {
+            if (state.dirty.getAndSet(false)) {
+                updates.add(new DeviceLivenessUpdate(
+                        deviceId,
+                        new Timestamp(state.lastSeenMillis.get()).toLocalDateTime(),
+                        state.batteryLevel != UNSET ? state.batteryLevel : null,
+                        state.signalStrength != UNSET ? state.signalStrength : null));
+                flushed.add(state);
+            }
+        });
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            sensorDataRepository.updateDevicesLiveness(updates);
+        } catch (Exception e) {
+            // Mantém os valores pendentes para o próximo ciclo
+            flushed.forEach(state -> state.dirty.set(true));
+            log.error("Falha ao gravar liveness de {} dispositivos: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime).getTime();
+    }
+
+    private static final class LivenessState {
+        private final AtomicLong lastSeenMillis = new AtomicLong(Long.MIN_VALUE);
+        private volatile int batteryLevel = UNSET;
+        private volatile int signalStrength = UNSET;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,335 @@
+package com.iotcitybackend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Detecção de dispositivos offline por prazos em memória, sem consultas ao banco.
+ * Cada dispositivo tem no máximo um prazo na fila (last_seen + timeout); heartbeats e leituras apenas avançam o
+ * last_seen e, quando o prazo vence, uma thread dedicada reagenda o dispositivo visto nesse intervalo ou o marca
+ * como offline. Transições offline/online são publicadas como DeviceConnectivityEvent
+ */
+@Component
+public class DeviceOfflineDetector implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceOfflineDetector.class);
+
+    private static final String LOAD_SQL = "SELECT id, last_seen FROM devices";
+
+    private static final long UNSEEN = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter offlineTransitions;
+    private final Counter onlineTransitions;
+
+    private final Map<Long, DeviceClock> clocks = new ConcurrentHashMap<>();
+    private final Set<Long> offlineIds = ConcurrentHashMap.newKeySet();
+
+    // Ordenada pelo last_seen do agendamento: com o mesmo timeout para todos os dispositivos,
+    // a ordem dos prazos não muda quando o timeout é alterado
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparingLong(Deadline::lastSeenMillis));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private volatile long timeoutMillis;
+    private volatile boolean running;
+    private Thread worker;
+
+    public DeviceOfflineDetector(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                                 @Value("${device.offline.timeout.minutes:30}") int offlineTimeoutMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.timeoutMillis = offlineTimeoutMinutes * 60_000L;
+        this.offlineTransitions = Counter.builder("iot.devices.transitions").tag("to", "offline")
+                .description("Transições de conectividade dos dispositivos")
+                .register(meterRegistry);
+        this.onlineTransitions = Counter.builder("iot.devices.transitions").tag("to", "online")
+                .description("Transições de conectividade dos dispositivos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Carrega o last_seen dos dispositivos e inicia a thread dos prazos. Dispositivos já vencidos
+     * entram como offline sem publicar transição
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Timestamp lastSeen = rs.getTimestamp("last_seen");
+            register(rs.getLong("id"), lastSeen != null ? lastSeen.getTime() : UNSEEN);
+        });
+        running = true;
+        worker = new Thread(this::run, "device-offline-detector");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Detecção de dispositivos offline iniciada: {} dispositivos, {} offline, timeout de {} minutos",
+                clocks.size(), offlineIds.size(), timeoutMillis / 60_000);
+    }
+
+    public void track(Long deviceId, LocalDateTime lastSeen) {
+        register(deviceId, toMillis(lastSeen));
+    }
+
+    /**
+     * Heartbeat ou leitura: avança o last_seen e, se o dispositivo estava offline, publica a volta a online
+     */
+    public void onSeen(Long deviceId, LocalDateTime seenAt) {
+        DeviceClock clock = clocks.get(deviceId);
+        if (clock != null) {
+            publish(advance(clock, toMillis(seenAt)));
+        }
+    }
+
+    public void forget(Long deviceId) {
+        DeviceClock clock = clocks.remove(deviceId);
+        if (clock != null) {
+            synchronized (clock) {
+                // O prazo pendente é descartado quando vencer
+                clock.removed = true;
+                offlineIds.remove(deviceId);
+            }
+        }
+    }
+
+    /**
+     * Novo timeout: os prazos agendados continuam ordenados e a thread é acordada para reavaliar o primeiro;
+     * somente os dispositivos offline são revistos (podem voltar a online com um timeout maior)
+     */
+    public void setOfflineTimeoutMinutes(int minutes) {
+        timeoutMillis = minutes * 60_000L;
+        for (Long deviceId : offlineIds) {
+            DeviceClock clock = clocks.get(deviceId);
+            if (clock != null) {
+                publish(advance(clock, UNSEEN));
+            }
+        }
+        lock.lock();
+        try {
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sincroniza com a tabela devices (dispositivos incluídos/removidos fora do DeviceService, last_seen mais recente
+     * no banco). Retorna o número de dispositivos cujo estado mudou
+     */
+    public int resync() {
+        Set<Long> seen = new HashSet<>();
+        int[] changes = {0};
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            long deviceId = rs.getLong("id");
+            Timestamp lastSeen = rs.getTimestamp("last_seen");
+            long lastSeenMillis = lastSeen != null ? lastSeen.getTime() : UNSEEN;
+            seen.add(deviceId);
+            DeviceClock clock = clocks.get(deviceId);
+            if (clock == null) {
+                register(deviceId, lastSeenMillis);
+                changes[0]++;
+            } else {
+                DeviceConnectivityEvent event = advance(clock, lastSeenMillis);
+                if (event != null) {
+                    publish(event);
+                    changes[0]++;
+                }
+            }
+        });
+        for (Long deviceId : Set.copyOf(clocks.keySet())) {
+            if (!seen.contains(deviceId)) {
+                forget(deviceId);
+                changes[0]++;
+            }
+        }
+        return changes[0];
+    }
+
+    public long getOfflineCount() {
+        return offlineIds.size();
+    }
+
+    public Set<Long> getOfflineDeviceIds() {
+        return Set.copyOf(offlineIds);
+    }
+
+    public boolean isOffline(Long deviceId) {
+        return offlineIds.contains(deviceId);
+    }
+
+    public Duration getOfflineTimeout() {
+        return Duration.ofMillis(timeoutMillis);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void register(long deviceId, long lastSeenMillis) {
+        DeviceClock clock = new DeviceClock(deviceId);
+        // Publicado no mapa já com o monitor: heartbeats concorrentes aguardam a inicialização
+        synchronized (clock) {
+            if (clocks.putIfAbsent(deviceId, clock) != null) {
+                return;
+            }
+            clock.lastSeenMillis = lastSeenMillis;
+            if (lastSeenMillis == UNSEEN) {
+                // Nunca visto: não conta como offline (mesmo critério de findDevicesNotSeenSince)
+                return;
+            }
+            if (expired(clock, System.currentTimeMillis())) {
+                clock.offline = true;
+                offlineIds.add(deviceId);
+            } else {
+                schedule(clock);
+            }
+        }
+    }
+
+    private DeviceConnectivityEvent advance(DeviceClock clock, long seenMillis) {
+        synchronized (clock) {
+            if (clock.removed) {
+                return null;
+            }
+            clock.lastSeenMillis = Math.max(clock.lastSeenMillis, seenMillis);
+            if (clock.lastSeenMillis == UNSEEN) {
+                return null;
+            }
+            DeviceConnectivityEvent event = null;
+            if (clock.offline && !expired(clock, System.currentTimeMillis())) {
+                clock.offline = false;
+                offlineIds.remove(clock.deviceId);
+                onlineTransitions.increment();
+                event = new DeviceConnectivityEvent(clock.deviceId, true, toDateTime(clock.lastSeenMillis));
+            }
+            if (!clock.offline && !clock.scheduled) {
+                schedule(clock);
+            }
+            return event;
+        }
+    }
+
+    /**
+     * Prazo vencido: offline se não foi visto desde o agendamento, senão novo prazo a partir do last_seen atual
+     */
+    private DeviceConnectivityEvent expire(DeviceClock clock) {
+        synchronized (clock) {
+            clock.scheduled = false;
+            if (clock.removed || clock.offline) {
+                return null;
+            }
+            if (!expired(clock, System.currentTimeMillis())) {
+                schedule(clock);
+                return null;
+            }
+            clock.offline = true;
+            offlineIds.add(clock.deviceId);
+            offlineTransitions.increment();
+            return new DeviceConnectivityEvent(clock.deviceId, false, toDateTime(clock.lastSeenMillis));
+        }
+    }
+
+    // Chamado com o monitor do dispositivo
+    private void schedule(DeviceClock clock) {
+        clock.scheduled = true;
+        Deadline deadline = new Deadline(clock, clock.lastSeenMillis);
+        lock.lock();
+        try {
+            deadlines.add(deadline);
+            if (deadlines.peek() == deadline) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            Deadline due;
+            lock.lock();
+            try {
+                Deadline head = deadlines.peek();
+                if (head == null) {
+                    changed.await();
+                    continue;
+                }
+                long wait = head.lastSeenMillis() + timeoutMillis - System.currentTimeMillis();
+                if (wait > 0) {
+                    changed.await(wait, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                due = deadlines.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                publish(expire(due.clock()));
+            } catch (Exception e) {
+                log.error("Falha ao processar prazo do dispositivo {}: {}", due.clock().deviceId, e.getMessage());
+            }
+        }
+    }
+
+    private void publish(DeviceConnectivityEvent event) {
+        if (event != null) {
+            log.debug("Dispositivo {} {}", event.deviceId(), event.online() ? "online" : "offline");
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private boolean expired(DeviceClock clock, long now) {
+        return clock.lastSeenMillis < now - timeoutMillis;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime).getTime() : UNSEEN;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return new Timestamp(millis).toLocalDateTime();
+    }
+
+    private static final class DeviceClock {
+        private final long deviceId;
+        private long lastSeenMillis = UNSEEN;
+        private boolean offline;
+        private boolean scheduled;
+        private boolean removed;
+
+        DeviceClock(long deviceId) {
+            this.deviceId = deviceId;
+        }
+    }
+
+    private record Deadline(DeviceClock clock, long lastSeenMillis) {
+    }
+}
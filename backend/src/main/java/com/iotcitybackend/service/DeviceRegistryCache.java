@@ -0,0 +1,90 @@
+package com.iotcitybackend.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.DeviceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Registro em memória dos dispositivos, por ID, na frente do DeviceRepository.
+ * Guarda cópias desanexadas (snapshots) com tamanho máximo e despejo por uso.
+ * As alterações feitas pelo DeviceService são gravadas aqui (write-through).
+ */
+@Component
+public class DeviceRegistryCache {
+
+    private final LoadingCache<Long, Device> cache;
+
+    public DeviceRegistryCache(DeviceRepository deviceRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${device.registry.cache.max-size:100000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Device load(Long id) {
+                        return deviceRepository.findById(id).map(DeviceRegistryCache::snapshot).orElse(null);
+                    }
+
+                    @Override
+                    public Map<Long, Device> loadAll(Set<? extends Long> ids) {
+                        Map<Long, Device> loaded = new HashMap<>();
+                        deviceRepository.findAllById(List.copyOf(ids)).forEach(device -> loaded.put(device.getId(), snapshot(device)));
+                        return loaded;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "deviceRegistry");
+    }
+
+    public Optional<Device> get(Long id) {
+        return Optional.ofNullable(cache.get(id));
+    }
+
+    /**
+     * Busca vários dispositivos; os ausentes do cache são carregados em uma única consulta
+     */
+    public Map<Long, Device> getAll(Collection<Long> ids) {
+        return cache.getAll(ids);
+    }
+
+    public void put(Device device) {
+        if (device != null && device.getId() != null) {
+            cache.put(device.getId(), snapshot(device));
+        }
+    }
+
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Cópia desanexada do dispositivo, segura para compartilhar entre threads e sessões
+     */
+    static Device snapshot(Device device) {
+        return Device.builder()
+                .id(device.getId())
+                .name(device.getName())
+                .type(device.getType())
+                .location(device.getLocation())
+                .active(device.isActive())
+                .lastSeen(device.getLastSeen())
+                .batteryLevel(device.getBatteryLevel())
+                .signalStrength(device.getSignalStrength())
+                .createdAt(device.getCreatedAt())
+                .updatedAt(device.getUpdatedAt())
+                .build();
+    }
+}
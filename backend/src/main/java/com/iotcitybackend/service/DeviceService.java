@@ -1,48 +1,105 @@
 package com.iotcitybackend.service;
 
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
 import com.iotcitybackend.model.Device;
 import com.iotcitybackend.repository.DeviceRepository;
 import com.iotcitybackend.dto.DeviceDTO;
+import com.iotcitybackend.dto.DeviceStatsDTO;
 import lombok.Getter;
-import lombok.Setter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class DeviceService {
 
     // Configuração para timeout de dispositivos offline (em minutos)
-    @Setter
     @Getter
-    @Value("${device.offline.timeout.minutes:30}")
     private int offlineTimeoutMinutes;
     
     private final DeviceRepository deviceRepository;
+    private final DeviceRegistryCache deviceRegistry;
+    private final DeviceLivenessTracker livenessTracker;
+    private final SensorTimeSeriesStore timeSeriesStore;
+    private final SensorDataLatestCache latestCache;
+    private final SensorTypeCatalog sensorTypeCatalog;
+    private final DeviceStatsCounters statsCounters;
+    private final DeviceOfflineDetector offlineDetector;
+    private final LiveFeedService liveFeed;
 
 
-    public DeviceService(DeviceRepository deviceRepository) {
+    public DeviceService(DeviceRepository deviceRepository, DeviceRegistryCache deviceRegistry,
+                         DeviceLivenessTracker livenessTracker, SensorTimeSeriesStore timeSeriesStore,
+                         SensorDataLatestCache latestCache, SensorTypeCatalog sensorTypeCatalog,
+                         DeviceStatsCounters statsCounters, DeviceOfflineDetector offlineDetector,
+                         LiveFeedService liveFeed) {
         this.deviceRepository = deviceRepository;
+        this.deviceRegistry = deviceRegistry;
+        this.livenessTracker = livenessTracker;
+        this.timeSeriesStore = timeSeriesStore;
+        this.latestCache = latestCache;
+        this.sensorTypeCatalog = sensorTypeCatalog;
+        this.statsCounters = statsCounters;
+        this.offlineDetector = offlineDetector;
+        this.liveFeed = liveFeed;
+    }
+
+    @Value("${device.offline.timeout.minutes:30}")
+    public void setOfflineTimeoutMinutes(int offlineTimeoutMinutes) {
+        this.offlineTimeoutMinutes = offlineTimeoutMinutes;
+        offlineDetector.setOfflineTimeoutMinutes(offlineTimeoutMinutes);
     }
 
     public Device createDevice(Device device) {
         device.setActive(true);
         device.setLastSeen(LocalDateTime.now());
-        return deviceRepository.save(device);
+        Device saved = deviceRepository.save(device);
+        deviceRegistry.put(saved);
+        statsCounters.onCreated(saved);
+        offlineDetector.track(saved.getId(), saved.getLastSeen());
+        liveFeed.publishDevice(saved);
+        return saved;
     }
     
     // Buscar todos os dispositivos
     public List<Device> getAllDevices() {
-        return deviceRepository.findAll();
+        return withLiveness(deviceRepository.findAll());
     }
     
     // Buscar dispositivo por ID
     public Optional<Device> getDeviceById(Long id) {
-        return deviceRepository.findById(id);
+        return deviceRepository.findById(id).map(device -> livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)));
+    }
+
+    // last_seen, bateria e sinal no banco ficam até um ciclo do DeviceLivenessTracker atrás: as consultas
+    // devolvem cópias com os valores em memória mais recentes
+    private List<Device> withLiveness(List<Device> devices) {
+        return devices.stream()
+                .map(device -> livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)))
+                .toList();
+    }
+
+    // Buscar vários dispositivos no registro em memória (ausentes carregados em uma única consulta)
+    public Map<Long, Device> getDevicesByIds(Collection<Long> ids) {
+        return deviceRegistry.getAll(ids);
+    }
+
+    // Dispositivo do registro em memória (snapshot desanexado), sem consulta quando já está em cache
+    public Optional<Device> getRegisteredDevice(Long id) {
+        return deviceRegistry.get(id);
+    }
+
+    // Referência (proxy) ao dispositivo para associar a leituras sem carregar a entidade
+    public Device getDeviceReference(Long id) {
+        return deviceRepository.getReferenceById(id);
     }
     
  
@@ -66,23 +123,27 @@ public class DeviceService {
                 }
             }
 
-            return deviceRepository.save(device);
+            // UPDATE só de name/location: não sobrescreve a liveness gravada em paralelo pelo DeviceLivenessTracker
+            device.setUpdatedAt(LocalDateTime.now());
+            if (deviceRepository.updateNameAndLocation(id, device.getName(), device.getLocation(), device.getUpdatedAt()) == 0) {
+                return null;
+            }
+            deviceRegistry.put(device);
+            liveFeed.publishDevice(livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)));
+            return device;
         }
         return null;
     }
     
-    // Heartbeat do dispositivo - para dispositivos IoT reportarem status
+    // Heartbeat do dispositivo - para dispositivos IoT reportarem status.
+    // Registrado em memória e gravado em lote pelo DeviceLivenessTracker (sem load/save da entidade)
     public Device deviceHeartbeat(Long deviceId, Integer batteryLevel, Integer signalStrength) {
-        Optional<Device> deviceOpt = deviceRepository.findById(deviceId);
-        if (deviceOpt.isPresent()) {
-            Device device = deviceOpt.get();
-
-            device.setLastSeen(LocalDateTime.now());
-            // Atualiza dados de status se fornecidos
-            if (batteryLevel != null) device.setBatteryLevel(batteryLevel);
-            if (signalStrength != null) device.setSignalStrength(signalStrength);
-            
-            return deviceRepository.save(device);
+        Optional<Device> registered = deviceRegistry.get(deviceId);
+        if (registered.isPresent()) {
+            livenessTracker.recordHeartbeat(deviceId, LocalDateTime.now(), batteryLevel, signalStrength);
+            Device updated = livenessTracker.applyTo(DeviceRegistryCache.snapshot(registered.get()));
+            liveFeed.publishDevice(updated);
+            return updated;
         }
         return null;
     }
@@ -94,6 +155,14 @@ public class DeviceService {
             try {
                 
                 deviceRepository.deleteById(id);
+                deviceRegistry.evict(id);
+                livenessTracker.forget(id);
+                timeSeriesStore.removeDevice(id);
+                latestCache.evict(id);
+                sensorTypeCatalog.forgetDevice(id);
+                statsCounters.onDeleted(id);
+                offlineDetector.forget(id);
+                liveFeed.publishDeviceRemoved(device);
                 return true;
             } catch (Exception e) {
 
@@ -105,26 +174,37 @@ public class DeviceService {
     }
 
     public List<Device> getDevicesByType(String type) {
-        return deviceRepository.findByType(type);
+        return withLiveness(deviceRepository.findByType(type));
     }
     
     public List<Device> getActiveDevices() {
-        return deviceRepository.findByActiveTrue();
+        return withLiveness(deviceRepository.findByActiveTrue());
     }
     
     public List<Device> getDevicesByLocation(String location) {
-        return deviceRepository.findByLocationContainingIgnoreCase(location);
+        return withLiveness(deviceRepository.findByLocationContainingIgnoreCase(location));
     }
     
-    // Buscar dispositivos offline (não vistos há mais de X minutos)
+    // Buscar dispositivos offline (não vistos há mais de X minutos): conjunto mantido pelo DeviceOfflineDetector,
+    // dispositivos lidos do registro em memória
     public List<Device> getOfflineDevices() {
-        LocalDateTime threshold = LocalDateTime.now().minusMinutes(offlineTimeoutMinutes);
-        return deviceRepository.findDevicesNotSeenSince(threshold);
+        return deviceRegistry.getAll(offlineDetector.getOfflineDeviceIds()).values().stream()
+                .map(device -> livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)))
+                .toList();
     }
     
-    // Buscar dispositivos com bateria baixa
+    // Buscar dispositivos com bateria baixa: os do banco e os que a reportaram baixa em heartbeats ainda não
+    // gravados, filtrados pelo valor mais recente (quem já reportou bateria recuperada sai da lista)
     public List<Device> getDevicesWithLowBattery() {
-        return deviceRepository.findDevicesWithLowBattery();
+        Map<Long, Device> candidates = new LinkedHashMap<>();
+        deviceRepository.findDevicesWithLowBattery().forEach(device -> candidates.put(device.getId(), device));
+        Set<Long> pending = new HashSet<>(livenessTracker.getDeviceIdsWithBatteryBelow(DeviceStatsCounters.LOW_BATTERY_THRESHOLD));
+        pending.removeAll(candidates.keySet());
+        candidates.putAll(deviceRegistry.getAll(pending));
+        return withLiveness(List.copyOf(candidates.values())).stream()
+                .filter(device -> device.getBatteryLevel() != null
+                        && device.getBatteryLevel() < DeviceStatsCounters.LOW_BATTERY_THRESHOLD)
+                .toList();
     }
     
     // Ativar/desativar dispositivo
@@ -133,22 +213,21 @@ public class DeviceService {
         if (deviceOpt.isPresent()) {
             Device device = deviceOpt.get();
             device.setActive(!device.isActive());
-            return deviceRepository.save(device);
+            device.setUpdatedAt(LocalDateTime.now());
+            if (deviceRepository.updateActive(id, device.isActive(), device.getUpdatedAt()) == 0) {
+                return null;
+            }
+            deviceRegistry.put(device);
+            statsCounters.onActiveChanged(id, device.isActive());
+            liveFeed.publishDevice(livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)));
+            return device;
         }
         return null;
     }
     
-    // Estatísticas dos dispositivos
-    public long getTotalDevices() {
-        return deviceRepository.count();
-    }
-    
-    public long getActiveDevicesCount() {
-        return deviceRepository.findByActiveTrue().size();
-    }
-    
-    public long getOfflineDevicesCount() {
-        return getOfflineDevices().size();
+    // Estatísticas dos dispositivos (contadores em memória, sem consulta)
+    public DeviceStatsDTO getDeviceStats() {
+        return statsCounters.snapshot();
     }
 
 }
\ No newline at end of file
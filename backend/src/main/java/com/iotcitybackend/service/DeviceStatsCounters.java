@@ -0,0 +1,197 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.dto.DeviceStatsDTO;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.DeviceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de dispositivos (total, ativos, bateria baixa) mantidos em memória a partir das alterações
+ * feitas pelo DeviceService e dos heartbeats do DeviceLivenessTracker; offline vem do DeviceOfflineDetector.
+ * /api/devices/stats não consulta o banco. Uma reconciliação periódica compara os contadores com COUNT(*)
+ * no banco e recarrega o estado quando há divergência
+ */
+@Component
+public class DeviceStatsCounters implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceStatsCounters.class);
+
+    // Mesmo critério de DeviceRepository.findDevicesWithLowBattery
+    static final int LOW_BATTERY_THRESHOLD = 20;
+
+    private static final String LOAD_SQL = "SELECT id, active, battery_level FROM devices";
+
+    private final DeviceRepository deviceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceOfflineDetector offlineDetector;
+    private final Counter driftCounter;
+
+    private volatile Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong lowBattery = new AtomicLong();
+
+    public DeviceStatsCounters(DeviceRepository deviceRepository, JdbcTemplate jdbcTemplate,
+                               DeviceOfflineDetector offlineDetector, MeterRegistry meterRegistry) {
+        this.deviceRepository = deviceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.offlineDetector = offlineDetector;
+        Gauge.builder("iot.devices.total", total, AtomicLong::get).description("Dispositivos cadastrados").register(meterRegistry);
+        Gauge.builder("iot.devices.active", active, AtomicLong::get).description("Dispositivos ativos").register(meterRegistry);
+        Gauge.builder("iot.devices.offline", offlineDetector, DeviceOfflineDetector::getOfflineCount).description("Dispositivos não vistos dentro do timeout").register(meterRegistry);
+        Gauge.builder("iot.devices.low.battery", lowBattery, AtomicLong::get).description("Dispositivos com bateria baixa").register(meterRegistry);
+        this.driftCounter = Counter.builder("iot.devices.stats.drift")
+                .description("Reconciliações em que os contadores divergiram do banco")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    public DeviceStatsDTO snapshot() {
+        return new DeviceStatsDTO(total.get(), active.get(), offlineDetector.getOfflineCount(), lowBattery.get());
+    }
+
+    public void onCreated(Device device) {
+        DeviceState state = new DeviceState();
+        if (states.putIfAbsent(device.getId(), state) != null) {
+            return;
+        }
+        total.incrementAndGet();
+        state.update(this, device.isActive(), device.getBatteryLevel());
+    }
+
+    public void onActiveChanged(Long deviceId, boolean isActive) {
+        DeviceState state = states.get(deviceId);
+        if (state != null) {
+            state.update(this, isActive, null);
+        }
+    }
+
+    /**
+     * Bateria informada no heartbeat
+     */
+    public void onBatteryLevel(Long deviceId, int batteryLevel) {
+        DeviceState state = states.get(deviceId);
+        if (state != null) {
+            state.update(this, null, batteryLevel);
+        }
+    }
+
+    public void onDeleted(Long deviceId) {
+        DeviceState state = states.remove(deviceId);
+        if (state != null) {
+            total.decrementAndGet();
+            state.clear(this);
+        }
+    }
+
+    /**
+     * Compara os contadores com COUNT(*) no banco. last_seen e bateria no banco podem estar até um ciclo de flush
+     * do DeviceLivenessTracker atrasados: havendo diferença, o estado é recarregado do banco combinado com os valores
+     * em memória mais recentes (e o DeviceOfflineDetector sincronizado), e só é contado como divergência se algo mudar
+     */
+    @Scheduled(fixedDelayString = "${device.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${device.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        LocalDateTime threshold = LocalDateTime.now().minus(offlineDetector.getOfflineTimeout());
+        long dbTotal = deviceRepository.count();
+        long dbActive = deviceRepository.countByActiveTrue();
+        long dbOffline = deviceRepository.countNotSeenSince(threshold);
+        long dbLowBattery = deviceRepository.countWithLowBattery();
+        if (dbTotal == total.get() && dbActive == active.get() && dbOffline == offlineDetector.getOfflineCount()
+                && dbLowBattery == lowBattery.get()) {
+            return;
+        }
+        DeviceStatsDTO before = snapshot();
+        boolean changed = reload();
+        if (offlineDetector.resync() > 0 || changed) {
+            driftCounter.increment();
+            log.warn("Contadores de dispositivos corrigidos: total {} -> {}, ativos {} -> {}, offline {} -> {}, bateria baixa {} -> {}",
+                    before.getTotalDevices(), total.get(), before.getActiveDevices(), active.get(),
+                    before.getOfflineDevices(), offlineDetector.getOfflineCount(), before.getLowBatteryDevices(), lowBattery.get());
+        }
+    }
+
+    /**
+     * Recarrega o estado de todos os dispositivos; retorna true se algum contador mudou
+     */
+    private synchronized boolean reload() {
+        Map<Long, DeviceState> previous = states;
+        Map<Long, DeviceState> loaded = new ConcurrentHashMap<>();
+        long[] counts = new long[3];
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            long id = rs.getLong("id");
+            DeviceState state = new DeviceState();
+            state.active = rs.getBoolean("active");
+            int battery = rs.getInt("battery_level");
+            state.lowBattery = !rs.wasNull() && battery < LOW_BATTERY_THRESHOLD;
+            DeviceState current = previous.get(id);
+            if (current != null) {
+                state.mergeBattery(current);
+            }
+            loaded.put(id, state);
+            counts[0]++;
+            if (state.active) counts[1]++;
+            if (state.lowBattery) counts[2]++;
+        });
+        states = loaded;
+        boolean changed = total.getAndSet(counts[0]) != counts[0];
+        changed |= active.getAndSet(counts[1]) != counts[1];
+        changed |= lowBattery.getAndSet(counts[2]) != counts[2];
+        return changed;
+    }
+
+    /**
+     * Flags do dispositivo; cada transição ajusta os contadores uma única vez
+     */
+    private static final class DeviceState {
+        private boolean active;
+        private boolean lowBattery;
+        // Bateria informada por heartbeat (mais recente que a do banco até o próximo flush)
+        private boolean batteryReported;
+
+        synchronized void update(DeviceStatsCounters counters, Boolean isActive, Integer batteryLevel) {
+            if (isActive != null && isActive != active) {
+                active = isActive;
+                counters.active.addAndGet(active ? 1 : -1);
+            }
+            if (batteryLevel != null) {
+                batteryReported = true;
+                boolean low = batteryLevel < LOW_BATTERY_THRESHOLD;
+                if (low != lowBattery) {
+                    lowBattery = low;
+                    counters.lowBattery.addAndGet(low ? 1 : -1);
+                }
+            }
+        }
+
+        synchronized void mergeBattery(DeviceState current) {
+            if (current.batteryReported) {
+                lowBattery = current.lowBattery;
+                batteryReported = true;
+            }
+        }
+
+        synchronized void clear(DeviceStatsCounters counters) {
+            if (active) counters.active.decrementAndGet();
+            if (lowBattery) counters.lowBattery.decrementAndGet();
+            active = lowBattery = false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.iotcitybackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Registro das instâncias em execução em ingest_instance: cada instância renova o próprio heartbeat e conta as
+ * instâncias vivas (heartbeat nos últimos três intervalos). Caches que só enxergam as gravações da própria
+ * instância (ex.: SensorTimeSeriesStore) usam a contagem para saber se são as únicas a gravar.
+ * Pressupõe relógios sincronizados entre as instâncias
+ */
+@Component
+public class IngestInstanceRegistry implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestInstanceRegistry.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Getter
+    private final long heartbeatIntervalMs;
+
+    @Getter
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Getter
+    private volatile int liveInstances = 1;
+
+    public IngestInstanceRegistry(JdbcTemplate jdbcTemplate,
+                                  @Value("${sensor.instances.heartbeat-interval-ms:5000}") long heartbeatIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    /**
+     * Anuncia a instância antes de ela começar a aceitar requisições e ingestões
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    /**
+     * Renova o heartbeat, remove instâncias mortas há muito tempo e recalcula as instâncias vivas
+     */
+    @Scheduled(fixedDelayString = "${sensor.instances.heartbeat-interval-ms:5000}",
+            initialDelayString = "${sensor.instances.heartbeat-interval-ms:5000}")
+    public synchronized int refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp heartbeat = Timestamp.valueOf(now);
+        if (jdbcTemplate.update("UPDATE ingest_instance SET heartbeat_at = ? WHERE instance_id = ?", heartbeat, instanceId) == 0) {
+            jdbcTemplate.update("INSERT INTO ingest_instance (instance_id, heartbeat_at) VALUES (?, ?)", instanceId, heartbeat);
+        }
+        jdbcTemplate.update("DELETE FROM ingest_instance WHERE heartbeat_at < ?",
+                Timestamp.valueOf(now.minusNanos(heartbeatIntervalMs * 10 * 1_000_000)));
+        Integer live = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ingest_instance WHERE heartbeat_at >= ?",
+                Integer.class, Timestamp.valueOf(now.minusNanos(heartbeatIntervalMs * 3 * 1_000_000)));
+        int previous = liveInstances;
+        liveInstances = live != null ? live : 1;
+        if (liveInstances != previous) {
+            log.info("Instâncias em execução: {} (eram {})", liveInstances, previous);
+        }
+        return liveInstances;
+    }
+
+    /**
+     * true se esta é a única instância viva, esperando até timeoutMs que heartbeats de instâncias encerradas
+     * sem se remover (ex.: reinício após falha) expirem
+     */
+    public boolean awaitSoleInstance(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (refresh() > 1) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(Math.min(500, heartbeatIntervalMs));
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void unregister() {
+        try {
+            jdbcTemplate.update("DELETE FROM ingest_instance WHERE instance_id = ?", instanceId);
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível remover a instância {} do registro: {}", instanceId, e.getMessage());
+        }
+    }
+}
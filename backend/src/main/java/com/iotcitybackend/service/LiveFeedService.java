@@ -0,0 +1,357 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.dto.DeviceDTO;
+import com.iotcitybackend.dto.DeviceStatsDTO;
+import com.iotcitybackend.dto.LiveFeedDeltaDTO;
+import com.iotcitybackend.dto.SensorReadingDTO;
+import com.iotcitybackend.exception.LiveFeedFullException;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feed em tempo real (SSE) com alterações de dispositivos, transições online/offline, leituras novas e contadores.
+ * Cada cliente tem filtros opcionais por tipo e localização e pendências indexadas por chave (dispositivo,
+ * dispositivo + tipo de sensor, contadores): enquanto o envio anterior não termina, alterações novas substituem as
+ * pendentes da mesma chave. Um cliente lento recebe menos eventos sem reter memória sem limite: passando de
+ * live.feed.max-pending chaves, as pendências são descartadas e o cliente recebe `resync` para recarregar o estado
+ */
+@Service
+public class LiveFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveFeedService.class);
+
+    static final String DELTA_EVENT = "delta";
+    static final String RESYNC_EVENT = "resync";
+
+    private static final String STATS_KEY = "s";
+    private static final String DEVICE_KEY = "d:";
+    private static final String CONNECTIVITY_KEY = "c:";
+    private static final String READING_KEY = "r:";
+
+    private final DeviceRegistryCache deviceRegistry;
+    private final DeviceStatsCounters statsCounters;
+    private final int maxClients;
+    private final int maxPending;
+    private final long emitterTimeoutMs;
+    private final long sendTimeoutMs;
+    private final long keepAliveMs;
+    private final ExecutorService senders;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Vagas reservadas antes do registro: subscribes concorrentes não passam de live.feed.max-clients
+    private final AtomicInteger clientSlots = new AtomicInteger();
+    private final Counter resyncCounter;
+    private final Counter slowDisconnectCounter;
+
+    private volatile DeviceStatsDTO lastStats;
+
+    public LiveFeedService(DeviceRegistryCache deviceRegistry, DeviceStatsCounters statsCounters, MeterRegistry meterRegistry,
+                           @Value("${live.feed.max-clients:1000}") int maxClients,
+                           @Value("${live.feed.max-pending:5000}") int maxPending,
+                           @Value("${live.feed.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                           @Value("${live.feed.send-timeout-ms:10000}") long sendTimeoutMs,
+                           @Value("${live.feed.keep-alive-ms:20000}") long keepAliveMs,
+                           @Value("${live.feed.sender-threads:4}") int senderThreads) {
+        this.deviceRegistry = deviceRegistry;
+        this.statsCounters = statsCounters;
+        this.maxClients = maxClients;
+        this.maxPending = maxPending;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.keepAliveMs = keepAliveMs;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-sender-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("iot.live.clients", subscribers, Set::size)
+                .description("Clientes conectados ao feed em tempo real")
+                .register(meterRegistry);
+        this.resyncCounter = Counter.builder("iot.live.resyncs")
+                .description("Clientes cujas pendências excederam o limite e receberam resync")
+                .register(meterRegistry);
+        this.slowDisconnectCounter = Counter.builder("iot.live.slow.disconnects")
+                .description("Clientes desconectados por envio acima do timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra um cliente com filtros opcionais por tipo e trecho da localização
+     */
+    public SseEmitter subscribe(String type, String location) {
+        if (clientSlots.incrementAndGet() > maxClients) {
+            clientSlots.decrementAndGet();
+            throw new LiveFeedFullException(maxClients);
+        }
+        try {
+            SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+            Subscriber subscriber = new Subscriber(emitter,
+                    type != null && !type.isBlank() ? type.trim() : null,
+                    location != null && !location.isBlank() ? location.trim().toLowerCase(Locale.ROOT) : null);
+            emitter.onCompletion(() -> unregister(subscriber));
+            emitter.onTimeout(emitter::complete);
+            emitter.onError(e -> unregister(subscriber));
+            // Primeiro envio com os contadores atuais
+            subscriber.offer(STATS_KEY, statsCounters.snapshot());
+            subscribers.add(subscriber);
+            return emitter;
+        } catch (RuntimeException e) {
+            clientSlots.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public void publishDevice(Device device) {
+        if (!subscribers.isEmpty()) {
+            offer(device, DEVICE_KEY + device.getId(), toDTO(device));
+        }
+    }
+
+    public void publishDeviceRemoved(Device device) {
+        if (!subscribers.isEmpty()) {
+            offer(device, DEVICE_KEY + device.getId(), new Removed(device.getId()));
+        }
+    }
+
+    @EventListener
+    public void onConnectivity(DeviceConnectivityEvent event) {
+        if (!subscribers.isEmpty()) {
+            deviceRegistry.get(event.deviceId()).ifPresent(device -> offer(device, CONNECTIVITY_KEY + event.deviceId(),
+                    new LiveFeedDeltaDTO.Connectivity(event.deviceId(), event.online(), event.lastSeen())));
+        }
+    }
+
+    /**
+     * Leituras gravadas na transação atual: publicadas após o commit. Sem clientes conectados não faz nada
+     */
+    public void recordReadings(List<SensorData> readings) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishReadings(readings);
+                }
+            });
+        } else {
+            publishReadings(readings);
+        }
+    }
+
+    /**
+     * Envia as pendências de cada cliente. Clientes com envio em andamento ficam para o próximo ciclo
+     * (as pendências continuam sendo agregadas); envio acima de live.feed.send-timeout-ms desconecta o cliente
+     */
+    @Scheduled(fixedDelayString = "${live.feed.flush-interval-ms:1000}")
+    public void flush() {
+        if (subscribers.isEmpty()) {
+            lastStats = null;
+            return;
+        }
+        DeviceStatsDTO stats = statsCounters.snapshot();
+        if (!sameStats(stats, lastStats)) {
+            lastStats = stats;
+            subscribers.forEach(subscriber -> subscriber.offer(STATS_KEY, stats));
+        }
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sendStartedMillis != 0) {
+                if (now - subscriber.sendStartedMillis > sendTimeoutMs) {
+                    slowDisconnectCounter.increment();
+                    log.debug("Cliente do feed desconectado: envio em andamento há {}ms", now - subscriber.sendStartedMillis);
+                    unregister(subscriber);
+                    subscriber.emitter.complete();
+                }
+                continue;
+            }
+            Batch batch = subscriber.drain();
+            if (batch == null && now - subscriber.lastSentMillis < keepAliveMs) {
+                continue;
+            }
+            subscriber.sendStartedMillis = now;
+            senders.execute(() -> send(subscriber, batch));
+        }
+    }
+
+    public int getClientCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void stop() {
+        subscribers.forEach(subscriber -> {
+            unregister(subscriber);
+            subscriber.emitter.complete();
+        });
+        senders.shutdownNow();
+    }
+
+    /**
+     * Remove o cliente e libera a vaga uma única vez, qualquer que seja o caminho (conclusão, erro, envio lento)
+     */
+    private void unregister(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            clientSlots.decrementAndGet();
+        }
+    }
+
+    private void publishReadings(List<SensorData> readings) {
+        Map<Long, Optional<Device>> devices = new HashMap<>();
+        for (SensorData data : readings) {
+            Long deviceId = data.getDevice().getId();
+            devices.computeIfAbsent(deviceId, deviceRegistry::get).ifPresent(device ->
+                    offer(device, READING_KEY + deviceId + ':' + data.getSensorType(), SensorReadingDTO.builder()
+                            .deviceId(deviceId)
+                            .sensorType(data.getSensorType())
+                            .value(data.getValue())
+                            .unit(data.getUnit())
+                            .timestamp(data.getTimestamp())
+                            .latitude(data.getLatitude())
+                            .longitude(data.getLongitude())
+                            .build()));
+        }
+    }
+
+    private void offer(Device device, String key, Object delta) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(device.getType(), device.getLocation())) {
+                subscriber.offer(key, delta);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber, Batch batch) {
+        try {
+            if (batch == null) {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            } else {
+                if (batch.resync()) {
+                    subscriber.emitter.send(SseEmitter.event().name(RESYNC_EVENT).data("{}", MediaType.APPLICATION_JSON));
+                }
+                if (batch.delta() != null) {
+                    subscriber.emitter.send(SseEmitter.event().name(DELTA_EVENT).data(batch.delta(), MediaType.APPLICATION_JSON));
+                }
+            }
+            subscriber.lastSentMillis = System.currentTimeMillis();
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado: o container notifica o emitter
+            unregister(subscriber);
+        } finally {
+            subscriber.sendStartedMillis = 0;
+        }
+    }
+
+    private static boolean sameStats(DeviceStatsDTO a, DeviceStatsDTO b) {
+        return b != null && a.getTotalDevices() == b.getTotalDevices() && a.getActiveDevices() == b.getActiveDevices()
+                && a.getOfflineDevices() == b.getOfflineDevices() && a.getLowBatteryDevices() == b.getLowBatteryDevices();
+    }
+
+    private static DeviceDTO toDTO(Device device) {
+        return DeviceDTO.builder()
+                .id(device.getId())
+                .name(device.getName())
+                .type(device.getType())
+                .location(device.getLocation())
+                .active(device.isActive())
+                .lastSeen(device.getLastSeen())
+                .batteryLevel(device.getBatteryLevel())
+                .signalStrength(device.getSignalStrength())
+                .createdAt(device.getCreatedAt())
+                .updatedAt(device.getUpdatedAt())
+                .build();
+    }
+
+    private record Removed(Long deviceId) {
+    }
+
+    private record Batch(boolean resync, LiveFeedDeltaDTO delta) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String type;
+        private final String location;
+        private final Map<String, Object> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private volatile long sendStartedMillis;
+        private volatile long lastSentMillis = System.currentTimeMillis();
+
+        Subscriber(SseEmitter emitter, String type, String location) {
+            this.emitter = emitter;
+            this.type = type;
+            this.location = location;
+        }
+
+        boolean matches(String deviceType, String deviceLocation) {
+            return (type == null || type.equals(deviceType))
+                    && (location == null || deviceLocation != null && deviceLocation.toLowerCase(Locale.ROOT).contains(location));
+        }
+
+        synchronized void offer(String key, Object delta) {
+            pending.put(key, delta);
+            if (pending.size() > maxPending) {
+                pending.clear();
+                if (!resync) {
+                    resync = true;
+                    resyncCounter.increment();
+                }
+            }
+        }
+
+        synchronized Batch drain() {
+            if (pending.isEmpty() && !resync) {
+                return null;
+            }
+            LiveFeedDeltaDTO delta = null;
+            if (!pending.isEmpty()) {
+                List<DeviceDTO> devices = new ArrayList<>();
+                List<Long> removed = new ArrayList<>();
+                List<LiveFeedDeltaDTO.Connectivity> connectivity = new ArrayList<>();
+                List<SensorReadingDTO> readings = new ArrayList<>();
+                DeviceStatsDTO stats = null;
+                for (Object value : pending.values()) {
+                    if (value instanceof DeviceDTO device) devices.add(device);
+                    else if (value instanceof Removed removal) removed.add(removal.deviceId());
+                    else if (value instanceof LiveFeedDeltaDTO.Connectivity change) connectivity.add(change);
+                    else if (value instanceof SensorReadingDTO reading) readings.add(reading);
+                    else if (value instanceof DeviceStatsDTO counters) stats = counters;
+                }
+                pending.clear();
+                delta = new LiveFeedDeltaDTO(devices, removed, connectivity, readings, stats);
+            }
+            Batch batch = new Batch(resync, delta);
+            resync = false;
+            return batch;
+        }
+    }
+}
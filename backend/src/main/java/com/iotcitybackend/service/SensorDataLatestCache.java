@@ -0,0 +1,113 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataRepository;
+import com.iotcitybackend.repository.SensorDataRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leitura mais recente por (dispositivo, tipo de sensor), mantida em memória a partir da ingestão.
+ * Na primeira consulta de um dispositivo a leitura mais recente do banco (LIMIT 1) é combinada com as
+ * recebidas desde a inicialização; a partir daí o dispositivo é respondido só da memória
+ */
+@Component
+public class SensorDataLatestCache {
+
+    private static final Comparator<SensorDataRow> NEWEST = Comparator
+            .comparing(SensorDataRow::timestamp).thenComparing(SensorDataRow::id);
+
+    private final SensorDataRepository sensorDataRepository;
+    private final Map<Long, DeviceLatest> devices = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SensorDataLatestCache(SensorDataRepository sensorDataRepository, MeterRegistry meterRegistry) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.hits = Counter.builder("iot.latest.cache.requests").tag("result", "hit")
+                .description("Consultas da leitura mais recente respondidas da memória")
+                .register(meterRegistry);
+        this.misses = Counter.builder("iot.latest.cache.requests").tag("result", "miss")
+                .description("Consultas da leitura mais recente que foram ao banco")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra as leituras após o commit da transação que as gravou (imediatamente fora de transação)
+     */
+    public void record(List<SensorData> readings) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(readings);
+                }
+            });
+        } else {
+            apply(readings);
+        }
+    }
+
+    /**
+     * Leitura mais recente do dispositivo (qualquer tipo)
+     */
+    public Optional<SensorDataRow> getLatest(Long deviceId) {
+        DeviceLatest entry = devices.computeIfAbsent(deviceId, id -> new DeviceLatest());
+        if (entry.loaded) {
+            hits.increment();
+        } else {
+            misses.increment();
+            sensorDataRepository.findLatestRowByDeviceId(deviceId).ifPresent(entry::offer);
+            entry.loaded = true;
+        }
+        return Optional.ofNullable(entry.latest());
+    }
+
+    public void evict(Long deviceId) {
+        devices.remove(deviceId);
+    }
+
+    private void apply(List<SensorData> readings) {
+        for (SensorData data : readings) {
+            Long deviceId = data.getDevice().getId();
+            devices.computeIfAbsent(deviceId, id -> new DeviceLatest())
+                    .offer(new SensorDataRow(data.getId(), deviceId, data.getSensorType(), data.getValue(), data.getUnit(),
+                            data.getTimestamp(), data.getLatitude(), data.getLongitude()));
+        }
+    }
+
+    private static final class DeviceLatest {
+
+        private final Map<String, SensorDataRow> byType = new HashMap<>(8);
+        // Já combinado com a leitura mais recente do banco
+        private volatile boolean loaded;
+
+        synchronized void offer(SensorDataRow row) {
+            // Leituras fora de ordem não substituem uma mais recente
+            byType.merge(row.sensorType(), row, (current, candidate) -> NEWEST.compare(candidate, current) > 0 ? candidate : current);
+        }
+
+        /**
+         * A mais recente entre os tipos (poucos por dispositivo)
+         */
+        synchronized SensorDataRow latest() {
+            SensorDataRow latest = null;
+            for (SensorDataRow row : byType.values()) {
+                if (latest == null || NEWEST.compare(row, latest) > 0) {
+                    latest = row;
+                }
+            }
+            return latest;
+        }
+    }
+}
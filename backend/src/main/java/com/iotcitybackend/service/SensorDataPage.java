@@ -0,0 +1,12 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+
+import java.util.List;
+
+/**
+ * Página de leituras da busca keyset; nextCursor é null na última página
+ */
+public record SensorDataPage(List<SensorDataRow> items, SensorDataCursor nextCursor) {
+}
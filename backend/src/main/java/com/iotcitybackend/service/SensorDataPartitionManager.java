@@ -0,0 +1,241 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.PartitionInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manutenção das partições de sensor_data (PostgreSQL, PARTITION BY RANGE (timestamp), ver schema.sql).
+ * Na inicialização e diariamente cria as partições dos próximos dias/semanas e, com retenção configurada,
+ * desanexa e remove as partições inteiramente expiradas. Leituras fora das partições existentes
+ * caem em sensor_data_default e são movidas quando a partição do período é criada.
+ * Sem efeito no H2 e em tabelas não particionadas (ex.: geradas pelo Hibernate com ddl-auto=create-drop)
+ */
+@Component
+public class SensorDataPartitionManager implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDataPartitionManager.class);
+
+    static final String PARTITION_PREFIX = "sensor_data_p";
+    private static final String DEFAULT_PARTITION = "sensor_data_default";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern BOUND_PATTERN = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+
+    @Value("${sensor.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.partition.interval:DAILY}")
+    private PartitionInterval interval;
+
+    @Value("${sensor.partition.precreate:7}")
+    private int precreate;
+
+    @Value("${sensor.partition.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${sensor.partition.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    public SensorDataPartitionManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        this.postgres = "PostgreSQL".equals(product);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled && postgres && !isPartitioned()) {
+            log.info("sensor_data não é particionada; manutenção de partições desativada");
+        }
+        maintain();
+    }
+
+    @Scheduled(cron = "${sensor.partition.cron:0 5 0 * * *}")
+    public synchronized void maintain() {
+        if (!enabled || !postgres || !isPartitioned()) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF sensor_data DEFAULT");
+            LocalDate today = LocalDate.now();
+            List<PartitionRange> existing = listPartitions();
+
+            // Cobre também o histórico que estiver na partição default (ex.: data.sql, leituras atrasadas)
+            LocalDate from = today;
+            Timestamp oldestInDefault = jdbcTemplate.queryForObject(
+                    "SELECT MIN(timestamp) FROM " + DEFAULT_PARTITION, Timestamp.class);
+            if (oldestInDefault != null && oldestInDefault.toLocalDateTime().toLocalDate().isBefore(from)) {
+                from = oldestInDefault.toLocalDateTime().toLocalDate();
+            }
+            if (retentionDays > 0 && from.isBefore(today.minusDays(retentionDays))) {
+                from = today.minusDays(retentionDays);
+            }
+            LocalDate through = today;
+            for (int i = 0; i < precreate; i++) {
+                through = interval.next(interval.floor(through));
+            }
+
+            int created = 0;
+            for (PartitionRange range : plan(interval, from, through, existing)) {
+                if (createPartition(range)) {
+                    created++;
+                }
+            }
+            int dropped = retentionDays > 0 ? dropExpired(existing, today.minusDays(retentionDays).atStartOfDay()) : 0;
+            if (created > 0 || dropped > 0) {
+                log.info("Partições de sensor_data: {} criadas, {} removidas", created, dropped);
+            }
+        } catch (Exception e) {
+            log.error("Falha na manutenção das partições de sensor_data: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Partições [from, to) que cobrem os dias de from até through (inclusive), sem sobrepor as existentes.
+     * Períodos já cobertos por partições de outra largura (ex.: após trocar o intervalo) são pulados
+     */
+    static List<PartitionRange> plan(PartitionInterval interval, LocalDate from, LocalDate through,
+                                     List<PartitionRange> existing) {
+        List<PartitionRange> planned = new ArrayList<>();
+        for (LocalDate start = interval.floor(from); !start.isAfter(through); start = interval.next(start)) {
+            PartitionRange candidate = new PartitionRange(PARTITION_PREFIX + start.format(NAME_FORMAT),
+                    start.atStartOfDay(), interval.next(start).atStartOfDay());
+            if (existing.stream().noneMatch(candidate::overlaps)) {
+                planned.add(candidate);
+            }
+        }
+        return planned;
+    }
+
+    private boolean isPartitioned() {
+        List<String> kind = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('sensor_data')", String.class);
+        return kind.equals(List.of("p"));
+    }
+
+    private List<PartitionRange> listPartitions() {
+        List<PartitionRange> partitions = new ArrayList<>();
+        jdbcTemplate.query("SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+                        "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = to_regclass('sensor_data')",
+                rs -> {
+                    Matcher matcher = BOUND_PATTERN.matcher(rs.getString("bound"));
+                    if (matcher.find()) {
+                        partitions.add(new PartitionRange(rs.getString("relname"),
+                                parseBound(matcher.group(1)), parseBound(matcher.group(2))));
+                    }
+                });
+        return partitions;
+    }
+
+    /**
+     * Cria a partição. Se a partição default já tiver leituras do período, elas são movidas para uma tabela
+     * nova que é anexada em seguida (CREATE ... PARTITION OF falharia na validação da default)
+     */
+    private boolean createPartition(PartitionRange range) {
+        String bounds = "FOR VALUES FROM ('" + range.from().format(BOUND_FORMAT) + "') TO ('" +
+                range.to().format(BOUND_FORMAT) + "')";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                Boolean pending = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION +
+                                " WHERE timestamp >= ? AND timestamp < ?)", Boolean.class,
+                        Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to()));
+                if (!Boolean.TRUE.equals(pending)) {
+                    jdbcTemplate.execute("CREATE TABLE " + range.name() + " PARTITION OF sensor_data " + bounds);
+                    return;
+                }
+                jdbcTemplate.execute("CREATE TABLE " + range.name() +
+                        " (LIKE sensor_data INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                                " WHERE timestamp >= ? AND timestamp < ? RETURNING *) INSERT INTO " + range.name() +
+                                " SELECT * FROM moved",
+                        Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to()));
+                jdbcTemplate.execute("ALTER TABLE sensor_data ATTACH PARTITION " + range.name() + " " + bounds);
+                log.info("{} leituras movidas de {} para {}", moved, DEFAULT_PARTITION, range.name());
+            });
+            return true;
+        } catch (Exception e) {
+            log.warn("Não foi possível criar a partição {}: {}", range.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Remove as partições com todas as leituras anteriores ao corte
+     */
+    private int dropExpired(List<PartitionRange> existing, LocalDateTime cutoff) {
+        int dropped = 0;
+        for (PartitionRange partition : existing) {
+            if (!partition.to().isAfter(cutoff) && dropPartition(partition)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Partições de sensor_data com faixa definida (sem a default); vazia se a tabela não for particionada
+     */
+    public List<PartitionRange> listManagedPartitions() {
+        if (!postgres || !isPartitioned()) {
+            return List.of();
+        }
+        return listPartitions();
+    }
+
+    /**
+     * DETACH e DROP na mesma transação, com lock_timeout para não enfileirar a ingestão atrás do lock
+     * da tabela pai. Retorna false em caso de falha (refeita na próxima execução)
+     */
+    public synchronized boolean dropPartition(PartitionRange partition) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                jdbcTemplate.execute("ALTER TABLE sensor_data DETACH PARTITION " + partition.name());
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            });
+            return true;
+        } catch (Exception e) {
+            log.warn("Não foi possível remover a partição {}: {}", partition.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static LocalDateTime parseBound(String bound) {
+        return LocalDateTime.parse(bound.replace(' ', 'T'));
+    }
+
+    /**
+     * Partição com leituras em [from, to)
+     */
+    record PartitionRange(String name, LocalDateTime from, LocalDateTime to) {
+
+        boolean overlaps(PartitionRange other) {
+            return from.isBefore(other.to) && other.from.isBefore(to);
+        }
+    }
+}
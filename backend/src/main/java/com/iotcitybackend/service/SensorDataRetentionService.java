@@ -0,0 +1,366 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.dto.RetentionPlanDTO;
+import com.iotcitybackend.dto.SensorRetentionPlanDTO;
+import com.iotcitybackend.model.RollupResolution;
+import com.iotcitybackend.repository.SensorDataRetentionRepository;
+import com.iotcitybackend.repository.SensorDataRollupRepository;
+import com.iotcitybackend.service.SensorDataPartitionManager.PartitionRange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retenção das leituras brutas por tipo de sensor (ex.: MOVIMENTO por 7 dias, TEMPERATURA por 90).
+ * Cada execução, em background:
+ * 1. consolida nos rollups (1m/1h/1d) os dias que vão expirar, um dia por transação, e avança a marca do tipo;
+ * 2. remove inteiras as partições de sensor_data cujas leituras de todos os tipos já passaram da marca;
+ * 3. remove o restante das leituras expiradas em blocos de chunk-size linhas, cada bloco em sua transação;
+ * 4. remove do catálogo de tipos (SensorTypeCatalog) os pares que ficaram sem leituras.
+ * Nenhum passo segura locks por muito tempo; uma execução interrompida continua na seguinte a partir das marcas
+ */
+@Service
+public class SensorDataRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDataRetentionService.class);
+
+    private final SensorDataRollupRepository rollupRepository;
+    private final SensorDataRetentionRepository retentionRepository;
+    private final SensorDataPartitionManager partitionManager;
+    private final SensorTypeCatalog sensorTypeCatalog;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sensor.retention.enabled:false}")
+    private boolean enabled;
+
+    // Formato TIPO:dias separados por vírgula, ex.: MOVIMENTO:7,TEMPERATURA:90
+    @Value("${sensor.retention.policies:}")
+    private String policies;
+
+    // Retenção dos tipos sem política própria (0 = mantidos para sempre)
+    @Value("${sensor.retention.default-days:0}")
+    private int defaultDays;
+
+    @Value("${sensor.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${sensor.retention.max-chunks-per-run:1000}")
+    private int maxChunksPerRun;
+
+    @Value("${sensor.retention.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    private final Map<String, Integer> retentionDays = new TreeMap<>();
+    private final Map<String, AtomicLong> pendingDays = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private Counter downsampledDaysCounter;
+    private Counter droppedPartitionsCounter;
+    private Timer runTimer;
+
+    public SensorDataRetentionService(SensorDataRollupRepository rollupRepository,
+                                      SensorDataRetentionRepository retentionRepository,
+                                      SensorDataPartitionManager partitionManager, SensorTypeCatalog sensorTypeCatalog,
+                                      TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.rollupRepository = rollupRepository;
+        this.retentionRepository = retentionRepository;
+        this.partitionManager = partitionManager;
+        this.sensorTypeCatalog = sensorTypeCatalog;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        retentionDays.putAll(parsePolicies(policies));
+
+        Gauge.builder("iot.retention.running", running, flag -> flag.get() ? 1 : 0)
+                .description("1 enquanto uma execução da retenção está em andamento")
+                .register(meterRegistry);
+        downsampledDaysCounter = Counter.builder("iot.retention.downsampled.days")
+                .description("Dias (por tipo de sensor) consolidados nos rollups antes da remoção")
+                .register(meterRegistry);
+        droppedPartitionsCounter = Counter.builder("iot.retention.partitions.dropped")
+                .description("Partições de sensor_data removidas pela retenção")
+                .register(meterRegistry);
+        runTimer = Timer.builder("iot.retention.run.duration")
+                .description("Duração de cada execução da retenção")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lê "TIPO:dias,TIPO:dias". Dias devem ser positivos
+     */
+    static Map<String, Integer> parsePolicies(String policies) {
+        Map<String, Integer> parsed = new TreeMap<>();
+        if (policies == null || policies.isBlank()) {
+            return parsed;
+        }
+        for (String entry : policies.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalStateException("Política de retenção inválida: '" + entry.trim() + "' (esperado TIPO:dias)");
+            }
+            int days;
+            try {
+                days = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Política de retenção inválida: '" + entry.trim() + "' (dias deve ser inteiro)");
+            }
+            if (days <= 0) {
+                throw new IllegalStateException("Política de retenção inválida: '" + entry.trim() + "' (dias deve ser positivo)");
+            }
+            parsed.put(parts[0].trim().toUpperCase(), days);
+        }
+        return parsed;
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.retention.interval-ms:3600000}",
+            initialDelayString = "${sensor.retention.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public synchronized void run() {
+        running.set(true);
+        long startedAt = System.nanoTime();
+        try {
+            LocalDate today = LocalDate.now();
+            Map<String, LocalDateTime> cutoffs = cutoffs(today);
+            Map<String, LocalDateTime> watermarks = retentionRepository.findWatermarks();
+
+            for (Map.Entry<String, LocalDateTime> entry : cutoffs.entrySet()) {
+                downsample(entry.getKey(), entry.getValue(), watermarks);
+            }
+            int dropped = 0;
+            for (PartitionRange partition : partitionsToDrop(today, cutoffs, watermarks)) {
+                if (partitionManager.dropPartition(partition)) {
+                    droppedPartitionsCounter.increment();
+                    dropped++;
+                }
+            }
+            long deleted = deleteExpired(cutoffs, watermarks);
+            if (dropped > 0 || deleted > 0) {
+                // Pares (dispositivo, tipo) sem leituras restantes saem do catálogo de /types e /devices-by-type
+                int pairs = sensorTypeCatalog.purgeWithoutReadings(cutoffs.keySet());
+                log.info("Retenção de sensor_data: {} partições, {} leituras e {} pares do catálogo removidos",
+                        dropped, deleted, pairs);
+            }
+        } catch (Exception e) {
+            log.error("Falha na retenção de sensor_data: {}", e.getMessage());
+        } finally {
+            runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    /**
+     * Calcula o que a próxima execução faria, sem alterar dados
+     */
+    public RetentionPlanDTO dryRun() {
+        LocalDate today = LocalDate.now();
+        Map<String, LocalDateTime> cutoffs = cutoffs(today);
+        Map<String, LocalDateTime> watermarks = retentionRepository.findWatermarks();
+
+        Set<String> sensorTypes = new TreeSet<>(rollupRepository.findSensorTypes());
+        sensorTypes.addAll(retentionDays.keySet());
+        List<SensorRetentionPlanDTO> plans = new ArrayList<>();
+        for (String sensorType : sensorTypes) {
+            LocalDateTime cutoff = cutoffs.get(sensorType);
+            LocalDateTime watermark = watermarks.get(sensorType);
+            SensorRetentionPlanDTO.SensorRetentionPlanDTOBuilder plan = SensorRetentionPlanDTO.builder()
+                    .sensorType(sensorType)
+                    .retentionDays(cutoff != null ? retentionDaysOf(sensorType) : 0)
+                    .cutoff(cutoff)
+                    .downsampledUntil(watermark);
+            if (cutoff != null) {
+                LocalDateTime from = watermark != null ? watermark : oldestDay(sensorType);
+                plan.daysToDownsample(from != null && from.isBefore(cutoff) ? ChronoUnit.DAYS.between(from, cutoff) : 0)
+                        .expiredReadings(retentionRepository.countReadingsBefore(sensorType, cutoff));
+            }
+            plans.add(plan.build());
+        }
+        // Após a consolidação as marcas alcançam os cortes
+        List<String> partitions = partitionsToDrop(today, cutoffs, cutoffs).stream()
+                .map(PartitionRange::name)
+                .toList();
+        return RetentionPlanDTO.builder()
+                .generatedAt(LocalDateTime.now())
+                .enabled(enabled)
+                .sensorTypes(plans)
+                .partitionsToDrop(partitions)
+                .build();
+    }
+
+    /**
+     * Corte por tipo com retenção: leituras com timestamp anterior expiram (início do dia, hoje - dias)
+     */
+    private Map<String, LocalDateTime> cutoffs(LocalDate today) {
+        Map<String, LocalDateTime> cutoffs = new HashMap<>();
+        if (defaultDays > 0) {
+            for (String sensorType : rollupRepository.findSensorTypes()) {
+                cutoffs.put(sensorType, today.minusDays(defaultDays).atStartOfDay());
+            }
+        }
+        retentionDays.forEach((sensorType, days) -> cutoffs.put(sensorType, today.minusDays(days).atStartOfDay()));
+        return cutoffs;
+    }
+
+    private int retentionDaysOf(String sensorType) {
+        return retentionDays.getOrDefault(sensorType, defaultDays);
+    }
+
+    private LocalDateTime oldestDay(String sensorType) {
+        LocalDateTime oldest = retentionRepository.findOldestReading(sensorType);
+        return oldest != null ? RollupResolution.DAY.floor(oldest) : null;
+    }
+
+    /**
+     * Recalcula a partir das leituras os rollups do tipo para os dias entre a marca e o corte e avança a marca.
+     * Rollup e marca de cada dia na mesma transação: leituras só são removidas abaixo da marca
+     */
+    private void downsample(String sensorType, LocalDateTime cutoff, Map<String, LocalDateTime> watermarks) {
+        LocalDateTime day = watermarks.get(sensorType);
+        if (day == null) {
+            day = oldestDay(sensorType);
+            if (day == null) {
+                // Nenhuma leitura do tipo: nada a consolidar
+                retentionRepository.saveWatermark(sensorType, cutoff);
+                watermarks.put(sensorType, cutoff);
+                return;
+            }
+        }
+        AtomicLong pending = pendingDays.computeIfAbsent(sensorType, type -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("iot.retention.pending.days", value, AtomicLong::get)
+                    .description("Dias expirados ainda não consolidados nos rollups")
+                    .tag("sensorType", type)
+                    .register(meterRegistry);
+            return value;
+        });
+        while (day.isBefore(cutoff)) {
+            pending.set(ChronoUnit.DAYS.between(day, cutoff));
+            LocalDateTime from = day;
+            LocalDateTime to = day.plusDays(1);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (RollupResolution resolution : RollupResolution.values()) {
+                    rollupRepository.rebuild(resolution, from, to, sensorType);
+                }
+                retentionRepository.saveWatermark(sensorType, to);
+            });
+            downsampledDaysCounter.increment();
+            watermarks.put(sensorType, to);
+            day = to;
+        }
+        pending.set(0);
+    }
+
+    /**
+     * Partições já encerradas em que todos os tipos com leituras (segundo os rollups de 1 dia) estão consolidados
+     * e expirados. Partições sem leituras só são removidas quando expiradas para todos os tipos conhecidos
+     */
+    private List<PartitionRange> partitionsToDrop(LocalDate today, Map<String, LocalDateTime> cutoffs,
+                                                  Map<String, LocalDateTime> watermarks) {
+        List<PartitionRange> expired = new ArrayList<>();
+        if (cutoffs.isEmpty()) {
+            return expired;
+        }
+        List<String> knownTypes = null;
+        for (PartitionRange partition : partitionManager.listManagedPartitions()) {
+            if (partition.to().isAfter(today.atStartOfDay())) {
+                continue;
+            }
+            List<String> sensorTypes = rollupRepository.findSensorTypes(partition.from(), partition.to());
+            if (sensorTypes.isEmpty()) {
+                if (knownTypes == null) {
+                    knownTypes = rollupRepository.findSensorTypes();
+                }
+                sensorTypes = knownTypes;
+            }
+            boolean allExpired = !sensorTypes.isEmpty() && sensorTypes.stream().allMatch(sensorType -> {
+                LocalDateTime bound = deletableBefore(cutoffs.get(sensorType), watermarks.get(sensorType));
+                return bound != null && !bound.isBefore(partition.to());
+            });
+            if (allExpired) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    private long deleteExpired(Map<String, LocalDateTime> cutoffs, Map<String, LocalDateTime> watermarks) {
+        long total = 0;
+        int chunks = 0;
+        for (Map.Entry<String, LocalDateTime> entry : cutoffs.entrySet()) {
+            String sensorType = entry.getKey();
+            LocalDateTime before = deletableBefore(entry.getValue(), watermarks.get(sensorType));
+            if (before == null) {
+                continue;
+            }
+            Counter deletedCounter = Counter.builder("iot.retention.readings.deleted")
+                    .description("Leituras brutas removidas em blocos pela retenção")
+                    .tag("sensorType", sensorType)
+                    .register(meterRegistry);
+            int deleted;
+            do {
+                if (chunks >= maxChunksPerRun) {
+                    log.info("Limite de {} blocos por execução atingido; a retenção continua na próxima execução", maxChunksPerRun);
+                    return total;
+                }
+                deleted = retentionRepository.deleteReadingsBefore(sensorType, before, chunkSize);
+                chunks++;
+                total += deleted;
+                deletedCounter.increment(deleted);
+                if (deleted == chunkSize && chunkPauseMs > 0) {
+                    pause();
+                }
+            } while (deleted == chunkSize);
+        }
+        return total;
+    }
+
+    /**
+     * Só leituras expiradas e já consolidadas podem ser removidas: o menor entre o corte e a marca.
+     * A marca pode estar além do corte se a retenção do tipo tiver sido aumentada
+     */
+    private static LocalDateTime deletableBefore(LocalDateTime cutoff, LocalDateTime watermark) {
+        if (cutoff == null || watermark == null) {
+            return null;
+        }
+        return watermark.isBefore(cutoff) ? watermark : cutoff;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(chunkPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.RollupResolution;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataRollupRepository;
+import com.iotcitybackend.repository.SensorDataRollupRepository.BucketRange;
+import com.iotcitybackend.repository.SensorDataRollupRepository.DailySensorStats;
+import com.iotcitybackend.repository.SensorDataRollupRepository.RollupDelta;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agregações pré-calculadas (rollups) de sensor_data em buckets de 1 minuto, 1 hora e 1 dia.
+ * A ingestão acumula os deltas de cada lote em memória depois do commit das leituras, e um job grava os deltas
+ * acumulados em uma transação própria: a transação de ingestão não trava linhas de rollup, e um bucket quente
+ * recebe um único upsert por ciclo. As consultas por período combinam os buckets mais grossos que cabem no
+ * intervalo e só leem sensor_data nas bordas (menos de um minuto).
+ * Os rollups ficam até sensor.rollup.flush-interval-ms atrás das leituras; deltas ainda em memória se perdem
+ * se o processo cair, e o /rollups/backfill dos dias afetados os recalcula
+ */
+@Service
+public class SensorDataRollupService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDataRollupService.class);
+
+    private static final RollupResolution[] COARSEST_FIRST = {RollupResolution.DAY, RollupResolution.HOUR, RollupResolution.MINUTE};
+
+    private static final Comparator<RollupDelta> DELTA_ORDER = Comparator
+            .comparing((RollupDelta delta) -> delta.resolution().getCode())
+            .thenComparing(RollupDelta::deviceId)
+            .thenComparing(RollupDelta::sensorType)
+            .thenComparing(RollupDelta::bucketStart);
+
+    private final SensorDataRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<RollupKey, SensorDataAggregate> pending = new ConcurrentHashMap<>();
+
+    @Value("${sensor.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public SensorDataRollupService(SensorDataRollupRepository rollupRepository, JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Soma as leituras aos buckets das três resoluções. Chamado na transação que grava as leituras, os deltas
+     * só entram no acumulador depois do commit (e são descartados no rollback); a gravação fica para o flush
+     */
+    public void record(List<SensorData> readings) {
+        Map<RollupKey, SensorDataAggregate> deltas = new HashMap<>();
+        for (SensorData data : readings) {
+            SensorDataAggregate value = SensorDataAggregate.of(data.getValue());
+            Long deviceId = data.getDevice().getId();
+            for (RollupResolution resolution : RollupResolution.values()) {
+                RollupKey key = new RollupKey(resolution, deviceId, data.getSensorType(), resolution.floor(data.getTimestamp()));
+                deltas.merge(key, value, SensorDataAggregate::merge);
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accumulate(deltas);
+                }
+            });
+        } else {
+            accumulate(deltas);
+        }
+    }
+
+    private void accumulate(Map<RollupKey, SensorDataAggregate> deltas) {
+        deltas.forEach((key, aggregate) -> pending.merge(key, aggregate, SensorDataAggregate::merge));
+    }
+
+    /**
+     * Grava os deltas acumulados, ordenados pela chave, em uma transação curta. Em caso de falha
+     * os deltas voltam para o acumulador e são tentados no próximo ciclo
+     */
+    @Scheduled(fixedDelayString = "${sensor.rollup.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<RollupDelta> ordered = new ArrayList<>();
+        for (RollupKey key : pending.keySet()) {
+            SensorDataAggregate aggregate = pending.remove(key);
+            if (aggregate != null) {
+                ordered.add(new RollupDelta(key.resolution(), key.deviceId(), key.sensorType(), key.bucketStart(), aggregate));
+            }
+        }
+        if (ordered.isEmpty()) {
+            return;
+        }
+        ordered.sort(DELTA_ORDER);
+        try {
+            transactionTemplate.executeWithoutResult(status -> rollupRepository.upsert(ordered));
+        } catch (Exception e) {
+            ordered.forEach(delta -> pending.merge(
+                    new RollupKey(delta.resolution(), delta.deviceId(), delta.sensorType(), delta.bucketStart()),
+                    delta.aggregate(), SensorDataAggregate::merge));
+            log.error("Falha ao gravar {} deltas de rollup: {}", ordered.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Estatísticas das leituras com start <= timestamp <= end (filtros opcionais de tipo e dispositivo).
+     * O custo é proporcional ao número de buckets do período, não ao de leituras
+     */
+    public SensorDataAggregate aggregate(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime rollupStart = RollupResolution.MINUTE.ceil(start);
+        LocalDateTime rollupEnd = RollupResolution.MINUTE.floor(end);
+        if (!rollupStart.isBefore(rollupEnd)) {
+            // Período menor que um minuto completo: tudo vem de sensor_data
+            return rollupRepository.aggregateRaw(sensorType, deviceId, start, end, end, end);
+        }
+        List<BucketRange> ranges = new ArrayList<>();
+        coverWithBuckets(rollupStart, rollupEnd, 0, ranges);
+        return rollupRepository.aggregateRaw(sensorType, deviceId, start, rollupStart, rollupEnd, end)
+                .merge(rollupRepository.aggregate(ranges, sensorType, deviceId));
+    }
+
+    /**
+     * Cobre [from, to) (alinhado ao minuto) com os buckets mais grossos possíveis:
+     * o trecho interno alinhado à resolução atual e as sobras com as resoluções mais finas
+     */
+    static void coverWithBuckets(LocalDateTime from, LocalDateTime to, int level, List<BucketRange> ranges) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        RollupResolution resolution = COARSEST_FIRST[level];
+        if (resolution == RollupResolution.MINUTE) {
+            ranges.add(new BucketRange(resolution, from, to));
+            return;
+        }
+        LocalDateTime innerStart = resolution.ceil(from);
+        LocalDateTime innerEnd = resolution.floor(to);
+        if (!innerStart.isBefore(innerEnd)) {
+            coverWithBuckets(from, to, level + 1, ranges);
+            return;
+        }
+        coverWithBuckets(from, innerStart, level + 1, ranges);
+        ranges.add(new BucketRange(resolution, innerStart, innerEnd));
+        coverWithBuckets(innerEnd, to, level + 1, ranges);
+    }
+
+    public List<DailySensorStats> getDailyStatsBySensorType() {
+        return rollupRepository.findDailyStatsBySensorType();
+    }
+
+    /**
+     * Recalcula os rollups dos dias [startDate, endDate] a partir de sensor_data, um dia por transação.
+     * Os deltas acumulados são gravados antes, para não serem somados de novo aos buckets recalculados.
+     * Destinado a dias já fechados: leituras gravadas durante o recálculo de um dia podem ser contadas em dobro no rollup.
+     * Dias já consolidados pela retenção são mantidos (ver SensorDataRollupRepository.rebuild).
+     * Retorna o número de buckets gravados
+     */
+    public int backfill(LocalDate startDate, LocalDate endDate) {
+        flush();
+        int buckets = 0;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = from.plusDays(1);
+            Integer written = transactionTemplate.execute(status -> {
+                int total = 0;
+                for (RollupResolution resolution : RollupResolution.values()) {
+                    total += rollupRepository.rebuild(resolution, from, to, null);
+                }
+                return total;
+            });
+            buckets += written != null ? written : 0;
+        }
+        return buckets;
+    }
+
+    /**
+     * Com a tabela de rollups vazia (primeira execução ou dados carregados fora da ingestão),
+     * calcula todo o histórico antes de a aplicação começar a receber leituras
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!backfillOnStartup || !rollupRepository.isEmpty()) {
+            return;
+        }
+        Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(timestamp) AS first_ts, MAX(timestamp) AS last_ts FROM sensor_data");
+        Timestamp first = (Timestamp) range.get("first_ts");
+        Timestamp last = (Timestamp) range.get("last_ts");
+        if (first == null || last == null) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        int buckets = backfill(first.toLocalDateTime().toLocalDate(), last.toLocalDateTime().toLocalDate());
+        log.info("Rollups de sensor_data calculados para o histórico: {} buckets em {}ms",
+                buckets, System.currentTimeMillis() - startedAt);
+    }
+
+    private record RollupKey(RollupResolution resolution, Long deviceId, String sensorType, LocalDateTime bucketStart) {
+    }
+}
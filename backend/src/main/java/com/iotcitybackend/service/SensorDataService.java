@@ -1,15 +1,24 @@
 package com.iotcitybackend.service;
 
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
 import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataCursor;
 import com.iotcitybackend.repository.SensorDataRepository;
+import com.iotcitybackend.repository.SensorDataRollupRepository.DailySensorStats;
+import com.iotcitybackend.repository.SensorDataRow;
 import com.iotcitybackend.model.Device;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class SensorDataService {
@@ -17,40 +26,175 @@ public class SensorDataService {
     @Autowired
     private SensorDataRepository sensorDataRepository;
 
+    @Autowired
+    private DeviceLivenessTracker livenessTracker;
+
+    @Autowired
+    private SensorDataRollupService rollupService;
+
+    @Autowired
+    private SensorTimeSeriesStore timeSeriesStore;
+
+    @Autowired
+    private SensorDataLatestCache latestCache;
+
+    @Autowired
+    private DeviceRegistryCache deviceRegistry;
+
+    @Autowired
+    private SensorTypeCatalog sensorTypeCatalog;
+
+    @Autowired
+    private LiveFeedService liveFeed;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${sensor.query.default-page-size:500}")
+    private int defaultPageSize;
+
+    // Máximo rígido de itens por página, independente do limit pedido pelo cliente
+    @Value("${sensor.query.max-page-size:1000}")
+    private int maxPageSize;
+
     @Transactional
     public SensorData saveSensorData(SensorData sensorData) {
         SensorData savedData = sensorDataRepository.save(sensorData);
+        rollupService.record(List.of(savedData));
+        sensorTypeCatalog.record(List.of(savedData));
+        timeSeriesStore.record(List.of(savedData));
+        latestCache.record(List.of(savedData));
+        liveFeed.recordReadings(List.of(savedData));
+        eventPublisher.publishEvent(new SensorReadingsSavedEvent(List.of(savedData)));
         
+        // getId() não inicializa o proxy do dispositivo: nenhuma consulta extra por leitura.
+        // O last_seen é consolidado em memória e gravado periodicamente pelo DeviceLivenessTracker
         Device device = savedData.getDevice();
         if (device != null) {
-            device.setLastSeen(savedData.getTimestamp());
-            sensorDataRepository.updateDeviceLastSeen(device.getId(), savedData.getTimestamp());
+            livenessTracker.recordSeen(device.getId(), savedData.getTimestamp());
         }
         
         return savedData;
     }
 
-    public List<SensorData> findSensorData(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end) {
-        return sensorDataRepository.findWithFilters(sensorType, deviceId, start, end);
+    /**
+     * Grava um lote de leituras em uma única transação, com inserts em JDBC batch.
+     * O last_seen de cada dispositivo é consolidado no DeviceLivenessTracker
+     */
+    @Transactional
+    public int saveSensorDataBatch(List<SensorData> readings) {
+        if (readings.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (SensorData data : readings) {
+            if (data.getTimestamp() == null) {
+                data.setTimestamp(now);
+            }
+        }
+
+        int inserted = sensorDataRepository.insertBatch(readings);
+        rollupService.record(readings);
+        sensorTypeCatalog.record(readings);
+        timeSeriesStore.record(readings);
+        latestCache.record(readings);
+        liveFeed.recordReadings(readings);
+        eventPublisher.publishEvent(new SensorReadingsSavedEvent(readings));
+        for (SensorData data : readings) {
+            livenessTracker.recordSeen(data.getDevice().getId(), data.getTimestamp());
+        }
+        return inserted;
+    }
+
+    /**
+     * Prepara as leituras de uma gravação que falhou para serem gravadas de novo: o persist já atribuiu o id
+     * (sequence pooled-lo) e o created_at, e o rollback não os desfaz. Com id, o próximo persist as trataria
+     * como entidades detached (PersistentObjectException)
+     */
+    public static void resetForRetry(List<SensorData> readings) {
+        for (SensorData data : readings) {
+            data.setId(null);
+            data.setCreatedAt(null);
+        }
+    }
+
+    /**
+     * Percorre as leituras filtradas linha a linha, sem materializar a lista em memória.
+     * A transação somente leitura mantém o cursor JDBC aberto enquanto o consumidor escreve
+     */
+    @Transactional(readOnly = true)
+    public void exportSensorData(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                 Consumer<SensorDataRow> consumer) {
+        try (Stream<SensorDataRow> rows = sensorDataRepository.streamWithFilters(sensorType, deviceId, start, end)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /**
+     * Busca paginada por cursor. O limite é restrito ao máximo configurado no servidor
+     */
+    public SensorDataPage findSensorDataPage(String sensorType, Long deviceId, LocalDateTime start, LocalDateTime end,
+                                             SensorDataCursor after, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        // Busca um item a mais para saber se existe próxima página
+        List<SensorDataRow> rows = sensorDataRepository.findRowsWithFilters(sensorType, deviceId, start, end, after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new SensorDataPage(rows, null);
+        }
+        List<SensorDataRow> items = rows.subList(0, pageSize);
+        SensorDataRow last = items.get(pageSize - 1);
+        return new SensorDataPage(items, new SensorDataCursor(last.timestamp(), last.id()));
+    }
+
+    /**
+     * IDs distintos dos dispositivos com leituras do tipo informado (catálogo em memória)
+     */
+    public List<Long> getDeviceIdsBySensorType(String sensorType) {
+        return sensorTypeCatalog.getDeviceIds(sensorType);
+    }
+
+    public List<DailySensorStats> getDailyStatsBySensorType() {
+        return rollupService.getDailyStatsBySensorType();
+    }
+
+    public int backfillRollups(LocalDate startDate, LocalDate endDate) {
+        return rollupService.backfill(startDate, endDate);
     }
 
     public List<String> getSensorTypes() {
-        return sensorDataRepository.findDistinctSensorTypes();
+        return sensorTypeCatalog.getSensorTypes();
     }
     
+    /**
+     * Leitura mais recente do dispositivo, da memória (SensorDataLatestCache), com o dispositivo do registro em memória.
+     * Dispositivos inexistentes não chegam ao cache
+     */
     public Optional<SensorData> getLatestDataByDevice(Long deviceId) {
-        List<SensorData> results = sensorDataRepository.findLatestByDeviceId(deviceId);
-        return results.stream().findFirst();
+        return deviceRegistry.get(deviceId).flatMap(device -> latestCache.getLatest(deviceId).map(row -> SensorData.builder()
+                .id(row.id())
+                .device(livenessTracker.applyTo(DeviceRegistryCache.snapshot(device)))
+                .sensorType(row.sensorType())
+                .value(row.value())
+                .unit(row.unit())
+                .timestamp(row.timestamp())
+                .latitude(row.latitude())
+                .longitude(row.longitude())
+                .build()));
     }
     
     public Double getAverageValueBySensorType(String sensorType, LocalDateTime startDate, LocalDateTime endDate) {
         if (sensorType == null || startDate == null || endDate == null) {
             throw new IllegalArgumentException("SensorType, startDate e endDate são obrigatórios para calcular a média.");
         }
-        return sensorDataRepository.findAverageValueBySensorTypeAndPeriod(sensorType, startDate, endDate);
+        if (timeSeriesStore.covers(startDate)) {
+            // Período na janela quente: estatísticas dos blocos colunares, sem ida ao banco
+            return timeSeriesStore.aggregate(sensorType, null, startDate, endDate).mean();
+        }
+        // Buckets pré-agregados em vez de varrer as leituras do período
+        return rollupService.aggregate(sensorType, null, startDate, endDate).mean();
     }
     
     public Optional<SensorData> getSensorDataById(Long id) {
-        return sensorDataRepository.findById(id);
+        return sensorDataRepository.findWithDeviceById(id);
     }
 } 
\ No newline at end of file
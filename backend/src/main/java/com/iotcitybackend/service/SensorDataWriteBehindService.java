@@ -0,0 +1,278 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingestão write-behind: as leituras aceitas vão para um buffer circular limitado e são
+ * gravadas por um pool de writers em lotes limitados por tamanho ou por tempo.
+ * Quando o buffer está cheio a leitura é recusada imediatamente (sem bloquear a thread do Tomcat).
+ * As leituras já foram aceitas (202), então uma falha não descarta o lote inteiro: falhas transitórias
+ * (conexão, deadlock, timeout) são repetidas com backoff; erros de dados dividem o lote ao meio até isolar
+ * as leituras inválidas, e só elas são descartadas.
+ */
+@Service
+public class SensorDataWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDataWriteBehindService.class);
+
+    private final SensorDataService sensorDataService;
+    private final MeterRegistry meterRegistry;
+
+    @Getter
+    @Value("${sensor.ingest.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.ingest.write-behind.capacity:100000}")
+    private int capacity;
+
+    @Value("${sensor.ingest.write-behind.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${sensor.ingest.write-behind.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${sensor.ingest.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${sensor.ingest.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${sensor.ingest.write-behind.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${sensor.ingest.write-behind.max-retry-backoff-ms:5000}")
+    private long maxRetryBackoffMs;
+
+    @Getter
+    @Value("${sensor.ingest.write-behind.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private BlockingQueue<SensorData> buffer;
+    private ExecutorService writers;
+    private volatile boolean running;
+
+    private Counter rejectedCounter;
+    private Counter droppedCounter;
+    private Counter retryCounter;
+    private Counter persistedCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    public SensorDataWriteBehindService(SensorDataService sensorDataService, MeterRegistry meterRegistry) {
+        this.sensorDataService = sensorDataService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        buffer = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("iot.ingest.queue.depth", buffer, BlockingQueue::size)
+                .description("Leituras aguardando gravação no buffer write-behind")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingest.queue.capacity", () -> capacity)
+                .description("Capacidade do buffer write-behind")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("iot.ingest.rejected")
+                .description("Leituras recusadas por buffer cheio")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("iot.ingest.dropped")
+                .description("Leituras descartadas por falha na gravação")
+                .register(meterRegistry);
+        retryCounter = Counter.builder("iot.ingest.retries")
+                .description("Novas tentativas de gravação após falha transitória")
+                .register(meterRegistry);
+        persistedCounter = Counter.builder("iot.ingest.persisted")
+                .description("Leituras gravadas pelos writers")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("iot.ingest.batch.size")
+                .description("Tamanho dos lotes gravados")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("iot.ingest.flush.latency")
+                .description("Tempo de gravação de cada lote")
+                .register(meterRegistry);
+
+        running = true;
+        AtomicInteger threadIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-writer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writerThreads; i++) {
+            writers.submit(this::drainLoop);
+        }
+        log.info("Ingestão write-behind habilitada: capacidade={}, writers={}, lote={}, intervalo={}ms",
+                capacity, writerThreads, maxBatchSize, flushIntervalMs);
+    }
+
+    /**
+     * Enfileira a leitura sem bloquear. Retorna false se o buffer estiver cheio
+     */
+    public boolean enqueue(SensorData sensorData) {
+        if (sensorData.getTimestamp() == null) {
+            sensorData.setTimestamp(LocalDateTime.now());
+        }
+        boolean accepted = buffer.offer(sensorData);
+        if (!accepted) {
+            rejectedCounter.increment();
+        }
+        return accepted;
+    }
+
+    public int getQueueDepth() {
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    private void drainLoop() {
+        List<SensorData> batch = new ArrayList<>(maxBatchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                buffer.drainTo(batch, maxBatchSize - batch.size());
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    /**
+     * Aguarda a primeira leitura e completa o lote até maxBatchSize ou até o fim do intervalo de flush
+     */
+    private void collectBatch(List<SensorData> batch) throws InterruptedException {
+        SensorData first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < maxBatchSize) {
+            buffer.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+            SensorData next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<SensorData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            write(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Grava o lote repetindo falhas transitórias com backoff exponencial. Em erro de dados (ex.: FK de um
+     * dispositivo removido depois do aceite) divide o lote ao meio e grava as metades separadamente,
+     * até descartar só as leituras que falham sozinhas
+     */
+    private void write(List<SensorData> readings) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sensorDataService.saveSensorDataBatch(readings);
+                persistedCounter.increment(readings.size());
+                return;
+            } catch (Exception e) {
+                // Nova tentativa ou divisão do lote: as leituras não podem levar os ids da transação desfeita
+                SensorDataService.resetForRetry(readings);
+                if (isTransient(e) && attempt < maxAttempts) {
+                    retryCounter.increment();
+                    log.warn("Falha transitória ao gravar lote write-behind de {} leituras (tentativa {}/{}): {}",
+                            readings.size(), attempt, maxAttempts, e.getMessage());
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        drop(readings, e);
+                        return;
+                    }
+                    backoff = Math.min(backoff * 2, maxRetryBackoffMs);
+                    continue;
+                }
+                if (!isTransient(e) && readings.size() > 1) {
+                    int middle = readings.size() / 2;
+                    write(new ArrayList<>(readings.subList(0, middle)));
+                    write(new ArrayList<>(readings.subList(middle, readings.size())));
+                    return;
+                }
+                drop(readings, e);
+                return;
+            }
+        }
+    }
+
+    private void drop(List<SensorData> readings, Exception e) {
+        droppedCounter.increment(readings.size());
+        log.error("Falha ao gravar {} leituras write-behind; descartadas: {}", readings.size(), e.getMessage());
+    }
+
+    /**
+     * Falhas que podem passar sozinhas (conexão indisponível, deadlock, timeout de lock), sem relação com os dados
+     */
+    private static boolean isTransient(Throwable e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writers == null) {
+            return;
+        }
+        // Os writers terminam de esvaziar o buffer antes de encerrar
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Writers não terminaram a tempo; {} leituras pendentes no buffer", buffer.size());
+            writers.shutdownNow();
+        }
+    }
+}
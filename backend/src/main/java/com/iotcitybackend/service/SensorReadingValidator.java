@@ -0,0 +1,94 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.dto.ErrorResponse;
+import com.iotcitybackend.exception.ErrorCodes;
+
+import java.util.Set;
+
+/**
+ * Regras de validação de uma leitura de sensor, compartilhadas pela API REST e pela ingestão MQTT
+ */
+public final class SensorReadingValidator {
+
+    private static final Set<String> VALID_SENSOR_TYPES = Set.of(
+        "TEMPERATURA", "UMIDADE", "QUALIDADE_AR", "RUÍDO", "LUZ", "MOVIMENTO"
+    );
+    
+    private static final Set<String> VALID_UNITS = Set.of(
+        "CELSIUS", "FAHRENHEIT", "PERCENTAGE", "PPM", "DB", "LUX", "BOOLEAN"
+    );
+    
+    private SensorReadingValidator() {
+    }
+
+    /**
+     * Valida os campos de uma leitura. Retorna o erro encontrado ou null se a leitura for válida
+     */
+    public static ErrorResponse validate(Long deviceId, String sensorType, Double value, String unit,
+                                         Double latitude, Double longitude, String path) {
+        if (deviceId == null || deviceId <= 0) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_DEVICE_ID_REQUIRED,
+                "ID do dispositivo é obrigatório",
+                "O campo 'deviceId' deve ser um número positivo",
+                path
+            );
+        }
+        
+        if (sensorType == null || sensorType.trim().isEmpty()) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_TYPE_REQUIRED,
+                "Tipo do sensor é obrigatório",
+                "O campo 'sensorType' não pode estar vazio",
+                path
+            );
+        }
+        
+        if (!VALID_SENSOR_TYPES.contains(sensorType)) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_INVALID_TYPE,
+                "Tipo de sensor inválido",
+                "O tipo '" + sensorType + "' não é válido. Tipos válidos: " + String.join(", ", VALID_SENSOR_TYPES),
+                path
+            );
+        }
+        
+        if (value == null) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_VALUE_REQUIRED,
+                "Valor do sensor é obrigatório",
+                "O campo 'value' não pode estar vazio",
+                path
+            );
+        }
+        
+        if (unit != null && !VALID_UNITS.contains(unit)) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_INVALID_UNIT,
+                "Unidade de medida inválida",
+                "A unidade '" + unit + "' não é válida. Unidades válidas: " + String.join(", ", VALID_UNITS),
+                path
+            );
+        }
+        
+        if (latitude != null && (latitude < -90 || latitude > 90)) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_INVALID_COORDINATES,
+                "Latitude inválida",
+                "A latitude deve estar entre -90 e 90",
+                path
+            );
+        }
+        
+        if (longitude != null && (longitude < -180 || longitude > 180)) {
+            return ErrorResponse.of(
+                ErrorCodes.SENSOR_INVALID_COORDINATES,
+                "Longitude inválida",
+                "A longitude deve estar entre -180 e 180",
+                path
+            );
+        }
+        
+        return null;
+    }
+}
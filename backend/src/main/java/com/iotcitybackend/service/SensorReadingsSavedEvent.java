@@ -0,0 +1,12 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.SensorData;
+
+import java.util.List;
+
+/**
+ * Leituras gravadas pelo SensorDataService, publicado dentro da transação da gravação
+ * (ouvintes com @TransactionalEventListener recebem após o commit)
+ */
+public record SensorReadingsSavedEvent(List<SensorData> readings) {
+}
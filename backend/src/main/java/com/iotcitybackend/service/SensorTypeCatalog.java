@@ -0,0 +1,162 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.DeviceSensorTypeRepository;
+import com.iotcitybackend.repository.DeviceSensorTypeRepository.DeviceSensorTypePair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catálogo em memória dos tipos de sensor e dos dispositivos com leituras de cada tipo, espelho da tabela
+ * device_sensor_type. A ingestão grava apenas os pares novos (na transação das leituras); as consultas
+ * não dependem do tamanho de sensor_data. A tabela é recarregada periodicamente (pares gravados por outras
+ * instâncias) e depois da retenção, que remove os pares sem leituras restantes
+ */
+@Component
+public class SensorTypeCatalog implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorTypeCatalog.class);
+
+    private final DeviceSensorTypeRepository repository;
+    private volatile Map<String, Set<Long>> devicesByType = new ConcurrentHashMap<>();
+    private volatile List<String> sensorTypes = List.of();
+
+    public SensorTypeCatalog(DeviceSensorTypeRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Carrega o catálogo; vazio (primeira execução ou dados carregados fora da ingestão), é calculado a partir de sensor_data
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (repository.isEmpty()) {
+            long startedAt = System.currentTimeMillis();
+            int pairs = repository.rebuildFromReadings();
+            if (pairs > 0) {
+                log.info("Catálogo de tipos de sensor calculado a partir das leituras: {} pares em {}ms",
+                        pairs, System.currentTimeMillis() - startedAt);
+            }
+        }
+        reload();
+    }
+
+    /**
+     * Substitui o catálogo em memória pelo conteúdo da tabela
+     */
+    @Scheduled(fixedDelayString = "${sensor.catalog.reload-interval-ms:60000}",
+            initialDelayString = "${sensor.catalog.reload-interval-ms:60000}")
+    public void reload() {
+        Map<String, Set<Long>> loaded = new ConcurrentHashMap<>();
+        for (DeviceSensorTypePair pair : repository.findAll()) {
+            loaded.computeIfAbsent(pair.sensorType(), type -> ConcurrentHashMap.newKeySet()).add(pair.deviceId());
+        }
+        // Um par confirmado durante a leitura pode faltar até a próxima recarga; record volta a gravá-lo (sem efeito)
+        devicesByType = loaded;
+        refreshSensorTypes();
+    }
+
+    /**
+     * Remove da tabela os pares dos tipos sem nenhuma leitura restante e recarrega o catálogo.
+     * Chamado pela retenção depois de apagar leituras. Retorna o número de pares removidos
+     */
+    public int purgeWithoutReadings(Collection<String> sensorTypes) {
+        int removed = 0;
+        for (String sensorType : sensorTypes) {
+            removed += repository.deleteWithoutReadings(sensorType);
+        }
+        reload();
+        return removed;
+    }
+
+    /**
+     * Cataloga os pares (dispositivo, tipo) ainda desconhecidos. Deve ser chamado na transação que grava as leituras:
+     * o catálogo em memória só é atualizado após o commit
+     */
+    public void record(List<SensorData> readings) {
+        Map<String, DeviceSensorTypePair> missing = null;
+        for (SensorData data : readings) {
+            Long deviceId = data.getDevice().getId();
+            if (contains(deviceId, data.getSensorType())) {
+                continue;
+            }
+            if (missing == null) {
+                missing = new HashMap<>();
+            }
+            missing.merge(deviceId + "|" + data.getSensorType(),
+                    new DeviceSensorTypePair(deviceId, data.getSensorType(), data.getTimestamp()),
+                    (current, candidate) -> candidate.firstSeen().isBefore(current.firstSeen()) ? candidate : current);
+        }
+        if (missing == null) {
+            return;
+        }
+        List<DeviceSensorTypePair> pairs = new ArrayList<>(missing.values());
+        repository.insertMissing(pairs);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(pairs);
+                }
+            });
+        } else {
+            addAll(pairs);
+        }
+    }
+
+    /**
+     * Tipos de sensor com leituras, em ordem alfabética
+     */
+    public List<String> getSensorTypes() {
+        return sensorTypes;
+    }
+
+    public List<Long> getDeviceIds(String sensorType) {
+        Set<Long> deviceIds = devicesByType.get(sensorType);
+        return deviceIds != null ? List.copyOf(deviceIds) : List.of();
+    }
+
+    /**
+     * Remove o dispositivo do catálogo (tabela e memória)
+     */
+    public void forgetDevice(Long deviceId) {
+        repository.deleteByDeviceId(deviceId);
+        devicesByType.values().forEach(deviceIds -> deviceIds.remove(deviceId));
+        refreshSensorTypes();
+    }
+
+    private boolean contains(Long deviceId, String sensorType) {
+        Set<Long> deviceIds = devicesByType.get(sensorType);
+        return deviceIds != null && deviceIds.contains(deviceId);
+    }
+
+    private void add(DeviceSensorTypePair pair) {
+        devicesByType.computeIfAbsent(pair.sensorType(), type -> ConcurrentHashMap.newKeySet()).add(pair.deviceId());
+    }
+
+    private void addAll(List<DeviceSensorTypePair> pairs) {
+        pairs.forEach(this::add);
+        refreshSensorTypes();
+    }
+
+    private synchronized void refreshSensorTypes() {
+        sensorTypes = devicesByType.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+}
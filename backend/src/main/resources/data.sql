@@ -5,9 +5,7 @@ CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
 -- =============================================================================
 
 -- Índices principais para sensor_data
-CREATE INDEX IF NOT EXISTS idx_sensor_data_device_id ON sensor_data(device_id);
 CREATE INDEX IF NOT EXISTS idx_sensor_data_timestamp ON sensor_data(timestamp);
-CREATE INDEX IF NOT EXISTS idx_sensor_data_sensor_type ON sensor_data(sensor_type);
 CREATE INDEX IF NOT EXISTS idx_sensor_data_device_timestamp ON sensor_data(device_id, timestamp);
 CREATE INDEX IF NOT EXISTS idx_sensor_data_type_timestamp ON sensor_data(sensor_type, timestamp);
 CREATE INDEX IF NOT EXISTS idx_sensor_data_location ON sensor_data(latitude, longitude);
@@ -1,6 +1,10 @@
+-- Sequences dos IDs (INCREMENT BY = allocationSize das entidades, otimizador pooled-lo)
+CREATE SEQUENCE IF NOT EXISTS devices_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS sensor_data_id_seq START WITH 1 INCREMENT BY 50;
+
 -- Schema para dispositivos IoT
 CREATE TABLE IF NOT EXISTS devices (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT DEFAULT nextval('devices_id_seq') PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     type VARCHAR(50) NOT NULL,
     location VARCHAR(255) NOT NULL,
@@ -12,9 +16,11 @@ CREATE TABLE IF NOT EXISTS devices (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Schema para dados de sensores
+-- Schema para dados de sensores, particionada por faixa de timestamp (diária ou semanal).
+-- As partições (sensor_data_pAAAAMMDD e sensor_data_default) são criadas e removidas pelo SensorDataPartitionManager.
+-- A chave primária de uma tabela particionada precisa incluir a coluna de particionamento
 CREATE TABLE IF NOT EXISTS sensor_data (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT DEFAULT nextval('sensor_data_id_seq'),
     device_id BIGINT NOT NULL,
     sensor_type VARCHAR(50) NOT NULL,
     sensor_value DOUBLE PRECISION NOT NULL,
@@ -23,13 +29,103 @@ CREATE TABLE IF NOT EXISTS sensor_data (
     latitude DOUBLE PRECISION,
     longitude DOUBLE PRECISION,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, timestamp),
+    FOREIGN KEY (device_id) REFERENCES devices(id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+
+-- Rollups de sensor_data (resolution: 1m, 1h, 1d), mantidos na ingestão e recalculáveis a partir das leituras
+CREATE TABLE IF NOT EXISTS sensor_data_rollup (
+    resolution VARCHAR(2) NOT NULL,
+    device_id BIGINT NOT NULL,
+    sensor_type VARCHAR(50) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    reading_count BIGINT NOT NULL,
+    value_sum DOUBLE PRECISION NOT NULL,
+    value_min DOUBLE PRECISION NOT NULL,
+    value_max DOUBLE PRECISION NOT NULL,
+    value_sum_squares DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (resolution, device_id, sensor_type, bucket_start),
+    FOREIGN KEY (device_id) REFERENCES devices(id) ON DELETE CASCADE
+);
+
+-- Catálogo dos pares (dispositivo, tipo de sensor) com leituras, mantido na ingestão
+CREATE TABLE IF NOT EXISTS device_sensor_type (
+    device_id BIGINT NOT NULL,
+    sensor_type VARCHAR(50) NOT NULL,
+    first_seen TIMESTAMP NOT NULL,
+    PRIMARY KEY (device_id, sensor_type),
     FOREIGN KEY (device_id) REFERENCES devices(id) ON DELETE CASCADE
 );
 
+-- Progresso da retenção por tipo de sensor: leituras anteriores a downsampled_until já estão nos rollups
+CREATE TABLE IF NOT EXISTS sensor_data_retention (
+    sensor_type VARCHAR(50) PRIMARY KEY,
+    downsampled_until TIMESTAMP NOT NULL
+);
+
+-- Janelas (TUMBLING e SLIDING) por dispositivo e tipo de sensor, calculadas continuamente pelo job de streaming
+-- do Spark. Sem chave estrangeira: as fontes do streaming podem trazer dispositivos não cadastrados
+CREATE TABLE IF NOT EXISTS sensor_window_aggregate (
+    window_type VARCHAR(8) NOT NULL,
+    device_id BIGINT NOT NULL,
+    sensor_type VARCHAR(50) NOT NULL,
+    window_start TIMESTAMP NOT NULL,
+    window_end TIMESTAMP NOT NULL,
+    reading_count BIGINT NOT NULL,
+    value_sum DOUBLE PRECISION NOT NULL,
+    value_min DOUBLE PRECISION NOT NULL,
+    value_max DOUBLE PRECISION NOT NULL,
+    value_sum_squares DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (window_type, device_id, sensor_type, window_start)
+);
+
+-- Progresso de cada stream do job de streaming: maior timestamp aplicado (base da marca d'água) e, no Kafka,
+-- o próximo offset de cada partição. Gravados na mesma transação que os deltas de sensor_window_aggregate
+CREATE TABLE IF NOT EXISTS sensor_stream_checkpoint (
+    stream_id VARCHAR(255) PRIMARY KEY,
+    max_event_time TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sensor_stream_offset (
+    stream_id VARCHAR(255) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    next_offset BIGINT NOT NULL,
+    PRIMARY KEY (stream_id, topic, partition_id)
+);
+
+-- Instâncias do backend em execução (heartbeat do IngestInstanceRegistry). O store de séries temporais só responde
+-- consultas enquanto a própria instância é a única viva
+CREATE TABLE IF NOT EXISTS ingest_instance (
+    instance_id VARCHAR(64) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL
+);
+
+-- Migração de bancos criados com IDENTITY e de tabelas geradas pelo Hibernate (sem DEFAULT):
+-- inserts em SQL puro (data.sql) continuam usando a sequence.
+-- DROP IDENTITY remove a sequence implícita de mesmo nome, por isso ela é recriada em seguida
+ALTER TABLE devices ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE sensor_data ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS devices_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS sensor_data_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE devices ALTER COLUMN id SET DEFAULT nextval('devices_id_seq');
+ALTER TABLE sensor_data ALTER COLUMN id SET DEFAULT nextval('sensor_data_id_seq');
+SELECT setval('devices_id_seq', COALESCE((SELECT MAX(id) FROM devices), 0) + 1, false);
+SELECT setval('sensor_data_id_seq', COALESCE((SELECT MAX(id) FROM sensor_data), 0) + 1, false);
+
 -- Índices para melhor performance
 CREATE INDEX IF NOT EXISTS idx_devices_type ON devices(type);
 CREATE INDEX IF NOT EXISTS idx_devices_location ON devices(location);
 CREATE INDEX IF NOT EXISTS idx_devices_active ON devices(active);
-CREATE INDEX IF NOT EXISTS idx_sensor_data_device_id ON sensor_data(device_id);
+-- Em sensor_data os índices são criados na tabela pai e replicados em cada partição.
+-- device_id e sensor_type isolados são cobertos pelos índices compostos (mesma coluna inicial)
+DROP INDEX IF EXISTS idx_sensor_data_device_id;
+DROP INDEX IF EXISTS idx_sensor_data_sensor_type;
 CREATE INDEX IF NOT EXISTS idx_sensor_data_timestamp ON sensor_data(timestamp);
-CREATE INDEX IF NOT EXISTS idx_sensor_data_sensor_type ON sensor_data(sensor_type); 
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_sensor_data_device_timestamp ON sensor_data(device_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_sensor_data_type_timestamp ON sensor_data(sensor_type, timestamp);
+CREATE INDEX IF NOT EXISTS idx_sensor_data_rollup_type_bucket ON sensor_data_rollup(resolution, sensor_type, bucket_start); 
+CREATE INDEX IF NOT EXISTS idx_device_sensor_type_type ON device_sensor_type(sensor_type, device_id);
+CREATE INDEX IF NOT EXISTS idx_sensor_window_aggregate_type_start ON sensor_window_aggregate(window_type, window_start);
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.iotcitybackend.controller;
+
+import com.iotcitybackend.exception.ErrorCodes;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.SensorDataPage;
+import com.iotcitybackend.service.SensorDataRetentionService;
+import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorDataWriteBehindService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SensorDataController.class)
+class SensorDataControllerTest {
+
+    private static final String VALID = "{\"deviceId\":1,\"sensorType\":\"TEMPERATURA\",\"value\":21.5,\"unit\":\"CELSIUS\"}";
+
+    private final LocalDateTime timestamp = LocalDateTime.of(2024, 3, 15, 10, 30, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SensorDataService sensorDataService;
+
+    @MockBean
+    private SensorDataWriteBehindService writeBehindService;
+
+    @MockBean
+    private DeviceService deviceService;
+
+    @MockBean
+    private SensorDataRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        Device device = Device.builder().id(1L).name("Estação \"Centro\", Natal").type("SENSOR").location("Natal").active(true).build();
+        when(deviceService.getDevicesByIds(anyCollection())).thenReturn(Map.of(1L, device));
+        when(deviceService.getRegisteredDevice(1L)).thenReturn(Optional.of(device));
+        // Gravação síncrona: atribui ids na ordem do lote
+        doAnswer(invocation -> {
+            List<SensorData> readings = invocation.getArgument(0);
+            for (int i = 0; i < readings.size(); i++) {
+                readings.get(i).setId(100L + i);
+            }
+            return readings.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+    }
+
+    @Test
+    void batchWithEveryItemValidIsCreated() throws Exception {
+        mockMvc.perform(post("/api/sensor-data/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + VALID + "," + VALID + "]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$.results[0].id").value(100))
+                .andExpect(jsonPath("$.results[1].id").value(101));
+    }
+
+    @Test
+    void batchWithRejectedItemsReportsEachOneAsMultiStatus() throws Exception {
+        String invalidType = "{\"deviceId\":1,\"sensorType\":\"VENTO\",\"value\":3.0}";
+        String unknownDevice = "{\"deviceId\":99,\"sensorType\":\"UMIDADE\",\"value\":70.0}";
+        mockMvc.perform(post("/api/sensor-data/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + invalidType + "," + VALID + "," + unknownDevice + "]"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("REJECTED"))
+                .andExpect(jsonPath("$.results[0].errorCode").value(ErrorCodes.SENSOR_INVALID_TYPE))
+                .andExpect(jsonPath("$.results[1].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$.results[1].id").value(100))
+                .andExpect(jsonPath("$.results[2].errorCode").value(ErrorCodes.SENSOR_DEVICE_NOT_FOUND));
+    }
+
+    @Test
+    void batchWithoutValidItemsIsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/sensor-data/batch").contentType("application/x-ndjson")
+                        .content("{\"deviceId\":1,\"sensorType\":\"TEMPERATURA\"}\n{nao e json\n\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(0))
+                .andExpect(jsonPath("$.results[0].errorCode").value(ErrorCodes.SENSOR_VALUE_REQUIRED))
+                .andExpect(jsonPath("$.results[1].errorCode").value(ErrorCodes.SENSOR_BATCH_MALFORMED));
+
+        mockMvc.perform(post("/api/sensor-data/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value(ErrorCodes.SENSOR_BATCH_EMPTY));
+    }
+
+    @Test
+    void pageHeaderCarriesTheCursorOfTheLastItem() throws Exception {
+        // Empate no timestamp: o cursor precisa do id para continuar depois do último item da página
+        SensorDataRow first = new SensorDataRow(12L, 1L, "TEMPERATURA", 21.0, "CELSIUS", timestamp, null, null);
+        SensorDataRow last = new SensorDataRow(11L, 1L, "TEMPERATURA", 20.0, "CELSIUS", timestamp, null, null);
+        SensorDataCursor next = new SensorDataCursor(timestamp, 11L);
+        when(sensorDataService.findSensorDataPage(eq("TEMPERATURA"), isNull(), isNull(), isNull(), isNull(), eq(2)))
+                .thenReturn(new SensorDataPage(List.of(first, last), next));
+        when(sensorDataService.findSensorDataPage(eq("TEMPERATURA"), isNull(), isNull(), isNull(), eq(next), eq(2)))
+                .thenReturn(new SensorDataPage(List.of(new SensorDataRow(10L, 1L, "TEMPERATURA", 19.0, "CELSIUS",
+                        timestamp, null, null)), null));
+
+        MvcResult page = mockMvc.perform(get("/api/sensor-data").param("sensorType", "TEMPERATURA").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string(SensorDataController.NEXT_CURSOR_HEADER, next.encode()))
+                .andReturn();
+
+        mockMvc.perform(get("/api/sensor-data").param("sensorType", "TEMPERATURA").param("limit", "2")
+                        .param("cursor", page.getResponse().getHeader(SensorDataController.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(10))
+                .andExpect(header().doesNotExist(SensorDataController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void invalidCursorIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/sensor-data").param("cursor", "bm8tc2VwYXJhdG9y"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value(ErrorCodes.GENERAL_VALIDATION_ERROR));
+        verify(sensorDataService, never()).findSensorDataPage(any(), any(), any(), any(), any(), any());
+    }
+
+    private void exportRows(SensorDataRow... rows) {
+        doAnswer(invocation -> {
+            Consumer<SensorDataRow> consumer = invocation.getArgument(4);
+            for (SensorDataRow row : rows) {
+                consumer.accept(row);
+            }
+            return null;
+        }).when(sensorDataService).exportSensorData(any(), any(), any(), any(), any());
+    }
+
+    private String export(String format, String contentType) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/sensor-data/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(contentType))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void exportsNdjsonOneEscapedObjectPerLine() throws Exception {
+        exportRows(new SensorDataRow(1L, 1L, "TEMPERATURA", 21.5, "CELSIUS", timestamp, -5.79, -35.2),
+                new SensorDataRow(2L, 1L, "UMIDADE", 70.0, "PERCENTUAL", timestamp.plusMinutes(1), null, null));
+
+        assertEquals(
+                "{\"id\":1,\"deviceId\":1,\"deviceName\":\"Estação \\\"Centro\\\", Natal\",\"sensorType\":\"TEMPERATURA\"," +
+                        "\"value\":21.5,\"unit\":\"CELSIUS\",\"timestamp\":\"2024-03-15T10:30:00\",\"latitude\":-5.79,\"longitude\":-35.2}\n" +
+                "{\"id\":2,\"deviceId\":1,\"deviceName\":\"Estação \\\"Centro\\\", Natal\",\"sensorType\":\"UMIDADE\"," +
+                        "\"value\":70.0,\"unit\":\"PERCENTUAL\",\"timestamp\":\"2024-03-15T10:31:00\",\"latitude\":null,\"longitude\":null}\n",
+                export("ndjson", "application/x-ndjson"));
+    }
+
+    @Test
+    void exportsCsvQuotingFieldsWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        exportRows(new SensorDataRow(1L, 1L, "TEMPERATURA", 21.5, "CELSIUS", timestamp, -5.79, -35.2),
+                new SensorDataRow(2L, 1L, "UMIDADE", 70.0, "linha\nquebrada", timestamp.plusMinutes(1), null, null));
+
+        assertEquals(
+                "id,deviceId,deviceName,sensorType,value,unit,timestamp,latitude,longitude\n" +
+                "1,1,\"Estação \"\"Centro\"\", Natal\",TEMPERATURA,21.5,CELSIUS,2024-03-15T10:30:00,-5.79,-35.2\n" +
+                "2,1,\"Estação \"\"Centro\"\", Natal\",UMIDADE,70.0,\"linha\nquebrada\",2024-03-15T10:31:00,,\n",
+                export("csv", "text/csv"));
+        verify(deviceService, times(1)).getRegisteredDevice(1L);
+    }
+
+    @Test
+    void exportRejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/sensor-data/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details").value("Formato de exportação inválido. Formatos válidos: ndjson, csv"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.iotcitybackend.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FixedPointFormatTest {
+
+    private static void assertSameAsFormatter(double value) {
+        assertEquals(String.format(Locale.ROOT, "%.2f", value), FixedPointFormat.twoDecimals(value), "valor " + value);
+    }
+
+    @Test
+    void roundsHalfUpLikeFormatter() {
+        for (double value : new double[]{0.0, -0.0, 0.005, 0.0049, -0.001, 1.005, 1.115, 2.675, 0.125, 9.995, 99.999,
+                25.5, -35.2009, 123456.785, 9_999_999.995, 1e7, 1e17, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertSameAsFormatter(value);
+        }
+    }
+
+    @Test
+    void matchesFormatterForRandomSensorValues() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            assertSameAsFormatter(random.nextDouble(-1000, 1000));
+            // Valores com poucas casas, como os enviados pelos dispositivos
+            assertSameAsFormatter(random.nextInt(-100_000, 100_000) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.Reading;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.SensorReadingsSavedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorReadingSpoolTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 15, 10, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    private SensorReadingSpool spool(int maxPending) throws IOException {
+        return new SensorReadingSpool(objectMapper, meterRegistry, directory.toString(), maxPending, 600_000);
+    }
+
+    private static SensorData reading(long deviceId, String sensorType, double value, LocalDateTime timestamp) {
+        return SensorData.builder()
+                .device(Device.builder().id(deviceId).build())
+                .sensorType(sensorType)
+                .value(value)
+                .unit("CELSIUS")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void flushWritesOneFileReadableByTheStreamingJob() throws IOException {
+        SensorReadingSpool spool = spool(100);
+        spool.onReadingsSaved(new SensorReadingsSavedEvent(List.of(
+                reading(1, "TEMPERATURA", 21.5, NOW),
+                reading(2, "RUÍDO", 80.0, NOW.plusSeconds(1)))));
+        spool.onReadingsSaved(new SensorReadingsSavedEvent(List.of(reading(1, "TEMPERATURA", 22.0, NOW.plusSeconds(2)))));
+
+        spool.flush();
+
+        List<Path> files = files();
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().matches("readings-\\d+-1\\.json"));
+        List<Reading> readings = new ArrayList<>();
+        for (String line : Files.readAllLines(files.get(0))) {
+            readings.add(SensorStreamWindows.parse(line, 0));
+        }
+        assertEquals(List.of(
+                new Reading(1, "TEMPERATURA", 21.5, SensorStreamWindows.toMillis(NOW)),
+                new Reading(2, "RUÍDO", 80.0, SensorStreamWindows.toMillis(NOW.plusSeconds(1))),
+                new Reading(1, "TEMPERATURA", 22.0, SensorStreamWindows.toMillis(NOW.plusSeconds(2)))
+        ), readings);
+        assertEquals(3.0, meterRegistry.counter("iot.streaming.spool.written").count());
+        assertEquals(0.0, meterRegistry.get("iot.streaming.spool.pending").gauge().value());
+
+        spool.flush();
+        assertEquals(1, files().size());
+    }
+
+    @Test
+    void readingsBeyondMaxPendingAreDropped() throws IOException {
+        SensorReadingSpool spool = spool(2);
+        spool.onReadingsSaved(new SensorReadingsSavedEvent(List.of(
+                reading(1, "TEMPERATURA", 1.0, NOW),
+                reading(1, "TEMPERATURA", 2.0, NOW),
+                reading(1, "TEMPERATURA", 3.0, NOW))));
+
+        assertEquals(1.0, meterRegistry.counter("iot.streaming.spool.dropped").count());
+        spool.flush();
+        assertEquals(2, Files.readAllLines(files().get(0)).size());
+
+        // Com a fila vazia voltam a ser aceitas
+        spool.onReadingsSaved(new SensorReadingsSavedEvent(List.of(reading(1, "TEMPERATURA", 4.0, NOW))));
+        assertEquals(1.0, meterRegistry.counter("iot.streaming.spool.dropped").count());
+    }
+
+    @Test
+    void removesOnlyFilesOlderThanRetention() throws IOException {
+        SensorReadingSpool spool = spool(100);
+        Path old = Files.writeString(directory.resolve("readings-1-1.json"), "{}\n");
+        Files.setLastModifiedTime(old, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+        Path recent = Files.writeString(directory.resolve("readings-2-2.json"), "{}\n");
+        Path other = Files.writeString(directory.resolve("notes.txt"), "");
+        Files.setLastModifiedTime(other, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+
+        spool.removeOldFiles();
+
+        assertEquals(List.of(other, recent), files());
+    }
+}
@@ -0,0 +1,102 @@
+package com.iotcitybackend.infrastructure.bigdata;
+
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.BatchSummary;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.Reading;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.WindowKey;
+import com.iotcitybackend.infrastructure.bigdata.SensorStreamWindows.WindowSpec;
+import com.iotcitybackend.model.SensorWindowType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorStreamWindowsTest {
+
+    private static final long MINUTE = 60_000;
+    private static final WindowSpec SPEC = new WindowSpec(5 * MINUTE, 15 * MINUTE, 5 * MINUTE);
+
+    private static long millis(int hour, int minute, int second) {
+        return SensorStreamWindows.toMillis(LocalDateTime.of(2024, 3, 15, hour, minute, second));
+    }
+
+    @Test
+    void parsesBatchApiFormat() {
+        Reading reading = SensorStreamWindows.parse(
+                "{\"deviceId\":7,\"sensorType\":\" TEMPERATURA \",\"value\":25.5,\"unit\":\"CELSIUS\"," +
+                "\"timestamp\":\"2024-03-15T10:30:00.123456789\",\"latitude\":-5.77}", 0);
+
+        assertEquals(new Reading(7, "TEMPERATURA", 25.5, millis(10, 30, 0) + 123), reading);
+        assertEquals(LocalDateTime.of(2024, 3, 15, 10, 30, 0, 123_000_000),
+                SensorStreamWindows.toLocalDateTime(reading.timestamp()));
+    }
+
+    @Test
+    void missingTimestampUsesDefault() {
+        Reading reading = SensorStreamWindows.parse("{\"deviceId\":1,\"sensorType\":\"RUÍDO\",\"value\":80}", 42);
+
+        assertEquals(new Reading(1, "RUÍDO", 80.0, 42), reading);
+    }
+
+    @Test
+    void invalidLinesAreIgnored() {
+        for (String line : List.of("", "garbage", "[1,2]", "{\"sensorType\":\"RUÍDO\",\"value\":1}",
+                "{\"deviceId\":1,\"value\":1}", "{\"deviceId\":1,\"sensorType\":\" \",\"value\":1}",
+                "{\"deviceId\":1,\"sensorType\":\"RUÍDO\",\"value\":\"alto\"}",
+                "{\"deviceId\":1,\"sensorType\":\"RUÍDO\",\"value\":1,\"timestamp\":\"ontem\"}")) {
+            assertNull(SensorStreamWindows.parse(line, 0), line);
+        }
+    }
+
+    @Test
+    void readingFallsInOneTumblingAndOverlappingSlidingWindows() {
+        Reading reading = new Reading(1, "TEMPERATURA", 20.0, millis(10, 7, 30));
+
+        assertEquals(List.of(
+                new WindowKey(SensorWindowType.TUMBLING, millis(10, 5, 0), 1, "TEMPERATURA"),
+                new WindowKey(SensorWindowType.SLIDING, millis(10, 5, 0), 1, "TEMPERATURA"),
+                new WindowKey(SensorWindowType.SLIDING, millis(10, 0, 0), 1, "TEMPERATURA"),
+                new WindowKey(SensorWindowType.SLIDING, millis(9, 55, 0), 1, "TEMPERATURA")
+        ), SensorStreamWindows.windowsOf(reading, SPEC));
+    }
+
+    @Test
+    void everyWindowContainsTheReading() {
+        SplittableRandom random = new SplittableRandom(42);
+        WindowSpec spec = new WindowSpec(7 * MINUTE, 10 * MINUTE, 2 * MINUTE);
+        for (int i = 0; i < 10_000; i++) {
+            long timestamp = millis(0, 0, 0) + random.nextLong(-86_400_000L, 86_400_000L);
+            List<WindowKey> windows = SensorStreamWindows.windowsOf(new Reading(1, "RUÍDO", 1.0, timestamp), spec);
+
+            assertEquals(1 + spec.slidingMs() / spec.slideMs(), windows.size());
+            for (WindowKey window : windows) {
+                long duration = spec.durationOf(window.windowType());
+                long alignment = window.windowType() == SensorWindowType.TUMBLING ? spec.tumblingMs() : spec.slideMs();
+                assertEquals(0, Math.floorMod(window.windowStart(), alignment));
+                assertTrue(window.windowStart() <= timestamp && timestamp < window.windowStart() + duration);
+            }
+        }
+    }
+
+    @Test
+    void batchSummaryCountsLateReadingsSeparately() {
+        long watermark = millis(10, 0, 0);
+        BatchSummary first = BatchSummary.EMPTY
+                .add(new Reading(1, "RUÍDO", 1.0, millis(10, 5, 0)), watermark)
+                .add(new Reading(1, "RUÍDO", 1.0, millis(9, 59, 59)), watermark);
+        BatchSummary second = BatchSummary.EMPTY
+                .add(new Reading(2, "RUÍDO", 1.0, millis(10, 0, 0)), watermark);
+
+        assertEquals(new BatchSummary(2, 1, millis(10, 5, 0)), first.merge(second));
+        assertEquals(new BatchSummary(0, 1, Long.MIN_VALUE),
+                BatchSummary.EMPTY.add(new Reading(1, "RUÍDO", 1.0, millis(9, 0, 0)), watermark).merge(BatchSummary.EMPTY));
+    }
+
+    @Test
+    void slidingWindowMustBeMultipleOfSlide() {
+        assertThrows(IllegalStateException.class, () -> new WindowSpec(5 * MINUTE, 10 * MINUTE, 3 * MINUTE));
+        assertThrows(IllegalStateException.class, () -> new WindowSpec(0, 10 * MINUTE, MINUTE));
+    }
+}
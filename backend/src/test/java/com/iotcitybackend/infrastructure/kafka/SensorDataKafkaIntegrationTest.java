@@ -0,0 +1,236 @@
+package com.iotcitybackend.infrastructure.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorReadingsSavedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig
+@EmbeddedKafka(kraft = true, partitions = 3, topics = {"iot-sensor-data", "iot-alerts"})
+@TestPropertySource(properties = {
+    "kafka.enabled=true",
+    "kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "kafka.topic.partitions=3",
+    "kafka.consumer.group-id=iot-city-backend-test",
+    "kafka.consumer.concurrency=3",
+    "kafka.consumer.retry.initial-interval-ms=100",
+    "kafka.consumer.retry.max-elapsed-ms=500",
+    "kafka.alerts.thresholds=TEMPERATURA:40"
+})
+class SensorDataKafkaIntegrationTest {
+
+    private static final String GROUP_ID = "iot-city-backend-test";
+
+    @Configuration
+    @EnableKafka
+    @Import({KafkaConfig.class, SensorDataKafkaConsumer.class, SensorAlertProducer.class})
+    static class TestConfig {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private SensorAlertProducer alertProducer;
+
+    @MockBean
+    private SensorDataService sensorDataService;
+
+    @MockBean
+    private DeviceService deviceService;
+
+    private final List<SensorData> saved = Collections.synchronizedList(new ArrayList<>());
+    private final Device device = Device.builder().id(7L).name("Estação Ponta Negra").active(true).build();
+
+    @BeforeEach
+    void setUp() {
+        when(deviceService.getDevicesByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.contains(7L) ? Map.of(7L, device) : Map.of();
+        });
+    }
+
+    private void send(String key, String value) {
+        Map<String, Object> config = KafkaTestUtils.producerProps(broker);
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(config, new StringSerializer(), new StringSerializer())) {
+            producer.send(new ProducerRecord<>("iot-sensor-data", key, value));
+        }
+    }
+
+    private long committedOffsets() throws Exception {
+        Properties config = new Properties();
+        config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        try (AdminClient admin = AdminClient.create(config)) {
+            return admin.listConsumerGroupOffsets(GROUP_ID).partitionsToOffsetAndMetadata().get().values().stream()
+                    .mapToLong(OffsetAndMetadata::offset)
+                    .sum();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condição não atingida a tempo");
+            Thread.sleep(50);
+        }
+    }
+
+    private static boolean offsetsCommitted(long expected, SensorDataKafkaIntegrationTest test) {
+        try {
+            return test.committedOffsets() == expected;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Test
+    void persistsValidReadingsAndCommitsOffsetsAfterWriteFailuresAreRetried() throws Exception {
+        long committedBefore = committedOffsets();
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<SensorData> readings = invocation.getArgument(0);
+            // A primeira gravação falha: o lote precisa ser relido antes de confirmar os offsets
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("banco indisponível");
+            }
+            saved.addAll(readings);
+            return readings.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        send("7", "{\"deviceId\":7,\"sensorType\":\"TEMPERATURA\",\"value\":25.5,\"unit\":\"CELSIUS\",\"timestamp\":\"2026-03-15T10:00:00\"}");
+        send("7", "{\"deviceId\":7,\"sensorType\":\"UMIDADE\",\"value\":60.0}");
+        send("7", "{\"deviceId\":7,\"sensorType\":\"PRESSAO\",\"value\":1013}");
+        send("99", "{\"deviceId\":99,\"sensorType\":\"LUZ\",\"value\":10}");
+        send("7", "não é json");
+
+        awaitTrue(() -> offsetsCommitted(committedBefore + 5, this));
+        assertTrue(calls.get() >= 2);
+        assertEquals(2, saved.size());
+        SensorData temperature = saved.stream().filter(data -> data.getSensorType().equals("TEMPERATURA")).findFirst().orElseThrow();
+        assertEquals(25.5, temperature.getValue());
+        assertEquals(LocalDateTime.of(2026, 3, 15, 10, 0), temperature.getTimestamp());
+        assertSame(device, temperature.getDevice());
+    }
+
+    @Test
+    void sendsOnlyThePermanentlyFailingReadingToDeadLetterTopic() throws Exception {
+        long committedBefore = committedOffsets();
+        doAnswer(invocation -> {
+            List<SensorData> readings = invocation.getArgument(0);
+            // Ex.: dispositivo removido entre a consulta e a gravação; nunca vai gravar
+            if (readings.stream().anyMatch(data -> data.getValue() == 666.0)) {
+                throw new DataIntegrityViolationException("violação de chave estrangeira");
+            }
+            saved.addAll(readings);
+            return readings.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        Map<String, Object> config = KafkaTestUtils.consumerProps("dlt-test", "false", broker);
+        config.put("auto.offset.reset", "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(config,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of("iot-sensor-data.DLT"));
+
+            send("7", "{\"deviceId\":7,\"sensorType\":\"UMIDADE\",\"value\":61.0}");
+            send("7", "{\"deviceId\":7,\"sensorType\":\"UMIDADE\",\"value\":666.0}");
+            send("7", "{\"deviceId\":7,\"sensorType\":\"UMIDADE\",\"value\":62.0}");
+
+            awaitTrue(() -> offsetsCommitted(committedBefore + 3, this));
+            assertEquals(List.of(61.0, 62.0), saved.stream().map(SensorData::getValue).toList());
+
+            ConsumerRecords<String, String> deadLetters = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), 1);
+            assertEquals(1, deadLetters.count());
+            assertTrue(deadLetters.iterator().next().value().contains("666.0"));
+        }
+    }
+
+    @Test
+    void publishesAlertOnlyWhenReadingCrossesThreshold() {
+        Map<String, Object> config = KafkaTestUtils.consumerProps("alerts-test", "false", broker);
+        config.put("auto.offset.reset", "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(config,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, "iot-alerts");
+
+            LocalDateTime now = LocalDateTime.of(2026, 3, 15, 14, 0);
+            alertProducer.onReadingsSaved(new SensorReadingsSavedEvent(List.of(
+                    reading("TEMPERATURA", 41.0, now),
+                    reading("TEMPERATURA", 42.5, now.plusMinutes(1)),
+                    reading("UMIDADE", 99.0, now.plusMinutes(1)),
+                    reading("TEMPERATURA", 30.0, now.plusMinutes(2)),
+                    reading("TEMPERATURA", 45.0, now.plusMinutes(3)))));
+
+            List<ConsumerRecord<String, String>> alerts = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (alerts.size() < 2 && System.currentTimeMillis() < deadline) {
+                ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1), 2);
+                records.forEach(alerts::add);
+            }
+            assertEquals(2, alerts.size());
+            assertEquals("7", alerts.get(0).key());
+            assertTrue(alerts.get(0).value().contains("\"value\":41.0"));
+            assertTrue(alerts.get(0).value().contains("\"threshold\":40.0"));
+            assertTrue(alerts.get(1).value().contains("\"value\":45.0"));
+        }
+    }
+
+    private SensorData reading(String sensorType, double value, LocalDateTime timestamp) {
+        return SensorData.builder().device(device).sensorType(sensorType).value(value).unit("CELSIUS").timestamp(timestamp).build();
+    }
+}
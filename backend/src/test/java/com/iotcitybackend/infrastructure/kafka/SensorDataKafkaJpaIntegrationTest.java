@@ -0,0 +1,166 @@
+package com.iotcitybackend.infrastructure.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.DeviceRepository;
+import com.iotcitybackend.service.DeviceLivenessTracker;
+import com.iotcitybackend.service.DeviceRegistryCache;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.LiveFeedService;
+import com.iotcitybackend.service.SensorDataLatestCache;
+import com.iotcitybackend.service.SensorDataRollupService;
+import com.iotcitybackend.service.SensorDataService;
+import com.iotcitybackend.service.SensorTypeCatalog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+/**
+ * Consumidor Kafka gravando no repositório JPA real (H2): uma leitura que viola a FK no meio do lote deve ir
+ * sozinha para o dead letter, e as válidas do mesmo lote precisam ser gravadas
+ */
+@DataJpaTest
+@Import({KafkaConfig.class, SensorDataKafkaConsumer.class, SensorDataService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EmbeddedKafka(kraft = true, partitions = 3, topics = {"iot-sensor-data", "iot-alerts"})
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "kafka.enabled=true",
+    "kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+    "kafka.topic.partitions=3",
+    "kafka.consumer.group-id=iot-city-backend-jpa-test",
+    "kafka.consumer.retry.initial-interval-ms=100",
+    "kafka.consumer.retry.max-elapsed-ms=500"
+})
+class SensorDataKafkaJpaIntegrationTest {
+
+    @TestConfiguration
+    @EnableKafka
+    static class TestConfig {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private DeviceService deviceService;
+
+    @MockBean
+    private DeviceLivenessTracker livenessTracker;
+
+    @MockBean
+    private SensorDataRollupService rollupService;
+
+    @MockBean
+    private SensorTimeSeriesStore timeSeriesStore;
+
+    @MockBean
+    private SensorDataLatestCache latestCache;
+
+    @MockBean
+    private DeviceRegistryCache deviceRegistry;
+
+    @MockBean
+    private SensorTypeCatalog sensorTypeCatalog;
+
+    @MockBean
+    private LiveFeedService liveFeed;
+
+    @Test
+    void deadLettersOnlyTheReadingThatViolatesTheConstraint() throws Exception {
+        Device device = deviceRepository.save(Device.builder().name("Estação Ponta Negra").type("SENSOR")
+                .location("Natal").active(true).build());
+        // Dispositivo removido entre a consulta e a gravação: ainda resolvido, mas a FK falha
+        Device removed = Device.builder().id(device.getId() + 1_000).build();
+        when(deviceService.getDevicesByIds(anyCollection()))
+                .thenReturn(Map.of(device.getId(), device, removed.getId(), removed));
+
+        // Listener parado até as três mensagens estarem no tópico: chegam no mesmo poll (mesma chave e partição)
+        MessageListenerContainer container = listenerRegistry.getListenerContainer("sensor-data-consumer");
+        container.stop();
+        Map<String, Object> producerConfig = KafkaTestUtils.producerProps(broker);
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerConfig, new StringSerializer(), new StringSerializer())) {
+            for (long deviceId : List.of(device.getId(), removed.getId(), device.getId())) {
+                producer.send(new ProducerRecord<>("iot-sensor-data", "7",
+                        "{\"deviceId\":" + deviceId + ",\"sensorType\":\"UMIDADE\",\"value\":" + deviceId + "}"));
+            }
+        }
+
+        Map<String, Object> config = KafkaTestUtils.consumerProps("dlt-jpa-test", "false", broker);
+        config.put("auto.offset.reset", "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(config,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of("iot-sensor-data.DLT"));
+            container.start();
+
+            ConsumerRecords<String, String> deadLetters = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(20), 1);
+            assertEquals(1, deadLetters.count());
+            assertTrue(deadLetters.iterator().next().value().contains("\"deviceId\":" + removed.getId()));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (storedReadings() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, storedReadings());
+            assertTrue(KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1)).isEmpty());
+        }
+    }
+
+    private long storedReadings() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data", Long.class);
+    }
+}
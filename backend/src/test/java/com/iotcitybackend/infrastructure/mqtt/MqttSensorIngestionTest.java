@@ -0,0 +1,172 @@
+package com.iotcitybackend.infrastructure.mqtt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.service.DeviceService;
+import com.iotcitybackend.service.SensorDataService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.moquette.broker.Server;
+import io.moquette.broker.config.IConfig;
+import io.moquette.broker.config.MemoryConfig;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MqttSensorIngestionTest {
+
+    private final SensorDataService sensorDataService = mock(SensorDataService.class);
+    private final DeviceService deviceService = mock(DeviceService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SensorData> saved = Collections.synchronizedList(new ArrayList<>());
+
+    private Server broker;
+    private String brokerUrl;
+    private MqttSensorIngestion ingestion;
+    private MqttClient publisher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Properties properties = new Properties();
+        properties.setProperty(IConfig.HOST_PROPERTY_NAME, "127.0.0.1");
+        properties.setProperty(IConfig.PORT_PROPERTY_NAME, String.valueOf(port));
+        properties.setProperty(IConfig.ALLOW_ANONYMOUS_PROPERTY_NAME, "true");
+        properties.setProperty(IConfig.PERSISTENCE_ENABLED_PROPERTY_NAME, "false");
+        properties.setProperty(IConfig.ENABLE_TELEMETRY_NAME, "false");
+        broker = new Server();
+        broker.startServer(new MemoryConfig(properties));
+        brokerUrl = "tcp://127.0.0.1:" + port;
+
+        Device device = Device.builder().id(7L).name("Estação Ponta Negra").type("ESTACAO_METEOROLOGICA").active(true).build();
+        when(deviceService.getRegisteredDevice(7L)).thenReturn(Optional.of(device));
+
+        publisher = new MqttClient(brokerUrl, "sensor-7", new MemoryPersistence());
+        publisher.connect();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (ingestion != null) {
+            ingestion.stop();
+        }
+        publisher.disconnect();
+        publisher.close();
+        broker.stopServer();
+    }
+
+    private void startIngestion() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ingestion = new MqttSensorIngestion(sensorDataService, deviceService, objectMapper, meterRegistry,
+                brokerUrl, "iot-city-backend-test", "city/+/sensors/+", "", 1, "", "", 100, 50, 1000);
+        ingestion.start();
+        // A assinatura é feita de forma assíncrona após a conexão: aguarda a primeira leitura chegar
+        awaitTrue(() -> {
+            publish("city/7/sensors/MOVIMENTO", "1");
+            return waitFor(() -> !saved.isEmpty(), 200);
+        });
+        saved.clear();
+    }
+
+    private void publish(String topic, String payload) {
+        try {
+            publisher.publish(topic, payload.getBytes(StandardCharsets.UTF_8), 1, false);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        assertTrue(waitFor(condition, 10_000));
+    }
+
+    @Test
+    void decodesTopicAndPayloadAndSkipsInvalidReadings() throws Exception {
+        doAnswer(invocation -> {
+            List<SensorData> readings = invocation.getArgument(0);
+            saved.addAll(readings);
+            return readings.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+        startIngestion();
+
+        publish("city/7/sensors/TEMPERATURA", "{\"value\":25.5,\"unit\":\"CELSIUS\",\"timestamp\":\"2026-03-15T10:00:00\"}");
+        publish("city/7/sensors/LUZ", "300");
+        publish("city/7/sensors/PRESSAO", "{\"value\":1013}");
+        publish("city/99/sensors/LUZ", "10");
+        publish("city/abc/sensors/LUZ", "10");
+        publish("city/7/sensors/UMIDADE", "{\"value\":");
+
+        awaitTrue(() -> saved.size() == 2);
+        SensorData temperature = saved.get(0);
+        assertEquals(7L, temperature.getDevice().getId());
+        assertEquals("TEMPERATURA", temperature.getSensorType());
+        assertEquals(25.5, temperature.getValue());
+        assertEquals("CELSIUS", temperature.getUnit());
+        assertEquals(LocalDateTime.of(2026, 3, 15, 10, 0), temperature.getTimestamp());
+        assertEquals("LUZ", saved.get(1).getSensorType());
+        assertEquals(300.0, saved.get(1).getValue());
+
+        awaitTrue(() -> meterRegistry.find("iot.mqtt.rejected").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum() == 4);
+    }
+
+    @Test
+    void readingsFromFailedBatchAreRedeliveredAndPersistedOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<SensorData> readings = invocation.getArgument(0);
+            // A primeira gravação da leitura 42 falha (o commit não aconteceu)
+            if (readings.stream().anyMatch(data -> data.getValue() == 42.0) && calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("banco indisponível");
+            }
+            saved.addAll(readings);
+            return readings.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+        startIngestion();
+
+        publish("city/7/sensors/TEMPERATURA", "42");
+
+        awaitTrue(() -> saved.stream().anyMatch(data -> data.getValue() == 42.0));
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.counter("iot.mqtt.failed.batches").count());
+        Thread.sleep(300);
+        assertEquals(1, saved.stream().filter(data -> data.getValue() == 42.0).count());
+    }
+}
@@ -0,0 +1,121 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataRow;
+import com.iotcitybackend.service.IngestInstanceRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorTimeSeriesStoreTest {
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @TempDir
+    Path directory;
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private IngestInstanceRegistry instances;
+    private Runnable duringLoad = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:tsdb-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE ingest_instance (instance_id VARCHAR(64) PRIMARY KEY, heartbeat_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sensor_data (id BIGINT PRIMARY KEY, device_id BIGINT, sensor_type VARCHAR(50), " +
+                "sensor_value DOUBLE PRECISION, unit VARCHAR(20), timestamp TIMESTAMP, latitude DOUBLE PRECISION, " +
+                "longitude DOUBLE PRECISION)");
+        jdbcTemplate.update("INSERT INTO sensor_data VALUES (1, 7, 'TEMPERATURA', 20.0, 'CELSIUS', ?, NULL, NULL)", now.minusMinutes(3));
+        jdbcTemplate.update("INSERT INTO sensor_data VALUES (2, 7, 'TEMPERATURA', 21.0, 'CELSIUS', ?, NULL, NULL)", now.minusMinutes(2));
+        instances = new IngestInstanceRegistry(jdbcTemplate, 100);
+        instances.afterSingletonsInstantiated();
+    }
+
+    private SensorTimeSeriesStore newStore() {
+        // A carga inicial chama duringLoad antes de ler: simula leituras confirmadas enquanto ela roda
+        JdbcTemplate loadingTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(PreparedStatementCreator creator, RowCallbackHandler handler) throws DataAccessException {
+                duringLoad.run();
+                super.query(creator, handler);
+            }
+        };
+        SensorTimeSeriesStore store = new SensorTimeSeriesStore(loadingTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), new SimpleMeterRegistry(), instances);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "hotWindowHours", 1);
+        ReflectionTestUtils.setField(store, "blockPoints", 64);
+        ReflectionTestUtils.setField(store, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(store, "fetchSize", 100);
+        return store;
+    }
+
+    private SensorData reading(long id, double value, LocalDateTime timestamp) {
+        return SensorData.builder().id(id).device(Device.builder().id(7L).build()).sensorType("TEMPERATURA")
+                .value(value).unit("CELSIUS").timestamp(timestamp).build();
+    }
+
+    @Test
+    void mergesReadingsCommittedDuringLoadWithoutDuplicates() {
+        SensorTimeSeriesStore store = newStore();
+        duringLoad = () -> {
+            // Confirmada antes da consulta (vem da carga e do buffer) e confirmada depois dela (só no buffer)
+            store.record(List.of(reading(2L, 21.0, now.minusMinutes(2))));
+            store.record(List.of(reading(3L, 22.0, now.minusMinutes(1))));
+        };
+        store.afterSingletonsInstantiated();
+
+        assertTrue(store.covers(now.minusMinutes(30)));
+        assertEquals(List.of(3L, 2L, 1L), store.findRows("TEMPERATURA", 7L, now.minusMinutes(30), null, null, 0).stream()
+                .map(SensorDataRow::id).toList());
+    }
+
+    @Test
+    void stopsCoveringOnceAnotherInstanceIsRunning() {
+        SensorTimeSeriesStore store = newStore();
+        store.afterSingletonsInstantiated();
+        assertTrue(store.covers(now.minusMinutes(30)));
+
+        IngestInstanceRegistry other = new IngestInstanceRegistry(jdbcTemplate, 100);
+        other.afterSingletonsInstantiated();
+        instances.refresh();
+        assertFalse(store.covers(now.minusMinutes(30)));
+
+        // A outra instância gravou leituras que o store não viu: não volta a cobrir quando ela sai
+        jdbcTemplate.update("DELETE FROM ingest_instance WHERE instance_id = ?", other.getInstanceId());
+        instances.refresh();
+        assertFalse(store.covers(now.minusMinutes(30)));
+    }
+
+    @Test
+    void staysDisabledWhenStartedNextToAnotherInstance() {
+        // Outra instância renovando o heartbeat durante todo o teste
+        jdbcTemplate.update("INSERT INTO ingest_instance VALUES ('outra', ?)", now.plusHours(1));
+        SensorTimeSeriesStore store = newStore();
+        store.afterSingletonsInstantiated();
+
+        assertFalse(store.covers(now.minusMinutes(30)));
+        store.record(List.of(reading(3L, 22.0, now.minusMinutes(1))));
+    }
+}
@@ -0,0 +1,186 @@
+package com.iotcitybackend.infrastructure.timeseries;
+
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeSeriesEngineTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 3, 15, 0, 0);
+    private static final String[] TYPES = {"TEMPERATURA", "UMIDADE", "RUÍDO"};
+    private static final Comparator<SensorDataRow> NEWEST_FIRST = Comparator
+            .comparing(SensorDataRow::timestamp).thenComparing(SensorDataRow::id).reversed();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void codecRoundTripsIrregularSeries() {
+        SplittableRandom random = new SplittableRandom(7);
+        int count = 5_000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        GorillaCodec.DeltaOfDeltaEncoder timestampEncoder = new GorillaCodec.DeltaOfDeltaEncoder();
+        GorillaCodec.XorEncoder valueEncoder = new GorillaCodec.XorEncoder();
+        long timestamp = 1_700_000_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            // Intervalos regulares, com jitter, saltos grandes e recuos (fora de ordem)
+            timestamp += switch (random.nextInt(4)) {
+                case 0 -> 60_000_000L;
+                case 1 -> 60_000_000L + random.nextInt(-500, 500);
+                case 2 -> random.nextLong(-5_000_000_000L, 5_000_000_000L);
+                default -> random.nextLong(Long.MAX_VALUE >> 20);
+            };
+            timestamps[i] = timestamp;
+            values[i] = switch (random.nextInt(4)) {
+                case 0 -> i > 0 ? values[i - 1] : 0.0;
+                case 1 -> Math.round(random.nextDouble(-40, 60) * 100) / 100.0;
+                case 2 -> Double.NaN;
+                default -> random.nextDouble() * Double.MAX_VALUE * (random.nextBoolean() ? 1 : -1);
+            };
+            timestampEncoder.add(timestamps[i]);
+            valueEncoder.add(values[i]);
+        }
+
+        byte[] timestampBytes = timestampEncoder.toByteArray();
+        long[] decodedTimestamps = new long[count];
+        GorillaCodec.decodeDeltaOfDelta(new BitInput(ByteBuffer.wrap(timestampBytes), 0, timestampBytes.length), decodedTimestamps, count);
+        assertArrayEquals(timestamps, decodedTimestamps);
+
+        byte[] valueBytes = valueEncoder.toByteArray();
+        double[] decodedValues = new double[count];
+        GorillaCodec.decodeXor(new BitInput(ByteBuffer.wrap(valueBytes), 0, valueBytes.length), decodedValues, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decodedValues[i]), "valor " + i);
+        }
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        TimeSeriesEngine engine = new TimeSeriesEngine(directory, 64, 4096);
+        List<SensorDataRow> all = load(engine, 3_000);
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 200; i++) {
+            String type = random.nextInt(4) == 0 ? null : TYPES[random.nextInt(TYPES.length)];
+            Long deviceId = random.nextBoolean() ? null : (long) random.nextInt(1, 6);
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(0, 3_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(0, 1_500));
+            List<SensorDataRow> expected = filter(all, type, deviceId, start, end);
+
+            assertEquals(expected, engine.findRows(type, deviceId, start, end, null, 0));
+
+            int limit = random.nextInt(1, 50);
+            assertEquals(expected.subList(0, Math.min(limit, expected.size())),
+                    engine.findRows(type, deviceId, start, end, null, limit));
+
+            if (!expected.isEmpty()) {
+                SensorDataRow middle = expected.get(expected.size() / 2);
+                SensorDataCursor after = new SensorDataCursor(middle.timestamp(), middle.id());
+                List<SensorDataRow> rest = expected.subList(expected.size() / 2 + 1, expected.size());
+                assertEquals(rest.subList(0, Math.min(limit, rest.size())),
+                        engine.findRows(type, deviceId, start, end, after, limit));
+            }
+
+            if (type != null) {
+                SensorDataAggregate aggregate = engine.aggregate(type, deviceId, start, end);
+                assertEquals(expected.size(), aggregate.count());
+                if (!expected.isEmpty()) {
+                    double sum = expected.stream().mapToDouble(SensorDataRow::value).sum();
+                    assertEquals(sum / expected.size(), aggregate.mean(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void evictionAndDeviceRemovalReleaseSegments() throws Exception {
+        TimeSeriesEngine engine = new TimeSeriesEngine(directory, 64, 4096);
+        List<SensorDataRow> all = load(engine, 3_000);
+        long segmentsBefore = countSegments();
+
+        LocalDateTime cutoff = BASE.plusMinutes(2_000);
+        engine.evictBefore(cutoff);
+        // Leituras a partir do corte continuam todas disponíveis
+        assertEquals(filter(all, null, null, cutoff, null), engine.findRows(null, null, cutoff, null, null, 0));
+        long segmentsAfter = countSegments();
+        assertTrue(segmentsAfter < segmentsBefore, segmentsAfter + " < " + segmentsBefore);
+
+        engine.removeDevice(3L);
+        assertEquals(List.of(), engine.findRows(null, 3L, null, null, null, 0));
+        engine.append(3L, "TEMPERATURA", 1_000_000L, BASE.plusMinutes(5_000), 21.5, "CELSIUS", null, null);
+        SensorDataRow appended = engine.findRows("TEMPERATURA", 3L, null, null, null, 0).get(0);
+        assertEquals(21.5, appended.value());
+        assertNull(appended.latitude());
+    }
+
+    @Test
+    void containsMatchesIdAndTimestampInSealedAndOpenBlocks() {
+        TimeSeriesEngine engine = new TimeSeriesEngine(directory, 64, 4096);
+        List<SensorDataRow> all = load(engine, 500);
+        // Primeira leitura (bloco selado) e última (bloco aberto) de uma série
+        List<SensorDataRow> series = filter(all, "UMIDADE", 2L, null, null);
+        for (SensorDataRow row : List.of(series.get(series.size() - 1), series.get(0))) {
+            assertTrue(engine.contains(2L, "UMIDADE", row.id(), row.timestamp()));
+            assertFalse(engine.contains(2L, "UMIDADE", row.id() + 100_000, row.timestamp()));
+            assertFalse(engine.contains(2L, "UMIDADE", row.id(), row.timestamp().plusNanos(1_000)));
+            assertFalse(engine.contains(2L, "RUÍDO_INEXISTENTE", row.id(), row.timestamp()));
+        }
+    }
+
+    private List<SensorDataRow> load(TimeSeriesEngine engine, int minutes) {
+        SplittableRandom random = new SplittableRandom(3);
+        List<SensorDataRow> all = new ArrayList<>();
+        long id = 1;
+        for (int minute = 0; minute < minutes; minute++) {
+            for (int reading = 0; reading < 3; reading++) {
+                long deviceId = random.nextInt(1, 6);
+                String type = TYPES[random.nextInt(TYPES.length)];
+                // Timestamps com microssegundos e leituras repetidas no mesmo instante
+                LocalDateTime timestamp = BASE.plusMinutes(minute).plusNanos(random.nextInt(0, 3) * 250_000_000L + 1_000);
+                double value = Math.round(random.nextDouble(0, 100) * 100) / 100.0;
+                String unit = random.nextInt(20) == 0 ? "PPM" : "CELSIUS";
+                Double latitude = random.nextBoolean() ? -5.79 + random.nextDouble(0, 0.01) : null;
+                Double longitude = latitude != null ? -35.2 : null;
+                engine.append(deviceId, type, id, timestamp, value, unit, latitude, longitude);
+                all.add(new SensorDataRow(id++, deviceId, type, value, unit, timestamp, latitude, longitude));
+            }
+        }
+        all.sort(NEWEST_FIRST);
+        return all;
+    }
+
+    private static List<SensorDataRow> filter(List<SensorDataRow> rows, String type, Long deviceId,
+                                              LocalDateTime start, LocalDateTime end) {
+        return rows.stream()
+                .filter(row -> type == null || row.sensorType().equals(type))
+                .filter(row -> deviceId == null || row.deviceId().equals(deviceId))
+                .filter(row -> start == null || !row.timestamp().isBefore(start))
+                .filter(row -> end == null || !row.timestamp().isAfter(end))
+                .toList();
+    }
+
+    private long countSegments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
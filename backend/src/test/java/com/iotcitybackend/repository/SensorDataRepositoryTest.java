@@ -0,0 +1,83 @@
+package com.iotcitybackend.repository;
+
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Repositório de leituras contra o JPA real (H2)
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=10"
+})
+class SensorDataRepositoryTest {
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 3, 15, 10, 0);
+
+    @Autowired
+    private SensorDataRepository sensorDataRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private SensorTimeSeriesStore timeSeriesStore;
+
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        device = deviceRepository.save(Device.builder().name("Estação Ponta Negra").type("SENSOR")
+                .location("Natal").active(true).build());
+    }
+
+    private SensorData reading(double value, LocalDateTime timestamp) {
+        return SensorData.builder().device(device).sensorType("TEMPERATURA").value(value).unit("CELSIUS")
+                .timestamp(timestamp).build();
+    }
+
+    @Test
+    void insertBatchDetachesOnlyTheInsertedReadings() {
+        Device other = deviceRepository.save(Device.builder().name("Estação Lagoa Nova").type("SENSOR")
+                .location("Natal").active(true).build());
+        List<SensorData> readings = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            readings.add(reading(20.0 + i, base.plusSeconds(i)));
+        }
+
+        assertEquals(25, sensorDataRepository.insertBatch(readings));
+
+        assertTrue(readings.stream().allMatch(data -> data.getId() != null && !entityManager.contains(data)));
+        // Entidades do chamador seguem gerenciadas: a alteração é gravada no flush da transação
+        assertTrue(entityManager.contains(device));
+        assertTrue(entityManager.contains(other));
+        other.setBatteryLevel(42);
+        entityManager.flush();
+        assertEquals(42, jdbcTemplate.queryForObject("SELECT battery_level FROM devices WHERE id = ?", Integer.class, other.getId()));
+        assertEquals(25, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data", Long.class));
+    }
+}
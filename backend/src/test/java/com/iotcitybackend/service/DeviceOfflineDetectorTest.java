@@ -0,0 +1,94 @@
+package com.iotcitybackend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceOfflineDetectorTest {
+
+    private final List<DeviceConnectivityEvent> events = new CopyOnWriteArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private DeviceOfflineDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:offline-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE devices (id BIGINT PRIMARY KEY, last_seen TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO devices VALUES (1, ?)", LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO devices VALUES (2, ?)", LocalDateTime.now().minusHours(2));
+        jdbcTemplate.update("INSERT INTO devices VALUES (3, NULL)");
+        detector = new DeviceOfflineDetector(jdbcTemplate, event -> events.add((DeviceConnectivityEvent) event),
+                new SimpleMeterRegistry(), 1);
+        detector.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.stop();
+    }
+
+    private void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (events.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, events.size());
+    }
+
+    @Test
+    void firesOfflineWhenDeadlineExpiresAndOnlineWhenSeenAgain() throws InterruptedException {
+        // Carga inicial: vencidos entram offline sem evento, nunca vistos não contam
+        assertEquals(Set.of(2L), detector.getOfflineDeviceIds());
+        assertTrue(events.isEmpty());
+
+        detector.track(4L, LocalDateTime.now().minusSeconds(59).minusNanos(700_000_000));
+        detector.track(5L, LocalDateTime.now().minusSeconds(59).minusNanos(700_000_000));
+        // Heartbeat reagenda o dispositivo 5 sem nova entrada na fila
+        detector.onSeen(5L, LocalDateTime.now());
+        awaitEvents(1);
+        assertEquals(new DeviceConnectivityEvent(4L, false, events.get(0).lastSeen()), events.get(0));
+        assertEquals(Set.of(2L, 4L), detector.getOfflineDeviceIds());
+
+        detector.onSeen(4L, LocalDateTime.now());
+        awaitEvents(2);
+        assertTrue(events.get(1).online());
+        assertEquals(1, detector.getOfflineCount());
+        assertFalse(detector.isOffline(5L));
+    }
+
+    @Test
+    void timeoutChangeRecomputesDeadlinesWithoutReload() throws InterruptedException {
+        detector.setOfflineTimeoutMinutes(180);
+        awaitEvents(1);
+        assertEquals(new DeviceConnectivityEvent(2L, true, events.get(0).lastSeen()), events.get(0));
+        assertEquals(0, detector.getOfflineCount());
+
+        detector.track(4L, LocalDateTime.now().minusMinutes(10));
+        detector.setOfflineTimeoutMinutes(5);
+        awaitEvents(3);
+        assertEquals(Set.of(2L, 4L), detector.getOfflineDeviceIds());
+    }
+
+    @Test
+    void resyncAppliesExternalChangesAndForgetsDeletedDevices() {
+        jdbcTemplate.update("UPDATE devices SET last_seen = ? WHERE id = 2", LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO devices VALUES (6, ?)", LocalDateTime.now().minusHours(1));
+        jdbcTemplate.update("DELETE FROM devices WHERE id = 1");
+        assertEquals(3, detector.resync());
+        assertEquals(Set.of(6L), detector.getOfflineDeviceIds());
+        assertEquals(0, detector.resync());
+
+        detector.forget(6L);
+        assertEquals(0, detector.getOfflineCount());
+    }
+}
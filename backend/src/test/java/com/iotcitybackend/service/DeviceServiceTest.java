@@ -0,0 +1,70 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.DeviceRepository;
+import com.iotcitybackend.repository.SensorDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DeviceServiceTest {
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private final DeviceRegistryCache deviceRegistry = mock(DeviceRegistryCache.class);
+    private DeviceLivenessTracker livenessTracker;
+    private DeviceService service;
+
+    @BeforeEach
+    void setUp() {
+        // Tracker real sem flush: os heartbeats ficam só em memória, como entre dois ciclos de gravação
+        livenessTracker = new DeviceLivenessTracker(mock(SensorDataRepository.class), mock(DeviceStatsCounters.class),
+                mock(DeviceOfflineDetector.class));
+        service = new DeviceService(deviceRepository, deviceRegistry, livenessTracker, mock(SensorTimeSeriesStore.class),
+                mock(SensorDataLatestCache.class), mock(SensorTypeCatalog.class), mock(DeviceStatsCounters.class),
+                mock(DeviceOfflineDetector.class), mock(LiveFeedService.class));
+    }
+
+    private Device device(long id, Integer batteryLevel) {
+        return Device.builder().id(id).name("Sensor " + id).type("SENSOR").location("Natal").active(true)
+                .lastSeen(now.minusMinutes(10)).batteryLevel(batteryLevel).signalStrength(-70).build();
+    }
+
+    @Test
+    void readsOverlayLivenessNotYetWritten() {
+        Device stored = device(1L, 80);
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(deviceRepository.findAll()).thenReturn(List.of(stored, device(2L, 60)));
+        livenessTracker.recordHeartbeat(1L, now, 55, -60);
+
+        Device device = service.getDeviceById(1L).orElseThrow();
+        assertEquals(now, device.getLastSeen());
+        assertEquals(55, device.getBatteryLevel());
+        assertEquals(-60, device.getSignalStrength());
+        // Cópia: a entidade do repositório não é alterada
+        assertEquals(80, stored.getBatteryLevel());
+
+        assertEquals(List.of(55, 60), service.getAllDevices().stream().map(Device::getBatteryLevel).toList());
+    }
+
+    @Test
+    void lowBatteryFollowsTheMostRecentHeartbeat() {
+        // 1: baixa no banco e recuperada em memória; 2: baixa no banco; 3: baixa só em memória
+        when(deviceRepository.findDevicesWithLowBattery()).thenReturn(List.of(device(1L, 10), device(2L, 15)));
+        when(deviceRegistry.getAll(Set.of(3L))).thenReturn(Map.of(3L, device(3L, 90)));
+        livenessTracker.recordHeartbeat(1L, now, 95, null);
+        livenessTracker.recordHeartbeat(3L, now, 5, null);
+
+        assertEquals(List.of(2L, 3L), service.getDevicesWithLowBattery().stream().map(Device::getId).toList());
+    }
+}
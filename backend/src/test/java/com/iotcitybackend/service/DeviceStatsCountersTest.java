@@ -0,0 +1,90 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.dto.DeviceStatsDTO;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DeviceStatsCountersTest {
+
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private final DeviceOfflineDetector offlineDetector = mock(DeviceOfflineDetector.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private DeviceStatsCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:stats-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE devices (id BIGINT PRIMARY KEY, active BOOLEAN, battery_level INT, last_seen TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO devices VALUES (1, TRUE, 80, ?)", LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO devices VALUES (2, FALSE, 10, ?)", LocalDateTime.now().minusHours(2));
+        jdbcTemplate.update("INSERT INTO devices VALUES (3, TRUE, NULL, NULL)");
+        when(offlineDetector.getOfflineTimeout()).thenReturn(Duration.ofMinutes(30));
+        when(offlineDetector.getOfflineCount()).thenReturn(1L);
+        counters = new DeviceStatsCounters(deviceRepository, jdbcTemplate, offlineDetector, meterRegistry);
+        counters.afterSingletonsInstantiated();
+    }
+
+    private void assertStats(long total, long active, long offline, long lowBattery) {
+        DeviceStatsDTO stats = counters.snapshot();
+        assertEquals(total, stats.getTotalDevices());
+        assertEquals(active, stats.getActiveDevices());
+        assertEquals(offline, stats.getOfflineDevices());
+        assertEquals(lowBattery, stats.getLowBatteryDevices());
+    }
+
+    @Test
+    void maintainsCountersFromMutationsAndHeartbeats() {
+        assertStats(3, 2, 1, 1);
+
+        counters.onCreated(Device.builder().id(4L).active(true).batteryLevel(5).lastSeen(LocalDateTime.now()).build());
+        assertStats(4, 3, 1, 2);
+
+        counters.onBatteryLevel(2L, 90);
+        assertStats(4, 3, 1, 1);
+
+        counters.onActiveChanged(1L, false);
+        counters.onActiveChanged(1L, false);
+        assertStats(4, 2, 1, 1);
+
+        counters.onDeleted(4L);
+        counters.onDeleted(4L);
+        assertStats(3, 1, 1, 0);
+    }
+
+    @Test
+    void reconcileReloadsOnlyWhenCountsDiverge() {
+        when(deviceRepository.count()).thenReturn(3L);
+        when(deviceRepository.countByActiveTrue()).thenReturn(2L);
+        when(deviceRepository.countNotSeenSince(any())).thenReturn(1L);
+        when(deviceRepository.countWithLowBattery()).thenReturn(1L);
+        counters.reconcile();
+        assertEquals(0, meterRegistry.counter("iot.devices.stats.drift").count());
+
+        // Dispositivo inserido fora do DeviceService
+        jdbcTemplate.update("INSERT INTO devices VALUES (5, TRUE, 15, ?)", LocalDateTime.now());
+        when(deviceRepository.count()).thenReturn(4L);
+        counters.reconcile();
+        assertStats(4, 3, 1, 2);
+        assertEquals(1, meterRegistry.counter("iot.devices.stats.drift").count());
+
+        // Bateria ainda não gravada no banco: recarga mantém o estado em memória e não conta divergência
+        counters.onBatteryLevel(2L, 90);
+        counters.reconcile();
+        assertStats(4, 3, 1, 1);
+        assertEquals(1, meterRegistry.counter("iot.devices.stats.drift").count());
+        verify(offlineDetector, times(2)).resync();
+    }
+}
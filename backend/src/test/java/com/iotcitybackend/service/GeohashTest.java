@@ -0,0 +1,40 @@
+package com.iotcitybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeohashTest {
+
+    @Test
+    void encodesKnownGeohashes() {
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        // Prefixos: reduzir a precisão só agrupa células vizinhas
+        assertEquals("u4pru", Geohash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    void boundsContainEncodedPoint() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            // Região de Natal/RN
+            double latitude = random.nextDouble(-5.90, -5.70);
+            double longitude = random.nextDouble(-35.30, -35.15);
+            int precision = random.nextInt(Geohash.MIN_PRECISION, Geohash.MAX_PRECISION + 1);
+            double[] bounds = Geohash.bounds(Geohash.encode(latitude, longitude, precision));
+            assertTrue(bounds[0] <= latitude && latitude <= bounds[2], "latitude " + latitude);
+            assertTrue(bounds[1] <= longitude && longitude <= bounds[3], "longitude " + longitude);
+        }
+    }
+
+    @Test
+    void rejectsInvalidPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, 13));
+    }
+}
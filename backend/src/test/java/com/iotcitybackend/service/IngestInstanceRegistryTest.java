@@ -0,0 +1,48 @@
+package com.iotcitybackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestInstanceRegistryTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:instances-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE ingest_instance (instance_id VARCHAR(64) PRIMARY KEY, heartbeat_at TIMESTAMP NOT NULL)");
+    }
+
+    @Test
+    void countsLiveInstancesAndForgetsUnregisteredOnes() {
+        IngestInstanceRegistry first = new IngestInstanceRegistry(jdbcTemplate, 1_000);
+        IngestInstanceRegistry second = new IngestInstanceRegistry(jdbcTemplate, 1_000);
+        first.afterSingletonsInstantiated();
+        assertEquals(1, first.getLiveInstances());
+
+        second.afterSingletonsInstantiated();
+        assertEquals(2, second.getLiveInstances());
+        assertEquals(2, first.refresh());
+
+        second.unregister();
+        assertEquals(1, first.refresh());
+    }
+
+    @Test
+    void waitsForHeartbeatsOfDeadInstancesToExpire() throws InterruptedException {
+        // Instância que caiu sem se remover: ainda conta como viva por três intervalos
+        jdbcTemplate.update("INSERT INTO ingest_instance VALUES ('anterior', ?)", LocalDateTime.now());
+        IngestInstanceRegistry registry = new IngestInstanceRegistry(jdbcTemplate, 100);
+
+        assertFalse(registry.awaitSoleInstance(50));
+        assertEquals(2, registry.getLiveInstances());
+        assertTrue(registry.awaitSoleInstance(2_000));
+        assertEquals(1, registry.getLiveInstances());
+    }
+}
@@ -0,0 +1,160 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.controller.GlobalExceptionHandler;
+import com.iotcitybackend.controller.LiveFeedController;
+import com.iotcitybackend.dto.DeviceStatsDTO;
+import com.iotcitybackend.exception.LiveFeedFullException;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LiveFeedServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 15, 10, 0);
+
+    private final DeviceRegistryCache deviceRegistry = mock(DeviceRegistryCache.class);
+    private final DeviceStatsCounters statsCounters = mock(DeviceStatsCounters.class);
+    private LiveFeedService feed;
+    private MockMvc mvc;
+
+    private void createFeed(int maxClients, int maxPending) {
+        when(statsCounters.snapshot()).thenReturn(new DeviceStatsDTO(2, 2, 0, 0));
+        feed = new LiveFeedService(deviceRegistry, statsCounters, new SimpleMeterRegistry(),
+                maxClients, maxPending, 60_000, 10_000, 20_000, 1);
+        mvc = MockMvcBuilders.standaloneSetup(new LiveFeedController(feed))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    private Device device(long id, String type, String location, int batteryLevel) {
+        return Device.builder().id(id).name("d" + id).type(type).location(location).active(true)
+                .batteryLevel(batteryLevel).lastSeen(NOW).build();
+    }
+
+    private MockHttpServletResponse subscribe(String type, String location) throws Exception {
+        return mvc.perform(get("/api/live/stream").param("type", type).param("location", location))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private String flushAndRead(MockHttpServletResponse response, String expected) throws Exception {
+        feed.flush();
+        long deadline = System.currentTimeMillis() + 5_000;
+        // Cada evento é escrito em partes: aguarda a linha em branco que o encerra
+        while (!(response.getContentAsString().contains(expected) && response.getContentAsString().endsWith("\n\n"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return response.getContentAsString();
+    }
+
+    @Test
+    void coalescesPendingChangesPerKeyAndAppliesFilters() throws Exception {
+        createFeed(10, 100);
+        Device light = device(1L, "ILUMINACAO_PUBLICA", "Avenida Hermes da Fonseca, Petrópolis", 80);
+        when(deviceRegistry.get(1L)).thenReturn(Optional.of(light));
+        MockHttpServletResponse response = subscribe("ILUMINACAO_PUBLICA", "petrópolis");
+
+        feed.publishDevice(light);
+        feed.publishDevice(device(1L, "ILUMINACAO_PUBLICA", "Avenida Hermes da Fonseca, Petrópolis", 15));
+        feed.publishDevice(device(2L, "SEMÁFORO", "Petrópolis", 50));
+        feed.publishDevice(device(3L, "ILUMINACAO_PUBLICA", "Ponta Negra", 50));
+        feed.recordReadings(List.of(
+                SensorData.builder().device(light).sensorType("LUZ").value(10.0).timestamp(NOW).build(),
+                SensorData.builder().device(light).sensorType("LUZ").value(12.0).timestamp(NOW.plusSeconds(1)).build()));
+        feed.onConnectivity(new DeviceConnectivityEvent(1L, false, NOW));
+
+        String content = flushAndRead(response, "event:delta");
+        assertEquals(1, content.split("event:delta").length - 1);
+        assertTrue(content.contains("\"batteryLevel\":15"));
+        assertFalse(content.contains("\"batteryLevel\":80"));
+        assertFalse(content.contains("\"id\":2"));
+        assertFalse(content.contains("\"id\":3"));
+        assertTrue(content.contains("\"value\":12.0"));
+        assertFalse(content.contains("\"value\":10.0"));
+        assertTrue(content.contains("\"connectivity\":[{\"deviceId\":1,\"online\":false"));
+        assertTrue(content.contains("\"stats\":{\"totalDevices\":2"));
+
+        feed.publishDeviceRemoved(light);
+        assertTrue(flushAndRead(response, "removedDevices").contains("\"removedDevices\":[1]"));
+    }
+
+    @Test
+    void slowClientReceivesResyncInsteadOfUnboundedBacklog() throws Exception {
+        createFeed(10, 2);
+        MockHttpServletResponse response = subscribe(null, null);
+        for (long id = 1; id <= 5; id++) {
+            feed.publishDevice(device(id, "LIXEIRA", "Centro", 50));
+        }
+        // Pendências descartadas: apenas resync e o que chegou depois do descarte (contadores)
+        String content = flushAndRead(response, "event:delta");
+        assertTrue(content.indexOf("event:resync") >= 0 && content.indexOf("event:resync") < content.indexOf("event:delta"));
+        assertFalse(content.contains("\"devices\""));
+    }
+
+    @Test
+    void rejectsClientsAboveLimit() throws Exception {
+        createFeed(1, 100);
+        subscribe(null, null);
+        mvc.perform(get("/api/live/stream")).andExpect(status().isServiceUnavailable());
+        assertEquals(1, feed.getClientCount());
+    }
+
+    @Test
+    void concurrentSubscribesDoNotExceedLimit() throws Exception {
+        createFeed(10, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        feed.subscribe(null, null);
+                        accepted.incrementAndGet();
+                    } catch (LiveFeedFullException e) {
+                        // acima do limite
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(10, accepted.get());
+        assertEquals(10, feed.getClientCount());
+    }
+}
@@ -0,0 +1,65 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataRepository;
+import com.iotcitybackend.repository.SensorDataRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SensorDataLatestCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 15, 10, 0);
+
+    private final SensorDataRepository repository = mock(SensorDataRepository.class);
+    private final SensorDataLatestCache cache = new SensorDataLatestCache(repository, new SimpleMeterRegistry());
+
+    private SensorData reading(long id, String sensorType, LocalDateTime timestamp) {
+        return SensorData.builder()
+                .id(id)
+                .device(Device.builder().id(1L).build())
+                .sensorType(sensorType)
+                .value(21.0)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    @Test
+    void combinesDatabaseLatestWithIngestedReadingsAndQueriesOnce() {
+        when(repository.findLatestRowByDeviceId(1L)).thenReturn(Optional.of(
+                new SensorDataRow(10L, 1L, "UMIDADE", 50.0, null, NOW.minusMinutes(5), null, null)));
+        // Recebida antes da primeira consulta, mas mais antiga que a do banco
+        cache.record(List.of(reading(20L, "LUZ", NOW.minusHours(1))));
+
+        assertEquals(10L, cache.getLatest(1L).orElseThrow().id());
+
+        cache.record(List.of(reading(21L, "TEMPERATURA", NOW)));
+        assertEquals(21L, cache.getLatest(1L).orElseThrow().id());
+
+        // Leitura fora de ordem não substitui a mais recente
+        cache.record(List.of(reading(22L, "TEMPERATURA", NOW.minusDays(1))));
+        assertEquals(21L, cache.getLatest(1L).orElseThrow().id());
+
+        verify(repository, times(1)).findLatestRowByDeviceId(1L);
+    }
+
+    @Test
+    void remembersDevicesWithoutReadings() {
+        when(repository.findLatestRowByDeviceId(2L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.getLatest(2L).isEmpty());
+        assertTrue(cache.getLatest(2L).isEmpty());
+        verify(repository, times(1)).findLatestRowByDeviceId(2L);
+
+        cache.evict(2L);
+        cache.getLatest(2L);
+        verify(repository, times(2)).findLatestRowByDeviceId(2L);
+    }
+}
@@ -0,0 +1,145 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.DeviceRepository;
+import com.iotcitybackend.repository.SensorDataCursor;
+import com.iotcitybackend.repository.SensorDataRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Paginação keyset de GET /api/sensor-data contra o repositório JPA real (H2), com o cursor passando pela
+ * forma codificada entre as páginas como faz o cabeçalho X-Next-Cursor
+ */
+@DataJpaTest
+@Import(SensorDataService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "sensor.query.max-page-size=3"
+})
+class SensorDataPagingJpaTest {
+
+    private final LocalDateTime base = LocalDateTime.of(2024, 3, 15, 10, 0);
+
+    @Autowired
+    private SensorDataService sensorDataService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private DeviceLivenessTracker livenessTracker;
+
+    @MockBean
+    private SensorDataRollupService rollupService;
+
+    @MockBean
+    private SensorTimeSeriesStore timeSeriesStore;
+
+    @MockBean
+    private SensorDataLatestCache latestCache;
+
+    @MockBean
+    private DeviceRegistryCache deviceRegistry;
+
+    @MockBean
+    private SensorTypeCatalog sensorTypeCatalog;
+
+    @MockBean
+    private LiveFeedService liveFeed;
+
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM sensor_data");
+        device = deviceRepository.save(Device.builder().name("Estação Ponta Negra").type("SENSOR")
+                .location("Natal").active(true).build());
+    }
+
+    /**
+     * Grava uma leitura por deslocamento em minutos; deslocamentos repetidos empatam no timestamp
+     */
+    private List<Long> save(int... minutes) {
+        List<SensorData> readings = new ArrayList<>();
+        for (int minute : minutes) {
+            readings.add(SensorData.builder().device(device).sensorType("TEMPERATURA").value(20.0 + minute)
+                    .unit("CELSIUS").timestamp(base.plusMinutes(minute)).build());
+        }
+        sensorDataService.saveSensorDataBatch(readings);
+        return readings.stream()
+                .sorted(Comparator.comparing(SensorData::getTimestamp).thenComparing(SensorData::getId).reversed())
+                .map(SensorData::getId)
+                .toList();
+    }
+
+    /**
+     * Percorre todas as páginas, codificando e decodificando o cursor entre elas. Retorna os ids por página
+     */
+    private List<List<Long>> walk(Integer limit) {
+        List<List<Long>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            SensorDataPage page = sensorDataService.findSensorDataPage("TEMPERATURA", device.getId(), null, null,
+                    cursor != null ? SensorDataCursor.decode(cursor) : null, limit);
+            pages.add(page.items().stream().map(SensorDataRow::id).toList());
+            cursor = page.nextCursor() != null ? page.nextCursor().encode() : null;
+        } while (cursor != null && pages.size() < 10);
+        return pages;
+    }
+
+    @Test
+    void pagesThroughTimestampTiesWithoutSkippingOrRepeating() {
+        // Cinco leituras no mesmo minuto: o corte de página cai no meio do empate
+        List<Long> expected = save(0, 1, 1, 1, 1, 1, 2);
+
+        List<List<Long>> pages = walk(2);
+
+        assertEquals(List.of(2, 2, 2, 1), pages.stream().map(List::size).toList());
+        assertEquals(expected, pages.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() {
+        List<Long> expected = save(0, 0, 1, 1);
+
+        // Limite acima do máximo do servidor: páginas de 3; a última não anuncia uma página vazia
+        assertEquals(List.of(expected.subList(0, 3), expected.subList(3, 4)), walk(50));
+        assertEquals(List.of(expected.subList(0, 2), expected.subList(2, 4)), walk(2));
+    }
+
+    @Test
+    void cursorRoundTripsAndRejectsGarbage() {
+        SensorDataCursor cursor = new SensorDataCursor(base.plusSeconds(7).plusNanos(250_000_000), 42L);
+        assertEquals(cursor, SensorDataCursor.decode(cursor.encode()));
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+
+        for (String invalid : List.of("%%%", "bm8tc2VwYXJhdG9y", "MjAyNC0xMy0wMVQwMDowMHw0Mg")) {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> SensorDataCursor.decode(invalid));
+            assertEquals("Cursor de paginação inválido", error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.PartitionInterval;
+import com.iotcitybackend.service.SensorDataPartitionManager.PartitionRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensorDataPartitionManagerTest {
+
+    private static PartitionRange range(String name, LocalDate from, LocalDate to) {
+        return new PartitionRange(name, from.atStartOfDay(), to.atStartOfDay());
+    }
+
+    @Test
+    void plansDailyPartitionsSkippingExistingOnes() {
+        LocalDate day = LocalDate.of(2024, 3, 15);
+        List<PartitionRange> existing = List.of(range("sensor_data_p20240316", day.plusDays(1), day.plusDays(2)));
+
+        assertEquals(List.of(
+                range("sensor_data_p20240315", day, day.plusDays(1)),
+                range("sensor_data_p20240317", day.plusDays(2), day.plusDays(3))
+        ), SensorDataPartitionManager.plan(PartitionInterval.DAILY, day, day.plusDays(2), existing));
+    }
+
+    @Test
+    void weeklyPartitionsStartOnMonday() {
+        // 2024-03-15 é sexta-feira
+        List<PartitionRange> planned = SensorDataPartitionManager.plan(PartitionInterval.WEEKLY,
+                LocalDate.of(2024, 3, 15), LocalDate.of(2024, 3, 18), List.of());
+
+        assertEquals(List.of(
+                range("sensor_data_p20240311", LocalDate.of(2024, 3, 11), LocalDate.of(2024, 3, 18)),
+                range("sensor_data_p20240318", LocalDate.of(2024, 3, 18), LocalDate.of(2024, 3, 25))
+        ), planned);
+    }
+
+    @Test
+    void skipsPeriodsCoveredByPartitionsOfAnotherWidth() {
+        // Partições diárias antigas continuam válidas depois de trocar o intervalo para semanal
+        LocalDate monday = LocalDate.of(2024, 3, 11);
+        List<PartitionRange> existing = List.of(range("sensor_data_p20240313", monday.plusDays(2), monday.plusDays(3)));
+
+        List<PartitionRange> planned = SensorDataPartitionManager.plan(PartitionInterval.WEEKLY,
+                monday, monday.plusDays(7), existing);
+
+        assertEquals(List.of(new PartitionRange("sensor_data_p20240318",
+                LocalDateTime.of(2024, 3, 18, 0, 0), LocalDateTime.of(2024, 3, 25, 0, 0))), planned);
+    }
+}
@@ -0,0 +1,26 @@
+package com.iotcitybackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorDataRetentionServiceTest {
+
+    @Test
+    void parsesPolicies() {
+        assertEquals(Map.of("MOVIMENTO", 7, "TEMPERATURA", 90),
+                SensorDataRetentionService.parsePolicies(" movimento:7, TEMPERATURA : 90 "));
+        assertTrue(SensorDataRetentionService.parsePolicies("").isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidPolicies() {
+        assertThrows(IllegalStateException.class, () -> SensorDataRetentionService.parsePolicies("MOVIMENTO"));
+        assertThrows(IllegalStateException.class, () -> SensorDataRetentionService.parsePolicies("MOVIMENTO:sete"));
+        assertThrows(IllegalStateException.class, () -> SensorDataRetentionService.parsePolicies("MOVIMENTO:0"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.RollupResolution;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.SensorDataAggregate;
+import com.iotcitybackend.repository.SensorDataRollupRepository;
+import com.iotcitybackend.repository.SensorDataRollupRepository.BucketRange;
+import com.iotcitybackend.repository.SensorDataRollupRepository.RollupDelta;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SensorDataRollupServiceTest {
+
+    private static List<BucketRange> cover(LocalDateTime from, LocalDateTime to) {
+        List<BucketRange> ranges = new ArrayList<>();
+        SensorDataRollupService.coverWithBuckets(from, to, 0, ranges);
+        return ranges;
+    }
+
+    @Test
+    void usesCoarsestBucketsThatFitTheRange() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 15, 22, 47);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 18, 1, 5);
+
+        assertEquals(List.of(
+                new BucketRange(RollupResolution.MINUTE, from, LocalDateTime.of(2024, 3, 15, 23, 0)),
+                new BucketRange(RollupResolution.HOUR, LocalDateTime.of(2024, 3, 15, 23, 0), LocalDateTime.of(2024, 3, 16, 0, 0)),
+                new BucketRange(RollupResolution.DAY, LocalDateTime.of(2024, 3, 16, 0, 0), LocalDateTime.of(2024, 3, 18, 0, 0)),
+                new BucketRange(RollupResolution.HOUR, LocalDateTime.of(2024, 3, 18, 0, 0), LocalDateTime.of(2024, 3, 18, 1, 0)),
+                new BucketRange(RollupResolution.MINUTE, LocalDateTime.of(2024, 3, 18, 1, 0), to)
+        ), cover(from, to));
+    }
+
+    @Test
+    void rangesAreContiguousAndAligned() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime from = base.plusMinutes(random.nextInt(0, 200_000));
+            LocalDateTime to = from.plusMinutes(random.nextInt(1, 20_000));
+            LocalDateTime cursor = from;
+            for (BucketRange range : cover(from, to)) {
+                assertEquals(cursor, range.from());
+                assertTrue(range.from().isBefore(range.to()));
+                assertEquals(range.from(), range.resolution().floor(range.from()));
+                assertEquals(range.to(), range.resolution().floor(range.to()));
+                cursor = range.to();
+            }
+            assertEquals(to, cursor);
+        }
+    }
+
+    private final SensorDataRollupRepository rollupRepository = mock(SensorDataRollupRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(
+            new DriverManagerDataSource("jdbc:h2:mem:rollup-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "")));
+    private final SensorDataRollupService service = new SensorDataRollupService(rollupRepository, null, transactionTemplate);
+
+    private static SensorData reading(double value, LocalDateTime timestamp) {
+        return SensorData.builder().device(Device.builder().id(7L).build()).sensorType("TEMPERATURA")
+                .value(value).unit("CELSIUS").timestamp(timestamp).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RollupDelta> flushed(int times) {
+        ArgumentCaptor<List<RollupDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rollupRepository, times(times)).upsert(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void upsertsAfterCommitOutsideTheIngestTransaction() {
+        LocalDateTime at = LocalDateTime.of(2024, 3, 15, 10, 30, 12);
+        transactionTemplate.executeWithoutResult(status -> {
+            service.record(List.of(reading(20.0, at), reading(22.0, at.plusSeconds(5))));
+            service.flush();
+            // Nada gravado enquanto a transação das leituras está aberta
+            verify(rollupRepository, never()).upsert(anyList());
+        });
+        transactionTemplate.executeWithoutResult(status -> service.record(List.of(reading(24.0, at.plusMinutes(1)))));
+
+        assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+        service.flush();
+
+        // Lotes acumulados em um único upsert por bucket, na ordem das chaves
+        List<RollupDelta> deltas = flushed(1);
+        assertEquals(List.of(
+                new RollupDelta(RollupResolution.DAY, 7L, "TEMPERATURA", LocalDateTime.of(2024, 3, 15, 0, 0),
+                        SensorDataAggregate.of(20.0).merge(SensorDataAggregate.of(22.0)).merge(SensorDataAggregate.of(24.0))),
+                new RollupDelta(RollupResolution.HOUR, 7L, "TEMPERATURA", LocalDateTime.of(2024, 3, 15, 10, 0),
+                        SensorDataAggregate.of(20.0).merge(SensorDataAggregate.of(22.0)).merge(SensorDataAggregate.of(24.0))),
+                new RollupDelta(RollupResolution.MINUTE, 7L, "TEMPERATURA", LocalDateTime.of(2024, 3, 15, 10, 30),
+                        SensorDataAggregate.of(20.0).merge(SensorDataAggregate.of(22.0))),
+                new RollupDelta(RollupResolution.MINUTE, 7L, "TEMPERATURA", LocalDateTime.of(2024, 3, 15, 10, 31),
+                        SensorDataAggregate.of(24.0))
+        ), deltas);
+
+        service.flush();
+        flushed(1);
+    }
+
+    @Test
+    void discardsRolledBackReadingsAndRetriesFailedFlush() {
+        LocalDateTime at = LocalDateTime.of(2024, 3, 15, 10, 30, 12);
+        transactionTemplate.executeWithoutResult(status -> {
+            service.record(List.of(reading(99.0, at)));
+            status.setRollbackOnly();
+        });
+        service.flush();
+        verify(rollupRepository, never()).upsert(anyList());
+
+        service.record(List.of(reading(20.0, at)));
+        doThrow(new TransientDataAccessResourceException("conexão perdida")).when(rollupRepository).upsert(anyList());
+        service.flush();
+        // Os deltas da tentativa que falhou voltam para o acumulador
+        service.record(List.of(reading(22.0, at)));
+        reset(rollupRepository);
+        service.flush();
+
+        assertTrue(flushed(1).stream().allMatch(delta -> delta.aggregate().count() == 2));
+    }
+}
@@ -0,0 +1,143 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.infrastructure.timeseries.SensorTimeSeriesStore;
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Write-behind contra o repositório JPA real (H2): a gravação que falha depois do persist deixa ids nas entidades,
+ * e a nova tentativa ou a divisão do lote precisam gravá-las de novo
+ */
+@DataJpaTest
+@Import(SensorDataService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+class SensorDataWriteBehindJpaTest {
+
+    @Autowired
+    private SensorDataService sensorDataService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private DeviceLivenessTracker livenessTracker;
+
+    @MockBean
+    private SensorDataRollupService rollupService;
+
+    @MockBean
+    private SensorTimeSeriesStore timeSeriesStore;
+
+    @MockBean
+    private SensorDataLatestCache latestCache;
+
+    @MockBean
+    private DeviceRegistryCache deviceRegistry;
+
+    @MockBean
+    private SensorTypeCatalog sensorTypeCatalog;
+
+    @MockBean
+    private LiveFeedService liveFeed;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SensorDataWriteBehindService service;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM sensor_data");
+        device = deviceRepository.save(Device.builder().name("Estação Ponta Negra").type("SENSOR")
+                .location("Natal").active(true).build());
+        service = new SensorDataWriteBehindService(sensorDataService, meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "capacity", 100);
+        ReflectionTestUtils.setField(service, "writerThreads", 1);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(service, "maxRetryBackoffMs", 20L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    private SensorData reading(Device owner, double value) {
+        return SensorData.builder().device(owner).sensorType("TEMPERATURA").value(value).unit("CELSIUS").build();
+    }
+
+    private long storedReadings() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data", Long.class);
+    }
+
+    @Test
+    void retriesTransientFailureAfterIdsWereAssigned() throws InterruptedException {
+        // A falha vem depois do insertBatch: as leituras já têm id quando a transação é desfeita
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new TransientDataAccessResourceException("conexão perdida");
+            }
+            return null;
+        }).when(rollupService).record(anyList());
+
+        service.start();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.enqueue(reading(device, 20.0 + i)));
+        }
+        service.stop();
+
+        assertEquals(5, storedReadings());
+        assertEquals(5.0, meterRegistry.get("iot.ingest.persisted").counter().count());
+        assertEquals(1.0, meterRegistry.get("iot.ingest.retries").counter().count());
+        assertEquals(0.0, meterRegistry.get("iot.ingest.dropped").counter().count());
+    }
+
+    @Test
+    void dataErrorDropsOnlyTheReadingThatViolatesTheConstraint() throws InterruptedException {
+        // Dispositivo inexistente: o lote inteiro viola a FK e é dividido até isolar a leitura
+        Device removed = Device.builder().id(device.getId() + 1_000).build();
+
+        service.start();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(service.enqueue(reading(i == 4 ? removed : device, 20.0 + i)));
+        }
+        service.stop();
+
+        assertEquals(5, storedReadings());
+        assertEquals(5.0, meterRegistry.get("iot.ingest.persisted").counter().count());
+        assertEquals(1.0, meterRegistry.get("iot.ingest.dropped").counter().count());
+    }
+}
@@ -0,0 +1,153 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SensorDataWriteBehindServiceTest {
+
+    private final SensorDataService sensorDataService = mock(SensorDataService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SensorDataWriteBehindService service;
+
+    private SensorDataWriteBehindService newService(int capacity, int maxBatchSize) {
+        SensorDataWriteBehindService created = new SensorDataWriteBehindService(sensorDataService, meterRegistry);
+        ReflectionTestUtils.setField(created, "enabled", true);
+        ReflectionTestUtils.setField(created, "capacity", capacity);
+        ReflectionTestUtils.setField(created, "writerThreads", 1);
+        ReflectionTestUtils.setField(created, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(created, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(created, "retryAfterSeconds", 1);
+        ReflectionTestUtils.setField(created, "maxAttempts", 3);
+        ReflectionTestUtils.setField(created, "retryBackoffMs", 10L);
+        ReflectionTestUtils.setField(created, "maxRetryBackoffMs", 20L);
+        return created;
+    }
+
+    private SensorData reading() {
+        return reading(1L);
+    }
+
+    private SensorData reading(long deviceId) {
+        SensorData data = new SensorData();
+        data.setDevice(Device.builder().id(deviceId).build());
+        data.setSensorType("TEMPERATURA");
+        data.setValue(21.0);
+        return data;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void drainsQueuedReadingsInBoundedBatches() throws InterruptedException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch persisted = new CountDownLatch(25);
+        doAnswer(invocation -> {
+            List<SensorData> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            batch.forEach(data -> persisted.countDown());
+            return batch.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        service = newService(100, 10);
+        service.start();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(service.enqueue(reading()));
+        }
+
+        assertTrue(persisted.await(5, TimeUnit.SECONDS));
+        service.stop();
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        assertEquals(25.0, meterRegistry.get("iot.ingest.persisted").counter().count());
+    }
+
+    @Test
+    void rejectsWithoutBlockingWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return 0;
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        service = newService(2, 1);
+        service.start();
+        // O writer fica preso no primeiro lote; o buffer comporta mais duas leituras
+        assertTrue(service.enqueue(reading()));
+        Thread.sleep(100);
+        assertTrue(service.enqueue(reading()));
+        assertTrue(service.enqueue(reading()));
+        assertFalse(service.enqueue(reading()));
+
+        assertEquals(1.0, meterRegistry.get("iot.ingest.rejected").counter().count());
+        assertEquals(2.0, meterRegistry.get("iot.ingest.queue.depth").gauge().value());
+        release.countDown();
+    }
+
+    @Test
+    void retriesTransientFailures() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch persisted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new TransientDataAccessResourceException("conexão recusada");
+            }
+            persisted.countDown();
+            return 5;
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        service = newService(100, 10);
+        service.start();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.enqueue(reading()));
+        }
+
+        assertTrue(persisted.await(5, TimeUnit.SECONDS));
+        service.stop();
+        assertEquals(5.0, meterRegistry.get("iot.ingest.persisted").counter().count());
+        assertEquals(2.0, meterRegistry.get("iot.ingest.retries").counter().count());
+        assertEquals(0.0, meterRegistry.get("iot.ingest.dropped").counter().count());
+    }
+
+    @Test
+    void dataErrorDropsOnlyTheInvalidReadings() throws InterruptedException {
+        // Dispositivo 99 removido depois do aceite: qualquer lote que o contenha viola a FK
+        doAnswer(invocation -> {
+            List<SensorData> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(data -> data.getDevice().getId() == 99L)) {
+                throw new DataIntegrityViolationException("fk_sensor_data_device");
+            }
+            return batch.size();
+        }).when(sensorDataService).saveSensorDataBatch(anyList());
+
+        service = newService(100, 10);
+        service.start();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(service.enqueue(reading(i == 3 || i == 7 ? 99L : 1L)));
+        }
+        service.stop();
+
+        assertEquals(8.0, meterRegistry.get("iot.ingest.persisted").counter().count());
+        assertEquals(2.0, meterRegistry.get("iot.ingest.dropped").counter().count());
+        assertEquals(0.0, meterRegistry.get("iot.ingest.retries").counter().count());
+    }
+}
@@ -0,0 +1,99 @@
+package com.iotcitybackend.service;
+
+import com.iotcitybackend.model.Device;
+import com.iotcitybackend.model.SensorData;
+import com.iotcitybackend.repository.DeviceSensorTypeRepository;
+import com.iotcitybackend.repository.DeviceSensorTypeRepository.DeviceSensorTypePair;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SensorTypeCatalogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 15, 10, 0);
+
+    private final DeviceSensorTypeRepository repository = mock(DeviceSensorTypeRepository.class);
+    private final SensorTypeCatalog catalog = new SensorTypeCatalog(repository);
+
+    private SensorData reading(long deviceId, String sensorType, LocalDateTime timestamp) {
+        return SensorData.builder()
+                .device(Device.builder().id(deviceId).build())
+                .sensorType(sensorType)
+                .value(1.0)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    @Test
+    void loadsTableAndRecordsOnlyNewPairs() {
+        when(repository.isEmpty()).thenReturn(false);
+        when(repository.findAll()).thenReturn(List.of(new DeviceSensorTypePair(1L, "UMIDADE", NOW)));
+        catalog.afterSingletonsInstantiated();
+        verify(repository, never()).rebuildFromReadings();
+        assertEquals(List.of("UMIDADE"), catalog.getSensorTypes());
+
+        catalog.record(List.of(reading(1L, "UMIDADE", NOW)));
+        verify(repository, never()).insertMissing(anyList());
+
+        catalog.record(List.of(
+                reading(1L, "UMIDADE", NOW),
+                reading(2L, "LUZ", NOW),
+                reading(2L, "LUZ", NOW.minusHours(1))));
+        verify(repository).insertMissing(List.of(new DeviceSensorTypePair(2L, "LUZ", NOW.minusHours(1))));
+        assertEquals(List.of("LUZ", "UMIDADE"), catalog.getSensorTypes());
+        assertEquals(List.of(2L), catalog.getDeviceIds("LUZ"));
+        assertEquals(List.of(), catalog.getDeviceIds("RUÍDO"));
+
+        catalog.forgetDevice(2L);
+        verify(repository).deleteByDeviceId(2L);
+        assertEquals(List.of("UMIDADE"), catalog.getSensorTypes());
+    }
+
+    @Test
+    void reloadPicksUpPairsWrittenByOtherInstances() {
+        when(repository.findAll()).thenReturn(List.of(new DeviceSensorTypePair(1L, "UMIDADE", NOW)));
+        catalog.afterSingletonsInstantiated();
+
+        when(repository.findAll()).thenReturn(List.of(
+                new DeviceSensorTypePair(1L, "UMIDADE", NOW),
+                new DeviceSensorTypePair(3L, "RUÍDO", NOW)));
+        catalog.reload();
+        assertEquals(List.of("RUÍDO", "UMIDADE"), catalog.getSensorTypes());
+        assertEquals(List.of(3L), catalog.getDeviceIds("RUÍDO"));
+    }
+
+    @Test
+    void purgesPairsLeftWithoutReadings() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:catalog-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE sensor_data (id BIGINT, device_id BIGINT, sensor_type VARCHAR(50), timestamp TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE device_sensor_type (device_id BIGINT, sensor_type VARCHAR(50), first_seen TIMESTAMP, " +
+                "PRIMARY KEY (device_id, sensor_type))");
+        jdbcTemplate.update("INSERT INTO sensor_data VALUES (1, 1, 'MOVIMENTO', ?)", NOW);
+        SensorTypeCatalog realCatalog = new SensorTypeCatalog(new DeviceSensorTypeRepository(jdbcTemplate));
+        realCatalog.afterSingletonsInstantiated();
+        realCatalog.record(List.of(reading(2L, "MOVIMENTO", NOW), reading(2L, "LUZ", NOW)));
+        assertEquals(List.of(1L, 2L), realCatalog.getDeviceIds("MOVIMENTO").stream().sorted().toList());
+
+        // A retenção apagou as leituras do dispositivo 2 (as dele nunca chegaram a sensor_data neste teste)
+        assertEquals(1, realCatalog.purgeWithoutReadings(List.of("MOVIMENTO")));
+        assertEquals(List.of(1L), realCatalog.getDeviceIds("MOVIMENTO"));
+        // Tipos fora da retenção não são tocados
+        assertEquals(List.of(2L), realCatalog.getDeviceIds("LUZ"));
+    }
+
+    @Test
+    void rebuildsFromReadingsWhenTableIsEmpty() {
+        when(repository.isEmpty()).thenReturn(true);
+        when(repository.findAll()).thenReturn(List.of());
+        catalog.afterSingletonsInstantiated();
+        verify(repository).rebuildFromReadings();
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useCallback } from 'react';
 import { motion } from 'framer-motion';
 import { 
   Cpu, 
@@ -14,45 +14,70 @@ import { StatCard } from '../components/ui/Card';
 import { Loading } from '../components/ui/Loading';
 import { Badge } from '../components/ui/Badge';
 import { Button } from '../components/ui/Button';
+import { DeviceStats, LiveDelta, LiveDevice, subscribeLiveFeed } from '../services/liveFeed';
 
-interface Device {
-  id: number;
-  name: string;
-  type: string;
-  location: string;
-  active: boolean;
-  batteryLevel?: number;
-  signalStrength?: number;
-  lastSeen: string;
-}
+type Device = LiveDevice;
+
+// Aplica um delta do feed à lista: atualiza/inclui dispositivos, remove excluídos e avança o lastSeen
+const applyDelta = (devices: Device[], delta: LiveDelta): Device[] => {
+  let next = devices;
+  if (delta.devices?.length) {
+    const changed = new Map(delta.devices.map(device => [device.id, device]));
+    next = next.map(device => changed.get(device.id) ?? device);
+    const known = new Set(next.map(device => device.id));
+    next = next.concat(delta.devices.filter(device => !known.has(device.id)));
+  }
+  if (delta.removedDevices?.length) {
+    const removed = new Set(delta.removedDevices);
+    next = next.filter(device => !removed.has(device.id));
+  }
+  if (delta.connectivity?.length) {
+    const lastSeen = new Map(delta.connectivity.map(change => [change.deviceId, change.lastSeen]));
+    next = next.map(device => lastSeen.has(device.id) ? { ...device, lastSeen: lastSeen.get(device.id)! } : device);
+  }
+  return next;
+};
 
 const Dashboard: React.FC = () => {
   const [devices, setDevices] = useState<Device[]>([]);
+  const [stats, setStats] = useState<DeviceStats | null>(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [live, setLive] = useState(false);
 
-  useEffect(() => {
-    fetchDevices();
-    const interval = setInterval(fetchDevices, 30000); // Refresh every 30s
-    return () => clearInterval(interval);
-  }, []);
-
-  const fetchDevices = async () => {
+  // Estado completo: na abertura, ao pedir atualização e quando o feed pede resync
+  const fetchDevices = useCallback(async () => {
     try {
       setLoading(true);
-      const response = await fetch('/api/devices');
-      if (!response.ok) {
+      const [devicesResponse, statsResponse] = await Promise.all([
+        fetch('/api/devices'),
+        fetch('/api/devices/stats')
+      ]);
+      if (!devicesResponse.ok || !statsResponse.ok) {
         throw new Error('Erro ao carregar dispositivos');
       }
-      const data = await response.json();
-      setDevices(data);
+      setDevices(await devicesResponse.json());
+      setStats(await statsResponse.json());
       setError(null);
     } catch (err) {
       setError(err instanceof Error ? err.message : 'Erro desconhecido');
     } finally {
       setLoading(false);
     }
-  };
+  }, []);
+
+  // Atualizações incrementais pelo feed em tempo real (substitui o polling)
+  useEffect(() => {
+    fetchDevices();
+    return subscribeLiveFeed({}, {
+      onDelta: (delta) => {
+        setDevices(current => applyDelta(current, delta));
+        if (delta.stats) setStats(delta.stats);
+      },
+      onResync: fetchDevices,
+      onConnectionChange: setLive
+    });
+  }, [fetchDevices]);
 
   const getDeviceTypeEmoji = (type: string) => {
     const icons: { [key: string]: string } = {
@@ -70,11 +95,11 @@ const Dashboard: React.FC = () => {
     return icons[type] || '📱';
   };
 
-  // Estatísticas
-  const totalDevices = devices.length;
-  const activeDevices = devices.filter(d => d.active).length;
-  const offlineDevices = devices.filter(d => !d.active).length;
-  const lowBatteryDevices = devices.filter(d => d.batteryLevel && d.batteryLevel < 20).length;
+  // Estatísticas (contadores do servidor; calculadas da lista até a primeira resposta)
+  const totalDevices = stats?.totalDevices ?? devices.length;
+  const activeDevices = stats?.activeDevices ?? devices.filter(d => d.active).length;
+  const offlineDevices = stats?.offlineDevices ?? devices.filter(d => !d.active).length;
+  const lowBatteryDevices = stats?.lowBatteryDevices ?? devices.filter(d => d.batteryLevel && d.batteryLevel < 20).length;
   const activePercentage = totalDevices > 0 ? ((activeDevices / totalDevices) * 100).toFixed(1) : 0;
 
   // Dispositivos por tipo
@@ -120,6 +145,9 @@ const Dashboard: React.FC = () => {
         <p className="text-white/70 text-lg">
           Visão geral do sistema de dispositivos IoT em tempo real
         </p>
+        <Badge variant={live ? 'success' : 'warning'} className="mt-3">
+          {live ? 'Ao vivo' : 'Reconectando...'}
+        </Badge>
       </motion.header>
 
       {/* Stats Cards */}
@@ -36,6 +36,9 @@ interface SensorData {
   longitude?: number;
 }
 
+// Teto de páginas buscadas por consulta (cada página tem até sensor.query.max-page-size itens)
+const MAX_SENSOR_DATA_PAGES = 20;
+
 const Sensors: React.FC = () => {
   const [devices, setDevices] = useState<Device[]>([]);
   const [allDevices, setAllDevices] = useState<Device[]>([]);
@@ -164,9 +167,17 @@ const Sensors: React.FC = () => {
         end: new Date().toISOString()
       };
       
-      const response = await api.get('/sensor-data', { params });
+      // A API é paginada por cursor: segue o cabeçalho X-Next-Cursor até o fim (com um teto de páginas)
+      const rows: any[] = [];
+      let cursor: string | undefined;
+      for (let page = 0; page < MAX_SENSOR_DATA_PAGES; page++) {
+        const response = await api.get('/sensor-data', { params: { ...params, cursor } });
+        rows.push(...response.data);
+        cursor = response.headers['x-next-cursor'];
+        if (!cursor) break;
+      }
 
-      const data = response.data
+      const data = rows
         .sort((a: any, b: any) => new Date(a.timestamp).getTime() - new Date(b.timestamp).getTime())
         .map((item: any) => {
           const numericValue = parseFloat(item.value);
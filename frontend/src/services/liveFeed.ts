@@ -0,0 +1,83 @@
+// Feed em tempo real do backend (GET /api/live/stream, Server-Sent Events)
+
+export interface LiveDevice {
+  id: number;
+  name: string;
+  type: string;
+  location: string;
+  active: boolean;
+  batteryLevel?: number;
+  signalStrength?: number;
+  lastSeen: string;
+}
+
+export interface DeviceStats {
+  totalDevices: number;
+  activeDevices: number;
+  offlineDevices: number;
+  lowBatteryDevices: number;
+}
+
+export interface LiveConnectivity {
+  deviceId: number;
+  online: boolean;
+  lastSeen: string;
+}
+
+export interface LiveReading {
+  deviceId: number;
+  sensorType: string;
+  value: number;
+  unit?: string;
+  timestamp: string;
+  latitude?: number;
+  longitude?: number;
+}
+
+// Campos ausentes não mudaram desde o último evento
+export interface LiveDelta {
+  devices?: LiveDevice[];
+  removedDevices?: number[];
+  connectivity?: LiveConnectivity[];
+  readings?: LiveReading[];
+  stats?: DeviceStats;
+}
+
+export interface LiveFeedFilters {
+  type?: string;
+  location?: string;
+}
+
+export interface LiveFeedHandlers {
+  onDelta: (delta: LiveDelta) => void;
+  // O cliente ficou para trás ou reconectou: recarregar o estado completo
+  onResync: () => void;
+  onConnectionChange?: (connected: boolean) => void;
+}
+
+/**
+ * Assina o feed; o EventSource reconecta sozinho após quedas e cada reconexão chama onResync.
+ * Retorna a função para cancelar a assinatura
+ */
+export const subscribeLiveFeed = (filters: LiveFeedFilters, handlers: LiveFeedHandlers): (() => void) => {
+  const params = new URLSearchParams();
+  if (filters.type) params.set('type', filters.type);
+  if (filters.location) params.set('location', filters.location);
+  const query = params.toString();
+  const source = new EventSource(`/api/live/stream${query ? `?${query}` : ''}`);
+
+  source.addEventListener('delta', (event) => {
+    handlers.onDelta(JSON.parse((event as MessageEvent).data) as LiveDelta);
+  });
+  source.addEventListener('resync', () => handlers.onResync());
+  // Na reconexão o servidor só envia os contadores: alterações feitas durante a queda se perderam
+  let connectedBefore = false;
+  source.onopen = () => {
+    if (connectedBefore) handlers.onResync();
+    connectedBefore = true;
+    handlers.onConnectionChange?.(true);
+  };
+  source.onerror = () => handlers.onConnectionChange?.(false);
+
+  return () => source.close();
+};